@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+import org.eclipse.packagedrone.utils.rpm.RpmTag;
+import org.eclipse.packagedrone.utils.rpm.parse.InputHeader;
+
+import de.dentrassi.eclipse.rpm.editor.LocalRpmFile;
+import de.dentrassi.eclipse.rpm.editor.RpmHeaderInputStream;
+
+/**
+ * Access to the synthetic RPM files used by the benchmarks
+ * <p>
+ * Generating large RPM files takes a while, so generated files are kept in
+ * the directory given by the system property {@code rpm.benchmarks.dir}, or
+ * a directory in the temp directory by default.
+ * </p>
+ */
+public final class Fixtures {
+
+	private Fixtures() {
+	}
+
+	/**
+	 * Get a synthetic RPM file, generating it if necessary
+	 *
+	 * @see SyntheticRpm#write(Path, int, String, boolean)
+	 */
+	public static Path rpm(final int numberOfFiles, final String coding, final boolean headerFiles)
+			throws IOException {
+		final Path dir = Paths.get(System.getProperty("rpm.benchmarks.dir",
+				Paths.get(System.getProperty("java.io.tmpdir"), "rpm-editor-benchmarks").toString()));
+
+		final Path file = dir.resolve(String.format("synthetic-%s-%s-%s.rpm", numberOfFiles, coding,
+				headerFiles ? "header" : "payload"));
+
+		if (!Files.exists(file)) {
+			Files.createDirectories(dir);
+			final Path tmp = Files.createTempFile(dir, "synthetic", ".tmp");
+			try {
+				SyntheticRpm.write(tmp, numberOfFiles, coding, headerFiles);
+				Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(tmp);
+			}
+		}
+
+		return file;
+	}
+
+	/**
+	 * Read the main header of a synthetic RPM file
+	 */
+	public static InputHeader<RpmTag> header(final int numberOfFiles) throws IOException {
+		try (LocalRpmFile file = new LocalRpmFile(rpm(numberOfFiles, "gzip", true));
+				RpmHeaderInputStream in = new RpmHeaderInputStream(file.open(0))) {
+			return in.getPayloadHeader();
+		}
+	}
+}
@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.packagedrone.utils.rpm.RpmTag;
+import org.eclipse.packagedrone.utils.rpm.parse.HeaderValue;
+import org.eclipse.packagedrone.utils.rpm.parse.InputHeader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.dentrassi.eclipse.rpm.editor.HeaderValues;
+
+/**
+ * Benchmark of rendering the header page
+ * <p>
+ * This renders the value column for all tags of the main header, the way the
+ * header page does when it gets shown.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class HeaderBenchmark {
+
+	@Param({ "1000", "100000", "1000000" })
+	public int files;
+
+	private InputHeader<RpmTag> header;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		this.header = Fixtures.header(this.files);
+	}
+
+	@Benchmark
+	public void renderValues(final Blackhole blackhole) {
+		for (final HeaderValue value : this.header.getRawTags().values()) {
+			blackhole.consume(HeaderValues.makeString(value.getValue(), 200));
+		}
+	}
+}
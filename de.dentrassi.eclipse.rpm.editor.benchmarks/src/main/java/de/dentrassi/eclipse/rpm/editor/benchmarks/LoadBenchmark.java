@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.cpio.CpioArchiveInputStream;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.dentrassi.eclipse.rpm.editor.LocalRpmFile;
+import de.dentrassi.eclipse.rpm.editor.Payloads;
+import de.dentrassi.eclipse.rpm.editor.RpmCache;
+import de.dentrassi.eclipse.rpm.editor.RpmHeaderInputStream;
+import de.dentrassi.eclipse.rpm.editor.RpmInformation;
+import de.dentrassi.eclipse.rpm.editor.RpmLoader;
+import de.dentrassi.eclipse.rpm.editor.RpmSource;
+
+/**
+ * Benchmarks of the steps the load job of the editor performs
+ * <p>
+ * {@link #readHeader()} reads the lead and the headers, {@link #walkPayload}
+ * decompresses the payload and walks over all CPIO entries, which is required
+ * when the header lacks the file information.
+ * </p>
+ * <p>
+ * {@link #loadHeaderFiles()} and {@link #loadPayloadFiles()} run the whole
+ * {@link RpmLoader}, including the file tree and its index, which the editor
+ * builds before showing the files. {@link #loadCached()} looks up the result
+ * in the {@link RpmCache} first, like an editor opening a file again. Showing
+ * the result is left out, as it requires a display.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LoadBenchmark {
+
+	@Param({ "1000", "100000", "1000000" })
+	public int files;
+
+	@Param({ "gzip", "xz", "zstd" })
+	public String coding;
+
+	private LocalRpmFile headerRpm;
+
+	private LocalRpmFile payloadRpm;
+
+	private RpmCache cache;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		this.headerRpm = new LocalRpmFile(Fixtures.rpm(this.files, this.coding, true));
+		this.payloadRpm = new LocalRpmFile(Fixtures.rpm(this.files, this.coding, false));
+		this.cache = new RpmCache(Long.MAX_VALUE);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		this.headerRpm.close();
+		this.payloadRpm.close();
+	}
+
+	@Benchmark
+	public Object readHeader() throws IOException {
+		try (RpmHeaderInputStream in = new RpmHeaderInputStream(this.headerRpm.open(0))) {
+			return in.getPayloadHeader();
+		}
+	}
+
+	@Benchmark
+	public void walkPayload(final Blackhole blackhole) throws IOException {
+		final long payloadOffset;
+		final CpioArchiveInputStream cpio;
+
+		try (RpmHeaderInputStream in = new RpmHeaderInputStream(this.payloadRpm.open(0))) {
+			payloadOffset = in.getPayloadOffset();
+			cpio = Payloads.openCpio(in.getPayloadHeader(), this.payloadRpm.open(payloadOffset));
+		}
+
+		try {
+			ArchiveEntry entry;
+			while ((entry = cpio.getNextEntry()) != null) {
+				blackhole.consume(entry.getName());
+			}
+		} finally {
+			cpio.close();
+		}
+	}
+
+	@Benchmark
+	public Object loadHeaderFiles() throws IOException {
+		return load(this.headerRpm);
+	}
+
+	@Benchmark
+	public Object loadPayloadFiles() throws IOException {
+		return load(this.payloadRpm);
+	}
+
+	@Benchmark
+	public Object loadCached() throws IOException {
+		final RpmCache.Key key = this.payloadRpm.getCacheKey();
+		final RpmInformation cached = this.cache.get(key);
+		if (cached != null) {
+			return cached.getFileTreeIndex();
+		}
+		final RpmInformation information = new RpmLoader(this.payloadRpm, null).load(null,
+				new NullProgressMonitor());
+		return this.cache.put(key, information).getFileTreeIndex();
+	}
+
+	private static Object load(final RpmSource source) throws IOException {
+		final RpmInformation information = new RpmLoader(source, null).load(null, new NullProgressMonitor());
+		return information.getFileTreeIndex();
+	}
+}
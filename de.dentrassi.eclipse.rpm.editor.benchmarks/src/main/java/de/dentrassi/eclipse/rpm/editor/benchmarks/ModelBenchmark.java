@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.packagedrone.utils.rpm.RpmTag;
+import org.eclipse.packagedrone.utils.rpm.parse.InputHeader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.dentrassi.eclipse.rpm.editor.FileEntry;
+import de.dentrassi.eclipse.rpm.editor.FileTable;
+import de.dentrassi.eclipse.rpm.editor.FileTree;
+
+/**
+ * Benchmarks of building the model of the payload page
+ * <p>
+ * {@link #fileTable()} extracts the file meta information from the header,
+ * {@link #payloadFiles()} builds the file list from it and
+ * {@link #fileTree()} builds the tree the payload page shows.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ModelBenchmark {
+
+	@Param({ "1000", "100000", "1000000" })
+	public int files;
+
+	private InputHeader<RpmTag> header;
+
+	private FileTable table;
+
+	private List<FileEntry> entries;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		this.header = Fixtures.header(this.files);
+		this.table = FileTable.fromHeader(this.header);
+		this.entries = this.table.getPayloadFiles().get();
+	}
+
+	@Benchmark
+	public FileTable fileTable() {
+		return FileTable.fromHeader(this.header);
+	}
+
+	@Benchmark
+	public List<FileEntry> payloadFiles() {
+		return this.table.getPayloadFiles().get();
+	}
+
+	@Benchmark
+	public FileTree.Directory fileTree() {
+		return FileTree.build(this.entries, this.table);
+	}
+}
@@ -0,0 +1,373 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor.benchmarks;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.compress.archivers.cpio.CpioArchiveEntry;
+import org.apache.commons.compress.archivers.cpio.CpioArchiveOutputStream;
+import org.apache.commons.compress.archivers.cpio.CpioConstants;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorOutputStream;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.XZOutputStream;
+
+/**
+ * Generator for synthetic RPM files
+ * <p>
+ * The generated files contain the lead, a signature header with size and
+ * digests, a main header with the usual file tags and a CPIO payload. Files
+ * are spread over directories of 50 entries each, the payload is written in
+ * path order, like {@code rpmbuild} does.
+ * </p>
+ */
+public final class SyntheticRpm {
+
+	private static final int TYPE_SHORT = 3;
+	private static final int TYPE_INT = 4;
+	private static final int TYPE_STRING = 6;
+	private static final int TYPE_BLOB = 7;
+	private static final int TYPE_STRING_ARRAY = 8;
+
+	private static final int FILES_PER_DIRECTORY = 50;
+
+	private static final int BASE_MTIME = 1_500_000_000;
+
+	/**
+	 * The size of xz blocks, three times the dictionary size, like the xz
+	 * tool uses in multi-threaded mode
+	 */
+	private static final int XZ_BLOCK_SIZE = 3 * 1024 * 1024;
+
+	private static class Header {
+
+		private final Map<Integer, Object[]> entries = new TreeMap<>();
+
+		public void put(final int tag, final int type, final Object value) {
+			this.entries.put(tag, new Object[] { type, value });
+		}
+
+		public byte[] toBytes(final boolean pad) throws IOException {
+			final ByteArrayOutputStream store = new ByteArrayOutputStream();
+			final ByteArrayOutputStream index = new ByteArrayOutputStream();
+			final DataOutputStream data = new DataOutputStream(store);
+			final DataOutputStream idx = new DataOutputStream(index);
+
+			for (final Map.Entry<Integer, Object[]> entry : this.entries.entrySet()) {
+				final int type = (Integer) entry.getValue()[0];
+				final Object value = entry.getValue()[1];
+
+				final int align = type == TYPE_SHORT ? 2 : type == TYPE_INT ? 4 : 1;
+				while (store.size() % align != 0) {
+					data.write(0);
+				}
+
+				final int offset = store.size();
+				final int count;
+
+				switch (type) {
+				case TYPE_SHORT:
+					for (final short s : (short[]) value) {
+						data.writeShort(s);
+					}
+					count = ((short[]) value).length;
+					break;
+				case TYPE_INT:
+					for (final int i : (int[]) value) {
+						data.writeInt(i);
+					}
+					count = ((int[]) value).length;
+					break;
+				case TYPE_STRING:
+					data.write(((String) value).getBytes(StandardCharsets.UTF_8));
+					data.write(0);
+					count = 1;
+					break;
+				case TYPE_BLOB:
+					data.write((byte[]) value);
+					count = ((byte[]) value).length;
+					break;
+				case TYPE_STRING_ARRAY:
+					for (final String s : (String[]) value) {
+						data.write(s.getBytes(StandardCharsets.UTF_8));
+						data.write(0);
+					}
+					count = ((String[]) value).length;
+					break;
+				default:
+					throw new IllegalArgumentException(String.format("Unsupported type: %s", type));
+				}
+
+				idx.writeInt(entry.getKey());
+				idx.writeInt(type);
+				idx.writeInt(offset);
+				idx.writeInt(count);
+			}
+
+			final ByteArrayOutputStream result = new ByteArrayOutputStream();
+			final DataOutputStream out = new DataOutputStream(result);
+
+			out.write(new byte[] { (byte) 0x8E, (byte) 0xAD, (byte) 0xE8, 0x01, 0, 0, 0, 0 });
+			out.writeInt(this.entries.size());
+			out.writeInt(store.size());
+			index.writeTo(out);
+			store.writeTo(out);
+
+			if (pad) {
+				while (result.size() % 8 != 0) {
+					out.write(0);
+				}
+			}
+
+			return result.toByteArray();
+		}
+	}
+
+	private SyntheticRpm() {
+	}
+
+	/**
+	 * Write a synthetic RPM file
+	 *
+	 * @param file
+	 *            the file to write to
+	 * @param numberOfFiles
+	 *            the number of files in the payload
+	 * @param coding
+	 *            the payload compression, {@code gzip}, {@code xz} or
+	 *            {@code zstd}, xz payloads are split into independent blocks
+	 * @param headerFiles
+	 *            whether to add the file tags to the main header, if
+	 *            {@code false} the file list is only available from the
+	 *            payload
+	 * @throws IOException
+	 *             if writing fails
+	 */
+	public static void write(final Path file, final int numberOfFiles, final String coding,
+			final boolean headerFiles) throws IOException {
+
+		final int numberOfDirectories = Math.max(1, (numberOfFiles + FILES_PER_DIRECTORY - 1) / FILES_PER_DIRECTORY);
+
+		final String[] dirnames = new String[numberOfDirectories];
+		for (int i = 0; i < numberOfDirectories; i++) {
+			dirnames[i] = String.format("/usr/share/synthetic/d%06d/", i);
+		}
+
+		final String[] basenames = new String[numberOfFiles];
+		final int[] dirIndexes = new int[numberOfFiles];
+		final int[] sizes = new int[numberOfFiles];
+		final short[] modes = new short[numberOfFiles];
+		final int[] mtimes = new int[numberOfFiles];
+		final int[] flags = new int[numberOfFiles];
+		final String[] users = new String[numberOfFiles];
+		final String[] groups = new String[numberOfFiles];
+		final String[] digests = new String[numberOfFiles];
+		final String[] linkTos = new String[numberOfFiles];
+
+		final MessageDigest sha256 = digest("SHA-256");
+
+		for (int i = 0; i < numberOfFiles; i++) {
+			// files are numbered in path order
+			basenames[i] = String.format("file-%07d.txt", i);
+			dirIndexes[i] = i / FILES_PER_DIRECTORY;
+
+			final byte[] content = content(i);
+			sizes[i] = content.length;
+			modes[i] = (short) 0100644;
+			mtimes[i] = BASE_MTIME + i;
+			users[i] = "root";
+			groups[i] = i % 3 == 0 ? "wheel" : "root";
+			digests[i] = hex(sha256.digest(content));
+			linkTos[i] = "";
+		}
+
+		final Path payload = Files.createTempFile("payload", ".cpio");
+		try {
+			try (CpioArchiveOutputStream cpio = new CpioArchiveOutputStream(
+					compress(coding, new BufferedOutputStream(Files.newOutputStream(payload))),
+					CpioConstants.FORMAT_NEW)) {
+				for (int i = 0; i < numberOfFiles; i++) {
+					final byte[] content = content(i);
+					final CpioArchiveEntry entry = new CpioArchiveEntry(CpioConstants.FORMAT_NEW,
+							"." + dirnames[dirIndexes[i]] + basenames[i], content.length);
+					entry.setMode(0100644);
+					entry.setTime(mtimes[i]);
+					entry.setNumberOfLinks(1);
+					cpio.putArchiveEntry(entry);
+					cpio.write(content);
+					cpio.closeArchiveEntry();
+				}
+			}
+
+			final Header header = new Header();
+			header.put(1000, TYPE_STRING, "synthetic"); // NAME
+			header.put(1001, TYPE_STRING, "1.0"); // VERSION
+			header.put(1002, TYPE_STRING, "1"); // RELEASE
+			header.put(1004, TYPE_STRING, "Synthetic package"); // SUMMARY
+			header.put(1021, TYPE_STRING, "linux"); // OS
+			header.put(1022, TYPE_STRING, "noarch"); // ARCH
+			header.put(1047, TYPE_STRING_ARRAY, new String[] { "synthetic" }); // PROVIDE_NAME
+			header.put(1112, TYPE_INT, new int[] { 8 }); // PROVIDE_FLAGS
+			header.put(1113, TYPE_STRING_ARRAY, new String[] { "1.0-1" }); // PROVIDE_VERSION
+			header.put(1049, TYPE_STRING_ARRAY, new String[] { "rpmlib(CompressedFileNames)", "bash" }); // REQUIRE_NAME
+			header.put(1048, TYPE_INT, new int[] { 16777226, 0 }); // REQUIRE_FLAGS
+			header.put(1050, TYPE_STRING_ARRAY, new String[] { "3.0.4-1", "" }); // REQUIRE_VERSION
+
+			if (headerFiles) {
+				header.put(1028, TYPE_INT, sizes); // FILE_SIZES
+				header.put(1030, TYPE_SHORT, modes); // FILE_MODES
+				header.put(1034, TYPE_INT, mtimes); // FILE_MTIMES
+				header.put(1035, TYPE_STRING_ARRAY, digests); // FILE_DIGESTS
+				header.put(1036, TYPE_STRING_ARRAY, linkTos); // FILE_LINKTO
+				header.put(1037, TYPE_INT, flags); // FILE_FLAGS
+				header.put(1039, TYPE_STRING_ARRAY, users); // FILE_USERNAME
+				header.put(1040, TYPE_STRING_ARRAY, groups); // FILE_GROUPNAME
+				header.put(1116, TYPE_INT, dirIndexes); // DIR_INDEXES
+				header.put(1117, TYPE_STRING_ARRAY, basenames); // BASENAMES
+				header.put(1118, TYPE_STRING_ARRAY, dirnames); // DIRNAMES
+				header.put(5011, TYPE_INT, new int[] { 8 }); // FILE_DIGESTALGO, SHA-256
+			}
+
+			header.put(1124, TYPE_STRING, "cpio"); // PAYLOAD_FORMAT
+			header.put(1125, TYPE_STRING, coding); // PAYLOAD_CODING
+			header.put(1126, TYPE_STRING, "9"); // PAYLOAD_FLAGS
+
+			final byte[] headerData = header.toBytes(false);
+
+			final MessageDigest md5 = digest("MD5");
+			md5.update(headerData);
+			try (InputStream in = Files.newInputStream(payload)) {
+				final byte[] buffer = new byte[64 * 1024];
+				int rc;
+				while ((rc = in.read(buffer)) > 0) {
+					md5.update(buffer, 0, rc);
+				}
+			}
+
+			final Header signature = new Header();
+			signature.put(1000, TYPE_INT, new int[] { (int) (headerData.length + Files.size(payload)) }); // SIZE
+			signature.put(269, TYPE_STRING, hex(digest("SHA-1").digest(headerData))); // SHA1HEADER
+			signature.put(273, TYPE_STRING, hex(digest("SHA-256").digest(headerData))); // SHA256HEADER
+			signature.put(1004, TYPE_BLOB, md5.digest()); // MD5
+
+			try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+				out.write(lead("synthetic-1.0-1"));
+				out.write(signature.toBytes(true));
+				out.write(headerData);
+				Files.copy(payload, out);
+			}
+		} finally {
+			Files.deleteIfExists(payload);
+		}
+	}
+
+	private static byte[] lead(final String name) {
+		final ByteBuffer lead = ByteBuffer.allocate(96);
+
+		lead.put(new byte[] { (byte) 0xED, (byte) 0xAB, (byte) 0xEE, (byte) 0xDB, 3, 0 });
+		lead.putShort((short) 0); // binary
+		lead.putShort((short) 1); // arch
+		lead.put(name.getBytes(StandardCharsets.UTF_8));
+		lead.position(76);
+		lead.putShort((short) 1); // os
+		lead.putShort((short) 5); // signature type
+
+		return lead.array();
+	}
+
+	private static OutputStream compress(final String coding, final OutputStream out) throws IOException {
+		switch (coding) {
+		case "gzip":
+			return new GZIPOutputStream(out, 64 * 1024);
+		case "xz":
+			return new BlockXZOutputStream(out);
+		case "zstd":
+			return new ZstdCompressorOutputStream(out);
+		default:
+			throw new IllegalArgumentException(String.format("Unsupported coding: %s", coding));
+		}
+	}
+
+	/**
+	 * An xz stream split into independent blocks
+	 */
+	private static class BlockXZOutputStream extends FilterOutputStream {
+
+		private final XZOutputStream xz;
+
+		private int blockSize;
+
+		public BlockXZOutputStream(final OutputStream out) throws IOException {
+			this(new XZOutputStream(out, new LZMA2Options(1)));
+		}
+
+		private BlockXZOutputStream(final XZOutputStream xz) {
+			super(xz);
+			this.xz = xz;
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(final byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				final int amount = Math.min(len, XZ_BLOCK_SIZE - this.blockSize);
+				this.xz.write(b, off, amount);
+				this.blockSize += amount;
+				off += amount;
+				len -= amount;
+
+				if (this.blockSize == XZ_BLOCK_SIZE) {
+					this.xz.endBlock();
+					this.blockSize = 0;
+				}
+			}
+		}
+	}
+
+	private static byte[] content(final int i) {
+		return ("content of file " + i + "\n").getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static MessageDigest digest(final String algorithm) {
+		try {
+			return MessageDigest.getInstance(algorithm);
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String hex(final byte[] data) {
+		final StringBuilder sb = new StringBuilder(data.length * 2);
+		for (final byte b : data) {
+			sb.append(Character.forDigit(b >> 4 & 0xF, 16));
+			sb.append(Character.forDigit(b & 0xF, 16));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests of the {@link FileTable}, built from the header of RPM files
+ */
+public class FileTableTest {
+
+	@Test
+	public void testFiles() throws IOException {
+		final Path rpm = TestRpm.build(context -> {
+			context.addDirectory("/etc/test");
+			context.addFile("/etc/test/a.conf", "a".getBytes(StandardCharsets.UTF_8));
+			context.addFile("/etc/test/b.conf", "bb".getBytes(StandardCharsets.UTF_8));
+		});
+		try {
+			final RpmInformation information = TestRpm.load(rpm);
+			final FileTable table = information.getFileTable();
+
+			assertTrue(table.isAvailable());
+			assertEquals(3, table.getCount());
+
+			final int index = table.indexOf("/etc/test/b.conf");
+			assertTrue(index >= 0);
+			assertEquals(2, table.getSize(index));
+			assertEquals(0100000, table.getMode(index) & 0170000);
+			assertEquals(0040000, table.getMode(table.indexOf("/etc/test")) & 0170000);
+
+			assertTrue(information.getFileTable().getPayloadFiles().isPresent());
+			assertEquals(3, information.getFiles().size());
+		} finally {
+			TestRpm.delete(rpm);
+		}
+	}
+
+	/**
+	 * The header values of a package with a single file have a count of one,
+	 * which the parser returns as plain values instead of arrays
+	 */
+	@Test
+	public void testSingleFile() throws IOException {
+		final Path rpm = TestRpm.build(context -> {
+			context.addFile("/etc/test.conf", "content".getBytes(StandardCharsets.UTF_8));
+		});
+		try {
+			final RpmInformation information = TestRpm.load(rpm);
+			final FileTable table = information.getFileTable();
+
+			assertTrue(table.isAvailable());
+			assertEquals(1, table.getCount());
+			assertEquals("/etc/test.conf", table.getPath(0));
+			assertEquals(7, table.getSize(0));
+			assertEquals(0100000, table.getMode(0) & 0170000);
+			assertEquals("9a0364b9e99bb480dd25e1f0284c8555", table.getDigest(0));
+
+			final List<FileEntry> files = information.getFiles();
+			assertEquals(1, files.size());
+			assertEquals("/etc/test.conf", Payloads.toPath(files.get(0).getName()));
+		} finally {
+			TestRpm.delete(rpm);
+		}
+	}
+}
@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.eclipse.packagedrone.utils.rpm.RpmTag;
+import org.eclipse.packagedrone.utils.rpm.parse.HeaderValue;
+import org.eclipse.packagedrone.utils.rpm.parse.InputHeader;
+import org.junit.Test;
+
+/**
+ * Tests of the {@link FileTreeIndex}
+ * <p>
+ * The results of the index are compared to checking each node of the tree.
+ * </p>
+ */
+public class FileTreeIndexTest {
+
+	private static final FileTable EMPTY = FileTable.fromHeader(new InputHeader<RpmTag>(new HeaderValue[0], 0, 0));
+
+	private static final String[] FILTERS = { "lib", "libs", "libssl", "ssl lib", "SSL", "so", "*.so", "lib*.so.*",
+			"/^lib.*\\.so$/", "ssl size:>100", "size:>100", "type:d", "crypto", "xyz", "bin", "ls", "a", "ibs",
+			"share locale" };
+
+	private final FileTree.Directory root = FileTree.build(files(), EMPTY);
+
+	private final FileTreeIndex index = FileTreeIndex.build(this.root);
+
+	@Test
+	public void testFilters() {
+		for (final String text : FILTERS) {
+			final PayloadFilter filter = PayloadFilter.parse(text);
+			assertResult(filter, this.index.filter(filter, null));
+		}
+	}
+
+	@Test
+	public void testVisibleAncestors() {
+		final FileTreeIndex.Result result = this.index.filter(PayloadFilter.parse("libssl.so.1.1"), null);
+
+		assertEquals(1, result.getMatches());
+		final FileTree.Directory usr = (FileTree.Directory) find(this.root, "usr");
+		assertTrue(result.isVisible(usr));
+		assertTrue(result.isVisible(find(usr, "lib64")));
+		assertFalse(result.isVisible(find(usr, "bin")));
+	}
+
+	/**
+	 * Typing ahead uses the names of the previous result, which must give
+	 * the same result as filtering from scratch
+	 */
+	@Test
+	public void testRefine() {
+		FileTreeIndex.Result previous = null;
+		for (final String text : new String[] { "l", "li", "lib", "libs", "libss", "libssl", "libssl .so" }) {
+			final PayloadFilter filter = PayloadFilter.parse(text);
+			final FileTreeIndex.Result result = this.index.filter(filter, previous);
+			assertResult(filter, result);
+			assertEquals(this.index.filter(filter, null).getMatches(), result.getMatches());
+			previous = result;
+		}
+
+		// not a refinement, must not use the previous names
+		final PayloadFilter filter = PayloadFilter.parse("bin");
+		assertResult(filter, this.index.filter(filter, previous));
+	}
+
+	private void assertResult(final PayloadFilter filter, final FileTreeIndex.Result result) {
+		final List<FileTree.Node> expected = new ArrayList<>();
+		collectMatches(this.root, filter, expected);
+
+		assertEquals(expected.size(), result.getMatches());
+		for (final FileTree.Node node : expected) {
+			for (FileTree.Node n = node; n != null; n = n.getParent()) {
+				assertTrue(result.isVisible(n));
+			}
+		}
+		assertEquals(!expected.isEmpty(), result.isVisible(this.root));
+	}
+
+	private static void collectMatches(final FileTree.Directory dir, final PayloadFilter filter,
+			final List<FileTree.Node> result) {
+		for (final FileTree.Node node : dir.getChildren()) {
+			if (filter.matchesName(node.getName(), node.getName().toLowerCase(Locale.ROOT))
+					&& filter.matchesAttributes(node)) {
+				result.add(node);
+			}
+			if (node instanceof FileTree.Directory) {
+				collectMatches((FileTree.Directory) node, filter, result);
+			}
+		}
+	}
+
+	private static FileTree.Node find(final FileTree.Directory dir, final String name) {
+		for (final FileTree.Node node : dir.getChildren()) {
+			if (node.getName().equals(name)) {
+				return node;
+			}
+		}
+		throw new AssertionError(String.format("%s not found in %s", name, dir.getFullName()));
+	}
+
+	private static List<FileEntry> files() {
+		final List<FileEntry> result = new ArrayList<>();
+		for (final String name : Arrays.asList("./usr/bin/ls", "./usr/bin/openssl", "./usr/bin/bash",
+				"./usr/lib64/libssl.so.1.1", "./usr/lib64/libssl.so", "./usr/lib64/libcrypto.so.1.1",
+				"./usr/lib64/libcrypto.so", "./usr/lib64/libs/libs.so", "./usr/lib/libssl.so",
+				"./usr/share/doc/openssl/README", "./usr/share/doc/LIBSSL/README")) {
+			result.add(new FileEntry(name, name.length() * 10, 0));
+		}
+		for (final String lang : Arrays.asList("de", "fr", "es", "ja")) {
+			result.add(new FileEntry("./usr/share/locale/" + lang + "/LC_MESSAGES/openssl.mo", 50, 0));
+		}
+		return result;
+	}
+}
@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.packagedrone.utils.rpm.RpmTag;
+import org.eclipse.packagedrone.utils.rpm.parse.HeaderValue;
+import org.eclipse.packagedrone.utils.rpm.parse.InputHeader;
+import org.junit.Test;
+
+/**
+ * Tests of the {@link FileTree}
+ */
+public class FileTreeTest {
+
+	private static final FileTable EMPTY = FileTable.fromHeader(new InputHeader<RpmTag>(new HeaderValue[0], 0, 0));
+
+	@Test
+	public void testSorted() {
+		final FileTree.Directory root = FileTree.build(entries("./usr/bin/b", "./usr/bin/c", "./usr/bin/a",
+				"./etc/x", "./usr/lib/z"), EMPTY);
+
+		assertEquals(Arrays.asList("etc", "usr"), names(root));
+		final FileTree.Directory usr = (FileTree.Directory) root.getChild(1);
+		assertEquals(Arrays.asList("bin", "lib"), names(usr));
+		assertEquals(Arrays.asList("a", "b", "c"), names((FileTree.Directory) usr.getChild(0)));
+		assertEquals("/usr/bin/c", ((FileTree.Directory) usr.getChild(0)).getChild(2).getFullName());
+	}
+
+	@Test
+	public void testImpliedDirectories() {
+		final FileTree.Directory root = FileTree.build(entries("./usr/share/doc/README"), EMPTY);
+
+		final FileTree.Directory usr = (FileTree.Directory) root.getChild(0);
+		// only implied by the path of the file
+		assertNull(usr.getEntry());
+		final FileTree.Node readme = ((FileTree.Directory) ((FileTree.Directory) usr.getChild(0)).getChild(0))
+				.getChild(0);
+		assertTrue(readme instanceof FileTree.File);
+		assertNotNull(readme.getEntry());
+	}
+
+	@Test
+	public void testExplicitDirectory() {
+		final FileEntry dir = new FileEntry("./usr", 0, 1000);
+		final FileTree.Directory root = FileTree.build(
+				Arrays.asList(new FileEntry("./usr/a", 1, 1000), dir, new FileEntry("./usr/b", 1, 1000)), EMPTY);
+
+		assertEquals(1, root.getChildCount());
+		assertTrue(root.getChild(0) instanceof FileTree.Directory);
+		assertTrue(dir == root.getChild(0).getEntry());
+		assertEquals(2, ((FileTree.Directory) root.getChild(0)).getChildCount());
+	}
+
+	@Test
+	public void testFileBecomesDirectory() {
+		// listed as file first, then implied as directory by a later path
+		final FileTree.Directory root = FileTree.build(
+				Arrays.asList(new FileEntry("./opt", 0, 1000), new FileEntry("./opt/tool", 10, 1000)), EMPTY);
+
+		assertTrue(root.getChild(0) instanceof FileTree.Directory);
+		assertEquals(10, root.getChild(0).getSize());
+		assertEquals(10, root.getSize());
+	}
+
+	@Test
+	public void testSizes() {
+		final FileTree.Directory root = FileTree.build(Arrays.asList(new FileEntry("./a/b/1", 10, 1000),
+				new FileEntry("./a/b/2", 20, 1000), new FileEntry("./a/3", 5, 1000), new FileEntry("./4", 1, 1000)),
+				EMPTY);
+
+		assertEquals(36, root.getSize());
+		// "4" sorts before "a"
+		final FileTree.Directory a = (FileTree.Directory) root.getChild(1);
+		assertEquals(35, a.getSize());
+		assertEquals(30, a.getChild(1).getSize());
+	}
+
+	@Test
+	public void testDuplicate() {
+		// a later entry for the same path replaces the earlier one
+		final FileTree.Directory root = FileTree.build(
+				Arrays.asList(new FileEntry("./a", 10, 1000), new FileEntry("./a", 3, 1000)), EMPTY);
+
+		assertEquals(1, root.getChildCount());
+		assertEquals(3, root.getSize());
+	}
+
+	@Test
+	public void testIds() {
+		final FileTree.Directory root = FileTree.build(entries("./b/2", "./a/1", "./b/1", "./c"), EMPTY);
+
+		// pre-order: root, a, a/1, b, b/1, b/2, c
+		assertEquals(0, root.getId());
+		assertEquals(1, root.getChild(0).getId());
+		assertEquals(2, ((FileTree.Directory) root.getChild(0)).getChild(0).getId());
+		assertEquals(3, root.getChild(1).getId());
+		assertEquals(5, ((FileTree.Directory) root.getChild(1)).getChild(1).getId());
+		assertEquals(6, root.getChild(2).getId());
+	}
+
+	@Test
+	public void testEntries() {
+		final List<FileEntry> files = entries("./b", "./a/2", "./a/1");
+		final List<FileEntry> result = FileTree.entries(FileTree.build(files, EMPTY));
+
+		assertEquals(3, result.size());
+		assertEquals("./a/1", result.get(0).getName());
+		assertEquals("./a/2", result.get(1).getName());
+		assertEquals("./b", result.get(2).getName());
+	}
+
+	@Test
+	public void testGrowing() {
+		final FileTree tree = new FileTree(EMPTY);
+		tree.add(entries("./a/1", "./a/2"));
+
+		final FileTree.Directory a = (FileTree.Directory) tree.getChildren(tree.getRoot())[0];
+		final FileTree.Node[] snapshot = tree.getChildren(a);
+		assertEquals(2, snapshot.length);
+
+		tree.add(entries("./a/0"));
+		assertEquals(2, snapshot.length);
+		assertEquals(3, tree.getChildren(a).length);
+		assertEquals("0", tree.getChildren(a)[0].getName());
+		assertEquals(3, tree.getFileCount());
+
+		final FileTree.Directory root = tree.finish();
+		assertEquals(3, ((FileTree.Directory) root.getChild(0)).getChildren().length);
+
+		try {
+			tree.add(entries("./b"));
+			fail("Tree must not change once it is finished");
+		} catch (final IllegalStateException e) {
+			// expected
+		}
+	}
+
+	private static List<FileEntry> entries(final String... names) {
+		final List<FileEntry> result = new ArrayList<>(names.length);
+		for (final String name : names) {
+			result.add(new FileEntry(name, 1, 1000));
+		}
+		return result;
+	}
+
+	private static List<String> names(final FileTree.Directory dir) {
+		final List<String> result = new ArrayList<>();
+		for (final FileTree.Node node : dir.getChildren()) {
+			result.add(node.getName());
+		}
+		return result;
+	}
+}
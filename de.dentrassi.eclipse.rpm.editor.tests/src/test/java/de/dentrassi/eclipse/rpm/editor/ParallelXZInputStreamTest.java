@@ -0,0 +1,234 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.junit.Test;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.SeekableInputStream;
+import org.tukaani.xz.SeekableXZInputStream;
+import org.tukaani.xz.XZOutputStream;
+
+/**
+ * Tests of the {@link ParallelXZInputStream}
+ */
+public class ParallelXZInputStreamTest {
+
+	private static final int BLOCK_SIZE = 100_000;
+
+	@Test
+	public void testThreads() throws IOException {
+		final byte[] data = data(1, 1_234_567);
+		final byte[] compressed = compress(data, BLOCK_SIZE);
+
+		for (final int threads : new int[] { 1, 2, 3, 8 }) {
+			try (InputStream in = open(compressed, threads, null)) {
+				assertArrayEquals(data, readAll(in));
+			}
+		}
+	}
+
+	@Test
+	public void testSingleBytes() throws IOException {
+		final byte[] data = data(2, 3 * BLOCK_SIZE + 7);
+
+		try (InputStream in = open(compress(data, BLOCK_SIZE), 2, null)) {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			int b;
+			while ((b = in.read()) >= 0) {
+				out.write(b);
+			}
+			assertArrayEquals(data, out.toByteArray());
+		}
+	}
+
+	@Test
+	public void testSkip() throws IOException {
+		final byte[] data = data(3, 5 * BLOCK_SIZE);
+
+		try (InputStream in = open(compress(data, BLOCK_SIZE), 2, null)) {
+			long skipped = 0;
+			while (skipped < 2 * BLOCK_SIZE + 10) {
+				final long rc = in.skip(2 * BLOCK_SIZE + 10 - skipped);
+				if (rc <= 0) {
+					fail("Failed to skip");
+				}
+				skipped += rc;
+			}
+			assertEquals(data[2 * BLOCK_SIZE + 10] & 0xFF, in.read());
+		}
+	}
+
+	@Test
+	public void testProgress() throws IOException {
+		final byte[] compressed = compress(data(4, 10 * BLOCK_SIZE), BLOCK_SIZE);
+
+		final int[] worked = new int[1];
+		final NullProgressMonitor monitor = new NullProgressMonitor() {
+
+			@Override
+			public void worked(final int work) {
+				worked[0] += work;
+			}
+		};
+
+		long blocks = 0;
+		try (SeekableXZInputStream decoder = new SeekableXZInputStream(new ArrayInputStream(compressed))) {
+			for (int i = 0; i < decoder.getBlockCount(); i++) {
+				blocks += decoder.getBlockCompSize(i);
+			}
+		}
+
+		try (InputStream in = open(compressed, 2, monitor)) {
+			readAll(in);
+		}
+
+		assertEquals(blocks >> 10, worked[0]);
+	}
+
+	@Test
+	public void testCanceled() throws IOException {
+		final NullProgressMonitor monitor = new NullProgressMonitor();
+		monitor.setCanceled(true);
+
+		try (InputStream in = open(compress(data(5, 3 * BLOCK_SIZE), BLOCK_SIZE), 2, monitor)) {
+			in.read();
+			fail("Reading must be canceled");
+		} catch (final OperationCanceledException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testCorrupted() throws IOException {
+		final byte[] compressed = compress(data(6, 5 * BLOCK_SIZE), BLOCK_SIZE);
+		// somewhere in the compressed data of the third block, before the index
+		compressed[compressed.length / 2] ^= 0x55;
+
+		try (InputStream in = open(compressed, 2, null)) {
+			readAll(in);
+			fail("Corrupted data must fail");
+		} catch (final IOException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testGetThreads() throws IOException {
+		try (SeekableXZInputStream single = new SeekableXZInputStream(
+				new ArrayInputStream(compress(data(7, 3 * BLOCK_SIZE), Integer.MAX_VALUE)))) {
+			assertEquals(1, ParallelXZInputStream.getThreads(single));
+		}
+
+		try (SeekableXZInputStream multi = new SeekableXZInputStream(
+				new ArrayInputStream(compress(data(7, 3 * BLOCK_SIZE), BLOCK_SIZE)))) {
+			final int processors = Runtime.getRuntime().availableProcessors();
+			assertEquals(processors < 2 ? 1 : Math.min(processors, 3), ParallelXZInputStream.getThreads(multi));
+		}
+	}
+
+	private static InputStream open(final byte[] compressed, final int threads,
+			final NullProgressMonitor monitor) throws IOException {
+		return new ParallelXZInputStream(() -> new ArrayInputStream(compressed),
+				new SeekableXZInputStream(new ArrayInputStream(compressed)), threads, monitor);
+	}
+
+	/**
+	 * Create data which compresses somewhat, like most payloads
+	 */
+	private static byte[] data(final long seed, final int size) {
+		final Random random = new Random(seed);
+		final byte[] result = new byte[size];
+		for (int i = 0; i < size; i++) {
+			result[i] = (byte) ('a' + random.nextInt(8));
+		}
+		return result;
+	}
+
+	/**
+	 * Compress data, starting a new xz block after each block size
+	 */
+	private static byte[] compress(final byte[] data, final int blockSize) throws IOException {
+		final ByteArrayOutputStream result = new ByteArrayOutputStream();
+		try (XZOutputStream out = new XZOutputStream(result, new LZMA2Options(1))) {
+			for (int off = 0; off < data.length; off += blockSize) {
+				out.write(data, off, Math.min(blockSize, data.length - off));
+				out.endBlock();
+			}
+		}
+		return result.toByteArray();
+	}
+
+	private static byte[] readAll(final InputStream in) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[12345];
+		int rc;
+		while ((rc = in.read(buffer)) >= 0) {
+			out.write(buffer, 0, rc);
+		}
+		return out.toByteArray();
+	}
+
+	private static class ArrayInputStream extends SeekableInputStream {
+
+		private final byte[] data;
+
+		private int position;
+
+		public ArrayInputStream(final byte[] data) {
+			this.data = data;
+		}
+
+		@Override
+		public int read() {
+			return this.position < this.data.length ? this.data[this.position++] & 0xFF : -1;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) {
+			if (len == 0) {
+				return 0;
+			}
+			if (this.position >= this.data.length) {
+				return -1;
+			}
+			final int result = Math.min(len, this.data.length - this.position);
+			System.arraycopy(this.data, this.position, b, off, result);
+			this.position += result;
+			return result;
+		}
+
+		@Override
+		public long length() {
+			return this.data.length;
+		}
+
+		@Override
+		public long position() {
+			return this.position;
+		}
+
+		@Override
+		public void seek(final long pos) {
+			this.position = (int) pos;
+		}
+	}
+}
@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.junit.Test;
+
+/**
+ * Tests of the {@link PayloadExtractor}
+ */
+public class PayloadExtractorTest {
+
+	private static final boolean POSIX = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+
+	@Test
+	public void testContent() throws IOException {
+		final byte[] data = new byte[3 * 1024 * 1024 + 17];
+		new Random(1).nextBytes(data);
+
+		final TestPayload payload = new TestPayload() //
+				.directory("./usr", 0755) //
+				.file("./usr/empty", 0644, new byte[0]) //
+				.file("./usr/data", 0644, data) //
+				.file("./usr/text", "Hello World");
+
+		final Path dir = Files.createTempDirectory("extract");
+		try {
+			final PayloadExtractor.Result result = extract(payload, dir);
+			assertEquals(Arrays.asList(), result.getFailures());
+			assertEquals(4, result.getFiles());
+			assertEquals(data.length + 11, result.getBytes());
+			assertArrayEquals(data, Files.readAllBytes(dir.resolve("usr/data")));
+			assertArrayEquals(new byte[0], Files.readAllBytes(dir.resolve("usr/empty")));
+			assertEquals("Hello World", new String(Files.readAllBytes(dir.resolve("usr/text")), StandardCharsets.UTF_8));
+		} finally {
+			delete(dir);
+		}
+	}
+
+	@Test
+	public void testHardLinks() throws IOException {
+		final TestPayload payload = new TestPayload() //
+				.directory("./bin", 0755) //
+				.hardLinks("content".getBytes(StandardCharsets.UTF_8), "./bin/a", "./bin/b", "./bin/c");
+
+		final Path dir = Files.createTempDirectory("extract");
+		try {
+			final PayloadExtractor.Result result = extract(payload, dir);
+			assertEquals(Arrays.asList(), result.getFailures());
+			for (final String name : new String[] { "a", "b", "c" }) {
+				assertEquals("content", new String(Files.readAllBytes(dir.resolve("bin").resolve(name)), StandardCharsets.UTF_8));
+			}
+		} finally {
+			delete(dir);
+		}
+	}
+
+	@Test
+	public void testSymbolicLinkTarget() throws IOException {
+		// the chosen folder may be a symbolic link itself
+		final Path dir = Files.createTempDirectory("extract");
+		try {
+			final Path real = Files.createDirectory(dir.resolve("real"));
+			final Path link = Files.createSymbolicLink(dir.resolve("link"), real);
+
+			final TestPayload payload = new TestPayload() //
+					.directory("./a", 0755) //
+					.directory("./b", 0755) //
+					.file("./a/file", "a");
+
+			final PayloadExtractor.Result result = extract(payload, link);
+			assertEquals(Arrays.asList(), result.getFailures());
+			assertTrue(Files.isRegularFile(real.resolve("a/file")));
+			assertTrue(Files.isDirectory(real.resolve("b")));
+		} finally {
+			delete(dir);
+		}
+	}
+
+	@Test
+	public void testSymbolicLinkEscape() throws IOException {
+		final Path dir = Files.createTempDirectory("extract");
+		try {
+			final Path outside = Files.createDirectory(dir.resolve("outside"));
+			final Path target = Files.createDirectory(dir.resolve("target"));
+
+			final TestPayload payload = new TestPayload() //
+					.symlink("./foo", outside.toString()) //
+					.file("./foo/evil", "evil") //
+					.symlink("./bar", "../outside") //
+					.file("./bar/file", "evil");
+
+			final PayloadExtractor.Result result = extract(payload, target);
+			assertEquals(2, result.getFailures().size());
+			assertFalse(Files.exists(outside.resolve("evil")));
+			assertFalse(Files.exists(outside.resolve("file")));
+		} finally {
+			delete(dir);
+		}
+	}
+
+	@Test
+	public void testReadOnlyDirectory() throws IOException {
+		if (!POSIX) {
+			return;
+		}
+
+		final TestPayload payload = new TestPayload() //
+				.directory("./ro", 0555) //
+				.directory("./ro/sub", 0550) //
+				.file("./ro/sub/file", "content");
+
+		final Path dir = Files.createTempDirectory("extract");
+		try {
+			// extracting twice, into the result of the first extraction
+			for (int i = 0; i < 2; i++) {
+				final PayloadExtractor.Result result = extract(payload, dir);
+				assertEquals(Arrays.asList(), result.getFailures());
+				assertTrue(Files.isRegularFile(dir.resolve("ro/sub/file")));
+				assertEquals("r-xr-xr-x", PosixFilePermissions.toString(Files.getPosixFilePermissions(dir.resolve("ro"))));
+				assertEquals("r-xr-x---",
+						PosixFilePermissions.toString(Files.getPosixFilePermissions(dir.resolve("ro/sub"))));
+			}
+		} finally {
+			delete(dir);
+		}
+	}
+
+	private static PayloadExtractor.Result extract(final TestPayload payload, final Path target) throws IOException {
+		final RpmInformation information = payload.toInformation();
+		final FileTree.Directory root = information.getFileTree();
+		return PayloadExtractor.extract(information, Arrays.asList(root.getChildren()), payload.toPayload(), target,
+				new NullProgressMonitor());
+	}
+
+	private static void delete(final Path dir) throws IOException {
+		try (Stream<Path> files = Files.walk(dir)) {
+			files.sorted(Comparator.reverseOrder()).forEach(file -> {
+				try {
+					if (Files.isDirectory(file, LinkOption.NOFOLLOW_LINKS)) {
+						file.toFile().setWritable(true);
+					}
+					Files.delete(file);
+				} catch (final IOException e) {
+					// best effort
+				}
+			});
+		}
+	}
+}
@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+
+import org.eclipse.packagedrone.utils.rpm.RpmTag;
+import org.eclipse.packagedrone.utils.rpm.parse.HeaderValue;
+import org.eclipse.packagedrone.utils.rpm.parse.InputHeader;
+import org.junit.Test;
+
+/**
+ * Tests of the {@link PayloadFilter}
+ */
+public class PayloadFilterTest {
+
+	private static final FileTable EMPTY = FileTable.fromHeader(new InputHeader<RpmTag>(new HeaderValue[0], 0, 0));
+
+	@Test
+	public void testEmpty() {
+		assertNull(PayloadFilter.parse(""));
+		assertNull(PayloadFilter.parse("  \t "));
+	}
+
+	@Test
+	public void testSubstring() {
+		final PayloadFilter filter = PayloadFilter.parse("Lib  SSL");
+
+		assertTrue(filter.hasNameTerms());
+		assertFalse(filter.hasAttributeTerms());
+		assertEquals(Arrays.asList("lib", "ssl"), filter.getRequiredSubstrings());
+
+		assertTrue(matchesName(filter, "libssl.so.1.1"));
+		assertTrue(matchesName(filter, "LIBSSL.SO"));
+		assertFalse(matchesName(filter, "libcrypto.so"));
+	}
+
+	@Test
+	public void testGlob() {
+		final PayloadFilter filter = PayloadFilter.parse("lib*.so");
+
+		assertEquals(Arrays.asList("lib", ".so"), filter.getRequiredSubstrings());
+
+		// glob patterns match the full name
+		assertTrue(matchesName(filter, "libssl.so"));
+		assertFalse(matchesName(filter, "libssl.so.1"));
+		assertFalse(matchesName(filter, "xlibssl.so"));
+
+		assertTrue(matchesName(PayloadFilter.parse("?.txt"), "a.txt"));
+		assertFalse(matchesName(PayloadFilter.parse("?.txt"), "ab.txt"));
+	}
+
+	@Test
+	public void testRegex() {
+		final PayloadFilter filter = PayloadFilter.parse("/\\.so(\\.\\d+)*$/");
+
+		assertEquals(Collections.emptyList(), filter.getRequiredSubstrings());
+
+		// regular expressions only need to match a part of the name
+		assertTrue(matchesName(filter, "libssl.so.1"));
+		assertTrue(matchesName(filter, "libssl.so"));
+		assertFalse(matchesName(filter, "libssl.sox"));
+	}
+
+	@Test
+	public void testSize() {
+		final FileTree.Directory root = FileTree.build(Arrays.asList(new FileEntry("./small", 1023, 0),
+				new FileEntry("./exact", 1024, 0), new FileEntry("./large", 2 * 1024 * 1024, 0)), EMPTY);
+		final FileTree.Node exact = root.getChild(0);
+		final FileTree.Node large = root.getChild(1);
+		final FileTree.Node small = root.getChild(2);
+
+		assertTrue(matchesAttributes("size:1k", exact));
+		assertTrue(matchesAttributes("size:=1024", exact));
+		assertFalse(matchesAttributes("size:1k", small));
+
+		assertTrue(matchesAttributes("size:<1k", small));
+		assertFalse(matchesAttributes("size:<1k", exact));
+		assertTrue(matchesAttributes("size:<=1k", exact));
+
+		assertTrue(matchesAttributes("size:>1M", large));
+		assertFalse(matchesAttributes("size:>2M", large));
+		assertTrue(matchesAttributes("size:>=2M", large));
+		assertFalse(matchesAttributes("size:>1g", large));
+
+		assertFalse(PayloadFilter.parse("size:>1k").hasNameTerms());
+	}
+
+	@Test
+	public void testType() {
+		final FileTree.Directory root = FileTree.build(Arrays.asList(new FileEntry("./dir/file", 1, 0)), EMPTY);
+		final FileTree.Directory dir = (FileTree.Directory) root.getChild(0);
+		final FileTree.Node file = dir.getChild(0);
+
+		// without meta information, the type comes from the tree
+		assertTrue(matchesAttributes("type:d", dir));
+		assertFalse(matchesAttributes("type:f", dir));
+		assertTrue(matchesAttributes("type:f", file));
+		assertFalse(matchesAttributes("type:l", file));
+	}
+
+	@Test
+	public void testMeta() throws IOException {
+		final Path rpm = TestRpm.build(context -> {
+			context.addDirectory("/opt");
+			context.addFile("/opt/file", new byte[] { 1 });
+			context.addSymbolicLink("/opt/link", "file");
+		});
+		try {
+			final FileTree.Directory root = TestRpm.load(rpm).getFileTree();
+			final FileTree.Directory opt = (FileTree.Directory) root.getChild(0);
+			final FileTree.Node file = opt.getChild(0);
+			final FileTree.Node link = opt.getChild(1);
+
+			assertTrue(matchesAttributes("user:root group:root", file));
+			assertTrue(matchesAttributes("user:r*", file));
+			assertFalse(matchesAttributes("user:nobody", file));
+			assertFalse(matchesAttributes("group:/^x/", file));
+
+			assertTrue(matchesAttributes("mode:0644", file));
+			assertTrue(matchesAttributes("mode:/^06/", file));
+			assertFalse(matchesAttributes("mode:0644", opt));
+			assertTrue(matchesAttributes("mode:0755", opt));
+
+			assertTrue(matchesAttributes("type:l", link));
+			assertFalse(matchesAttributes("type:f", link));
+			assertTrue(matchesAttributes("type:f", file));
+		} finally {
+			TestRpm.delete(rpm);
+		}
+	}
+
+	@Test
+	public void testInvalid() {
+		for (final String text : new String[] { "size:big", "size:>", "type:x" }) {
+			try {
+				PayloadFilter.parse(text);
+				fail(String.format("Invalid filter parsed: %s", text));
+			} catch (final IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void testUnknownPrefix() {
+		// not an attribute term, part of the name
+		final PayloadFilter filter = PayloadFilter.parse("foo:bar");
+
+		assertTrue(filter.hasNameTerms());
+		assertTrue(matchesName(filter, "x-foo:bar"));
+	}
+
+	@Test
+	public void testRefines() {
+		assertTrue(refines("libf", "lib"));
+		assertTrue(refines("lib ssl", "lib"));
+		assertTrue(refines("lib ssl", "ssl lib"));
+		assertTrue(refines("*.so lib", "*.so"));
+		assertTrue(refines("lib size:>1k", "lib"));
+
+		assertFalse(refines("lib", "libf"));
+		assertFalse(refines("lib", "lib ssl"));
+		assertFalse(refines("*.so", "so"));
+		assertFalse(refines("*.so", "*.so.1"));
+		// without name terms, there are no names to refine
+		assertFalse(refines("lib", "size:>1k"));
+	}
+
+	private static boolean refines(final String text, final String previous) {
+		return PayloadFilter.parse(text).refines(PayloadFilter.parse(previous));
+	}
+
+	private static boolean matchesName(final PayloadFilter filter, final String name) {
+		return filter.matchesName(name, name.toLowerCase(Locale.ROOT));
+	}
+
+	private static boolean matchesAttributes(final String text, final FileTree.Node node) {
+		return PayloadFilter.parse(text).matchesAttributes(node);
+	}
+}
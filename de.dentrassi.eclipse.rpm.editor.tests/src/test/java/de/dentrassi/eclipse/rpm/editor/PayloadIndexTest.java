@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.junit.Test;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.XZOutputStream;
+
+/**
+ * Tests of the {@link PayloadIndex}, and reading single entries using
+ * {@link Payloads#openEntry(RpmSource, RpmInformation, PayloadIndex, int, long)}
+ */
+public class PayloadIndexTest {
+
+	private static final int BLOCK_SIZE = 64 * 1024;
+
+	private final Map<String, byte[]> files = new LinkedHashMap<>();
+
+	public PayloadIndexTest() {
+		final Random random = new Random(1);
+		for (int i = 0; i < 50; i++) {
+			final byte[] data = new byte[random.nextInt(i % 10 == 0 ? 200_000 : 2_000)];
+			random.nextBytes(data);
+			this.files.put(String.format("/opt/test/file-%02d", i), data);
+		}
+		this.files.put("/opt/test/empty", new byte[0]);
+	}
+
+	@Test
+	public void testGzip() throws IOException {
+		final Path rpm = build();
+		try {
+			check(rpm, false);
+		} finally {
+			TestRpm.delete(rpm);
+		}
+	}
+
+	/**
+	 * Multi-block xz payloads are seekable, which only decompresses the
+	 * block containing an entry
+	 */
+	@Test
+	public void testXz() throws IOException {
+		final Path rpm = build();
+		try {
+			recompress(rpm);
+			check(rpm, true);
+		} finally {
+			TestRpm.delete(rpm);
+		}
+	}
+
+	private void check(final Path rpm, final boolean seekable) throws IOException {
+		final RpmInformation information = TestRpm.load(rpm);
+		try (LocalRpmFile source = new LocalRpmFile(rpm)) {
+			assertEquals(seekable, Payloads.isSeekable(source, information));
+
+			final PayloadIndex index = PayloadIndex.obtain(source, information, new NullProgressMonitor());
+			assertTrue(index == information.getPayloadIndex());
+			assertEquals(-1, index.indexOf("/opt/test/none"));
+
+			// in reverse, so that each entry has to be opened on its own
+			final String[] paths = this.files.keySet().toArray(new String[0]);
+			for (int i = paths.length - 1; i >= 0; i--) {
+				final byte[] expected = this.files.get(paths[i]);
+				final int entry = index.indexOf(paths[i]);
+				assertTrue(entry >= 0);
+				assertEquals(paths[i], index.getPath(entry));
+				assertEquals(expected.length, index.getSize(entry));
+
+				try (InputStream in = Payloads.openEntry(source, information, index, entry)) {
+					assertArrayEquals(expected, readAll(in));
+				}
+
+				final int position = expected.length / 3;
+				try (InputStream in = Payloads.openEntry(source, information, index, entry, position)) {
+					assertArrayEquals(Arrays.copyOfRange(expected, position, expected.length), readAll(in));
+				}
+			}
+		}
+	}
+
+	private Path build() throws IOException {
+		return TestRpm.build(context -> {
+			for (final Map.Entry<String, byte[]> file : this.files.entrySet()) {
+				context.addFile(file.getKey(), file.getValue());
+			}
+		});
+	}
+
+	/**
+	 * Re-compress the payload of an RPM file using xz, with multiple blocks
+	 * <p>
+	 * The compressor in the header is changed in place, the NUL terminated
+	 * "xz" fits into "gzip". The signatures don't match anymore.
+	 * </p>
+	 */
+	private static void recompress(final Path rpm) throws IOException {
+		final RpmInformation information = TestRpm.load(rpm);
+		final byte[] data = Files.readAllBytes(rpm);
+		final int payloadOffset = (int) information.getPayloadOffset();
+
+		final byte[] compressor = "gzip\0".getBytes(StandardCharsets.US_ASCII);
+		int found = -1;
+		for (int i = (int) information.getHeader().getStart(); i < payloadOffset - compressor.length; i++) {
+			if (Arrays.equals(compressor, Arrays.copyOfRange(data, i, i + compressor.length))) {
+				assertEquals(-1, found);
+				found = i;
+			}
+		}
+		assertTrue(found > 0);
+		System.arraycopy("xz\0\0".getBytes(StandardCharsets.US_ASCII), 0, data, found, 4);
+
+		final byte[] cpio;
+		try (InputStream in = new GZIPInputStream(
+				new ByteArrayInputStream(data, payloadOffset, data.length - payloadOffset))) {
+			cpio = readAll(in);
+		}
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(data, 0, payloadOffset);
+		try (XZOutputStream xz = new XZOutputStream(out, new LZMA2Options(1))) {
+			for (int off = 0; off < cpio.length; off += BLOCK_SIZE) {
+				xz.write(cpio, off, Math.min(BLOCK_SIZE, cpio.length - off));
+				xz.endBlock();
+			}
+		}
+		Files.write(rpm, out.toByteArray());
+	}
+
+	private static byte[] readAll(final InputStream in) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[8192];
+		int rc;
+		while ((rc = in.read(buffer)) >= 0) {
+			out.write(buffer, 0, rc);
+		}
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.junit.Test;
+
+import de.dentrassi.eclipse.rpm.editor.PayloadVerification.State;
+
+/**
+ * Tests of the {@link PayloadVerifier}
+ * <p>
+ * The digests come from the header of RPM files built for the test. The
+ * payload is either the one of the RPM file, or a different one, built for
+ * the test case.
+ * </p>
+ */
+public class PayloadVerifierTest {
+
+	@Test
+	public void testPayload() throws IOException {
+		final byte[] large = random(1, 3 * 1024 * 1024 + 5);
+
+		final Path rpm = TestRpm.build(context -> {
+			context.addDirectory("/opt/test");
+			for (int i = 0; i < 2_000; i++) {
+				// small files, packed into shared chunks
+				context.addFile(String.format("/opt/test/small-%04d", i), random(i, 100 + i % 1500));
+			}
+			context.addFile("/opt/test/empty", new byte[0]);
+			context.addFile("/opt/test/large", large);
+		});
+		try (LocalRpmFile source = new LocalRpmFile(rpm)) {
+			final RpmInformation information = TestRpm.load(rpm);
+			final FileTable table = information.getFileTable();
+
+			final PayloadVerification result = PayloadVerifier.verify(table, information.getHeader(),
+					source.open(information.getPayloadOffset()), new NullProgressMonitor());
+
+			assertEquals(2_002, result.getOk());
+			assertEquals(0, result.getMismatches());
+			assertEquals(0, result.getMissing());
+			assertNull(result.getState(table.indexOf("/opt/test")));
+			assertEquals(State.OK, result.getState(table.indexOf("/opt/test/large")));
+		} finally {
+			TestRpm.delete(rpm);
+		}
+	}
+
+	@Test
+	public void testMismatchAndMissing() throws IOException {
+		final byte[] large = random(1, 1024 * 1024);
+
+		final Path rpm = TestRpm.build(context -> {
+			for (int i = 0; i < 100; i++) {
+				context.addFile(String.format("/small-%03d", i), text(i));
+			}
+			context.addFile("/large", large);
+			context.addFile("/missing", text(-1));
+		});
+		try {
+			final RpmInformation information = TestRpm.load(rpm);
+			final FileTable table = information.getFileTable();
+
+			final byte[] changed = large.clone();
+			changed[changed.length / 2]++;
+
+			final TestPayload payload = new TestPayload();
+			for (int i = 0; i < 100; i++) {
+				// one file in the middle of a shared chunk differs
+				payload.file(String.format("./small-%03d", i), 0644, i == 50 ? text(-2) : text(i));
+			}
+			payload.file("./large", 0644, changed);
+
+			final PayloadVerification result = PayloadVerifier.verify(table, information.getHeader(),
+					payload.toPayload(), new NullProgressMonitor());
+
+			assertEquals(99, result.getOk());
+			assertEquals(2, result.getMismatches());
+			assertEquals(1, result.getMissing());
+			assertEquals(State.OK, result.getState(table.indexOf("/small-049")));
+			assertEquals(State.MISMATCH, result.getState(table.indexOf("/small-050")));
+			assertEquals(State.OK, result.getState(table.indexOf("/small-051")));
+			assertEquals(State.MISMATCH, result.getState(table.indexOf("/large")));
+			assertEquals(State.MISSING, result.getState(table.indexOf("/missing")));
+		} finally {
+			TestRpm.delete(rpm);
+		}
+	}
+
+	@Test
+	public void testHardLinks() throws IOException {
+		final byte[] content = text(1);
+
+		final Path rpm = TestRpm.build(context -> {
+			context.addFile("/bin/a", content);
+			context.addFile("/bin/b", content);
+			context.addFile("/bin/c", content);
+		});
+		try {
+			final RpmInformation information = TestRpm.load(rpm);
+			final FileTable table = information.getFileTable();
+
+			// the content only comes with the last link
+			final TestPayload payload = new TestPayload().hardLinks(content, "./bin/a", "./bin/b", "./bin/c");
+
+			final PayloadVerification result = PayloadVerifier.verify(table, information.getHeader(),
+					payload.toPayload(), new NullProgressMonitor());
+
+			assertEquals(3, result.getOk());
+			assertEquals(0, result.getMismatches());
+			assertEquals(0, result.getMissing());
+		} finally {
+			TestRpm.delete(rpm);
+		}
+	}
+
+	private static byte[] random(final long seed, final int size) {
+		final byte[] result = new byte[size];
+		new Random(seed).nextBytes(result);
+		return result;
+	}
+
+	private static byte[] text(final int i) {
+		return String.format("Content of file %s%n", i).getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.packagedrone.utils.rpm.deps.RpmDependencyFlags;
+import org.junit.Test;
+
+import de.dentrassi.eclipse.rpm.editor.RpmComparison.Section;
+import de.dentrassi.eclipse.rpm.editor.RpmDifference.Kind;
+
+/**
+ * Tests of the {@link RpmComparator}
+ */
+public class RpmComparatorTest {
+
+	@Test
+	public void testFiles() throws IOException {
+		final Path left = TestRpm.build(context -> {
+			context.addFile("/a", bytes("same"));
+			context.addFile("/b", bytes("left"));
+			context.addFile("/c", bytes("removed"));
+			context.addFile("/d", bytes("same size"));
+		});
+		final Path right = TestRpm.build(context -> {
+			context.addFile("/a", bytes("same"));
+			context.addFile("/b", bytes("right, longer"));
+			context.addFile("/d", bytes("same SIZE"));
+			context.addFile("/e", bytes("added"));
+		});
+		try {
+			final RpmComparison result = compare(left, right);
+			final List<RpmDifference> differences = result.getDifferences(Section.PAYLOAD);
+
+			assertEquals(4, differences.size());
+			assertDifference(differences.get(0), "/b", Kind.CHANGED, "content");
+			assertDifference(differences.get(1), "/c", Kind.REMOVED, null);
+			assertNull(differences.get(1).getRight());
+			assertDifference(differences.get(2), "/d", Kind.CHANGED, "content");
+			assertDifference(differences.get(3), "/e", Kind.ADDED, null);
+			assertNull(differences.get(3).getLeft());
+
+			assertEquals(1, result.getUnchanged(Section.PAYLOAD));
+			assertEquals(0, result.getUnverified());
+		} finally {
+			TestRpm.delete(left);
+			TestRpm.delete(right);
+		}
+	}
+
+	@Test
+	public void testEqual() throws IOException {
+		final Path left = TestRpm.build(context -> {
+			context.addDirectory("/opt");
+			context.addFile("/opt/a", bytes("a"));
+			context.addSymbolicLink("/opt/b", "a");
+		});
+		try {
+			final RpmComparison result = compare(left, left);
+
+			for (final Section section : Section.values()) {
+				assertEquals(0, result.getDifferences(section).size());
+			}
+			assertEquals(3, result.getUnchanged(Section.PAYLOAD));
+			assertEquals(0, result.getUnverified());
+		} finally {
+			TestRpm.delete(left);
+		}
+	}
+
+	@Test
+	public void testHeaderAndDependencies() throws IOException {
+		final Path left = TestRpm.build(builder -> {
+			builder.getInformation().setSummary("Left");
+			builder.addRequirement("foo", "1", RpmDependencyFlags.GREATER, RpmDependencyFlags.EQUAL);
+			builder.addRequirement("bar", null);
+			builder.addProvides("same", "1.0", RpmDependencyFlags.EQUAL);
+		}, context -> context.addFile("/a", bytes("a")));
+		final Path right = TestRpm.build(builder -> {
+			builder.getInformation().setSummary("Right");
+			builder.addRequirement("foo", "2", RpmDependencyFlags.GREATER, RpmDependencyFlags.EQUAL);
+			builder.addRequirement("baz", null);
+			builder.addProvides("same", "1.0", RpmDependencyFlags.EQUAL);
+		}, context -> context.addFile("/a", bytes("a")));
+		try {
+			final RpmComparison result = compare(left, right);
+
+			final RpmDifference summary = find(result.getDifferences(Section.HEADER), "SUMMARY");
+			assertEquals(Kind.CHANGED, summary.getKind());
+			assertEquals("Left", summary.getLeft());
+			assertEquals("Right", summary.getRight());
+
+			final List<RpmDifference> dependencies = result.getDifferences(Section.DEPENDENCIES);
+			assertEquals(Kind.REMOVED, find(dependencies, "Requirements: bar").getKind());
+			assertEquals(Kind.ADDED, find(dependencies, "Requirements: baz").getKind());
+			final RpmDifference foo = find(dependencies, "Requirements: foo");
+			assertEquals(Kind.CHANGED, foo.getKind());
+			assertEquals("foo >= 1", foo.getLeft());
+			assertEquals("foo >= 2", foo.getRight());
+			assertEquals(3, dependencies.size());
+		} finally {
+			TestRpm.delete(left);
+			TestRpm.delete(right);
+		}
+	}
+
+	/**
+	 * Without file information in the header, only the sizes of the payload
+	 * files can be compared
+	 */
+	@Test
+	public void testPayloadOnly() throws IOException {
+		final RpmInformation left = new TestPayload() //
+				.file("./a", "same") //
+				.file("./b", "same size") //
+				.file("./c", "left") //
+				.toInformation();
+		final RpmInformation right = new TestPayload() //
+				.file("./a", "same") //
+				.file("./b", "SAME SIZE") //
+				.file("./c", "right") //
+				.toInformation();
+
+		final RpmComparison result = RpmComparator.compare(left, right, new NullProgressMonitor());
+		final List<RpmDifference> differences = result.getDifferences(Section.PAYLOAD);
+
+		assertEquals(1, differences.size());
+		assertDifference(differences.get(0), "/c", Kind.CHANGED, "size");
+		assertEquals(2, result.getUnchanged(Section.PAYLOAD));
+		assertEquals(2, result.getUnverified());
+	}
+
+	private static RpmComparison compare(final Path left, final Path right) throws IOException {
+		return RpmComparator.compare(TestRpm.load(left), TestRpm.load(right), new NullProgressMonitor());
+	}
+
+	private static void assertDifference(final RpmDifference difference, final String name, final Kind kind,
+			final String detail) {
+		assertEquals(name, difference.getName());
+		assertEquals(kind, difference.getKind());
+		assertEquals(detail, difference.getDetail());
+	}
+
+	private static RpmDifference find(final List<RpmDifference> differences, final String prefix) {
+		for (final RpmDifference difference : differences) {
+			if (difference.getName().startsWith(prefix)) {
+				return difference;
+			}
+		}
+		throw new AssertionError(String.format("No difference for %s in %s", prefix, differences));
+	}
+
+	private static byte[] bytes(final String text) {
+		return text.getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,251 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.packagedrone.utils.rpm.RpmSignatureTag;
+import org.eclipse.packagedrone.utils.rpm.header.Header;
+import org.eclipse.packagedrone.utils.rpm.signature.SignatureProcessor;
+import org.eclipse.packagedrone.utils.rpm.signature.SignatureProcessors;
+import org.junit.Test;
+
+/**
+ * Tests of the {@link SignatureVerifier}
+ * <p>
+ * The header digests cover the main header only, the MD5 digest and the size
+ * cover the main header and the payload.
+ * </p>
+ */
+public class SignatureVerifierTest {
+
+	@Test
+	public void testValid() throws IOException {
+		final Path rpm = build();
+		try {
+			final SignatureVerification result = verify(rpm);
+
+			assertTrue(result.isValid());
+			assertValid(result, Headers.SIG_SHA1, true);
+			assertValid(result, Headers.SIG_SHA256, true);
+			assertValid(result, Headers.SIG_MD5, true);
+			assertValid(result, Headers.SIG_SIZE, true);
+			assertNull(result.getResult(Headers.SIG_LONGSIZE));
+		} finally {
+			TestRpm.delete(rpm);
+		}
+	}
+
+	@Test
+	public void testChangedHeader() throws IOException {
+		final Path rpm = build();
+		try {
+			final RpmInformation information = TestRpm.load(rpm);
+			final byte[] data = Files.readAllBytes(rpm);
+			// change the version, which is part of the main header
+			final int index = indexOf(data, "1.0.0".getBytes(StandardCharsets.US_ASCII),
+					(int) information.getHeader().getStart());
+			assertTrue(index > 0 && index < information.getPayloadOffset());
+			data[index + 4] = '1';
+			Files.write(rpm, data);
+
+			final SignatureVerification result = verify(rpm);
+
+			assertFalse(result.isValid());
+			assertValid(result, Headers.SIG_SHA1, false);
+			assertValid(result, Headers.SIG_SHA256, false);
+			assertValid(result, Headers.SIG_MD5, false);
+			assertValid(result, Headers.SIG_SIZE, true);
+		} finally {
+			TestRpm.delete(rpm);
+		}
+	}
+
+	@Test
+	public void testChangedPayload() throws IOException {
+		final Path rpm = build();
+		try {
+			final RpmInformation information = TestRpm.load(rpm);
+			final byte[] data = Files.readAllBytes(rpm);
+			data[(int) information.getPayloadOffset() + 100]++;
+			Files.write(rpm, data);
+
+			final SignatureVerification result = verify(rpm);
+
+			// the header digests don't cover the payload
+			assertValid(result, Headers.SIG_SHA1, true);
+			assertValid(result, Headers.SIG_SHA256, true);
+			assertValid(result, Headers.SIG_MD5, false);
+			assertValid(result, Headers.SIG_SIZE, true);
+		} finally {
+			TestRpm.delete(rpm);
+		}
+	}
+
+	@Test
+	public void testAppended() throws IOException {
+		final Path rpm = build();
+		try {
+			Files.write(rpm, new byte[] { 1, 2, 3 }, StandardOpenOption.APPEND);
+
+			final SignatureVerification result = verify(rpm);
+
+			assertValid(result, Headers.SIG_SHA1, true);
+			assertValid(result, Headers.SIG_MD5, false);
+			assertValid(result, Headers.SIG_SIZE, false);
+			assertEquals(Long.toString(Files.size(rpm) - TestRpm.load(rpm).getHeader().getStart()),
+					result.getResult(Headers.SIG_SIZE).getActual());
+		} finally {
+			TestRpm.delete(rpm);
+		}
+	}
+
+	@Test
+	public void testUnknownSize() throws IOException {
+		final Path rpm = build();
+		try (LocalRpmFile file = new LocalRpmFile(rpm)) {
+			final RpmInformation information = TestRpm.load(rpm);
+
+			// the size gets counted while reading
+			final SignatureVerification result = SignatureVerifier.verify(new StreamSource(file), information,
+					new NullProgressMonitor());
+
+			assertTrue(result.isValid());
+			assertValid(result, Headers.SIG_SIZE, true);
+		} finally {
+			TestRpm.delete(rpm);
+		}
+	}
+
+	@Test
+	public void testLongSize() throws IOException {
+		final Path rpm = TestRpm.build(builder -> {
+			builder.removeAllSignatureProcessors();
+			builder.addSignatureProcessor(SignatureProcessors.sha1Header());
+			builder.addSignatureProcessor(new LongSize());
+		}, context -> context.addFile("/a", random(1, 100_000)));
+		try {
+			final SignatureVerification result = verify(rpm);
+
+			assertTrue(result.isValid());
+			assertValid(result, Headers.SIG_LONGSIZE, true);
+			assertNull(result.getResult(Headers.SIG_SIZE));
+			assertNull(result.getResult(Headers.SIG_MD5));
+		} finally {
+			TestRpm.delete(rpm);
+		}
+	}
+
+	/**
+	 * Record the size of the header and the payload as 64 bit value
+	 */
+	private static class LongSize implements SignatureProcessor {
+
+		private long size;
+
+		@Override
+		public void feedHeader(final ByteBuffer header) {
+			this.size += header.remaining();
+		}
+
+		@Override
+		public void feedPayloadData(final ByteBuffer data) {
+			this.size += data.remaining();
+		}
+
+		@Override
+		public void finish(final Header<RpmSignatureTag> signature) {
+			signature.putLong(Headers.SIG_LONGSIZE, this.size);
+		}
+	}
+
+	/**
+	 * A source which doesn't know its size, and reads using streams
+	 */
+	private static class StreamSource implements RpmSource {
+
+		private final RpmSource source;
+
+		public StreamSource(final RpmSource source) {
+			this.source = source;
+		}
+
+		@Override
+		public InputStream open(final long offset) throws IOException {
+			return this.source.open(offset);
+		}
+
+		@Override
+		public long getSize() {
+			return -1;
+		}
+
+		@Override
+		public RpmCache.Key getCacheKey() {
+			return null;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	private static Path build() throws IOException {
+		return TestRpm.build(context -> {
+			context.addFile("/small", new byte[] { 1, 2, 3 });
+			context.addFile("/large", random(1, 1024 * 1024));
+		});
+	}
+
+	private static SignatureVerification verify(final Path rpm) throws IOException {
+		final RpmInformation information = TestRpm.load(rpm);
+		try (LocalRpmFile source = new LocalRpmFile(rpm)) {
+			return SignatureVerifier.verify(source, information, new NullProgressMonitor());
+		}
+	}
+
+	private static void assertValid(final SignatureVerification result, final int tag, final boolean valid) {
+		assertNotNull(result.getResult(tag));
+		assertEquals(valid, result.getResult(tag).isValid());
+	}
+
+	private static int indexOf(final byte[] data, final byte[] pattern, final int start) {
+		outer: for (int i = start; i <= data.length - pattern.length; i++) {
+			for (int j = 0; j < pattern.length; j++) {
+				if (data[i + j] != pattern[j]) {
+					continue outer;
+				}
+			}
+			return i;
+		}
+		return -1;
+	}
+
+	private static byte[] random(final long seed, final int size) {
+		final byte[] result = new byte[size];
+		new Random(seed).nextBytes(result);
+		return result;
+	}
+}
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.compress.archivers.cpio.CpioArchiveEntry;
+import org.apache.commons.compress.archivers.cpio.CpioArchiveOutputStream;
+import org.eclipse.packagedrone.utils.rpm.RpmSignatureTag;
+import org.eclipse.packagedrone.utils.rpm.RpmTag;
+import org.eclipse.packagedrone.utils.rpm.parse.HeaderValue;
+import org.eclipse.packagedrone.utils.rpm.parse.InputHeader;
+
+/**
+ * A CPIO payload for tests, built entry by entry
+ * <p>
+ * The payload is gzip compressed, the default of an RPM header which doesn't
+ * declare a compression. The headers of {@link #toInformation()} are empty.
+ * </p>
+ */
+class TestPayload {
+
+	private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+
+	private final CpioArchiveOutputStream cpio = new CpioArchiveOutputStream(this.data);
+
+	private final List<FileEntry> files = new ArrayList<>();
+
+	private long inode = 1;
+
+	private byte[] finished;
+
+	public TestPayload directory(final String name, final int mode) throws IOException {
+		return add(name, 040000 | mode, new byte[0], 1, this.inode++);
+	}
+
+	public TestPayload file(final String name, final int mode, final byte[] content) throws IOException {
+		return add(name, 0100000 | mode, content, 1, this.inode++);
+	}
+
+	public TestPayload file(final String name, final String content) throws IOException {
+		return file(name, 0644, content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public TestPayload symlink(final String name, final String target) throws IOException {
+		return add(name, 0120777, target.getBytes(StandardCharsets.UTF_8), 1, this.inode++);
+	}
+
+	/**
+	 * Add a set of hard links, the content comes with the last one
+	 */
+	public TestPayload hardLinks(final byte[] content, final String... names) throws IOException {
+		final long inode = this.inode++;
+		for (int i = 0; i < names.length; i++) {
+			add(names[i], 0100644, i == names.length - 1 ? content : new byte[0], names.length, inode);
+		}
+		return this;
+	}
+
+	private TestPayload add(final String name, final int mode, final byte[] content, final int links,
+			final long inode) throws IOException {
+		final CpioArchiveEntry entry = new CpioArchiveEntry(name, content.length);
+		entry.setMode(mode);
+		entry.setNumberOfLinks(links);
+		entry.setInode(inode);
+		entry.setTime(1_500_000_000L);
+		this.cpio.putArchiveEntry(entry);
+		this.cpio.write(content);
+		this.cpio.closeArchiveEntry();
+		this.files.add(new FileEntry(name, content.length, 1_500_000_000L));
+		return this;
+	}
+
+	/**
+	 * Get the uncompressed CPIO archive
+	 */
+	public byte[] toCpio() {
+		if (this.finished == null) {
+			try {
+				this.cpio.finish();
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			this.finished = this.data.toByteArray();
+		}
+		return this.finished;
+	}
+
+	/**
+	 * Get the compressed payload
+	 */
+	public InputStream toPayload() throws IOException {
+		final ByteArrayOutputStream result = new ByteArrayOutputStream();
+		try (GZIPOutputStream out = new GZIPOutputStream(result)) {
+			out.write(toCpio());
+		}
+		return new ByteArrayInputStream(result.toByteArray());
+	}
+
+	/**
+	 * Get the information of an RPM file with empty headers and this payload
+	 */
+	public RpmInformation toInformation() {
+		final InputHeader<RpmTag> header = new InputHeader<>(new HeaderValue[0], 0, 0);
+		final InputHeader<RpmSignatureTag> signatureHeader = new InputHeader<>(new HeaderValue[0], 0, 0);
+		return new RpmInformation(null, header, signatureHeader, 0, FileTable.fromHeader(header), this.files);
+	}
+}
@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.packagedrone.utils.rpm.build.BuilderContext;
+import org.eclipse.packagedrone.utils.rpm.build.RpmBuilder;
+
+/**
+ * RPM files for tests, built with the RPM builder of Package Drone
+ */
+final class TestRpm {
+
+	@FunctionalInterface
+	public interface Content {
+		void add(BuilderContext context) throws IOException;
+	}
+
+	@FunctionalInterface
+	public interface Setup {
+		void setup(RpmBuilder builder) throws IOException;
+	}
+
+	private TestRpm() {
+	}
+
+	/**
+	 * Build an RPM file in a new temporary directory
+	 *
+	 * @return the RPM file, the caller has to delete it and its directory
+	 */
+	public static Path build(final Content content) throws IOException {
+		return build(builder -> {
+		}, content);
+	}
+
+	/**
+	 * Build an RPM file in a new temporary directory
+	 *
+	 * @param setup
+	 *            sets up the builder, before any content is added
+	 * @see #build(Content)
+	 */
+	public static Path build(final Setup setup, final Content content) throws IOException {
+		final Path dir = Files.createTempDirectory("rpm");
+		try (RpmBuilder builder = new RpmBuilder("test", "1.0.0", "1", dir)) {
+			setup.setup(builder);
+			content.add(builder.newContext());
+			builder.build();
+			return builder.getTargetFile();
+		}
+	}
+
+	/**
+	 * Load an RPM file, including the list of files
+	 */
+	public static RpmInformation load(final Path file) throws IOException {
+		try (LocalRpmFile source = new LocalRpmFile(file)) {
+			return new RpmLoader(source, null).load(null, new NullProgressMonitor());
+		}
+	}
+
+	/**
+	 * Delete an RPM file built by {@link #build(Content)}
+	 */
+	public static void delete(final Path file) throws IOException {
+		Files.deleteIfExists(file);
+		Files.deleteIfExists(file.getParent());
+	}
+}
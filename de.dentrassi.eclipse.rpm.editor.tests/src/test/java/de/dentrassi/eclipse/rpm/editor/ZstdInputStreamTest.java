@@ -0,0 +1,287 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdOutputStream;
+
+/**
+ * Conformance tests of the {@link ZstdInputStream}
+ * <p>
+ * The compressed data is produced by the reference implementation, using
+ * zstd-jni, and must decode to the original data. Invalid data must be
+ * rejected with an {@link IOException}.
+ * </p>
+ */
+public class ZstdInputStreamTest {
+
+	private static final int[] LEVELS = { 1, 3, 9, 19 };
+
+	@Test
+	public void testText() throws IOException {
+		final byte[] data = text(3 * 1024 * 1024);
+		for (final int level : LEVELS) {
+			assertArrayEquals("Level " + level, data, decode(Zstd.compress(data, level)));
+		}
+	}
+
+	@Test
+	public void testStreamingText() throws IOException {
+		// the streaming API doesn't know the content size and splits into blocks
+		final byte[] data = text(3 * 1024 * 1024);
+		for (final int level : LEVELS) {
+			assertArrayEquals("Level " + level, data, decode(compress(data, level)));
+		}
+	}
+
+	@Test
+	public void testRandom() throws IOException {
+		// incompressible, stored as raw blocks
+		final byte[] data = random(1024 * 1024, 1);
+		assertArrayEquals(data, decode(compress(data, 3)));
+	}
+
+	@Test
+	public void testRepeated() throws IOException {
+		// stored as RLE blocks
+		final byte[] data = new byte[1024 * 1024];
+		Arrays.fill(data, (byte) 'x');
+		assertArrayEquals(data, decode(compress(data, 3)));
+		assertArrayEquals(data, decode(Zstd.compress(data, 19)));
+	}
+
+	@Test
+	public void testEmpty() throws IOException {
+		assertArrayEquals(new byte[0], decode(Zstd.compress(new byte[0], 3)));
+		assertArrayEquals(new byte[0], decode(compress(new byte[0], 3)));
+		assertArrayEquals(new byte[0], decode(new byte[0]));
+	}
+
+	@Test
+	public void testSizes() throws IOException {
+		final byte[] text = text(300_000);
+		for (final int size : new int[] { 1, 2, 3, 255, 256, 257, 65_791, 65_792, 131_071, 131_072, 131_073,
+				300_000 }) {
+			final byte[] data = Arrays.copyOf(text, size);
+			assertArrayEquals("Size " + size, data, decode(Zstd.compress(data, 3)));
+			assertArrayEquals("Size " + size, data, decode(compress(data, 3)));
+		}
+	}
+
+	@Test
+	public void testMultipleFrames() throws IOException {
+		final byte[] first = text(200_000);
+		final byte[] second = random(100_000, 2);
+
+		assertArrayEquals(concat(first, second, first),
+				decode(concat(Zstd.compress(first, 3), compress(second, 1), Zstd.compress(first, 19))));
+	}
+
+	@Test
+	public void testSkippableFrames() throws IOException {
+		final byte[] data = text(100_000);
+		final byte[] frame = Zstd.compress(data, 3);
+
+		final byte[] skippable = skippable(0x184D2A50, 10);
+		final byte[] emptySkippable = skippable(0x184D2A5F, 0);
+
+		assertArrayEquals(concat(data, data),
+				decode(concat(skippable, frame, emptySkippable, frame, skippable)));
+	}
+
+	@Test
+	public void testChecksum() throws IOException {
+		// published XXH64 values, with a seed of zero
+		assertChecksum("", 0xEF46DB3751D8E999L);
+		assertChecksum("a", 0xD24EC4F1A98C6E5BL);
+		assertChecksum("abc", 0x44BC2CF5AD770999L);
+		assertChecksum("Nobody inspects the spammish repetition", 0xFBCEA83C8A378BF1L);
+	}
+
+	/**
+	 * Check a frame with a single raw block and a content checksum
+	 */
+	private static void assertChecksum(final String text, final long hash) throws IOException {
+		final byte[] data = text.getBytes(StandardCharsets.US_ASCII);
+		final int blockHeader = 1 | data.length << 3;
+
+		final byte[] frame = concat(
+				new byte[] { 0x28, (byte) 0xB5, 0x2F, (byte) 0xFD, 0x24, (byte) data.length, (byte) blockHeader,
+						(byte) (blockHeader >>> 8), (byte) (blockHeader >>> 16) },
+				data, new byte[] { (byte) hash, (byte) (hash >>> 8), (byte) (hash >>> 16), (byte) (hash >>> 24) });
+
+		assertArrayEquals(text, data, decode(frame));
+
+		frame[frame.length - 2] ^= 4;
+		assertInvalid(frame);
+	}
+
+	@Test
+	public void testSingleByteReads() throws IOException {
+		final byte[] data = text(200_000);
+		try (InputStream in = new ZstdInputStream(new ByteArrayInputStream(compress(data, 3)))) {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			int b;
+			while ((b = in.read()) >= 0) {
+				out.write(b);
+			}
+			assertArrayEquals(data, out.toByteArray());
+		}
+	}
+
+	@Test
+	public void testTruncated() throws IOException {
+		final byte[] compressed = compress(text(200_000), 3);
+		for (int length = 1; length < compressed.length; length += Math.max(1, length / 8)) {
+			assertInvalid(Arrays.copyOf(compressed, length));
+		}
+		assertInvalid(Arrays.copyOf(compressed, compressed.length - 1));
+	}
+
+	@Test
+	public void testCorrupted() throws IOException {
+		final byte[] compressed = compress(text(200_000), 3);
+		final Random random = new Random(3);
+		for (int i = 0; i < 2_000; i++) {
+			final byte[] corrupted = compressed.clone();
+			for (int j = 0; j < 1 + random.nextInt(4); j++) {
+				corrupted[random.nextInt(corrupted.length)] ^= 1 << random.nextInt(8);
+			}
+			// corrupted data must fail with an IOException, never with a runtime exception
+			try {
+				decode(corrupted);
+			} catch (final IOException e) {
+				// expected, unless the corruption hit unused bits
+			}
+		}
+	}
+
+	@Test
+	public void testInvalidMagic() throws IOException {
+		final byte[] compressed = Zstd.compress(text(1_000), 3);
+		compressed[0] ^= 1;
+		assertInvalid(compressed);
+	}
+
+	@Test
+	public void testWindowLimit() throws IOException {
+		// magic, no content size, window of 1 << 28 bytes, followed by an empty last raw block
+		assertInvalid(new byte[] { 0x28, (byte) 0xB5, 0x2F, (byte) 0xFD, 0x00, (byte) (18 << 3), 0x01, 0x00, 0x00 });
+
+		// the same with a window of 1 << 20 bytes is fine
+		assertArrayEquals(new byte[0], decode(
+				new byte[] { 0x28, (byte) 0xB5, 0x2F, (byte) 0xFD, 0x00, (byte) (10 << 3), 0x01, 0x00, 0x00 }));
+	}
+
+	@Test
+	public void testReservedBit() throws IOException {
+		assertInvalid(new byte[] { 0x28, (byte) 0xB5, 0x2F, (byte) 0xFD, 0x08, 0x00, 0x01, 0x00, 0x00 });
+	}
+
+	@Test
+	public void testDictionary() throws IOException {
+		final byte[] dictionary = text(10_000);
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (ZstdOutputStream zstd = new ZstdOutputStream(out, 3)) {
+			zstd.setDict(dictionary);
+			zstd.write(text(1_000));
+		}
+
+		assertInvalid(out.toByteArray());
+	}
+
+	private static void assertInvalid(final byte[] compressed) {
+		try {
+			decode(compressed);
+			fail("Invalid data got accepted");
+		} catch (final IOException e) {
+			// expected
+		}
+	}
+
+	private static byte[] decode(final byte[] compressed) throws IOException {
+		try (InputStream in = new ZstdInputStream(new ByteArrayInputStream(compressed))) {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[8192];
+			int rc;
+			while ((rc = in.read(buffer)) >= 0) {
+				out.write(buffer, 0, rc);
+			}
+			return out.toByteArray();
+		}
+	}
+
+	private static byte[] compress(final byte[] data, final int level) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (ZstdOutputStream zstd = new ZstdOutputStream(out, level)) {
+			// write in chunks, like the RPM payload gets written
+			for (int i = 0; i < data.length; i += 10_000) {
+				zstd.write(data, i, Math.min(10_000, data.length - i));
+			}
+		}
+		return out.toByteArray();
+	}
+
+	private static byte[] skippable(final int magic, final int length) {
+		final byte[] result = new byte[8 + length];
+		for (int i = 0; i < 4; i++) {
+			result[i] = (byte) (magic >>> i * 8);
+			result[4 + i] = (byte) (length >>> i * 8);
+		}
+		return result;
+	}
+
+	private static byte[] concat(final byte[]... arrays) {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (final byte[] array : arrays) {
+			out.write(array, 0, array.length);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Create compressible text, similar to the content of a payload
+	 */
+	private static byte[] text(final int length) {
+		final String[] words = { "rpm", "payload", "header", "usr", "lib", "share", "doc", "license", "the",
+				"file", "of", "and", "version", "release", "package", "x86_64", "noarch", "config", "/" };
+		final Random random = new Random(length);
+		final StringBuilder sb = new StringBuilder(length + 16);
+		while (sb.length() < length) {
+			sb.append(words[random.nextInt(words.length)]);
+			sb.append(random.nextInt(10) == 0 ? '\n' : ' ');
+			if (random.nextInt(50) == 0) {
+				sb.append(random.nextLong());
+			}
+		}
+		return Arrays.copyOf(sb.toString().getBytes(StandardCharsets.US_ASCII), length);
+	}
+
+	private static byte[] random(final int length, final long seed) {
+		final byte[] result = new byte[length];
+		new Random(seed).nextBytes(result);
+		return result;
+	}
+}
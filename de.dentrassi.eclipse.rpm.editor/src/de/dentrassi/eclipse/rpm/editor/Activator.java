@@ -10,9 +10,16 @@
  *******************************************************************************/
 package de.dentrassi.eclipse.rpm.editor;
 
+import java.util.Dictionary;
+import java.util.Hashtable;
+
+import org.eclipse.core.runtime.Platform;
 import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.osgi.service.debug.DebugOptions;
+import org.eclipse.osgi.service.debug.DebugOptionsListener;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
 
 /**
  * The activator class controls the plug-in life cycle
@@ -22,9 +29,25 @@ public class Activator extends AbstractUIPlugin {
 	// The plug-in ID
 	public static final String PLUGIN_ID = "de.dentrassi.eclipse.rpm.editor"; //$NON-NLS-1$
 
+	/**
+	 * The preference key of the memory budget of the cache, in megabytes
+	 * <p>
+	 * There is no preference page for it. It can be set in the
+	 * {@code plugin_customization.ini} of the product, and is read when the
+	 * plug-in starts. {@code 0} only keeps soft references.
+	 * </p>
+	 */
+	public static final String PREF_CACHE_SIZE = "cacheSize"; //$NON-NLS-1$
+
+	private static final int DEFAULT_CACHE_SIZE = 64;
+
 	// The shared instance
 	private static Activator plugin;
 
+	private RpmCache cache;
+
+	private ServiceRegistration<DebugOptionsListener> tracing;
+
 	/**
 	 * The constructor
 	 */
@@ -41,6 +64,14 @@ public class Activator extends AbstractUIPlugin {
 	public void start(final BundleContext context) throws Exception {
 		super.start(context);
 		plugin = this;
+
+		final Dictionary<String, Object> properties = new Hashtable<>();
+		properties.put(DebugOptions.LISTENER_SYMBOLICNAME, PLUGIN_ID);
+		this.tracing = context.registerService(DebugOptionsListener.class, new Tracing(), properties);
+
+		final int cacheSize = Platform.getPreferencesService().getInt(PLUGIN_ID, PREF_CACHE_SIZE,
+				DEFAULT_CACHE_SIZE, null);
+		this.cache = new RpmCache(Math.max(0, cacheSize) * 1024L * 1024L);
 	}
 
 	/*
@@ -51,6 +82,11 @@ public class Activator extends AbstractUIPlugin {
 	 */
 	@Override
 	public void stop(final BundleContext context) throws Exception {
+		this.cache.clear();
+		if (this.tracing != null) {
+			this.tracing.unregister();
+			this.tracing = null;
+		}
 		plugin = null;
 		super.stop(context);
 	}
@@ -64,6 +100,15 @@ public class Activator extends AbstractUIPlugin {
 		return plugin;
 	}
 
+	/**
+	 * Returns the cache of parsed RPM files
+	 *
+	 * @return the cache, shared by all editors
+	 */
+	public RpmCache getCache() {
+		return this.cache;
+	}
+
 	/**
 	 * Returns an image descriptor for the image file at the given plug-in
 	 * relative path
@@ -0,0 +1,295 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+/**
+ * Write reports of many RPM files, without a UI
+ * <p>
+ * RPM files are read in parallel by a fixed number of workers. Reports are
+ * written in the order of the input, as soon as they are complete. Only a
+ * limited number of reports is kept in memory at any time, so memory does not
+ * grow with the number of RPM files.
+ * </p>
+ * <p>
+ * This can be run as plain Java application, or as Eclipse application
+ * {@code de.dentrassi.eclipse.rpm.editor.inspect}, see
+ * {@link InspectApplication}.
+ * </p>
+ */
+public class BatchInspector {
+
+	private static final String USAGE = "Usage: inspect [options] <file|directory|->...\n" //
+			+ "  --format json|csv    the output format, default: json\n" //
+			+ "  --sections <list>    comma separated list of: header, signature, dependencies, files\n" //
+			+ "                       default: header,dependencies,files\n" //
+			+ "  --threads <n>        the number of workers, default: number of processors\n" //
+			+ "  --output <file>      write to a file instead of stdout\n" //
+			+ "Directories are scanned for *.rpm files, '-' reads file names from stdin.";
+
+	/**
+	 * The number of reports which may be pending per worker
+	 */
+	private static final int PENDING_PER_WORKER = 4;
+
+	private RpmReport.Format format = RpmReport.Format.JSON;
+
+	private EnumSet<RpmReport.Section> sections = EnumSet.of(RpmReport.Section.HEADER,
+			RpmReport.Section.DEPENDENCIES, RpmReport.Section.FILES);
+
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	private int failures;
+
+	public void setFormat(final RpmReport.Format format) {
+		this.format = format;
+	}
+
+	public void setSections(final EnumSet<RpmReport.Section> sections) {
+		this.sections = EnumSet.copyOf(sections);
+	}
+
+	public void setThreads(final int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	public static void main(final String[] args) {
+		System.exit(run(args, System.in, System.out, System.err));
+	}
+
+	/**
+	 * Run with command line arguments
+	 *
+	 * @return the exit code, {@code 0} if all files could be read, {@code 1}
+	 *         if some failed, {@code 2} if the arguments are invalid
+	 */
+	public static int run(final String[] args, final InputStream stdin, final PrintStream stdout,
+			final PrintStream stderr) {
+		final BatchInspector inspector = new BatchInspector();
+		final Deque<String> inputs = new ArrayDeque<>();
+		String output = null;
+
+		try {
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+				case "--format":
+					inspector.setFormat(RpmReport.Format.valueOf(value(args, ++i).toUpperCase(Locale.ROOT)));
+					break;
+				case "--sections":
+					final EnumSet<RpmReport.Section> sections = EnumSet.noneOf(RpmReport.Section.class);
+					for (final String section : value(args, ++i).split(",")) {
+						sections.add(RpmReport.Section.valueOf(section.trim().toUpperCase(Locale.ROOT)));
+					}
+					inspector.setSections(sections);
+					break;
+				case "--threads":
+					inspector.setThreads(Integer.parseInt(value(args, ++i)));
+					break;
+				case "--output":
+					output = value(args, ++i);
+					break;
+				case "--help":
+					stdout.println(USAGE);
+					return 0;
+				default:
+					if (args[i].startsWith("--")) {
+						throw new IllegalArgumentException(String.format("Unknown option: %s", args[i]));
+					}
+					inputs.add(args[i]);
+					break;
+				}
+			}
+			if (inputs.isEmpty()) {
+				throw new IllegalArgumentException("No input files");
+			}
+		} catch (final IllegalArgumentException e) {
+			stderr.println(e.getMessage());
+			stderr.println(USAGE);
+			return 2;
+		}
+
+		try (OutputStream out = output != null ? Files.newOutputStream(Paths.get(output)) : new NonClosing(stdout)) {
+			final Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+			final int failures = inspector.inspect(inputs, stdin, writer, stderr);
+			writer.flush();
+			return failures > 0 ? 1 : 0;
+		} catch (final IOException e) {
+			stderr.println(e.getMessage());
+			return 1;
+		}
+	}
+
+	private static String value(final String[] args, final int i) {
+		if (i >= args.length) {
+			throw new IllegalArgumentException(String.format("Missing value for: %s", args[i - 1]));
+		}
+		return args[i];
+	}
+
+	/**
+	 * Write the reports of all inputs
+	 *
+	 * @param inputs
+	 *            RPM files, directories or {@code -} for reading file names
+	 *            from {@code stdin}
+	 * @param errors
+	 *            receiving a line for each RPM file which could not be read
+	 * @return the number of RPM files which could not be read
+	 */
+	public int inspect(final Iterable<String> inputs, final InputStream stdin, final Writer out,
+			final PrintStream errors) throws IOException {
+		this.failures = 0;
+
+		final ExecutorService executor = Executors.newFixedThreadPool(this.threads);
+		final Deque<Future<Report>> pending = new ArrayDeque<>();
+		final int maxPending = this.threads * PENDING_PER_WORKER;
+
+		try {
+			RpmReport.writeStart(this.format, out);
+
+			for (final String input : inputs) {
+				final Iterator<Path> files;
+				final Stream<Path> stream;
+
+				if ("-".equals(input)) {
+					stream = null;
+					files = new BufferedReader(new InputStreamReader(stdin, StandardCharsets.UTF_8)).lines()
+							.filter(line -> !line.isEmpty()).map(Paths::get).iterator();
+				} else if (Files.isDirectory(Paths.get(input))) {
+					stream = Files.walk(Paths.get(input))
+							.filter(p -> Files.isRegularFile(p) && p.getFileName().toString().endsWith(".rpm"));
+					files = stream.iterator();
+				} else {
+					stream = null;
+					files = Stream.of(Paths.get(input)).iterator();
+				}
+
+				try {
+					while (files.hasNext()) {
+						final Path file = files.next();
+						while (pending.size() >= maxPending) {
+							write(pending.poll(), out, errors);
+						}
+						pending.add(executor.submit(() -> report(file, errors)));
+					}
+				} finally {
+					if (stream != null) {
+						stream.close();
+					}
+				}
+			}
+
+			while (!pending.isEmpty()) {
+				write(pending.poll(), out, errors);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		return this.failures;
+	}
+
+	private void write(final Future<Report> future, final Writer out, final PrintStream errors)
+			throws IOException {
+		final Report report;
+		try {
+			report = future.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted", e);
+		} catch (final ExecutionException e) {
+			throw new IOException(e.getCause());
+		}
+
+		if (report.error != null) {
+			this.failures++;
+			errors.println(String.format("%s: %s", report.file, report.error));
+		}
+		out.append(report.content);
+	}
+
+	private Report report(final Path file, final PrintStream errors) throws IOException {
+		final StringBuilder sb = new StringBuilder();
+		try (LocalRpmFile source = new LocalRpmFile(file)) {
+			final RpmLoader loader = new RpmLoader(source, null);
+			final NullProgressMonitor monitor = new NullProgressMonitor();
+			final RpmInformation information = this.sections.contains(RpmReport.Section.FILES)
+					? loader.load(null, monitor) : loader.loadHeader(monitor);
+			RpmReport.write(this.format, file.toString(), information, this.sections, sb);
+			return new Report(file, sb, null);
+		} catch (final Exception e) {
+			sb.setLength(0);
+			RpmReport.writeError(this.format, file.toString(), e, sb);
+			return new Report(file, sb, e.getMessage() != null ? e.getMessage() : e.getClass().getName());
+		}
+	}
+
+	private static class Report {
+
+		private final Path file;
+
+		private final CharSequence content;
+
+		private final String error;
+
+		public Report(final Path file, final CharSequence content, final String error) {
+			this.file = file;
+			this.content = content;
+			this.error = error;
+		}
+	}
+
+	/**
+	 * Keep stdout open when closing the writer
+	 */
+	private static class NonClosing extends FilterOutputStream {
+
+		public NonClosing(final OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) throws IOException {
+			this.out.write(b, off, len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			flush();
+		}
+	}
+}
@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.commands.AbstractHandler;
+import org.eclipse.core.commands.ExecutionEvent;
+import org.eclipse.core.commands.ExecutionException;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IAdaptable;
+import org.eclipse.jface.viewers.ISelection;
+import org.eclipse.jface.viewers.IStructuredSelection;
+import org.eclipse.ui.PartInitException;
+import org.eclipse.ui.handlers.HandlerUtil;
+
+/**
+ * Open the {@link RpmCompareEditor} for the two selected RPM files
+ */
+public class CompareHandler extends AbstractHandler {
+
+	@Override
+	public Object execute(final ExecutionEvent event) throws ExecutionException {
+		final ISelection selection = HandlerUtil.getCurrentSelection(event);
+		if (!(selection instanceof IStructuredSelection)) {
+			return null;
+		}
+
+		final List<IFile> files = new ArrayList<>(2);
+		for (final Object o : ((IStructuredSelection) selection).toList()) {
+			final IFile file = o instanceof IAdaptable ? ((IAdaptable) o).getAdapter(IFile.class) : null;
+			if (file != null) {
+				files.add(file);
+			}
+		}
+
+		if (files.size() != 2) {
+			return null;
+		}
+
+		try {
+			HandlerUtil.getActiveWorkbenchWindowChecked(event).getActivePage()
+					.openEditor(new RpmCompareEditorInput(files.get(0), files.get(1)), RpmCompareEditor.ID);
+		} catch (final PartInitException e) {
+			throw new ExecutionException("Failed to open compare editor", e);
+		}
+
+		return null;
+	}
+
+}
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * Compare two loaded RPM files in the background
+ */
+public abstract class CompareJob extends Job {
+
+	private final RpmInformation left;
+
+	private final RpmInformation right;
+
+	/**
+	 * Create a new compare job
+	 *
+	 * @param left
+	 *            the left RPM, its payload must be loaded
+	 * @param right
+	 *            the right RPM, its payload must be loaded
+	 */
+	public CompareJob(final RpmInformation left, final RpmInformation right) {
+		super(String.format("Comparing %s and %s", left.getLead().getName(), right.getLead().getName()));
+		this.left = left;
+		this.right = right;
+	}
+
+	protected abstract void compared(RpmComparison comparison);
+
+	protected abstract void failed(Exception e);
+
+	@Override
+	protected IStatus run(final IProgressMonitor monitor) {
+		monitor.beginTask(getName(), IProgressMonitor.UNKNOWN);
+
+		try {
+			compared(RpmComparator.compare(this.left, this.right, monitor));
+			return Status.OK_STATUS;
+		} catch (final OperationCanceledException e) {
+			return Status.CANCEL_STATUS;
+		} catch (final Exception e) {
+			failed(e);
+			return new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Failed to compare RPM files", e);
+		} finally {
+			monitor.done();
+		}
+	}
+
+}
@@ -15,207 +15,176 @@ import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.format.FormatStyle;
-import java.util.Arrays;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
-import java.util.TreeMap;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
+import org.eclipse.jface.action.Action;
+import org.eclipse.jface.action.MenuManager;
+import org.eclipse.jface.action.Separator;
 import org.eclipse.jface.layout.TreeColumnLayout;
 import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.jface.resource.JFaceResources;
 import org.eclipse.jface.resource.LocalResourceManager;
 import org.eclipse.jface.viewers.CellLabelProvider;
 import org.eclipse.jface.viewers.ColumnWeightData;
-import org.eclipse.jface.viewers.ITreePathContentProvider;
+import org.eclipse.jface.viewers.ILazyTreePathContentProvider;
+import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.jface.viewers.TreePath;
 import org.eclipse.jface.viewers.TreeViewer;
 import org.eclipse.jface.viewers.TreeViewerColumn;
 import org.eclipse.jface.viewers.ViewerCell;
-import org.eclipse.packagedrone.utils.rpm.RpmTag;
-import org.eclipse.packagedrone.utils.rpm.parse.HeaderValue;
-import org.eclipse.packagedrone.utils.rpm.parse.InputHeader;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.graphics.RGB;
 import org.eclipse.swt.layout.FillLayout;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Text;
+import org.eclipse.swt.widgets.Tree;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
 
+import de.dentrassi.eclipse.rpm.editor.FileTree.Directory;
+import de.dentrassi.eclipse.rpm.editor.FileTree.File;
+import de.dentrassi.eclipse.rpm.editor.FileTree.Node;
+
 public class ContentTable {
 
+	private static final String FILTER_HELP = "Filter by name, *.glob or /regex/, and user:, group:, mode:, "
+			+ "size:>1M or type:f|d|l";
+
+	/**
+	 * Expand the filtered tree only if there are not more matches than this
+	 */
+	private static final int MAX_EXPANDED_MATCHES = 200;
+
 	private static final DateTimeFormatter DATETIME_FORMATTER = DateTimeFormatter.ofLocalizedDateTime(FormatStyle.FULL);
 	private final TreeViewer viewer;
 	private final Composite wrapper;
-	private Map<String, MetaInformation> meta;
 	private final LocalResourceManager resourceManager;
-	private Color dimmedColor;
-
-	private static abstract class Node {
-
-		private final String name;
-		private final Node parent;
-
-		public Node(final String name, final Node parent) {
-			this.name = name;
-			this.parent = parent;
-		}
-
-		public String getName() {
-			return this.name;
-		}
-
-		public abstract long getSize();
-
-		public abstract Object[] getChildren();
-
-		public String getFullName() {
-			if (this.parent != null) {
-				return this.parent.getFullName() + "/" + this.name;
-			} else if (this.name != null) {
-				return "/" + this.name;
-			} else {
-				return "";
-			}
-		}
-	}
-
-	private static class File extends Node {
-		private final FileEntry file;
-
-		public File(final String name, final Node parent, final FileEntry file) {
-			super(name, parent);
-			this.file = file;
-		}
-
-		@Override
-		public Object[] getChildren() {
-			return null;
-		}
-
-		public FileEntry getFile() {
-			return this.file;
-		}
-
-		@Override
-		public long getSize() {
-			return this.file.getSize();
-		}
+	private final Color dimmedColor;
+	private final NumberFormat sizeFormat = NumberFormat.getIntegerInstance();
+	private final Color errorColor;
+	private final Action verifyAction;
+	private final Action viewAction;
+	private final Action openAction;
+	private final Action extractToFolderAction;
+	private final Action extractToWorkspaceAction;
+	private PayloadVerification verification;
+	private final Text filterText;
+	private final Label filterStatus;
+	private FileTreeIndex index;
+	private FileTreeIndex.Result filter;
+	/**
+	 * The visible children of directories, while a filter is active
+	 */
+	private final Map<Directory, Node[]> visibleChildren = new HashMap<>();
+	/**
+	 * The tree of files, while the payload is still being loaded
+	 */
+	private FileTree growingTree;
+
+	/**
+	 * The actions of the content table, implemented by the editor
+	 */
+	public interface Handler {
+		/**
+		 * Verify the payload
+		 */
+		public void verify();
+
+		/**
+		 * Show a payload file in a viewer
+		 */
+		public void view(File file);
+
+		/**
+		 * Open a payload file in an editor
+		 */
+		public void open(File file);
+
+		/**
+		 * Extract payload files to a directory of the local file system
+		 */
+		public void extractToFolder(List<Node> nodes);
+
+		/**
+		 * Extract payload files to a folder of the workspace
+		 */
+		public void extractToWorkspace(List<Node> nodes);
 	}
 
-	private static class Directory extends Node {
-		private final Map<String, Node> nodes = new TreeMap<>();
-
-		private long size;
-
-		public Directory(final String name, final Node parent) {
-			super(name, parent);
-		}
-
-		@Override
-		public Object[] getChildren() {
-			return this.nodes.values().toArray();
-		}
-
-		public void addFile(final LinkedList<String> segs, final FileEntry fe) {
-			final String seg = segs.pollFirst();
-			this.size += fe.getSize();
-			if (segs.isEmpty()) {
-				this.nodes.put(seg, new File(seg, this, fe));
-			} else {
-				final Node node = this.nodes.get(seg);
-				if (node instanceof Directory) {
-					((Directory) node).addFile(segs, fe);
-				} else {
-					final Directory dir = new Directory(seg, this);
-					this.nodes.put(seg, dir);
-					dir.addFile(segs, fe);
-				}
-			}
-		}
-
-		@Override
-		public long getSize() {
-			return this.size;
-		}
-	}
-
-	public static class MetaInformation {
-		private final String user;
-		private final String group;
-		private final Short mode;
-		private final String linkTo;
-		private final Instant timestamp;
-
-		public MetaInformation(final String user, final String group, final Short mode, final String linkTo,
-				final Integer mtime) {
-			this.user = user;
-			this.group = group;
-			this.mode = mode;
-			this.linkTo = linkTo;
-			this.timestamp = mtime != null ? Instant.ofEpochSecond(mtime) : null;
-		}
-
-		public String getGroup() {
-			return this.group;
-		}
-
-		public String getUser() {
-			return this.user;
-		}
+	/**
+	 * Create a new content table
+	 *
+	 * @param parent
+	 *            the parent composite
+	 * @param handler
+	 *            the handler for the actions of the table
+	 */
+	public ContentTable(final Composite parent, final Handler handler) {
+		this.wrapper = new Composite(parent, SWT.NO_BACKGROUND);
+		parent.setLayout(new FillLayout());
 
-		public Short getMode() {
-			return this.mode;
-		}
+		final GridLayout wrapperLayout = new GridLayout(2, false);
+		wrapperLayout.marginWidth = 0;
+		wrapperLayout.marginHeight = 0;
+		this.wrapper.setLayout(wrapperLayout);
 
-		public String getLinkTo() {
-			return this.linkTo;
-		}
+		this.filterText = new Text(this.wrapper, SWT.SEARCH | SWT.ICON_SEARCH | SWT.ICON_CANCEL | SWT.BORDER);
+		this.filterText.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+		this.filterText.setMessage("Filter");
+		this.filterText.setToolTipText(FILTER_HELP);
+		this.filterText.addModifyListener(evt -> applyFilter());
 
-		public Instant getTimestamp() {
-			return this.timestamp;
-		}
-	}
+		this.filterStatus = new Label(this.wrapper, SWT.NONE);
+		this.filterStatus.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, false, false));
 
-	public ContentTable(final Composite parent) {
-		this.wrapper = new Composite(parent, SWT.NO_BACKGROUND);
-		parent.setLayout(new FillLayout());
+		final Composite treeWrapper = new Composite(this.wrapper, SWT.NO_BACKGROUND);
+		treeWrapper.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true, 2, 1));
 
 		this.resourceManager = new LocalResourceManager(JFaceResources.getResources(parent.getDisplay()));
 		this.wrapper.addDisposeListener((evt) -> this.resourceManager.dispose());
 
 		this.dimmedColor = this.resourceManager.createColor(new RGB(127, 127, 127));
-		final ImageDescriptor fileIconDescriptor = AbstractUIPlugin.imageDescriptorFromPlugin(Activator.PLUGIN_ID,
-				"$nl$/icons/obj16/file.png"); //$NON-NLS-1$
-		final ImageDescriptor folderIconDescriptor = AbstractUIPlugin.imageDescriptorFromPlugin(Activator.PLUGIN_ID,
-				"$nl$/icons/obj16/folder.png"); //$NON-NLS-1$
-		final ImageDescriptor linkIconDescriptor = AbstractUIPlugin.imageDescriptorFromPlugin(Activator.PLUGIN_ID,
-				"$nl$/icons/obj16/link.png"); //$NON-NLS-1$
+		this.errorColor = this.resourceManager.createColor(new RGB(192, 0, 0));
+		final Image fileIcon = createImage("$nl$/icons/obj16/file.png"); //$NON-NLS-1$
+		final Image folderIcon = createImage("$nl$/icons/obj16/folder.png"); //$NON-NLS-1$
+		final Image linkIcon = createImage("$nl$/icons/obj16/link.png"); //$NON-NLS-1$
 
-		this.viewer = new TreeViewer(this.wrapper, SWT.MULTI | SWT.H_SCROLL | SWT.V_SCROLL);
+		this.viewer = new TreeViewer(treeWrapper, SWT.MULTI | SWT.H_SCROLL | SWT.V_SCROLL | SWT.VIRTUAL);
 
 		final TreeColumnLayout layout = new TreeColumnLayout();
 
 		createColumn(layout, "Name", 4, SWT.NONE, (node, cell) -> {
 			cell.setText(node.getName());
-			final MetaInformation meta = ContentTable.this.meta.get(node.getFullName());
-			if (meta != null && meta.getMode() != null) {
-				if ((meta.getMode() & 0x8000) > 0) {
-					cell.setImage(this.resourceManager.createImage(fileIconDescriptor));
-				} else if ((meta.getMode() & 0x4000) > 0) {
-					cell.setImage(this.resourceManager.createImage(folderIconDescriptor));
-				} else if ((meta.getMode() & 0xA000) > 0) {
-					cell.setImage(this.resourceManager.createImage(linkIconDescriptor));
+			final MetaInformation meta = node.getMeta();
+			if (meta != null && meta.getMode() >= 0) {
+				switch (meta.getMode() & 0xF000) {
+				case 0x8000:
+					cell.setImage(fileIcon);
+					break;
+				case 0x4000:
+					cell.setImage(folderIcon);
+					break;
+				case 0xA000:
+					cell.setImage(linkIcon);
+					break;
+				default:
+					break;
 				}
 			}
 		});
 
 		createColumn(layout, "Size", 1, SWT.RIGHT,
-				(node, cell) -> cell.setText(NumberFormat.getIntegerInstance().format(node.getSize())));
+				(node, cell) -> cell.setText(this.sizeFormat.format(node.getSize())));
 
 		createMetaColumn(layout, "User", 1, SWT.NONE, (meta, cell) -> cell.setText(meta.getUser()));
 		createMetaColumn(layout, "Group", 1, SWT.NONE, (meta, cell) -> cell.setText(meta.getGroup()));
@@ -226,14 +195,14 @@ public class ContentTable {
 		createColumn(layout, "Timestamp", 1, SWT.NONE, (node, cell) -> {
 			Instant ts = null;
 
-			final MetaInformation meta = ContentTable.this.meta.get(node.getFullName());
-			if (meta != null) {
+			final MetaInformation meta = node.getMeta();
+			if (meta != null && meta.getMtime() >= 0) {
 				// use meta entry
-				ts = meta.getTimestamp();
+				ts = Instant.ofEpochSecond(meta.getMtime());
 			}
-			if (ts == null && node instanceof File) {
-				// use CPIO entry
-				ts = ((File) node).getFile().getTimestamp();
+			if (ts == null && node.getEntry() != null && node.getEntry().getMtime() != FileEntry.NO_MTIME) {
+				// use file entry
+				ts = Instant.ofEpochSecond(node.getEntry().getMtime());
 			}
 
 			if (ts != null) {
@@ -241,15 +210,104 @@ public class ContentTable {
 			}
 		});
 
-		this.wrapper.setLayout(layout);
+		createColumn(layout, "Verification", 1, SWT.NONE, (node, cell) -> {
+			final MetaInformation meta = node.getMeta();
+			if (this.verification == null || meta == null) {
+				return;
+			}
+
+			cell.setForeground(null);
+
+			final PayloadVerification.State state = this.verification.getState(meta.getIndex());
+			if (state == null) {
+				return;
+			}
+
+			switch (state) {
+			case OK:
+				cell.setText("OK");
+				break;
+			case MISMATCH:
+				cell.setText("Mismatch");
+				cell.setForeground(this.errorColor);
+				break;
+			case MISSING:
+				cell.setText("Missing");
+				cell.setForeground(this.errorColor);
+				break;
+			}
+		});
+
+		treeWrapper.setLayout(layout);
 		this.viewer.getTree().setHeaderVisible(true);
 
-		final ITreePathContentProvider p = new ITreePathContentProvider() {
+		this.viewAction = createFileAction("View", handler::view);
+		this.openAction = createFileAction("Open", handler::open);
+		this.extractToFolderAction = createNodesAction("Extract To Folder…", handler::extractToFolder);
+		this.extractToWorkspaceAction = createNodesAction("Extract To Workspace…", handler::extractToWorkspace);
+
+		this.verifyAction = new Action("Verify Payload") {
+
+			@Override
+			public void run() {
+				handler.verify();
+			}
+		};
+		this.verifyAction.setEnabled(false);
+
+		this.viewer.addSelectionChangedListener(evt -> {
+			final boolean file = getSelectedFile() != null;
+			this.viewAction.setEnabled(file);
+			this.openAction.setEnabled(file);
+			final boolean nodes = !getSelectedNodes().isEmpty();
+			this.extractToFolderAction.setEnabled(nodes);
+			this.extractToWorkspaceAction.setEnabled(nodes);
+		});
+
+		this.viewer.addDoubleClickListener(evt -> this.viewAction.run());
+
+		final MenuManager menuManager = new MenuManager();
+		menuManager.add(this.viewAction);
+		menuManager.add(this.openAction);
+		menuManager.add(this.extractToFolderAction);
+		menuManager.add(this.extractToWorkspaceAction);
+		menuManager.add(new Separator());
+		menuManager.add(this.verifyAction);
+		this.viewer.getTree().setMenu(menuManager.createContextMenu(this.viewer.getTree()));
+		this.wrapper.addDisposeListener((evt) -> menuManager.dispose());
+
+		final ILazyTreePathContentProvider p = new ILazyTreePathContentProvider() {
+
+			@Override
+			public void updateElement(final TreePath parentPath, final int index) {
+				final Directory parent = getDirectory(parentPath);
+				if (parent == null) {
+					return;
+				}
+
+				final Node[] children = getChildren(parent);
+				if (index >= children.length) {
+					return;
+				}
+
+				final Node child = children[index];
+				ContentTable.this.viewer.replace(parentPath, index, child);
+				ContentTable.this.viewer.setHasChildren(parentPath.createChildPath(child), hasChildren(child));
+			}
+
+			@Override
+			public void updateChildCount(final TreePath treePath, final int currentChildCount) {
+				final Directory dir = getDirectory(treePath);
+				final int count = dir != null ? getChildren(dir).length : 0;
+				if (count != currentChildCount) {
+					ContentTable.this.viewer.setChildCount(treePath, count);
+				}
+			}
 
 			@Override
-			public boolean hasChildren(final TreePath path) {
-				final Object[] children = getChildren(path);
-				return children != null && children.length > 0;
+			public void updateHasChildren(final TreePath path) {
+				final Object element = path.getSegmentCount() > 0 ? path.getLastSegment() : null;
+				ContentTable.this.viewer.setHasChildren(path, hasChildren(element));
 			}
 
 			@Override
@@ -257,38 +315,98 @@ public class ContentTable {
 				return new TreePath[0];
 			}
 
+			private Directory getDirectory(final TreePath path) {
+				final Object element;
+				if (path.getSegmentCount() > 0) {
+					element = path.getLastSegment();
+				} else {
+					element = ContentTable.this.viewer.getInput();
+				}
+				return element instanceof Directory ? (Directory) element : null;
+			}
+
+			private boolean hasChildren(final Object element) {
+				return element instanceof Directory && getChildren((Directory) element).length > 0;
+			}
+		};
+		this.viewer.setUseHashlookup(true);
+		this.viewer.setContentProvider(p);
+	}
+
+	private Action createFileAction(final String label, final Consumer<File> consumer) {
+		final Action action = new Action(label) {
+
 			@Override
-			public Object[] getElements(final Object inputElement) {
-				if (inputElement instanceof Object[]) {
-					return (Object[]) inputElement;
-				} else if (inputElement instanceof Directory) {
-					return ((Directory) inputElement).getChildren();
+			public void run() {
+				final File file = getSelectedFile();
+				if (file != null) {
+					consumer.accept(file);
 				}
-				return null;
 			}
+		};
+		action.setEnabled(false);
+		return action;
+	}
+
+	private Action createNodesAction(final String label, final Consumer<List<Node>> consumer) {
+		final Action action = new Action(label) {
 
 			@Override
-			public Object[] getChildren(final TreePath parentPath) {
-				return getElements(parentPath.getLastSegment());
+			public void run() {
+				final List<Node> nodes = getSelectedNodes();
+				if (!nodes.isEmpty()) {
+					consumer.accept(nodes);
+				}
 			}
 		};
-		this.viewer.setContentProvider(p);
+		action.setEnabled(false);
+		return action;
 	}
 
-	private String makeMode(Short mode) {
-		if (mode == null) {
-			return "";
+	private List<Node> getSelectedNodes() {
+		final List<Node> result = new ArrayList<>();
+		for (final Object o : this.viewer.getStructuredSelection().toList()) {
+			if (o instanceof Node) {
+				result.add((Node) o);
+			}
 		}
+		return result;
+	}
 
-		mode = (short) (mode & (short) 07777);
+	/**
+	 * Get the selected file, if exactly one regular file is selected
+	 */
+	private File getSelectedFile() {
+		final IStructuredSelection sel = this.viewer.getStructuredSelection();
+		if (sel.size() != 1 || !(sel.getFirstElement() instanceof File)) {
+			return null;
+		}
 
-		return String.format("%04o", mode);
+		final File file = (File) sel.getFirstElement();
+		final MetaInformation meta = file.getMeta();
+		if (meta != null && meta.getMode() >= 0 && (meta.getMode() & 0xF000) != 0x8000) {
+			return null;
+		}
+		return file;
+	}
+
+	private Image createImage(final String path) {
+		final ImageDescriptor descriptor = AbstractUIPlugin.imageDescriptorFromPlugin(Activator.PLUGIN_ID, path);
+		return this.resourceManager.createImage(descriptor);
+	}
+
+	private String makeMode(final int mode) {
+		if (mode < 0) {
+			return "";
+		}
+
+		return String.format("%04o", mode & 07777);
 	}
 
 	private void createMetaColumn(final TreeColumnLayout layout, final String label, final int weight, final int flags,
 			final BiConsumer<MetaInformation, ViewerCell> consumer) {
 		createColumn(layout, label, weight, flags, (node, cell) -> {
-			final MetaInformation meta = ContentTable.this.meta.get(node.getFullName());
+			final MetaInformation meta = node.getMeta();
 			if (meta != null) {
 				consumer.accept(meta, cell);
 			}
@@ -306,8 +424,7 @@ public class ContentTable {
 				public void update(final ViewerCell cell) {
 					final Object ele = cell.getElement();
 					if (ele instanceof Node) {
-						final MetaInformation meta = ContentTable.this.meta.get(((Node) ele).getFullName());
-						if (meta == null) {
+						if (((Node) ele).getMeta() == null) {
 							cell.setForeground(ContentTable.this.dimmedColor);
 						}
 						consumer.accept((Node) ele, cell);
@@ -318,97 +435,157 @@ public class ContentTable {
 		}
 	}
 
-	public void setInformation(final RpmInformation ri) {
-		final Directory root = new Directory(null, null);
-
-		this.meta = buildMetaInformation(ri);
-
-		for (final FileEntry fe : ri.getFiles()) {
-			final String s = fe.getName().replaceFirst("^\\.\\/", "");
-			final String[] toks = s.split("\\/");
-			final LinkedList<String> segs = new LinkedList<>(Arrays.asList(toks));
-
-			root.addFile(segs, fe);
+	/**
+	 * Get the children of a directory, which pass the current filter
+	 */
+	private Node[] getChildren(final Directory dir) {
+		final FileTreeIndex.Result filter = this.filter;
+		if (filter == null) {
+			if (this.growingTree != null) {
+				// take a snapshot, the tree still grows
+				return this.visibleChildren.computeIfAbsent(dir, this.growingTree::getChildren);
+			}
+			return dir.getChildren();
 		}
 
-		this.viewer.setInput(root);
-		this.viewer.getTree().layout();
+		return this.visibleChildren.computeIfAbsent(dir, d -> {
+			final List<Node> result = new ArrayList<>();
+			for (final Node child : d.getChildren()) {
+				if (filter.isVisible(child)) {
+					result.add(child);
+				}
+			}
+			return result.toArray(new Node[result.size()]);
+		});
 	}
 
-	private <T> Optional<T[]> fileArray(final InputHeader<RpmTag> header, final RpmTag tag, final Class<T[]> clazz) {
-		final Optional<HeaderValue> val = header.getEntry(tag);
-		if (!val.isPresent()) {
-			return Optional.empty();
+	/**
+	 * Parse the filter text and filter the tree
+	 * <p>
+	 * The filter is applied on every keystroke. Each application only
+	 * re-evaluates the names matching the previous one, as long as the
+	 * filter gets refined.
+	 * </p>
+	 */
+	private void applyFilter() {
+		if (!updateFilter()) {
+			return;
 		}
 
-		final Object o = val.get().getValue();
-		if (o == null) {
-			return Optional.empty();
-		}
-
-		if (clazz.isAssignableFrom(o.getClass())) {
-			return Optional.of(clazz.cast(o));
+		final Tree tree = this.viewer.getTree();
+		tree.setRedraw(false);
+		try {
+			this.viewer.refresh();
+			if (this.filter != null && this.filter.getMatches() <= MAX_EXPANDED_MATCHES) {
+				final List<TreePath> paths = new ArrayList<>();
+				collectExpanded(TreePath.EMPTY, (Directory) this.viewer.getInput(), paths);
+				this.viewer.setExpandedTreePaths(paths.toArray(new TreePath[paths.size()]));
+			}
+		} finally {
+			tree.setRedraw(true);
 		}
-		return Optional.empty();
 	}
 
-	private <T> T from(final Optional<T[]> values, final int i) {
-		if (!values.isPresent()) {
-			return null;
+	/**
+	 * Update the filter from the filter text
+	 *
+	 * @return {@code true} if the filter changed
+	 */
+	private boolean updateFilter() {
+		final PayloadFilter filter;
+		try {
+			filter = PayloadFilter.parse(this.filterText.getText());
+		} catch (final IllegalArgumentException e) {
+			this.filterText.setForeground(this.errorColor);
+			this.filterText.setToolTipText(e.getMessage());
+			return false;
 		}
 
-		final T[] array = values.get();
-		if (i < array.length) {
-			return array[i];
+		this.filterText.setForeground(null);
+		this.filterText.setToolTipText(FILTER_HELP);
+
+		final FileTreeIndex.Result previous = this.filter;
+		this.filter = filter != null && this.index != null ? this.index.filter(filter, previous) : null;
+		this.visibleChildren.clear();
+
+		if (this.filter != null) {
+			this.filterStatus.setText(String.format("%s matches", this.sizeFormat.format(this.filter.getMatches())));
 		} else {
-			return null;
+			this.filterStatus.setText("");
 		}
-	}
+		this.wrapper.layout();
 
-	private Map<String, MetaInformation> buildMetaInformation(final RpmInformation ri) {
-		final Optional<HeaderValue> basenamesValue = ri.getHeader().getEntry(RpmTag.BASENAMES);
-		final Optional<HeaderValue> dirnamesValue = ri.getHeader().getEntry(RpmTag.DIRNAMES);
-		final Optional<HeaderValue> dirIdxValue = ri.getHeader().getEntry(RpmTag.DIR_INDEXES);
+		return previous != null || this.filter != null;
+	}
 
-		if (!basenamesValue.isPresent() || !dirnamesValue.isPresent() || !dirIdxValue.isPresent()) {
-			return Collections.emptyMap();
+	private void collectExpanded(final TreePath path, final Directory dir, final List<TreePath> paths) {
+		for (final Node child : getChildren(dir)) {
+			if (child instanceof Directory && getChildren((Directory) child).length > 0) {
+				final TreePath childPath = path.createChildPath(child);
+				paths.add(childPath);
+				collectExpanded(childPath, (Directory) child, paths);
+			}
 		}
-		if (!(dirnamesValue.get().getValue() instanceof String[])) {
-			return Collections.emptyMap();
+	}
+
+	public void setInformation(final RpmInformation ri) {
+		// null while the payload is still being loaded
+		final Directory root = ri.getFileTree();
+
+		this.growingTree = null;
+		this.verification = null;
+		this.index = root != null ? ri.getFileTreeIndex() : null;
+		this.filter = null;
+		updateFilter();
+		if (root != null && root == this.viewer.getInput()) {
+			// the tree was shown while it was growing, keep its state
+			this.viewer.refresh();
+		} else {
+			this.viewer.setInput(root);
 		}
-		if (!(dirIdxValue.get().getValue() instanceof Integer[])) {
-			return Collections.emptyMap();
+		if (root != null) {
+			this.viewer.getTree().layout();
 		}
 
-		final String[] basenames = (String[]) basenamesValue.get().getValue();
-		final String[] dirnames = (String[]) dirnamesValue.get().getValue();
-		final Integer[] dirIdx = (Integer[]) dirIdxValue.get().getValue();
-
-		final Optional<String[]> users = fileArray(ri.getHeader(), RpmTag.FILE_USERNAME, String[].class);
-		final Optional<String[]> groups = fileArray(ri.getHeader(), RpmTag.FILE_GROUPNAME, String[].class);
-		final Optional<Short[]> modes = fileArray(ri.getHeader(), RpmTag.FILE_MODES, Short[].class);
-
-		final Optional<String[]> links = fileArray(ri.getHeader(), RpmTag.FILE_LINKTO, String[].class);
-
-		final Optional<Integer[]> mtimes = fileArray(ri.getHeader(), RpmTag.FILE_MTIMES, Integer[].class);
-
-		final Map<String, MetaInformation> metaInformation = new HashMap<>();
-
-		for (int i = 0; i < basenames.length; i++) {
-			final String basename = basenames[i];
-			final String dirname = dirnames[dirIdx[i]];
-			final String name;
-			if (dirname.endsWith("/")) {
-				name = dirname + basename;
-			} else {
-				name = dirname + "/" + basename;
-			}
+		this.verifyAction.setEnabled(root != null && ri.getFileTable().getCount() > 0
+				&& ri.getFileTable().getDigest(0) != null);
+	}
 
-			metaInformation.put(name, new MetaInformation(from(users, i), from(groups, i), from(modes, i),
-					from(links, i), from(mtimes, i)));
+	/**
+	 * Show the files read so far, while the payload is still being loaded
+	 * <p>
+	 * Filtering is not possible before the payload is loaded completely, see
+	 * {@link #setInformation(RpmInformation)}.
+	 * </p>
+	 *
+	 * @param tree
+	 *            the tree, which is still growing
+	 */
+	public void setGrowingTree(final FileTree tree) {
+		this.visibleChildren.clear();
+
+		if (this.growingTree != tree) {
+			this.growingTree = tree;
+			this.index = null;
+			this.filter = null;
+			this.viewer.setInput(tree.getRoot());
+		} else {
+			this.viewer.refresh();
 		}
 
-		return metaInformation;
+		this.filterStatus.setText(String.format("Loading… %s files", this.sizeFormat.format(tree.getFileCount())));
+		this.wrapper.layout();
+	}
+
+	/**
+	 * Show the result of a payload verification
+	 *
+	 * @param verification
+	 *            the result, may be {@code null} to clear it
+	 */
+	public void setVerification(final PayloadVerification verification) {
+		this.verification = verification;
+		this.viewer.refresh();
 	}
 
 	public Control getContainer() {
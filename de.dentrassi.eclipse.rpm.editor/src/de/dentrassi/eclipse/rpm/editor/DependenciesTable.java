@@ -12,7 +12,6 @@ package de.dentrassi.eclipse.rpm.editor;
 
 import java.util.Collection;
 import java.util.EnumSet;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -25,7 +24,6 @@ import org.eclipse.jface.viewers.TreePath;
 import org.eclipse.jface.viewers.TreeViewer;
 import org.eclipse.jface.viewers.TreeViewerColumn;
 import org.eclipse.jface.viewers.ViewerCell;
-import org.eclipse.packagedrone.utils.rpm.deps.Dependencies;
 import org.eclipse.packagedrone.utils.rpm.deps.Dependency;
 import org.eclipse.packagedrone.utils.rpm.deps.RpmDependencyFlags;
 import org.eclipse.swt.SWT;
@@ -77,27 +75,7 @@ public class DependenciesTable {
 					if (ele instanceof Dependency) {
 						final Dependency dep = (Dependency) ele;
 
-						final EnumSet<RpmDependencyFlags> flags = dep.getFlags();
-
-						final StringBuilder sb = new StringBuilder();
-
-						for (final RpmDependencyFlags flag : flags) {
-							switch (flag) {
-							case LESS:
-								sb.append("<");
-								break;
-							case EQUAL:
-								sb.append("=");
-								break;
-							case GREATER:
-								sb.append(">");
-								break;
-							default:
-								break;
-							}
-						}
-
-						cell.setText(sb.toString());
+						cell.setText(RpmDependencies.makeOperator(dep.getFlags()));
 					}
 				}
 			});
@@ -182,17 +160,7 @@ public class DependenciesTable {
 	}
 
 	public void setInformation(final RpmInformation ri) {
-
-		final List<Dependency> req = Dependencies.getRequirements(ri.getHeader());
-		final List<Dependency> prov = Dependencies.getProvides(ri.getHeader());
-		final List<Dependency> conf = Dependencies.getConflicts(ri.getHeader());
-		final List<Dependency> obs = Dependencies.getObsoletes(ri.getHeader());
-
-		final Map<String, List<Dependency>> entries = new LinkedHashMap<>();
-		entries.put("Requirements", req);
-		entries.put("Provides", prov);
-		entries.put("Conflicts", conf);
-		entries.put("Obsoletes", obs);
+		final Map<String, List<Dependency>> entries = RpmDependencies.getDependencies(ri);
 
 		this.viewer.setAutoExpandLevel(2);
 		this.viewer.setInput(entries);
@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import org.eclipse.jface.layout.TableColumnLayout;
+import org.eclipse.jface.resource.JFaceResources;
+import org.eclipse.jface.resource.LocalResourceManager;
+import org.eclipse.jface.viewers.CellLabelProvider;
+import org.eclipse.jface.viewers.ColumnWeightData;
+import org.eclipse.jface.viewers.ILazyContentProvider;
+import org.eclipse.jface.viewers.TableViewer;
+import org.eclipse.jface.viewers.TableViewerColumn;
+import org.eclipse.jface.viewers.Viewer;
+import org.eclipse.jface.viewers.ViewerCell;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.RGB;
+import org.eclipse.swt.layout.FillLayout;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Label;
+
+import de.dentrassi.eclipse.rpm.editor.RpmDifference.Kind;
+
+/**
+ * A table of differences between two RPM files
+ * <p>
+ * The table is virtual, as comparing payloads may result in a large number of
+ * differences.
+ * </p>
+ */
+public class DifferenceTable {
+
+	private final Composite wrapper;
+	private final Label summary;
+	private final TableViewer viewer;
+	private final LocalResourceManager resourceManager;
+	private final Color addedColor;
+	private final Color removedColor;
+	private List<RpmDifference> differences = Collections.emptyList();
+
+	public DifferenceTable(final Composite parent) {
+		this.wrapper = new Composite(parent, SWT.NO_BACKGROUND);
+		parent.setLayout(new FillLayout());
+
+		this.resourceManager = new LocalResourceManager(JFaceResources.getResources(parent.getDisplay()));
+		this.wrapper.addDisposeListener((evt) -> this.resourceManager.dispose());
+
+		this.addedColor = this.resourceManager.createColor(new RGB(0, 128, 0));
+		this.removedColor = this.resourceManager.createColor(new RGB(192, 0, 0));
+
+		final GridLayout wrapperLayout = new GridLayout(1, false);
+		wrapperLayout.marginWidth = 0;
+		wrapperLayout.marginHeight = 0;
+		this.wrapper.setLayout(wrapperLayout);
+
+		this.summary = new Label(this.wrapper, SWT.NONE);
+		this.summary.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+		this.summary.setText("Comparing…");
+
+		final Composite tableWrapper = new Composite(this.wrapper, SWT.NO_BACKGROUND);
+		tableWrapper.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true));
+
+		this.viewer = new TableViewer(tableWrapper,
+				SWT.MULTI | SWT.H_SCROLL | SWT.V_SCROLL | SWT.FULL_SELECTION | SWT.VIRTUAL);
+
+		final TableColumnLayout layout = new TableColumnLayout();
+
+		createColumn(layout, "Name", 4, RpmDifference::getName);
+		createColumn(layout, "Change", 1, difference -> {
+			switch (difference.getKind()) {
+			case ADDED:
+				return "Added";
+			case REMOVED:
+				return "Removed";
+			default:
+				return difference.getDetail() != null ? difference.getDetail() : "Changed";
+			}
+		});
+		createColumn(layout, "Left", 4, RpmDifference::getLeft);
+		createColumn(layout, "Right", 4, RpmDifference::getRight);
+
+		tableWrapper.setLayout(layout);
+		this.viewer.getTable().setHeaderVisible(true);
+		this.viewer.getTable().setLinesVisible(true);
+
+		this.viewer.setUseHashlookup(true);
+		this.viewer.setContentProvider(new ILazyContentProvider() {
+
+			@Override
+			public void updateElement(final int index) {
+				if (index < DifferenceTable.this.differences.size()) {
+					DifferenceTable.this.viewer.replace(DifferenceTable.this.differences.get(index), index);
+				}
+			}
+
+			@Override
+			public void inputChanged(final Viewer viewer, final Object oldInput, final Object newInput) {
+			}
+
+			@Override
+			public void dispose() {
+			}
+		});
+	}
+
+	private void createColumn(final TableColumnLayout layout, final String label, final int weight,
+			final Function<RpmDifference, String> text) {
+		final TableViewerColumn col = new TableViewerColumn(this.viewer, SWT.NONE);
+		col.getColumn().setText(label);
+		col.setLabelProvider(new CellLabelProvider() {
+
+			@Override
+			public void update(final ViewerCell cell) {
+				final Object ele = cell.getElement();
+				if (ele instanceof RpmDifference) {
+					final RpmDifference difference = (RpmDifference) ele;
+					final String value = text.apply(difference);
+					cell.setText(value != null ? value : "");
+					if (difference.getKind() == Kind.ADDED) {
+						cell.setForeground(DifferenceTable.this.addedColor);
+					} else if (difference.getKind() == Kind.REMOVED) {
+						cell.setForeground(DifferenceTable.this.removedColor);
+					}
+				}
+			}
+		});
+		layout.setColumnData(col.getColumn(), new ColumnWeightData(weight));
+	}
+
+	/**
+	 * Show the differences of a section
+	 *
+	 * @param comparison
+	 *            the comparison, may be {@code null} to clear the table
+	 * @param section
+	 *            the section to show
+	 */
+	public void setComparison(final RpmComparison comparison, final RpmComparison.Section section) {
+		if (comparison == null) {
+			this.differences = Collections.emptyList();
+			this.summary.setText("");
+		} else {
+			this.differences = comparison.getDifferences(section);
+
+			final StringBuilder sb = new StringBuilder();
+			sb.append(String.format("%,d changed, %,d added, %,d removed, %,d unchanged",
+					comparison.count(section, Kind.CHANGED), comparison.count(section, Kind.ADDED),
+					comparison.count(section, Kind.REMOVED), comparison.getUnchanged(section)));
+			if (section == RpmComparison.Section.PAYLOAD && comparison.getUnverified() > 0) {
+				sb.append(String.format(" (%,d compared without digests)", comparison.getUnverified()));
+			}
+			this.summary.setText(sb.toString());
+		}
+
+		this.viewer.setInput(this.differences);
+		this.viewer.setItemCount(this.differences.size());
+		this.wrapper.layout();
+	}
+
+	public void setError(final String message) {
+		this.summary.setText(message);
+		this.wrapper.layout();
+	}
+
+	public Control getContainer() {
+		return this.wrapper;
+	}
+}
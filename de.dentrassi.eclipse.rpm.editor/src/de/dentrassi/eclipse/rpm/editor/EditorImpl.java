@@ -11,35 +11,71 @@
 package de.dentrassi.eclipse.rpm.editor;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
-import org.apache.commons.compress.archivers.ArchiveEntry;
-import org.apache.commons.compress.archivers.cpio.CpioArchiveInputStream;
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IStorage;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
-import org.eclipse.packagedrone.utils.rpm.RpmLead;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.jface.window.Window;
 import org.eclipse.packagedrone.utils.rpm.RpmSignatureTag;
 import org.eclipse.packagedrone.utils.rpm.RpmTag;
-import org.eclipse.packagedrone.utils.rpm.parse.InputHeader;
-import org.eclipse.packagedrone.utils.rpm.parse.RpmInputStream;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.layout.FillLayout;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.DirectoryDialog;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
 import org.eclipse.ui.IEditorInput;
 import org.eclipse.ui.IPathEditorInput;
 import org.eclipse.ui.IStorageEditorInput;
+import org.eclipse.ui.PartInitException;
+import org.eclipse.ui.dialogs.ContainerSelectionDialog;
+import org.eclipse.ui.ide.IDE;
 import org.eclipse.ui.part.MultiPageEditorPart;
 
+import de.dentrassi.eclipse.rpm.editor.FileTree.File;
+import de.dentrassi.eclipse.rpm.editor.FileTree.Node;
+
 public class EditorImpl extends MultiPageEditorPart {
 
+	private static final int MAX_REPORTED_FAILURES = 20;
+
 	private OverviewPage overviewPage;
 	private RpmInformation information;
 	private HeaderTable headerPage;
 	private HeaderTable sigHeaderPage;
 	private ContentTable contentPage;
 	private DependenciesTable depsPage;
+	private LoadJob loadJob;
+	private VerifyJob verifyJob;
+	private SignatureJob signatureJob;
+	private LoadStatistics statistics;
+	private FileTree growingTree;
+	private RpmSource source;
+	private final List<PayloadFileDialog> viewers = new ArrayList<>();
+
+	/**
+	 * Pages which are created when they are shown for the first time, by
+	 * page index
+	 */
+	private final Map<Integer, Consumer<Composite>> pendingPages = new HashMap<>();
 
 	public EditorImpl() {
 	}
@@ -47,26 +83,51 @@ public class EditorImpl extends MultiPageEditorPart {
 	@Override
 	protected void createPages() {
 		createOverviewPage();
-		createHeaderPage();
-		createSignatureHeaderPage();
-		createDependenciesPage();
-		createContentPage();
+		addLazyPage("Header", this::createHeaderPage);
+		addLazyPage("Signature Header", this::createSignatureHeaderPage);
+		addLazyPage("Dependencies", this::createDependenciesPage);
+		addLazyPage("Payload", this::createContentPage);
 
 		if (this.information != null) {
 			setInformation(this.information);
 		}
 	}
 
-	private void createHeaderPage() {
-		this.headerPage = new HeaderTable(getContainer(), RpmTag::find);
-		final int idx = addPage(this.headerPage.getContainer());
-		setPageText(idx, "Header");
+	/**
+	 * Add a page, which gets created when it is shown for the first time
+	 * <p>
+	 * The creator is also responsible for showing the current information of
+	 * the editor, if there is any.
+	 * </p>
+	 */
+	private void addLazyPage(final String text, final Consumer<Composite> creator) {
+		final Composite placeholder = new Composite(getContainer(), SWT.NONE);
+		placeholder.setLayout(new FillLayout());
+		final int idx = addPage(placeholder);
+		setPageText(idx, text);
+		this.pendingPages.put(idx, creator);
+	}
+
+	@Override
+	protected void pageChange(final int newPageIndex) {
+		final Consumer<Composite> creator = this.pendingPages.remove(newPageIndex);
+		if (creator != null) {
+			final Composite placeholder = (Composite) getControl(newPageIndex);
+			creator.accept(placeholder);
+			placeholder.layout(true, true);
+			this.overviewPage.setStatistics(this.statistics);
+		}
+		super.pageChange(newPageIndex);
+	}
+
+	private void createHeaderPage(final Composite parent) {
+		this.headerPage = new HeaderTable(parent, RpmTag::find);
+		updateHeaderPage();
 	}
 
-	private void createSignatureHeaderPage() {
-		this.sigHeaderPage = new HeaderTable(getContainer(), RpmSignatureTag::find);
-		final int idx = addPage(this.sigHeaderPage.getContainer());
-		setPageText(idx, "Signature Header");
+	private void createSignatureHeaderPage(final Composite parent) {
+		this.sigHeaderPage = new HeaderTable(parent, RpmSignatureTag::find);
+		updateSignatureHeaderPage();
 	}
 
 	private void createOverviewPage() {
@@ -75,16 +136,79 @@ public class EditorImpl extends MultiPageEditorPart {
 		setPageText(idx, "Lead");
 	}
 
-	private void createDependenciesPage() {
-		this.depsPage = new DependenciesTable(getContainer());
-		final int idx = addPage(this.depsPage.getContainer());
-		setPageText(idx, "Dependencies");
+	private void createDependenciesPage(final Composite parent) {
+		this.depsPage = new DependenciesTable(parent);
+		updateDependenciesPage();
+	}
+
+	private void createContentPage(final Composite parent) {
+		this.contentPage = new ContentTable(parent, new ContentTable.Handler() {
+
+			@Override
+			public void verify() {
+				EditorImpl.this.verify();
+			}
+
+			@Override
+			public void view(final File file) {
+				EditorImpl.this.view(file);
+			}
+
+			@Override
+			public void open(final File file) {
+				EditorImpl.this.open(file);
+			}
+
+			@Override
+			public void extractToFolder(final List<Node> nodes) {
+				EditorImpl.this.extractToFolder(nodes);
+			}
+
+			@Override
+			public void extractToWorkspace(final List<Node> nodes) {
+				EditorImpl.this.extractToWorkspace(nodes);
+			}
+		});
+		updateContentPage();
+		if (this.growingTree != null) {
+			this.contentPage.setGrowingTree(this.growingTree);
+		}
+	}
+
+	private void updateHeaderPage() {
+		if (this.headerPage == null || this.information == null) {
+			return;
+		}
+		measure("HeaderTable.setInformation", //$NON-NLS-1$
+				() -> this.headerPage.setInformation(this.information.getHeader()));
+	}
+
+	private void updateSignatureHeaderPage() {
+		if (this.sigHeaderPage == null || this.information == null) {
+			return;
+		}
+		this.sigHeaderPage.setInformation(this.information.getSignatureHeader());
+		// the digests are only checked once the page is shown
+		final SignatureVerification verification = this.information.getSignatureVerification();
+		if (verification != null) {
+			this.sigHeaderPage.setVerification(verification);
+		} else {
+			checkSignature(this.information);
+		}
 	}
 
-	private void createContentPage() {
-		this.contentPage = new ContentTable(getContainer());
-		final int idx = addPage(this.contentPage.getContainer());
-		setPageText(idx, "Payload");
+	private void updateDependenciesPage() {
+		if (this.depsPage == null || this.information == null) {
+			return;
+		}
+		measure("DependenciesTable.setInformation", () -> this.depsPage.setInformation(this.information)); //$NON-NLS-1$
+	}
+
+	private void updateContentPage() {
+		if (this.contentPage == null || this.information == null) {
+			return;
+		}
+		measure("ContentTable.setInformation", () -> this.contentPage.setInformation(this.information)); //$NON-NLS-1$
 	}
 
 	@Override
@@ -103,18 +227,16 @@ public class EditorImpl extends MultiPageEditorPart {
 	@Override
 	protected void setInput(final IEditorInput input) {
 		super.setInput(input);
+
+		closeSource();
+
 		try {
 			if (input instanceof IPathEditorInput) {
 				final IPath path = ((IPathEditorInput) input).getPath();
-				try (InputStream stream = Files.newInputStream(path.toFile().toPath())) {
-					final RpmInformation ri = load(stream);
-					setInformation(ri);
-				}
+				load(input.getName(), new LocalRpmFile(path.toFile().toPath()));
 			} else if (input instanceof IStorageEditorInput) {
-				try (InputStream stream = ((IStorageEditorInput) input).getStorage().getContents()) {
-					final RpmInformation ri = load(stream);
-					setInformation(ri);
-				}
+				final IStorage storage = ((IStorageEditorInput) input).getStorage();
+				load(input.getName(), new StorageRpmSource(storage));
 			}
 		} catch (final Exception e) {
 			Activator.getDefault().getLog()
@@ -123,17 +245,74 @@ public class EditorImpl extends MultiPageEditorPart {
 		}
 	}
 
+	@Override
+	public void dispose() {
+		closeSource();
+		super.dispose();
+	}
+
+	private void closeSource() {
+		if (this.loadJob != null) {
+			this.loadJob.cancel();
+			this.loadJob = null;
+		}
+
+		if (this.verifyJob != null) {
+			this.verifyJob.cancel();
+			this.verifyJob = null;
+		}
+
+		if (this.signatureJob != null) {
+			this.signatureJob.cancel();
+			this.signatureJob = null;
+		}
+
+		// viewers read from the source
+		for (final PayloadFileDialog viewer : new ArrayList<>(this.viewers)) {
+			viewer.close();
+		}
+
+		if (this.source != null) {
+			Job.getJobManager().cancel(this.source);
+			try {
+				this.source.close();
+			} catch (final IOException e) {
+				Activator.getDefault().getLog()
+						.log(new Status(IStatus.WARNING, Activator.PLUGIN_ID, "Failed to close RPM file", e));
+			}
+			this.source = null;
+		}
+	}
+
+	/**
+	 * Report a failure to load the RPM file
+	 * <p>
+	 * The failure is logged by the caller, or by the job returning it as its
+	 * status.
+	 * </p>
+	 */
 	private void setError(final Exception e) {
-		// FIXME: show error pane
+		final Shell shell = getSite().getShell();
+		if (shell == null || shell.isDisposed()) {
+			return;
+		}
+
+		final String message = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+		MessageDialog.openError(shell, "Load RPM File",
+				String.format("Failed to load %s:%n%n%s", getPartName(), message));
 	}
 
 	private void setInformation(final RpmInformation ri) {
+		this.information = ri;
+
+		// pages which were not shown yet pick up the information when created
 		if (this.overviewPage != null) {
 			this.overviewPage.setInformation(ri);
-			this.headerPage.setInformation(ri.getHeader());
-			this.sigHeaderPage.setInformation(ri.getSignatureHeader());
-			this.contentPage.setInformation(ri);
-			this.depsPage.setInformation(ri);
+			updateHeaderPage();
+			updateSignatureHeaderPage();
+			updateContentPage();
+			updateDependenciesPage();
+			this.overviewPage.setStatistics(this.statistics);
 		}
 
 		if (ri != null) {
@@ -143,31 +322,323 @@ public class EditorImpl extends MultiPageEditorPart {
 			setContentDescription("");
 			setPartName("");
 		}
+	}
+
+	private void setPayload(final RpmInformation ri) {
+		// keep the result of checking the header, which was read from the same source
+		final SignatureVerification verification = this.information != null
+				? this.information.getSignatureVerification() : null;
+		if (verification != null && ri.getSignatureVerification() == null) {
+			ri.setSignatureVerification(verification);
+		}
 
 		this.information = ri;
+		this.growingTree = null;
+
+		if (this.overviewPage != null) {
+			updateContentPage();
+			this.overviewPage.setStatistics(this.statistics);
+		}
+	}
+
+	private void measure(final String phase, final Runnable runnable) {
+		if (this.statistics == null) {
+			this.statistics = new LoadStatistics();
+		}
+		this.statistics.run(phase, runnable);
+	}
+
+	private void load(final String name, final RpmSource source) throws IOException {
+		final Display display = getSite().getShell().getDisplay();
+
+		this.source = source;
+		this.growingTree = null;
+		this.statistics = new LoadStatistics();
+		final LoadStatistics statistics = this.statistics;
+
+		final RpmCache cache = Activator.getDefault().getCache();
+		final RpmCache.Key key = source.getCacheKey();
+		if (key != null) {
+			final RpmInformation cached = cache.get(key);
+			if (cached != null) {
+				setInformation(cached);
+				return;
+			}
+		}
+
+		this.loadJob = new LoadJob(name, source, statistics) {
+
+			@Override
+			protected void headerLoaded(final RpmInformation information) {
+				display.asyncExec(() -> {
+					if (EditorImpl.this.loadJob == this) {
+						setInformation(information);
+					}
+				});
+			}
+
+			private final AtomicBoolean treePending = new AtomicBoolean();
+
+			@Override
+			protected void filesLoaded(final FileTree tree) {
+				// skip batches while the display thread is busy
+				if (!this.treePending.compareAndSet(false, true)) {
+					return;
+				}
+				display.asyncExec(() -> {
+					this.treePending.set(false);
+					if (EditorImpl.this.loadJob != this) {
+						return;
+					}
+					EditorImpl.this.growingTree = tree;
+					if (EditorImpl.this.contentPage != null) {
+						EditorImpl.this.contentPage.setGrowingTree(tree);
+					}
+				});
+			}
+
+			@Override
+			protected void payloadLoaded(final RpmInformation information) {
+				final RpmInformation shared = key != null ? cache.put(key, information) : information;
+				// build the tree and its index here, instead of the display thread
+				statistics.run("FileTreeIndex.build", shared::getFileTreeIndex); //$NON-NLS-1$
+				display.asyncExec(() -> {
+					if (EditorImpl.this.loadJob == this) {
+						setPayload(shared);
+					}
+				});
+			}
+
+			@Override
+			protected void failed(final Exception e) {
+				display.asyncExec(() -> {
+					if (EditorImpl.this.loadJob == this) {
+						setError(e);
+					}
+				});
+			}
+		};
+		this.loadJob.schedule();
+	}
+
+	/**
+	 * Check the digests of the signature header in the background
+	 * <p>
+	 * The result is stored with the information, so that it is shared through
+	 * the cache and the file is not read again when it is opened again.
+	 * </p>
+	 */
+	private void checkSignature(final RpmInformation ri) {
+		if (this.signatureJob != null) {
+			this.signatureJob.cancel();
+		}
+
+		final Display display = getSite().getShell().getDisplay();
+
+		this.signatureJob = new SignatureJob(getPartName(), this.source, ri) {
+
+			@Override
+			protected void verified(final SignatureVerification verification) {
+				ri.setSignatureVerification(verification);
+				display.asyncExec(() -> {
+					if (EditorImpl.this.signatureJob == this) {
+						setSignatureVerification(verification);
+					}
+				});
+			}
+		};
+		this.signatureJob.setSystem(true);
+		this.signatureJob.schedule();
 	}
 
-	private RpmInformation load(final InputStream stream) {
-		try (RpmInputStream in = new RpmInputStream(stream)) {
-			final RpmLead lead = in.getLead();
+	private void setSignatureVerification(final SignatureVerification verification) {
+		if (this.information != null && this.information.getSignatureVerification() == null) {
+			this.information.setSignatureVerification(verification);
+		}
+		if (this.sigHeaderPage != null) {
+			this.sigHeaderPage.setVerification(verification);
+		}
+	}
 
-			final InputHeader<RpmTag> header = in.getPayloadHeader();
-			final InputHeader<RpmSignatureTag> sigHeader = in.getSignatureHeader();
+	private void verify() {
+		if (this.source == null || this.information == null || !this.information.hasFiles()) {
+			return;
+		}
 
-			final CpioArchiveInputStream cpio = in.getCpioStream();
+		if (this.verifyJob != null) {
+			this.verifyJob.cancel();
+		}
 
-			ArchiveEntry entry;
+		final Display display = getSite().getShell().getDisplay();
+
+		this.contentPage.setVerification(null);
+
+		this.verifyJob = new VerifyJob(getPartName(), this.source, this.information) {
+
+			@Override
+			protected void verified(final PayloadVerification verification) {
+				display.asyncExec(() -> {
+					if (EditorImpl.this.verifyJob == this) {
+						EditorImpl.this.contentPage.setVerification(verification);
+					}
+				});
+			}
 
-			final List<FileEntry> files = new ArrayList<>();
-			while ((entry = cpio.getNextEntry()) != null) {
-				final FileEntry fe = new FileEntry(entry.getName(), entry.getSize(),
-						entry.getLastModifiedDate().toInstant());
-				files.add(fe);
+			@Override
+			protected void failed(final Exception e) {
+				// a user job, the platform reports its error status
 			}
+		};
+		this.verifyJob.setUser(true);
+		this.verifyJob.schedule();
+	}
 
-			return new RpmInformation(lead, header, sigHeader, files);
+	private void view(final File file) {
+		if (this.source == null || this.information == null) {
+			return;
+		}
+		final PayloadFileDialog viewer = new PayloadFileDialog(getSite(), this.source, this.information, file);
+		viewer.open();
+		this.viewers.add(viewer);
+		viewer.getShell().addDisposeListener(evt -> this.viewers.remove(viewer));
+	}
+
+	/**
+	 * Open a payload file
+	 * <p>
+	 * The file gets extracted to a temporary, read-only file first, so that
+	 * the editor doesn't depend on this editor's RPM source.
+	 * </p>
+	 */
+	private void open(final File file) {
+		final Path target;
+		try {
+			final Path dir = Files.createTempDirectory("rpm-editor-");
+			dir.toFile().deleteOnExit();
+			target = dir.resolve(file.getName());
+			target.toFile().deleteOnExit();
 		} catch (final IOException e) {
-			return null;
+			Activator.getDefault().getLog()
+					.log(new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Failed to create temporary file", e));
+			return;
+		}
+
+		extract(file, target, path -> {
+			path.toFile().setReadOnly();
+			try {
+				IDE.openEditorOnFileStore(getSite().getPage(), EFS.getLocalFileSystem().getStore(path.toUri()));
+			} catch (final PartInitException e) {
+				Activator.getDefault().getLog()
+						.log(new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Failed to open file", e));
+			}
+		});
+	}
+
+	private void extractToFolder(final List<Node> nodes) {
+		final DirectoryDialog dlg = new DirectoryDialog(getSite().getShell());
+		dlg.setText("Extract To Folder");
+		dlg.setMessage(String.format("Select the folder to extract %s files to", nodes.size()));
+
+		final String result = dlg.open();
+		if (result != null) {
+			extract(nodes, Paths.get(result), null);
+		}
+	}
+
+	private void extractToWorkspace(final List<Node> nodes) {
+		final ContainerSelectionDialog dlg = new ContainerSelectionDialog(getSite().getShell(), null, true,
+				String.format("Select the folder to extract %s files to", nodes.size()));
+		dlg.setTitle("Extract To Workspace");
+		if (dlg.open() != Window.OK || dlg.getResult() == null || dlg.getResult().length == 0) {
+			return;
+		}
+
+		final IResource resource = ResourcesPlugin.getWorkspace().getRoot().findMember((IPath) dlg.getResult()[0]);
+		if (!(resource instanceof IContainer) || resource.getLocation() == null) {
+			MessageDialog.openError(getSite().getShell(), "Extract To Workspace",
+					"The selected folder is not located in the local file system.");
+			return;
+		}
+
+		extract(nodes, resource.getLocation().toFile().toPath(), (IContainer) resource);
+	}
+
+	/**
+	 * Extract payload files
+	 *
+	 * @param container
+	 *            the workspace container to refresh afterwards, may be
+	 *            {@code null}
+	 */
+	private void extract(final List<Node> nodes, final Path target, final IContainer container) {
+		if (this.source == null || this.information == null) {
+			return;
+		}
+
+		final Display display = getSite().getShell().getDisplay();
+
+		final ExtractSelectionJob job = new ExtractSelectionJob(this.source, this.information, nodes, target) {
+
+			@Override
+			protected void extracted(final PayloadExtractor.Result result, final IProgressMonitor monitor) {
+				if (container != null) {
+					try {
+						container.refreshLocal(IResource.DEPTH_INFINITE, monitor);
+					} catch (final CoreException e) {
+						Activator.getDefault().getLog().log(e.getStatus());
+					}
+				}
+
+				if (!result.getFailures().isEmpty()) {
+					display.asyncExec(() -> showFailures(result));
+				}
+			}
+
+			@Override
+			protected void failed(final Exception e) {
+				// a user job, the platform reports its error status
+			}
+		};
+		job.setUser(true);
+		job.schedule();
+	}
+
+	private void showFailures(final PayloadExtractor.Result result) {
+		final List<String> failures = result.getFailures();
+
+		final StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%s of %s files could not be extracted:%n", failures.size(),
+				failures.size() + result.getFiles()));
+		for (final String failure : failures.subList(0, Math.min(failures.size(), MAX_REPORTED_FAILURES))) {
+			sb.append(String.format("%n%s", failure));
+		}
+		if (failures.size() > MAX_REPORTED_FAILURES) {
+			sb.append(String.format("%n…"));
+		}
+
+		MessageDialog.openWarning(getSite().getShell(), "Extract Files", sb.toString());
+	}
+
+	private void extract(final File file, final Path target, final Consumer<Path> done) {
+		if (this.source == null || this.information == null) {
+			return;
 		}
+
+		final Display display = getSite().getShell().getDisplay();
+
+		final ExtractJob job = new ExtractJob(this.source, this.information, file.getFullName(), target) {
+
+			@Override
+			protected void extracted(final Path target) {
+				display.asyncExec(() -> done.accept(target));
+			}
+
+			@Override
+			protected void failed(final Exception e) {
+				// a user job, the platform reports its error status
+			}
+		};
+		job.setUser(true);
+		job.schedule();
 	}
 }
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * Extract a single payload file in the background
+ * <p>
+ * If the location of the payload entries is not known yet, the payload gets
+ * walked once and the resulting {@link PayloadIndex} is kept with the
+ * {@link RpmInformation}, so that following extractions can read the entry
+ * directly.
+ * </p>
+ */
+public abstract class ExtractJob extends Job {
+
+	private final RpmSource source;
+
+	private final RpmInformation information;
+
+	private final String path;
+
+	private final Path target;
+
+	/**
+	 * Create a new extract job
+	 *
+	 * @param source
+	 *            the source of the RPM data
+	 * @param information
+	 *            the information of the RPM file
+	 * @param path
+	 *            the absolute path of the file in the payload
+	 * @param target
+	 *            the file to write to, gets replaced if it exists
+	 */
+	public ExtractJob(final RpmSource source, final RpmInformation information, final String path,
+			final Path target) {
+		super(String.format("Extracting %s", path));
+		this.source = source;
+		this.information = information;
+		this.path = path;
+		this.target = target;
+	}
+
+	protected abstract void extracted(Path target);
+
+	/**
+	 * Extract jobs belong to the family of their source, so that they can be
+	 * canceled when the source gets closed
+	 */
+	@Override
+	public boolean belongsTo(final Object family) {
+		return family == this.source;
+	}
+
+	protected abstract void failed(Exception e);
+
+	@Override
+	protected IStatus run(final IProgressMonitor monitor) {
+		// only walking the payload can report meaningful progress
+		final long size = this.information.getPayloadIndex() == null
+				? this.source.getSize() - this.information.getPayloadOffset() : -1;
+		monitor.beginTask(getName(), size > 0 ? (int) (size >> 10) : IProgressMonitor.UNKNOWN);
+
+		try {
+			final PayloadIndex index = PayloadIndex.obtain(this.source, this.information, monitor);
+
+			final int entry = index.indexOf(this.path);
+			if (entry < 0) {
+				throw new IOException(String.format("%s is not part of the payload", this.path));
+			}
+
+			monitor.subTask("Extracting file");
+			try (InputStream in = new ProgressInputStream(
+					Payloads.openEntry(this.source, this.information, index, entry), monitor)) {
+				Files.copy(in, this.target, StandardCopyOption.REPLACE_EXISTING);
+			}
+
+			extracted(this.target);
+			return Status.OK_STATUS;
+		} catch (final OperationCanceledException e) {
+			return Status.CANCEL_STATUS;
+		} catch (final Exception e) {
+			if (monitor.isCanceled()) {
+				return Status.CANCEL_STATUS;
+			}
+			failed(e);
+			return new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Failed to extract file", e);
+		} finally {
+			monitor.done();
+		}
+	}
+
+}
@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * Extract a selection of payload files in the background
+ *
+ * @see PayloadExtractor
+ */
+public abstract class ExtractSelectionJob extends Job {
+
+	private final RpmSource source;
+
+	private final RpmInformation information;
+
+	private final List<? extends FileTree.Node> nodes;
+
+	private final Path target;
+
+	public ExtractSelectionJob(final RpmSource source, final RpmInformation information,
+			final List<? extends FileTree.Node> nodes, final Path target) {
+		super(String.format("Extracting %s files to %s", nodes.size(), target));
+		this.source = source;
+		this.information = information;
+		this.nodes = nodes;
+		this.target = target;
+	}
+
+	/**
+	 * Called from the job's thread, after the files were extracted
+	 */
+	protected abstract void extracted(PayloadExtractor.Result result, IProgressMonitor monitor);
+
+	protected abstract void failed(Exception e);
+
+	/**
+	 * Extract jobs belong to the family of their source, so that they can be
+	 * canceled when the source gets closed
+	 */
+	@Override
+	public boolean belongsTo(final Object family) {
+		return family == this.source;
+	}
+
+	@Override
+	protected IStatus run(final IProgressMonitor monitor) {
+		final long size = this.source.getSize() - this.information.getPayloadOffset();
+		monitor.beginTask(getName(), size > 0 ? (int) (size >> 10) : IProgressMonitor.UNKNOWN);
+
+		try {
+			final PayloadExtractor.Result result = PayloadExtractor.extract(this.information, this.nodes,
+					new ProgressInputStream(this.source.open(this.information.getPayloadOffset()), monitor),
+					this.target, monitor);
+			extracted(result, monitor);
+			return Status.OK_STATUS;
+		} catch (final OperationCanceledException e) {
+			return Status.CANCEL_STATUS;
+		} catch (final Exception e) {
+			if (monitor.isCanceled()) {
+				return Status.CANCEL_STATUS;
+			}
+			failed(e);
+			return new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Failed to extract files", e);
+		} finally {
+			monitor.done();
+		}
+	}
+
+}
@@ -11,29 +11,132 @@
 package de.dentrassi.eclipse.rpm.editor;
 
 import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
 
+/**
+ * A file of the payload
+ * <p>
+ * The name is stored as directory prefix and base name. Entries of the same
+ * directory share the same prefix instance, see {@link Prefixes}. The
+ * modification time is stored as seconds since the epoch.
+ * </p>
+ */
 public class FileEntry {
 
-	private final String name;
+	/**
+	 * The modification time of entries without one
+	 */
+	public static final long NO_MTIME = -1;
+
+	private final String directory;
+	private final String basename;
 	private final long size;
-	private final Instant timestamp;
+	private final long mtime;
+	private final int index;
+
+	public FileEntry(final String name, final long size, final long mtime) {
+		this(name, size, mtime, -1);
+	}
+
+	public FileEntry(final String name, final long size, final long mtime, final int index) {
+		final int idx = name.lastIndexOf('/') + 1;
+		this.directory = name.substring(0, idx);
+		this.basename = name.substring(idx);
+		this.size = size;
+		this.mtime = mtime;
+		this.index = index;
+	}
 
-	public FileEntry(final String name, final long size, final Instant timestamp) {
-		this.name = name;
+	/**
+	 * Create a new entry
+	 *
+	 * @param directory
+	 *            the directory prefix of the name, including the trailing
+	 *            slash, may be empty
+	 * @param basename
+	 *            the name, without the directory
+	 */
+	public FileEntry(final String directory, final String basename, final long size, final long mtime,
+			final int index) {
+		this.directory = directory;
+		this.basename = basename;
 		this.size = size;
-		this.timestamp = timestamp;
+		this.mtime = mtime;
+		this.index = index;
 	}
 
 	public String getName() {
-		return this.name;
+		return this.directory.isEmpty() ? this.basename : this.directory.concat(this.basename);
+	}
+
+	/**
+	 * Get the directory prefix of the name
+	 *
+	 * @return the prefix, including the trailing slash, may be empty
+	 */
+	public String getDirectory() {
+		return this.directory;
+	}
+
+	public String getBasename() {
+		return this.basename;
 	}
 
 	public long getSize() {
 		return this.size;
 	}
 
+	/**
+	 * Get the modification time
+	 *
+	 * @return the seconds since the epoch, or {@link #NO_MTIME}
+	 */
+	public long getMtime() {
+		return this.mtime;
+	}
+
+	/**
+	 * @return the modification time, or {@code null} if the entry has none
+	 */
 	public Instant getTimestamp() {
-		return this.timestamp;
+		return this.mtime != NO_MTIME ? Instant.ofEpochSecond(this.mtime) : null;
 	}
 
+	/**
+	 * Get the index of the file in the header
+	 *
+	 * @return the index, or {@code -1} if the entry was not created from the
+	 *         header
+	 */
+	public int getIndex() {
+		return this.index;
+	}
+
+	/**
+	 * Create entries, sharing the directory prefixes of their names
+	 */
+	public static class Prefixes {
+
+		private final Map<String, String> prefixes = new HashMap<>();
+
+		private String last = "";
+
+		public FileEntry create(final String name, final long size, final long mtime, final int index) {
+			final int idx = name.lastIndexOf('/') + 1;
+			return new FileEntry(prefix(name, idx), name.substring(idx), size, mtime, index);
+		}
+
+		private String prefix(final String name, final int end) {
+			// fast path, entries of a directory mostly follow each other
+			if (this.last.length() == end && name.startsWith(this.last)) {
+				return this.last;
+			}
+
+			final String prefix = name.substring(0, end);
+			final String result = this.prefixes.putIfAbsent(prefix, prefix);
+			this.last = result != null ? result : prefix;
+			return this.last;
+		}
+	}
 }
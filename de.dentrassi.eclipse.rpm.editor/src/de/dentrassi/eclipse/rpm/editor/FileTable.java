@@ -0,0 +1,384 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.eclipse.packagedrone.utils.rpm.RpmTag;
+import org.eclipse.packagedrone.utils.rpm.parse.InputHeader;
+
+/**
+ * The file information of the main header, stored in columns
+ * <p>
+ * Each file is identified by its index in the header. Numeric values are
+ * stored in primitive arrays, user and group names are stored as codes into
+ * a dictionary of distinct names. Missing columns are {@code null}.
+ * </p>
+ */
+public final class FileTable {
+
+	private static final FileTable EMPTY = new FileTable(0, new String[0], new String[0], new int[0]);
+
+	private final int count;
+
+	private final String[] basenames;
+
+	private final String[] dirnames;
+
+	private final int[] dirIndexes;
+
+	private long[] sizes;
+
+	private short[] modes;
+
+	private int[] mtimes;
+
+	private int[] flags;
+
+	private String[] linkTos;
+
+	private String[] digests;
+
+	private int digestAlgorithm = Headers.DEFAULT_DIGEST_ALGORITHM;
+
+	private int[] users;
+
+	private String[] userNames;
+
+	private int[] groups;
+
+	private String[] groupNames;
+
+	private Map<String, Integer> pathIndex;
+
+	private FileTable(final int count, final String[] basenames, final String[] dirnames, final int[] dirIndexes) {
+		this.count = count;
+		this.basenames = basenames;
+		this.dirnames = dirnames;
+		this.dirIndexes = dirIndexes;
+	}
+
+	/**
+	 * Create the file table from the main header
+	 *
+	 * @param header
+	 *            the main header
+	 * @return the file table, empty if the header does not contain file
+	 *         information using {@code BASENAMES}, {@code DIRNAMES} and
+	 *         {@code DIR_INDEXES}
+	 */
+	public static FileTable fromHeader(final InputHeader<RpmTag> header) {
+		final Optional<String[]> basenames = Headers.getArray(header, RpmTag.BASENAMES.getValue(), String[].class);
+		final Optional<String[]> dirnames = Headers.getArray(header, RpmTag.DIRNAMES.getValue(), String[].class);
+		final Optional<Integer[]> dirIndexes = Headers.getArray(header, RpmTag.DIR_INDEXES.getValue(),
+				Integer[].class);
+
+		if (!basenames.isPresent() || !dirnames.isPresent() || !dirIndexes.isPresent()) {
+			return EMPTY;
+		}
+
+		final int count = basenames.get().length;
+		final int[] dirIdx = toInts(dirIndexes.get(), count);
+		if (dirIdx == null) {
+			return EMPTY;
+		}
+		for (final int idx : dirIdx) {
+			if (idx < 0 || idx >= dirnames.get().length) {
+				return EMPTY;
+			}
+		}
+
+		final FileTable result = new FileTable(count, basenames.get(), dirnames.get(), dirIdx);
+
+		final Optional<Long[]> longSizes = Headers.getArray(header, Headers.LONGFILESIZES, Long[].class);
+		if (longSizes.isPresent()) {
+			result.sizes = toLongs(longSizes.get(), count);
+		} else {
+			result.sizes = toUnsignedLongs(
+					Headers.getArray(header, RpmTag.FILE_SIZES.getValue(), Integer[].class).orElse(null), count);
+		}
+
+		result.modes = toShorts(Headers.getArray(header, RpmTag.FILE_MODES.getValue(), Short[].class).orElse(null),
+				count);
+		result.mtimes = toInts(Headers.getArray(header, RpmTag.FILE_MTIMES.getValue(), Integer[].class).orElse(null),
+				count);
+		result.flags = toInts(Headers.getArray(header, RpmTag.FILE_FLAGS.getValue(), Integer[].class).orElse(null),
+				count);
+
+		final String[] linkTos = Headers.getArray(header, RpmTag.FILE_LINKTO.getValue(), String[].class)
+				.orElse(null);
+		result.linkTos = linkTos != null && linkTos.length >= count ? linkTos : null;
+
+		final String[] digests = Headers.getArray(header, Headers.FILE_DIGESTS, String[].class)
+				.orElse(null);
+		result.digests = digests != null && digests.length >= count ? digests : null;
+
+		final Optional<Integer[]> digestAlgorithm = Headers.getArray(header, Headers.FILE_DIGESTALGO,
+				Integer[].class);
+		if (digestAlgorithm.isPresent() && digestAlgorithm.get().length > 0) {
+			result.digestAlgorithm = digestAlgorithm.get()[0];
+		}
+
+		final String[] users = Headers.getArray(header, RpmTag.FILE_USERNAME.getValue(), String[].class)
+				.orElse(null);
+		if (users != null && users.length >= count) {
+			final List<String> names = new ArrayList<>();
+			result.users = encode(users, count, names);
+			result.userNames = names.toArray(new String[names.size()]);
+		}
+
+		final String[] groups = Headers.getArray(header, RpmTag.FILE_GROUPNAME.getValue(), String[].class)
+				.orElse(null);
+		if (groups != null && groups.length >= count) {
+			final List<String> names = new ArrayList<>();
+			result.groups = encode(groups, count, names);
+			result.groupNames = names.toArray(new String[names.size()]);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Check if the header provided the file information
+	 *
+	 * @return {@code true} if the header contained the required tags,
+	 *         {@code false} otherwise
+	 */
+	public boolean isAvailable() {
+		return this != EMPTY;
+	}
+
+	public int getCount() {
+		return this.count;
+	}
+
+	public String getBasename(final int index) {
+		return this.basenames[index];
+	}
+
+	public String getDirname(final int index) {
+		return this.dirnames[this.dirIndexes[index]];
+	}
+
+	/**
+	 * Get the absolute path of a file
+	 *
+	 * @return the absolute path, starting with a slash
+	 */
+	public String getPath(final int index) {
+		final String dirname = getDirname(index);
+		if (dirname.endsWith("/")) {
+			return dirname + this.basenames[index];
+		} else {
+			return dirname + "/" + this.basenames[index];
+		}
+	}
+
+	/**
+	 * Get the size of a file
+	 *
+	 * @return the size, or {@code -1} if the size is unknown
+	 */
+	public long getSize(final int index) {
+		return this.sizes != null ? this.sizes[index] : -1;
+	}
+
+	/**
+	 * Get the mode of a file
+	 *
+	 * @return the mode, as unsigned 16 bit value, or {@code -1} if the mode
+	 *         is unknown
+	 */
+	public int getMode(final int index) {
+		return this.modes != null ? this.modes[index] & 0xFFFF : -1;
+	}
+
+	/**
+	 * Get the modification timestamp of a file
+	 *
+	 * @return the timestamp in seconds since the epoch, or {@code -1} if the
+	 *         timestamp is unknown
+	 */
+	public long getMtime(final int index) {
+		return this.mtimes != null ? Integer.toUnsignedLong(this.mtimes[index]) : -1;
+	}
+
+	public int getFlags(final int index) {
+		return this.flags != null ? this.flags[index] : 0;
+	}
+
+	public String getLinkTo(final int index) {
+		return this.linkTos != null ? this.linkTos[index] : null;
+	}
+
+	/**
+	 * Get the digest of a file
+	 *
+	 * @return the digest as hex string, {@code null} if the header has no
+	 *         digests. Files which are not regular files have an empty
+	 *         digest.
+	 */
+	public String getDigest(final int index) {
+		return this.digests != null ? this.digests[index] : null;
+	}
+
+	/**
+	 * Get the algorithm of the file digests
+	 *
+	 * @return the OpenPGP hash algorithm ID
+	 * @see Headers#getDigestAlgorithm(int)
+	 */
+	public int getDigestAlgorithm() {
+		return this.digestAlgorithm;
+	}
+
+	public String getUser(final int index) {
+		return this.users != null ? this.userNames[this.users[index]] : null;
+	}
+
+	public String getGroup(final int index) {
+		return this.groups != null ? this.groupNames[this.groups[index]] : null;
+	}
+
+	/**
+	 * Find the index of a file by its path
+	 * <p>
+	 * The lookup table gets built on first use. This is only required when
+	 * matching files, which were not created by {@link #getPayloadFiles()}.
+	 * </p>
+	 *
+	 * @param path
+	 *            the absolute path of the file
+	 * @return the index, or {@code -1} if the file is unknown
+	 */
+	public synchronized int indexOf(final String path) {
+		if (this.count == 0) {
+			return -1;
+		}
+
+		if (this.pathIndex == null) {
+			this.pathIndex = new HashMap<>(this.count * 4 / 3 + 1);
+			for (int i = 0; i < this.count; i++) {
+				this.pathIndex.put(getPath(i), i);
+			}
+		}
+
+		final Integer result = this.pathIndex.get(path);
+		return result != null ? result : -1;
+	}
+
+	/**
+	 * Build the list of payload files from the header
+	 * <p>
+	 * Ghost files are skipped, as they are not part of the payload.
+	 * </p>
+	 *
+	 * @return the list of files, or nothing if the header does not contain
+	 *         the required information
+	 */
+	public Optional<List<FileEntry>> getPayloadFiles() {
+		if (!isAvailable()) {
+			return Optional.empty();
+		}
+
+		final List<FileEntry> result = new ArrayList<>(this.count);
+		final String[] prefixes = new String[this.dirnames.length];
+
+		for (int i = 0; i < this.count; i++) {
+			if ((getFlags(i) & Headers.RPMFILE_GHOST) != 0) {
+				continue;
+			}
+
+			final long size = getSize(i);
+			final long mtime = getMtime(i);
+
+			final int dirIndex = this.dirIndexes[i];
+			if (prefixes[dirIndex] == null) {
+				final String dirname = this.dirnames[dirIndex];
+				prefixes[dirIndex] = dirname.endsWith("/") ? "." + dirname : "." + dirname + "/";
+			}
+
+			result.add(new FileEntry(prefixes[dirIndex], this.basenames[i], size >= 0 ? size : 0,
+					mtime >= 0 ? mtime : FileEntry.NO_MTIME, i));
+		}
+
+		return Optional.of(result);
+	}
+
+	private static int[] encode(final String[] values, final int count, final List<String> names) {
+		final Map<String, Integer> codes = new HashMap<>();
+		final int[] result = new int[count];
+
+		for (int i = 0; i < count; i++) {
+			Integer code = codes.get(values[i]);
+			if (code == null) {
+				code = names.size();
+				names.add(values[i]);
+				codes.put(values[i], code);
+			}
+			result[i] = code;
+		}
+
+		return result;
+	}
+
+	private static int[] toInts(final Integer[] values, final int count) {
+		if (values == null || values.length < count) {
+			return null;
+		}
+
+		final int[] result = new int[count];
+		for (int i = 0; i < count; i++) {
+			result[i] = values[i];
+		}
+		return result;
+	}
+
+	private static short[] toShorts(final Short[] values, final int count) {
+		if (values == null || values.length < count) {
+			return null;
+		}
+
+		final short[] result = new short[count];
+		for (int i = 0; i < count; i++) {
+			result[i] = values[i];
+		}
+		return result;
+	}
+
+	private static long[] toLongs(final Long[] values, final int count) {
+		if (values == null || values.length < count) {
+			return null;
+		}
+
+		final long[] result = new long[count];
+		for (int i = 0; i < count; i++) {
+			result[i] = values[i];
+		}
+		return result;
+	}
+
+	private static long[] toUnsignedLongs(final Integer[] values, final int count) {
+		if (values == null || values.length < count) {
+			return null;
+		}
+
+		final long[] result = new long[count];
+		for (int i = 0; i < count; i++) {
+			result[i] = Integer.toUnsignedLong(values[i]);
+		}
+		return result;
+	}
+}
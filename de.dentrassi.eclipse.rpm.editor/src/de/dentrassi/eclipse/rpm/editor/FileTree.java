@@ -0,0 +1,505 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A tree of payload files, built from a flat list of {@link FileEntry}
+ * instances
+ * <p>
+ * Each directory keeps its children in an array, sorted by name. As payloads
+ * are mostly sorted already, new children are typically appended at the end.
+ * Names of path segments get interned while building the tree, so that
+ * common names like {@code bin} or {@code LC_MESSAGES} are only stored once.
+ * </p>
+ * <p>
+ * The tree can be built all at once, using {@link #build(List, FileTable)},
+ * or grow while the payload is read, using {@link #add(List)}. While it
+ * grows, readers must use {@link #getChildren(Directory)}, which returns a
+ * snapshot of the children. Once {@link #finish()} was called, the tree
+ * doesn't change anymore.
+ * </p>
+ */
+public final class FileTree {
+
+	private static final Node[] EMPTY = new Node[0];
+
+	public static abstract class Node {
+
+		private final String name;
+
+		private final Directory parent;
+
+		private FileEntry entry;
+
+		private MetaInformation meta;
+
+		private int id;
+
+		Node(final String name, final Directory parent, final FileEntry entry, final MetaInformation meta) {
+			this.name = name;
+			this.parent = parent;
+			this.entry = entry;
+			this.meta = meta;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public Directory getParent() {
+			return this.parent;
+		}
+
+		/**
+		 * Get the file entry of this node
+		 *
+		 * @return the entry, may be {@code null} for directories which are
+		 *         only implied by the paths of other entries
+		 */
+		public FileEntry getEntry() {
+			return this.entry;
+		}
+
+		/**
+		 * Get the meta information from the header
+		 *
+		 * @return the meta information, may be {@code null} if the header
+		 *         has no information about this node
+		 */
+		public MetaInformation getMeta() {
+			return this.meta;
+		}
+
+		public abstract long getSize();
+
+		/**
+		 * Get the number of this node
+		 * <p>
+		 * Nodes are numbered in pre-order, starting with {@code 0} for the
+		 * root. So the nodes of a subtree directly follow their directory.
+		 * </p>
+		 */
+		public int getId() {
+			return this.id;
+		}
+
+		public String getFullName() {
+			if (this.parent != null) {
+				return this.parent.getFullName() + "/" + this.name;
+			} else if (this.name != null) {
+				return "/" + this.name;
+			} else {
+				return "";
+			}
+		}
+	}
+
+	public static class File extends Node {
+
+		File(final String name, final Directory parent, final FileEntry entry, final MetaInformation meta) {
+			super(name, parent, entry, meta);
+		}
+
+		@Override
+		public long getSize() {
+			return getEntry().getSize();
+		}
+	}
+
+	public static class Directory extends Node {
+
+		private Node[] children = EMPTY;
+
+		private int count;
+
+		private long size;
+
+		Directory(final String name, final Directory parent, final FileEntry entry, final MetaInformation meta) {
+			super(name, parent, entry, meta);
+		}
+
+		/**
+		 * Get the children
+		 * <p>
+		 * Until the tree is finished, the array may be larger than the number
+		 * of children, see {@link FileTree#getChildren(Directory)}.
+		 * </p>
+		 */
+		public Node[] getChildren() {
+			return this.children;
+		}
+
+		public int getChildCount() {
+			return this.count;
+		}
+
+		public Node getChild(final int index) {
+			return this.children[index];
+		}
+
+		@Override
+		public long getSize() {
+			return this.size;
+		}
+
+		/**
+		 * Find the child with the name of the provided path segment
+		 *
+		 * @return the index of the child, or {@code -(insertion point) - 1}
+		 *         if there is none
+		 */
+		private int find(final String path, final int start, final int end) {
+			// fast path, input is mostly sorted
+			if (this.count > 0) {
+				final int c = compare(path, start, end, this.children[this.count - 1].name);
+				if (c == 0) {
+					return this.count - 1;
+				} else if (c > 0) {
+					return -this.count - 1;
+				}
+			}
+
+			int low = 0;
+			int high = this.count - 1;
+
+			while (low <= high) {
+				final int mid = low + high >>> 1;
+				final int c = compare(path, start, end, this.children[mid].name);
+				if (c > 0) {
+					low = mid + 1;
+				} else if (c < 0) {
+					high = mid - 1;
+				} else {
+					return mid;
+				}
+			}
+
+			return -(low + 1);
+		}
+
+		private void insert(final int index, final Node node) {
+			if (this.count == this.children.length) {
+				this.children = Arrays.copyOf(this.children, Math.max(4, this.count * 2));
+			}
+			System.arraycopy(this.children, index, this.children, index + 1, this.count - index);
+			this.children[index] = node;
+			this.count++;
+		}
+
+		/**
+		 * Trim the child arrays
+		 */
+		private void trim() {
+			if (this.children.length != this.count) {
+				this.children = Arrays.copyOf(this.children, this.count);
+			}
+
+			for (final Node child : this.children) {
+				if (child instanceof Directory) {
+					((Directory) child).trim();
+				}
+			}
+		}
+
+		/**
+		 * Add to the size of this directory and all of its parents
+		 */
+		private void addSize(final long delta) {
+			for (Directory dir = this; dir != null; dir = dir.getParent()) {
+				dir.size += delta;
+			}
+		}
+	}
+
+	private final Directory root = new Directory(null, null, null, null);
+
+	private final Map<String, String> names = new HashMap<>();
+
+	private final FileTable table;
+
+	private boolean finished;
+
+	private int files;
+
+	/**
+	 * Create a new, empty tree
+	 *
+	 * @param table
+	 *            the file table of the header
+	 */
+	public FileTree(final FileTable table) {
+		this.table = table;
+	}
+
+	/**
+	 * Build a new tree from a list of file entries
+	 * <p>
+	 * The meta information is resolved once for each node while building the
+	 * tree, so that there is no need to look it up later on. Entries which
+	 * carry their header index are resolved directly, all others are looked
+	 * up by their path.
+	 * </p>
+	 *
+	 * @param files
+	 *            the files to add
+	 * @param table
+	 *            the file table of the header
+	 * @return the root directory of the new tree
+	 */
+	public static Directory build(final List<FileEntry> files, final FileTable table) {
+		final FileTree tree = new FileTree(table);
+		tree.add(files);
+		return tree.finish();
+	}
+
+	/**
+	 * Collect the file entries of a tree
+	 *
+	 * @param root
+	 *            the root directory of a finished tree
+	 * @return a new list of the entries, in the order of the tree
+	 */
+	public static List<FileEntry> entries(final Directory root) {
+		final List<FileEntry> result = new ArrayList<>();
+		collect(root, result);
+		return result;
+	}
+
+	private static void collect(final Directory dir, final List<FileEntry> result) {
+		for (final Node child : dir.children) {
+			if (child.entry != null) {
+				result.add(child.entry);
+			}
+			if (child instanceof Directory) {
+				collect((Directory) child, result);
+			}
+		}
+	}
+
+	public Directory getRoot() {
+		return this.root;
+	}
+
+	/**
+	 * Add file entries to a tree which is not finished yet
+	 */
+	public synchronized void add(final List<FileEntry> files) {
+		if (this.finished) {
+			throw new IllegalStateException("Tree is already finished");
+		}
+		for (final FileEntry file : files) {
+			add(file);
+		}
+		this.files += files.size();
+	}
+
+	/**
+	 * Get the number of file entries added so far
+	 */
+	public synchronized int getFileCount() {
+		return this.files;
+	}
+
+	/**
+	 * Get a snapshot of the children of a directory
+	 * <p>
+	 * This is safe to call while the tree still grows.
+	 * </p>
+	 */
+	public synchronized Node[] getChildren(final Directory dir) {
+		return this.finished ? dir.children : Arrays.copyOf(dir.children, dir.count);
+	}
+
+	/**
+	 * Finish the tree, after all entries were added
+	 * <p>
+	 * This trims the arrays of children and numbers the nodes.
+	 * </p>
+	 *
+	 * @return the root directory
+	 */
+	public synchronized Directory finish() {
+		if (!this.finished) {
+			this.root.trim();
+			number(this.root, 0);
+			this.finished = true;
+		}
+		return this.root;
+	}
+
+	/**
+	 * Number the nodes of a subtree in pre-order
+	 *
+	 * @param next
+	 *            the id of the subtree's root
+	 * @return the next free id
+	 */
+	private static int number(final Node node, final int next) {
+		node.id = next;
+		int id = next + 1;
+		if (node instanceof Directory) {
+			for (final Node child : ((Directory) node).children) {
+				id = number(child, id);
+			}
+		}
+		return id;
+	}
+
+	private void add(final FileEntry file) {
+		final String path = file.getName();
+
+		final int base;
+		int start;
+		if (path.startsWith("./")) {
+			base = 1;
+			start = 2;
+		} else if (path.startsWith("/")) {
+			base = 0;
+			start = 1;
+		} else {
+			base = -1;
+			start = 0;
+		}
+
+		Directory current = this.root;
+
+		while (true) {
+			final int end = path.indexOf('/', start);
+
+			if (end < 0) {
+				addLeaf(current, path, base, start, file);
+				return;
+			}
+
+			if (end > start) {
+				current = directory(current, path, base, start, end, file.getIndex() < 0);
+			}
+
+			start = end + 1;
+		}
+	}
+
+	/**
+	 * Look up the meta information of a path
+	 *
+	 * @param base
+	 *            the index of the leading slash of the absolute path, or
+	 *            {@code -1} if the path is relative
+	 * @param end
+	 *            the end of the path
+	 */
+	private MetaInformation meta(final String path, final int base, final int end) {
+		if (this.table.getCount() == 0) {
+			return null;
+		}
+
+		final int index = this.table.indexOf(base < 0 ? "/" + path.substring(0, end) : path.substring(base, end));
+		return index >= 0 ? new MetaInformation(this.table, index) : null;
+	}
+
+	private MetaInformation meta(final FileEntry file, final String path, final int base) {
+		if (file.getIndex() >= 0) {
+			return new MetaInformation(this.table, file.getIndex());
+		}
+		return meta(path, base, path.length());
+	}
+
+	private void addLeaf(final Directory parent, final String path, final int base, final int start,
+			final FileEntry file) {
+		final int end = path.length();
+		if (start == end) {
+			// trailing slash, or empty path
+			return;
+		}
+
+		final int idx = parent.find(path, start, end);
+		if (idx >= 0) {
+			final Node node = parent.children[idx];
+			if (node instanceof Directory) {
+				// explicit entry for an existing directory
+				node.entry = file;
+				if (file.getIndex() >= 0) {
+					node.meta = meta(file, path, base);
+				}
+			} else {
+				parent.children[idx] = new File(node.name, parent, file, meta(file, path, base));
+				parent.addSize(file.getSize() - node.getSize());
+			}
+		} else {
+			parent.insert(-(idx + 1), new File(name(path, start, end), parent, file, meta(file, path, base)));
+			parent.addSize(file.getSize());
+		}
+	}
+
+	/**
+	 * Get or create a directory
+	 *
+	 * @param lookup
+	 *            whether to look up the meta information of a new directory
+	 *            by its path. Files created from the header carry their index
+	 *            and the directory will receive its meta information once its
+	 *            own entry gets added.
+	 */
+	private Directory directory(final Directory parent, final String path, final int base, final int start,
+			final int end, final boolean lookup) {
+		final int idx = parent.find(path, start, end);
+
+		if (idx >= 0) {
+			final Node node = parent.children[idx];
+			if (node instanceof Directory) {
+				return (Directory) node;
+			}
+
+			// the entry was listed as file before, convert it
+			final Directory dir = new Directory(node.name, parent, node.entry, node.meta);
+			parent.children[idx] = dir;
+			parent.addSize(-node.getSize());
+			return dir;
+		}
+
+		final Directory dir = new Directory(name(path, start, end), parent, null,
+				lookup ? meta(path, base, end) : null);
+		parent.insert(-(idx + 1), dir);
+		return dir;
+	}
+
+	private String name(final String path, final int start, final int end) {
+		final String name = path.substring(start, end);
+		final String result = this.names.putIfAbsent(name, name);
+		return result != null ? result : name;
+	}
+
+	/**
+	 * Compare a region of a path with a name, like
+	 * {@link String#compareTo(String)} would do
+	 */
+	private static int compare(final String path, final int start, final int end, final String name) {
+		final int len1 = end - start;
+		final int len2 = name.length();
+		final int lim = Math.min(len1, len2);
+
+		for (int i = 0; i < lim; i++) {
+			final char c1 = path.charAt(start + i);
+			final char c2 = name.charAt(i);
+			if (c1 != c2) {
+				return c1 - c2;
+			}
+		}
+
+		return len1 - len2;
+	}
+}
@@ -0,0 +1,325 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import de.dentrassi.eclipse.rpm.editor.FileTree.Directory;
+import de.dentrassi.eclipse.rpm.editor.FileTree.Node;
+
+/**
+ * An index for filtering a {@link FileTree}
+ * <p>
+ * The names of the tree's nodes are interned, so there are far less distinct
+ * names than nodes. Name terms of a filter are evaluated once for each
+ * distinct name, and the matches are mapped back to the nodes. Plain text
+ * terms are looked up in a trigram index of the names, so only names
+ * containing all trigrams of the term need to be checked.
+ * </p>
+ * <p>
+ * When a filter refines the previous one, e.g. while typing, only the names
+ * matching the previous filter are checked.
+ * </p>
+ */
+public final class FileTreeIndex {
+
+	private static final int GRAM = 3;
+
+	private static final int[] NONE = new int[0];
+
+	/**
+	 * The result of applying a filter
+	 */
+	public static final class Result {
+
+		private final PayloadFilter filter;
+
+		/**
+		 * The ids of the names matching the name terms, {@code null} if
+		 * the filter has no name terms
+		 */
+		private final int[] names;
+
+		private final BitSet visible;
+
+		private final int matches;
+
+		private Result(final PayloadFilter filter, final int[] names, final BitSet visible, final int matches) {
+			this.filter = filter;
+			this.names = names;
+			this.visible = visible;
+			this.matches = matches;
+		}
+
+		public PayloadFilter getFilter() {
+			return this.filter;
+		}
+
+		/**
+		 * Check if a node is visible, because it or one of its descendants
+		 * matches
+		 */
+		public boolean isVisible(final Node node) {
+			return this.visible.get(node.getId());
+		}
+
+		/**
+		 * Get the number of matching nodes
+		 */
+		public int getMatches() {
+			return this.matches;
+		}
+	}
+
+	private static final class IntList {
+
+		private int[] data = new int[4];
+
+		private int size;
+
+		public void add(final int value) {
+			if (this.size == this.data.length) {
+				this.data = Arrays.copyOf(this.data, this.size * 2);
+			}
+			this.data[this.size++] = value;
+		}
+
+		public int last() {
+			return this.size > 0 ? this.data[this.size - 1] : -1;
+		}
+
+		public int[] toArray() {
+			return Arrays.copyOf(this.data, this.size);
+		}
+	}
+
+	private final Node[] nodes;
+
+	private final String[] names;
+
+	private final String[] lowerNames;
+
+	/**
+	 * The ids of the nodes, by name id
+	 */
+	private final int[][] nodesByName;
+
+	/**
+	 * The ids of the names, by trigram
+	 */
+	private final Map<Long, int[]> grams;
+
+	private FileTreeIndex(final Node[] nodes, final String[] names, final int[][] nodesByName,
+			final Map<Long, int[]> grams) {
+		this.nodes = nodes;
+		this.names = names;
+		this.nodesByName = nodesByName;
+		this.grams = grams;
+
+		this.lowerNames = new String[names.length];
+		for (int i = 0; i < names.length; i++) {
+			this.lowerNames[i] = names[i].toLowerCase(Locale.ROOT);
+		}
+	}
+
+	/**
+	 * Build the index of a tree
+	 *
+	 * @param root
+	 *            the root of the tree
+	 * @return the new index
+	 */
+	public static FileTreeIndex build(final Directory root) {
+		final List<Node> nodes = new ArrayList<>();
+		collect(root, nodes);
+
+		// the names are interned, so the identity is sufficient
+		final Map<String, Integer> nameIds = new IdentityHashMap<>();
+		final List<String> names = new ArrayList<>();
+		final List<IntList> nodesByName = new ArrayList<>();
+
+		// skip the root, it has no name
+		for (int i = 1; i < nodes.size(); i++) {
+			final String name = nodes.get(i).getName();
+			Integer id = nameIds.get(name);
+			if (id == null) {
+				id = names.size();
+				nameIds.put(name, id);
+				names.add(name);
+				nodesByName.add(new IntList());
+			}
+			nodesByName.get(id).add(i);
+		}
+
+		final Map<Long, IntList> grams = new HashMap<>();
+		for (int i = 0; i < names.size(); i++) {
+			final String name = names.get(i).toLowerCase(Locale.ROOT);
+			for (int j = 0; j + GRAM <= name.length(); j++) {
+				final IntList list = grams.computeIfAbsent(gram(name, j), k -> new IntList());
+				// a name may contain the same trigram twice
+				if (list.last() != i) {
+					list.add(i);
+				}
+			}
+		}
+
+		final int[][] nodesByNameArray = new int[names.size()][];
+		for (int i = 0; i < nodesByNameArray.length; i++) {
+			nodesByNameArray[i] = nodesByName.get(i).toArray();
+		}
+
+		final Map<Long, int[]> gramsArray = new HashMap<>(grams.size() * 4 / 3 + 1);
+		for (final Map.Entry<Long, IntList> entry : grams.entrySet()) {
+			gramsArray.put(entry.getKey(), entry.getValue().toArray());
+		}
+
+		return new FileTreeIndex(nodes.toArray(new Node[nodes.size()]), names.toArray(new String[names.size()]),
+				nodesByNameArray, gramsArray);
+	}
+
+	private static void collect(final Node node, final List<Node> nodes) {
+		nodes.add(node);
+		if (node instanceof Directory) {
+			for (final Node child : ((Directory) node).getChildren()) {
+				collect(child, nodes);
+			}
+		}
+	}
+
+	private static long gram(final String s, final int start) {
+		return (long) s.charAt(start) << 32 | (long) s.charAt(start + 1) << 16 | s.charAt(start + 2);
+	}
+
+	/**
+	 * Apply a filter
+	 *
+	 * @param filter
+	 *            the filter to apply
+	 * @param previous
+	 *            the result of the previous filter, may be {@code null}
+	 * @return the result
+	 */
+	public Result filter(final PayloadFilter filter, final Result previous) {
+		final BitSet visible = new BitSet(this.nodes.length);
+		int matches = 0;
+
+		if (filter.hasNameTerms()) {
+			final int[] names = findNames(filter, previous);
+			for (final int name : names) {
+				for (final int node : this.nodesByName[name]) {
+					if (filter.matchesAttributes(this.nodes[node])) {
+						show(node, visible);
+						matches++;
+					}
+				}
+			}
+			return new Result(filter, names, visible, matches);
+		}
+
+		for (int i = 1; i < this.nodes.length; i++) {
+			if (filter.matchesAttributes(this.nodes[i])) {
+				show(i, visible);
+				matches++;
+			}
+		}
+		return new Result(filter, null, visible, matches);
+	}
+
+	/**
+	 * Mark a node and its ancestors as visible
+	 */
+	private void show(final int id, final BitSet visible) {
+		Node node = this.nodes[id];
+		while (node != null && !visible.get(node.getId())) {
+			visible.set(node.getId());
+			node = node.getParent();
+		}
+	}
+
+	/**
+	 * Find the ids of the names matching the name terms of a filter
+	 */
+	private int[] findNames(final PayloadFilter filter, final Result previous) {
+		final int[] candidates;
+		if (previous != null && previous.names != null && filter.refines(previous.filter)) {
+			candidates = previous.names;
+		} else {
+			candidates = findCandidates(filter.getRequiredSubstrings());
+		}
+
+		final IntList result = new IntList();
+		if (candidates == null) {
+			for (int i = 0; i < this.names.length; i++) {
+				if (filter.matchesName(this.names[i], this.lowerNames[i])) {
+					result.add(i);
+				}
+			}
+		} else {
+			for (final int i : candidates) {
+				if (filter.matchesName(this.names[i], this.lowerNames[i])) {
+					result.add(i);
+				}
+			}
+		}
+		return result.toArray();
+	}
+
+	/**
+	 * Find the names containing all trigrams of the required text
+	 *
+	 * @return the ids of the names, or {@code null} if no text is long
+	 *         enough to use the trigrams
+	 */
+	private int[] findCandidates(final List<String> substrings) {
+		int[] result = null;
+
+		for (final String substring : substrings) {
+			for (int j = 0; j + GRAM <= substring.length(); j++) {
+				final int[] names = this.grams.getOrDefault(gram(substring, j), NONE);
+				result = result == null ? names : intersect(result, names);
+				if (result.length == 0) {
+					return result;
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Intersect two sorted arrays
+	 */
+	private static int[] intersect(final int[] a, final int[] b) {
+		final int[] result = new int[Math.min(a.length, b.length)];
+		int len = 0;
+		int i = 0;
+		int j = 0;
+		while (i < a.length && j < b.length) {
+			if (a[i] < b[j]) {
+				i++;
+			} else if (a[i] > b[j]) {
+				j++;
+			} else {
+				result[len++] = a[i];
+				i++;
+				j++;
+			}
+		}
+		return len == result.length ? result : Arrays.copyOf(result, len);
+	}
+}
@@ -10,20 +10,15 @@
  *******************************************************************************/
 package de.dentrassi.eclipse.rpm.editor;
 
-import static java.util.Optional.empty;
-import static java.util.Optional.of;
-
-import java.util.Arrays;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import org.eclipse.jface.layout.AbstractColumnLayout;
 import org.eclipse.jface.layout.TreeColumnLayout;
+import org.eclipse.jface.preference.JFacePreferences;
 import org.eclipse.jface.viewers.ColumnWeightData;
 import org.eclipse.jface.viewers.DoubleClickEvent;
 import org.eclipse.jface.viewers.IStructuredSelection;
@@ -34,7 +29,6 @@ import org.eclipse.jface.viewers.TreePath;
 import org.eclipse.jface.viewers.TreeViewer;
 import org.eclipse.jface.viewers.TreeViewerColumn;
 import org.eclipse.jface.viewers.ViewerCell;
-import org.eclipse.packagedrone.utils.rpm.Rpms;
 import org.eclipse.packagedrone.utils.rpm.parse.HeaderValue;
 import org.eclipse.packagedrone.utils.rpm.parse.InputHeader;
 import org.eclipse.swt.SWT;
@@ -67,9 +61,89 @@ public class HeaderTable {
 		}
 	}
 
+	/**
+	 * A range of elements of an array value, backed by the array
+	 */
+	private static class Range {
+
+		private final Object[] values;
+		private final int from;
+		private final int to;
+
+		public Range(final Object[] values, final int from, final int to) {
+			this.values = values;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(this.values) * 31 + this.from;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof Range)) {
+				return false;
+			}
+			final Range other = (Range) obj;
+			return this.values == other.values && this.from == other.from && this.to == other.to;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("[%d..%d]", this.from, this.to - 1);
+		}
+	}
+
+	/**
+	 * A single element of an array value, backed by the array
+	 */
+	private static class Element {
+
+		private final Object[] values;
+		private final int index;
+
+		public Element(final Object[] values, final int index) {
+			this.values = values;
+			this.index = index;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(this.values) * 31 + this.index;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof Element)) {
+				return false;
+			}
+			final Element other = (Element) obj;
+			return this.values == other.values && this.index == other.index;
+		}
+
+		@Override
+		public String toString() {
+			return String.valueOf(this.values[this.index]);
+		}
+	}
+
+	private static final int MAX_VALUE_LENGTH = 200;
+
+	/**
+	 * The maximum number of children of a node, larger arrays get split into
+	 * ranges
+	 */
+	private static final int PAGE_SIZE = 1000;
+
+	private static final StyledString.Styler ERROR_STYLER = StyledString
+			.createColorRegistryStyler(JFacePreferences.ERROR_COLOR, null);
+
 	private final TreeViewer viewer;
 	private final Composite wrapper;
 	private Function<Integer, Object> tagNameProvider;
+	private SignatureVerification verification;
 
 	public HeaderTable(final Composite parent, final Function<Integer, Object> tagNameProvider) {
 		this.tagNameProvider = tagNameProvider;
@@ -88,7 +162,7 @@ public class HeaderTable {
 		createStyledColumn(layout, "Type", 1, entry -> makeType(entry));
 		createColumn(layout, "Count", 1, entry -> String.format("%d", entry.getValue().getCount()));
 		createColumn(layout, "Index", 1, entry -> String.format("%d", entry.getValue().getIndex()));
-		createColumnCell(layout, "Value", 10, HeaderTable::updateCellValue);
+		createColumnCell(layout, "Value", 10, this::updateCellValue);
 
 		this.wrapper.setLayout(layout);
 		this.viewer.getTree().setHeaderVisible(true);
@@ -98,8 +172,11 @@ public class HeaderTable {
 
 			@Override
 			public boolean hasChildren(final TreePath path) {
-				final Object[] children = getChildren(path);
-				return children != null && children.length > 0;
+				final Object element = path.getLastSegment();
+				if (element instanceof Entry) {
+					return getElementCount((Entry) element) > 1;
+				}
+				return element instanceof Range;
 			}
 
 			@Override
@@ -113,12 +190,14 @@ public class HeaderTable {
 					return (Object[]) inputElement;
 				} else if (inputElement instanceof Entry) {
 					final Entry entry = (Entry) inputElement;
-					final Object value = entry.getValue().getValue();
-					final Object[] childs = makeObjects(value).map(Stream::toArray).orElse(null);
-					if (childs != null && childs.length <= 1) {
+					if (getElementCount(entry) <= 1) {
 						return null;
 					}
-					return childs;
+					final Object[] values = HeaderValues.getElements(entry.getValue().getValue());
+					return partition(values, 0, values.length);
+				} else if (inputElement instanceof Range) {
+					final Range range = (Range) inputElement;
+					return partition(range.values, range.from, range.to);
 				}
 				return null;
 			}
@@ -131,6 +210,43 @@ public class HeaderTable {
 		this.viewer.setContentProvider(p);
 	}
 
+	private static int getElementCount(final Entry entry) {
+		final Object[] values = HeaderValues.getElements(entry.getValue().getValue());
+		return values != null ? values.length : 0;
+	}
+
+	/**
+	 * Create the children for a range of an array
+	 * <p>
+	 * Up to {@link #PAGE_SIZE} elements are returned directly. Larger ranges
+	 * are split into up to {@link #PAGE_SIZE} sub-ranges, each spanning a
+	 * power of {@link #PAGE_SIZE} elements.
+	 * </p>
+	 */
+	private static Object[] partition(final Object[] values, final int from, final int to) {
+		final int count = to - from;
+
+		if (count <= PAGE_SIZE) {
+			final Object[] result = new Object[count];
+			for (int i = 0; i < count; i++) {
+				result[i] = new Element(values, from + i);
+			}
+			return result;
+		}
+
+		long size = PAGE_SIZE;
+		while (count > size * PAGE_SIZE) {
+			size *= PAGE_SIZE;
+		}
+
+		final Object[] result = new Object[(int) ((count + size - 1) / size)];
+		for (int i = 0; i < result.length; i++) {
+			final int start = from + (int) (i * size);
+			result[i] = new Range(values, start, (int) Math.min(to, start + size));
+		}
+		return result;
+	}
+
 	private Optional<String> makeTagName(final Entry entry) {
 		final Object name = this.tagNameProvider.apply(entry.getKey());
 		if (name == null) {
@@ -162,64 +278,46 @@ public class HeaderTable {
 		for (final Object o : (Iterable<?>) sel::iterator) {
 			if (o instanceof Entry) {
 				final Entry e = (Entry) o;
-				final String s = makeString(e);
+				final Object value = e.getValue().getValue();
+				if (value == null) {
+					continue;
+				}
 				final String name = makeTagName(e).orElse(Integer.toString(e.getKey()));
-				new TextDialog(() -> this.viewer.getControl().getShell(), name, s).open();
+				new TextDialog(() -> this.viewer.getControl().getShell(), name,
+						out -> HeaderValues.format(value, out)).open();
 			}
 		}
 	}
 
-	private static Optional<Stream<?>> makeObjects(final Object value) {
-		if (value instanceof Short[]) {
-			return of(Arrays.stream((Short[]) value));
-		} else if (value instanceof Integer[]) {
-			return of(Arrays.stream((Integer[]) value));
-		} else if (value instanceof Long[]) {
-			return of(Arrays.stream((Long[]) value));
-		} else if (value instanceof String[]) {
-			return of(Arrays.stream((String[]) value));
-		}
-
-		return empty();
-	}
-
-	private static void updateCellValue(final ViewerCell cell) {
+	private void updateCellValue(final ViewerCell cell) {
 
 		final Object ele = cell.getElement();
 
 		if (ele instanceof Entry) {
 			final Entry entry = (Entry) ele;
-			final String s = cut(makeString(entry), 200);
-			cell.setText(s);
-
-		} else if (ele != null) {
-			cell.setText(ele.toString());
-		}
-	}
-
-	private static String makeString(final Entry entry) {
-		final Object value = entry.getValue().getValue();
-		if (value instanceof byte[]) {
-			final byte[] data = (byte[]) value;
-			return Rpms.toHex(data);
-		} else if (value != null) {
-			final Optional<Stream<?>> os = makeObjects(value);
-			if (os.isPresent()) {
-				final Stream<?> s = os.get();
-				return s.map(Object::toString).collect(Collectors.joining(", "));
+			final String s = HeaderValues.makeString(entry.getValue().getValue(), MAX_VALUE_LENGTH);
+
+			final SignatureVerification.Result result = this.verification != null
+					? this.verification.getResult(entry.getKey()) : null;
+
+			if (result != null) {
+				final StyledString text = new StyledString(s != null ? s : "");
+				text.append("  ");
+				if (result.isValid()) {
+					text.append("[verified]", StyledString.DECORATIONS_STYLER);
+				} else {
+					text.append(String.format("[mismatch, actual: %s]", result.getActual()), ERROR_STYLER);
+				}
+				cell.setText(text.getString());
+				cell.setStyleRanges(text.getStyleRanges());
 			} else {
-				return value.toString();
+				cell.setText(s != null ? s : "");
+				cell.setStyleRanges(null);
 			}
-		}
-		return null;
-	}
 
-	private static String cut(final String string, final int maxLength) {
-		if (string == null || maxLength <= 0 || string.length() <= maxLength) {
-			return string;
+		} else if (ele != null) {
+			cell.setText(ele.toString());
 		}
-
-		return string.substring(0, maxLength - 1) + "…";
 	}
 
 	private void createColumn(final AbstractColumnLayout layout, final String name, final int weight,
@@ -269,10 +367,23 @@ public class HeaderTable {
 	}
 
 	public void setInformation(final InputHeader<?> header) {
+		this.verification = null;
 		this.viewer.setInput(header.getRawTags().entrySet().stream().map(HeaderTable::toEntry).toArray());
 		this.viewer.getTree().layout();
 	}
 
+	/**
+	 * Decorate the values of the signature tags with the result of a
+	 * verification
+	 *
+	 * @param verification
+	 *            the result, may be {@code null} to clear it
+	 */
+	public void setVerification(final SignatureVerification verification) {
+		this.verification = verification;
+		this.viewer.refresh();
+	}
+
 	private static Entry toEntry(final Map.Entry<Integer, HeaderValue> entry) {
 		final Entry result = new Entry(entry.getKey(), entry.getValue());
 		return result;
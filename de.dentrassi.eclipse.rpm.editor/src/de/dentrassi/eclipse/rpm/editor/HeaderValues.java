@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.io.IOException;
+
+/**
+ * Helpers for displaying header values
+ * <p>
+ * Header values can be huge, think of {@code FILE_DIGESTS} or
+ * {@code BASENAMES}. So values are never converted to a string as a whole.
+ * They are either written to an {@link Appendable}, or converted up to a
+ * maximum length.
+ * </p>
+ */
+public final class HeaderValues {
+
+	private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+	private static final String SEPARATOR = ", ";
+
+	private HeaderValues() {
+	}
+
+	/**
+	 * Get the elements of an array value
+	 * <p>
+	 * This returns the value itself, the elements are not copied.
+	 * </p>
+	 *
+	 * @param value
+	 *            the header value
+	 * @return the array of elements, or {@code null} if the value is not an
+	 *         array of elements
+	 */
+	public static Object[] getElements(final Object value) {
+		if (value instanceof Short[] || value instanceof Integer[] || value instanceof Long[]
+				|| value instanceof String[]) {
+			return (Object[]) value;
+		}
+		return null;
+	}
+
+	/**
+	 * Convert a header value to a string, up to a maximum length
+	 * <p>
+	 * The conversion stops as soon as the maximum length is exceeded. If the
+	 * value is longer, the result is cut and ends with an ellipsis.
+	 * </p>
+	 *
+	 * @param value
+	 *            the header value
+	 * @param maxLength
+	 *            the maximum length of the result
+	 * @return the string, or {@code null} if the value is {@code null}
+	 */
+	public static String makeString(final Object value, final int maxLength) {
+		if (value == null) {
+			return null;
+		}
+
+		final StringBuilder sb = new StringBuilder(Math.min(maxLength + 1, 64));
+		try {
+			format(value, sb, maxLength);
+		} catch (final IOException e) {
+			// a string builder doesn't throw
+			throw new IllegalStateException(e);
+		}
+
+		if (sb.length() > maxLength) {
+			sb.setLength(maxLength - 1);
+			sb.append('…');
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Convert a digest to a lower case hex string, like it is used by the
+	 * string values of digest tags
+	 */
+	public static String toHex(final byte[] data) {
+		final StringBuilder sb = new StringBuilder(data.length * 2);
+		for (final byte b : data) {
+			sb.append(Character.forDigit(b >> 4 & 0xF, 16));
+			sb.append(Character.forDigit(b & 0xF, 16));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Write the full value
+	 * <p>
+	 * Byte arrays are written as hex string, other arrays as comma separated
+	 * list.
+	 * </p>
+	 *
+	 * @param value
+	 *            the header value, must not be {@code null}
+	 * @param out
+	 *            the target to write to
+	 * @throws IOException
+	 *             if the target fails
+	 */
+	public static void format(final Object value, final Appendable out) throws IOException {
+		format(value, out, -1);
+	}
+
+	/**
+	 * Write a value
+	 *
+	 * @param limit
+	 *            stop as soon as more than this number of characters was
+	 *            written, a negative number writes everything
+	 */
+	private static void format(final Object value, final Appendable out, final int limit) throws IOException {
+		if (value instanceof byte[]) {
+			final byte[] data = (byte[]) value;
+			final int len = limit < 0 ? data.length : Math.min(data.length, limit / 2 + 1);
+			for (int i = 0; i < len; i++) {
+				out.append(HEX[data[i] >> 4 & 0xF]);
+				out.append(HEX[data[i] & 0xF]);
+			}
+		} else if (getElements(value) != null) {
+			final Object[] values = (Object[]) value;
+			long written = 0;
+			for (int i = 0; i < values.length; i++) {
+				if (limit >= 0 && written > limit) {
+					return;
+				}
+				if (i > 0) {
+					out.append(SEPARATOR);
+					written += SEPARATOR.length();
+				}
+				written += append(String.valueOf(values[i]), out, limit < 0 ? -1 : limit - written);
+			}
+		} else {
+			append(value.toString(), out, limit);
+		}
+	}
+
+	/**
+	 * Append a string, up to one character more than the limit
+	 *
+	 * @return the number of characters appended
+	 */
+	private static int append(final String s, final Appendable out, final long limit) throws IOException {
+		final int end = limit < 0 ? s.length() : (int) Math.min(s.length(), limit + 1);
+		out.append(s, 0, end);
+		return end;
+	}
+}
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.lang.reflect.Array;
+import java.util.Optional;
+
+import org.eclipse.packagedrone.utils.rpm.parse.HeaderValue;
+import org.eclipse.packagedrone.utils.rpm.parse.InputHeader;
+
+/**
+ * Helpers for accessing header values
+ */
+public final class Headers {
+
+	/**
+	 * The file sizes, as 64 bit values
+	 * <p>
+	 * Used instead of {@code FILE_SIZES} by packages which contain files
+	 * larger than 4 GiB.
+	 * </p>
+	 */
+	public static final int LONGFILESIZES = 5008;
+
+	/**
+	 * The file digests, as hex strings
+	 * <p>
+	 * Formerly known as {@code FILEMD5S}.
+	 * </p>
+	 */
+	public static final int FILE_DIGESTS = 1035;
+
+	/**
+	 * The digest algorithm used for {@link #FILE_DIGESTS}
+	 */
+	public static final int FILE_DIGESTALGO = 5011;
+
+	/**
+	 * File flag marking a "ghost" file, which is not part of the payload
+	 */
+	public static final int RPMFILE_GHOST = 1 << 6;
+
+	/**
+	 * The size of the main header and the payload, in the signature header
+	 */
+	public static final int SIG_SIZE = 1000;
+
+	/**
+	 * The 64 bit variant of {@link #SIG_SIZE}
+	 */
+	public static final int SIG_LONGSIZE = 270;
+
+	/**
+	 * The binary MD5 digest of the main header and the payload, in the
+	 * signature header
+	 */
+	public static final int SIG_MD5 = 1004;
+
+	/**
+	 * The SHA-1 digest of the main header as hex string, in the signature
+	 * header
+	 */
+	public static final int SIG_SHA1 = 269;
+
+	/**
+	 * The SHA-256 digest of the main header as hex string, in the signature
+	 * header
+	 */
+	public static final int SIG_SHA256 = 273;
+
+	/**
+	 * The digest algorithm which is used if the header doesn't declare one
+	 */
+	public static final int DEFAULT_DIGEST_ALGORITHM = 1;
+
+	private Headers() {
+	}
+
+	/**
+	 * Get the JCA name of an OpenPGP hash algorithm, as used by
+	 * {@link #FILE_DIGESTALGO}
+	 *
+	 * @param algorithm
+	 *            the OpenPGP hash algorithm ID
+	 * @return the JCA name, or {@code null} if the algorithm is unknown
+	 */
+	public static String getDigestAlgorithm(final int algorithm) {
+		switch (algorithm) {
+		case 1:
+			return "MD5"; //$NON-NLS-1$
+		case 2:
+			return "SHA-1"; //$NON-NLS-1$
+		case 8:
+			return "SHA-256"; //$NON-NLS-1$
+		case 9:
+			return "SHA-384"; //$NON-NLS-1$
+		case 10:
+			return "SHA-512"; //$NON-NLS-1$
+		case 11:
+			return "SHA-224"; //$NON-NLS-1$
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Get an array value
+	 * <p>
+	 * The parser returns values with a count of one as plain value, not as
+	 * array. Those get wrapped into an array of one element. So the file
+	 * columns of a package with a single file are found as well.
+	 * </p>
+	 */
+	public static <T> Optional<T[]> getArray(final InputHeader<?> header, final int tag, final Class<T[]> clazz) {
+		final HeaderValue val = header.getRawTags().get(tag);
+		if (val == null) {
+			return Optional.empty();
+		}
+
+		final Object o = val.getValue();
+		if (o == null) {
+			return Optional.empty();
+		}
+
+		if (clazz.isAssignableFrom(o.getClass())) {
+			return Optional.of(clazz.cast(o));
+		}
+		if (clazz.getComponentType().isInstance(o)) {
+			final Object result = Array.newInstance(clazz.getComponentType(), 1);
+			Array.set(result, 0, o);
+			return Optional.of(clazz.cast(result));
+		}
+		return Optional.empty();
+	}
+
+	public static <T> T get(final Optional<T[]> values, final int i) {
+		if (!values.isPresent()) {
+			return null;
+		}
+
+		final T[] array = values.get();
+		if (i < array.length) {
+			return array[i];
+		} else {
+			return null;
+		}
+	}
+
+}
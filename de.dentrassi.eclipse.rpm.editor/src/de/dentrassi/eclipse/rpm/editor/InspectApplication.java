@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import org.eclipse.equinox.app.IApplication;
+import org.eclipse.equinox.app.IApplicationContext;
+
+/**
+ * Headless application for writing reports of RPM files
+ * <p>
+ * Run with
+ * {@code eclipse -nosplash -application de.dentrassi.eclipse.rpm.editor.inspect <arguments>}
+ * </p>
+ *
+ * @see BatchInspector
+ */
+public class InspectApplication implements IApplication {
+
+	@Override
+	public Object start(final IApplicationContext context) throws Exception {
+		final String[] args = (String[]) context.getArguments().get(IApplicationContext.APPLICATION_ARGS);
+		context.applicationRunning();
+		return BatchInspector.run(args != null ? args : new String[0], System.in, System.out, System.err);
+	}
+
+	@Override
+	public void stop() {
+	}
+}
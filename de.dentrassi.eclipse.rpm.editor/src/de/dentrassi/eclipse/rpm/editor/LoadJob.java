@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * Load an RPM file in the background
+ * <p>
+ * The lead and the headers are handed over to {@link #headerLoaded} as soon
+ * as they are read, the payload follows later on using
+ * {@link #payloadLoaded}. Both methods are called from the job's thread.
+ * </p>
+ *
+ * @see RpmLoader
+ */
+public abstract class LoadJob extends Job {
+
+	private final RpmSource source;
+
+	private final LoadStatistics statistics;
+
+	/**
+	 * Create a new load job
+	 *
+	 * @param name
+	 *            the name of the RPM, used for the job name
+	 * @param source
+	 *            the source of the RPM data
+	 */
+	public LoadJob(final String name, final RpmSource source) {
+		this(name, source, null);
+	}
+
+	/**
+	 * Create a new load job, measuring the phases of loading
+	 *
+	 * @param statistics
+	 *            the statistics to record the phases to, may be {@code null}
+	 * @see #LoadJob(String, RpmSource)
+	 */
+	public LoadJob(final String name, final RpmSource source, final LoadStatistics statistics) {
+		super(String.format("Loading %s", name));
+		this.source = source;
+		this.statistics = statistics;
+	}
+
+	protected abstract void headerLoaded(RpmInformation information);
+
+	protected abstract void payloadLoaded(RpmInformation information);
+
+	/**
+	 * Called after each batch of files read from the payload
+	 * <p>
+	 * The tree keeps growing until {@link #payloadLoaded} gets called, see
+	 * {@link FileTree#getChildren(FileTree.Directory)}. The default
+	 * implementation does nothing.
+	 * </p>
+	 *
+	 * @param tree
+	 *            the tree of files read so far
+	 */
+	protected void filesLoaded(final FileTree tree) {
+	}
+
+	protected abstract void failed(Exception e);
+
+	@Override
+	protected IStatus run(final IProgressMonitor monitor) {
+		final long size = this.source.getSize();
+		monitor.beginTask(getName(), size > 0 ? (int) (size >> 10) : IProgressMonitor.UNKNOWN);
+
+		try {
+			final RpmInformation result = new RpmLoader(this.source, this.statistics).load(this::headerLoaded,
+					this::filesLoaded, monitor);
+			payloadLoaded(result);
+			return Status.OK_STATUS;
+		} catch (final OperationCanceledException e) {
+			return Status.CANCEL_STATUS;
+		} catch (final Exception e) {
+			if (monitor.isCanceled()) {
+				return Status.CANCEL_STATUS;
+			}
+			failed(e);
+			return new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Failed to load RPM file", e);
+		} finally {
+			monitor.done();
+		}
+	}
+
+}
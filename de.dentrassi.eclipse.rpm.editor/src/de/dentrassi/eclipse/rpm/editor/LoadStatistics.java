@@ -0,0 +1,363 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Timing and allocation counters of the phases of loading and showing an RPM
+ * file
+ * <p>
+ * Each phase is measured using {@link #call(String, Task)},
+ * {@link #run(String, Runnable)} or {@link #measure(String)}. Phases measured more
+ * than once, like setting the information of a page once for the header and
+ * once for the payload, are summed up.
+ * </p>
+ * <p>
+ * The allocated bytes are those of the measuring thread only, and only if the
+ * JVM supports this. Threads decompressing the payload in the background are
+ * not accounted for. If the JVM supports the flight recorder, each
+ * measurement is also recorded as a {@code de.dentrassi.rpm.LoadPhase} event.
+ * Measurements are traced if the {@code /debug/timing} option of the plugin
+ * is enabled, see {@link Tracing}.
+ * </p>
+ * <p>
+ * This class is thread safe.
+ * </p>
+ */
+public final class LoadStatistics {
+
+	/**
+	 * The statistics of a single phase
+	 */
+	public static final class Phase {
+		private final String name;
+
+		private int count;
+
+		private long nanos;
+
+		private long allocated = -1;
+
+		private Phase(final String name) {
+			this.name = name;
+		}
+
+		private Phase(final Phase other) {
+			this.name = other.name;
+			this.count = other.count;
+			this.nanos = other.nanos;
+			this.allocated = other.allocated;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		/**
+		 * Get the number of times this phase was measured
+		 */
+		public int getCount() {
+			return this.count;
+		}
+
+		public long getNanos() {
+			return this.nanos;
+		}
+
+		/**
+		 * Get the number of allocated bytes
+		 *
+		 * @return the number of bytes, or {@code -1} if the JVM does not
+		 *         support measuring allocations
+		 */
+		public long getAllocated() {
+			return this.allocated;
+		}
+
+		@Override
+		public String toString() {
+			final StringBuilder sb = new StringBuilder(String.format("%,.1f ms", this.nanos / 1_000_000.0));
+			if (this.allocated >= 0) {
+				sb.append(String.format(", %,.1f MiB allocated", this.allocated / (1024.0 * 1024.0)));
+			}
+			if (this.count > 1) {
+				sb.append(String.format(" (%d times)", this.count));
+			}
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * A running measurement, to be closed at the end of the phase
+	 */
+	public final class Measurement implements AutoCloseable {
+		private final String name;
+
+		private final long start;
+
+		private final long startAllocated;
+
+		private final Object event;
+
+		private Measurement(final String name) {
+			this.name = name;
+			this.event = Recorder.begin(name);
+			this.startAllocated = Allocations.current();
+			this.start = System.nanoTime();
+		}
+
+		@Override
+		public void close() {
+			final long nanos = System.nanoTime() - this.start;
+			final long endAllocated = Allocations.current();
+			final long allocated = this.startAllocated >= 0 && endAllocated >= 0 ? endAllocated - this.startAllocated
+					: -1;
+
+			record(this.name, nanos, allocated);
+			Recorder.commit(this.event, allocated);
+			Tracing.traceTiming(this.name, nanos, allocated);
+		}
+	}
+
+	/**
+	 * A phase to measure, which may fail
+	 */
+	@FunctionalInterface
+	public interface Task<T, E extends Exception> {
+		T call() throws E;
+	}
+
+	private final Map<String, Phase> phases = new LinkedHashMap<>();
+
+	/**
+	 * Start measuring a phase
+	 *
+	 * @param name
+	 *            the name of the phase
+	 * @return the measurement, which must be closed by the same thread
+	 */
+	public Measurement measure(final String name) {
+		return new Measurement(name);
+	}
+
+	/**
+	 * Measure a phase, which is run by the calling thread
+	 *
+	 * @param name
+	 *            the name of the phase
+	 * @return the result of the task
+	 */
+	public <T, E extends Exception> T call(final String name, final Task<T, E> task) throws E {
+		final Measurement measurement = measure(name);
+		try {
+			return task.call();
+		} finally {
+			measurement.close();
+		}
+	}
+
+	/**
+	 * Measure a phase, which is run by the calling thread
+	 *
+	 * @param name
+	 *            the name of the phase
+	 */
+	public void run(final String name, final Runnable runnable) {
+		final Measurement measurement = measure(name);
+		try {
+			runnable.run();
+		} finally {
+			measurement.close();
+		}
+	}
+
+	private synchronized void record(final String name, final long nanos, final long allocated) {
+		final Phase phase = this.phases.computeIfAbsent(name, Phase::new);
+		phase.count++;
+		phase.nanos += nanos;
+		if (allocated >= 0) {
+			phase.allocated = Math.max(phase.allocated, 0) + allocated;
+		}
+	}
+
+	/**
+	 * Get a snapshot of the phases, in the order they were first measured
+	 */
+	public synchronized List<Phase> getPhases() {
+		final List<Phase> result = new ArrayList<>(this.phases.size());
+		for (final Phase phase : this.phases.values()) {
+			result.add(new Phase(phase));
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+	/**
+	 * The allocation counter of the current thread, using the extension of
+	 * the HotSpot thread bean, if present
+	 */
+	private static final class Allocations {
+		private static final ThreadMXBean BEAN;
+
+		private static final Method ALLOCATED_BYTES;
+
+		static {
+			ThreadMXBean bean = null;
+			Method method = null;
+			try {
+				bean = ManagementFactory.getThreadMXBean();
+				// not visible to the bundle class loader
+				final Class<?> clazz = ClassLoader.getSystemClassLoader()
+						.loadClass("com.sun.management.ThreadMXBean"); //$NON-NLS-1$
+				if (clazz.isInstance(bean)
+						&& (Boolean) clazz.getMethod("isThreadAllocatedMemorySupported").invoke(bean)) { //$NON-NLS-1$
+					clazz.getMethod("setThreadAllocatedMemoryEnabled", boolean.class).invoke(bean, true); //$NON-NLS-1$
+					method = clazz.getMethod("getThreadAllocatedBytes", long.class); //$NON-NLS-1$
+				}
+			} catch (final Exception | LinkageError e) {
+				method = null;
+			}
+			BEAN = bean;
+			ALLOCATED_BYTES = method;
+		}
+
+		static long current() {
+			if (ALLOCATED_BYTES == null) {
+				return -1;
+			}
+			try {
+				return (Long) ALLOCATED_BYTES.invoke(BEAN, Thread.currentThread().getId());
+			} catch (final Exception e) {
+				return -1;
+			}
+		}
+	}
+
+	/**
+	 * The flight recorder events, created using the event factory of JDK 11
+	 * and later, if present
+	 */
+	private static final class Recorder {
+		private static final Object FACTORY;
+
+		private static final Method NEW_EVENT;
+
+		private static final Method BEGIN;
+
+		private static final Method END;
+
+		private static final Method SET;
+
+		private static final Method SHOULD_COMMIT;
+
+		private static final Method COMMIT;
+
+		static {
+			Object factory = null;
+			Method newEvent = null;
+			Method begin = null;
+			Method end = null;
+			Method set = null;
+			Method shouldCommit = null;
+			Method commit = null;
+
+			try {
+				final ClassLoader loader = ClassLoader.getSystemClassLoader();
+				final Class<?> annotationElement = loader.loadClass("jdk.jfr.AnnotationElement"); //$NON-NLS-1$
+				final Class<?> valueDescriptor = loader.loadClass("jdk.jfr.ValueDescriptor"); //$NON-NLS-1$
+				final Class<?> eventFactory = loader.loadClass("jdk.jfr.EventFactory"); //$NON-NLS-1$
+				final Class<?> event = loader.loadClass("jdk.jfr.Event"); //$NON-NLS-1$
+
+				final String label = "jdk.jfr.Label"; //$NON-NLS-1$
+
+				final List<Object> annotations = Arrays.asList( //
+						annotation(loader, annotationElement, "jdk.jfr.Name", //$NON-NLS-1$
+								"de.dentrassi.rpm.LoadPhase"), //$NON-NLS-1$
+						annotation(loader, annotationElement, label, "RPM Load Phase"), //$NON-NLS-1$
+						annotation(loader, annotationElement, "jdk.jfr.Category", //$NON-NLS-1$
+								new String[] { "RPM Editor" })); //$NON-NLS-1$
+
+				final Constructor<?> descriptor = valueDescriptor.getConstructor(Class.class, String.class,
+						List.class);
+				final List<Object> fields = Arrays.asList(
+						descriptor.newInstance(String.class, "phase", Collections.singletonList( //$NON-NLS-1$
+								annotation(loader, annotationElement, label, "Phase"))), //$NON-NLS-1$
+						descriptor.newInstance(long.class, "allocated", Arrays.asList( //$NON-NLS-1$
+								annotation(loader, annotationElement, label, "Allocated"), //$NON-NLS-1$
+								annotation(loader, annotationElement, "jdk.jfr.DataAmount", //$NON-NLS-1$
+										"BYTES")))); //$NON-NLS-1$
+
+				factory = eventFactory.getMethod("create", List.class, List.class) //$NON-NLS-1$
+						.invoke(null, annotations, fields);
+				newEvent = eventFactory.getMethod("newEvent"); //$NON-NLS-1$
+				begin = event.getMethod("begin"); //$NON-NLS-1$
+				end = event.getMethod("end"); //$NON-NLS-1$
+				set = event.getMethod("set", int.class, Object.class); //$NON-NLS-1$
+				shouldCommit = event.getMethod("shouldCommit"); //$NON-NLS-1$
+				commit = event.getMethod("commit"); //$NON-NLS-1$
+			} catch (final Exception | LinkageError e) {
+				factory = null;
+			}
+
+			FACTORY = factory;
+			NEW_EVENT = newEvent;
+			BEGIN = begin;
+			END = end;
+			SET = set;
+			SHOULD_COMMIT = shouldCommit;
+			COMMIT = commit;
+		}
+
+		private static Object annotation(final ClassLoader loader, final Class<?> annotationElement,
+				final String type, final Object value) throws Exception {
+			return annotationElement.getConstructor(Class.class, Object.class).newInstance(loader.loadClass(type),
+					value);
+		}
+
+		static Object begin(final String name) {
+			if (FACTORY == null) {
+				return null;
+			}
+			try {
+				final Object event = NEW_EVENT.invoke(FACTORY);
+				SET.invoke(event, 0, name);
+				BEGIN.invoke(event);
+				return event;
+			} catch (final Exception e) {
+				return null;
+			}
+		}
+
+		static void commit(final Object event, final long allocated) {
+			if (event == null) {
+				return;
+			}
+			try {
+				END.invoke(event);
+				if ((Boolean) SHOULD_COMMIT.invoke(event)) {
+					SET.invoke(event, 1, allocated);
+					COMMIT.invoke(event);
+				}
+			} catch (final Exception e) {
+				// ignore, recording is optional
+			}
+		}
+	}
+}
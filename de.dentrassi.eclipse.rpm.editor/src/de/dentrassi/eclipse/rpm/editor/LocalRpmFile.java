@@ -0,0 +1,210 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A local RPM file, accessed using positional reads
+ * <p>
+ * Each stream returned by {@link #open(long)} uses a channel of its own,
+ * positioned at the requested offset, so opening a stream at an arbitrary
+ * offset does not require reading anything before this offset. The file is
+ * only kept open while streams are open. Interrupting a thread which reads
+ * from one stream closes only the channel of this stream.
+ * </p>
+ * <p>
+ * The file is not memory mapped, so it is not locked after it was closed,
+ * and truncating the file while it is being read results in an
+ * {@link IOException} instead of a failure of the JVM.
+ * </p>
+ */
+public class LocalRpmFile implements RpmSource {
+
+	/**
+	 * The size of the buffers handed out by
+	 * {@link #read(long, long, BufferConsumer)} and used by streams
+	 */
+	private static final int BUFFER_SIZE = 256 * 1024;
+
+	private final Path path;
+
+	private final long size;
+
+	private volatile boolean closed;
+
+	public LocalRpmFile(final Path path) throws IOException {
+		this.path = path;
+		this.size = Files.size(path);
+	}
+
+	public Path getPath() {
+		return this.path;
+	}
+
+	@Override
+	public long getSize() {
+		return this.size;
+	}
+
+	@Override
+	public RpmCache.Key getCacheKey() throws IOException {
+		return new RpmCache.Key(this.path.toAbsolutePath(), this.size,
+				Files.getLastModifiedTime(this.path).toMillis());
+	}
+
+	@Override
+	public InputStream open(final long offset) throws IOException {
+		return new ChannelInputStream(openChannel(offset), offset);
+	}
+
+	/**
+	 * Read a region of the file
+	 *
+	 * @throws EOFException
+	 *             if the file got shorter while reading
+	 */
+	@Override
+	public void read(final long offset, final long length, final BufferConsumer consumer) throws IOException {
+		final long end = length < 0 ? this.size : Math.min(this.size, offset + length);
+
+		try (FileChannel channel = openChannel(offset)) {
+			final ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, Math.max(0, end - offset)));
+
+			long position = offset;
+			while (position < end) {
+				buffer.clear();
+				buffer.limit((int) Math.min(buffer.capacity(), end - position));
+				final int rc = channel.read(buffer, position);
+				if (rc < 0) {
+					throw new EOFException(String.format("%s got truncated at %s bytes", this.path, position));
+				}
+				buffer.flip();
+				consumer.accept(buffer);
+				position += rc;
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.closed = true;
+	}
+
+	private FileChannel openChannel(final long offset) throws IOException {
+		if (this.closed) {
+			throw new IOException(String.format("%s is closed", this.path));
+		}
+		if (offset < 0 || offset > this.size) {
+			throw new IOException(String.format("Offset %s is outside of the file (size: %s)", offset, this.size));
+		}
+		return FileChannel.open(this.path, StandardOpenOption.READ);
+	}
+
+	private static class ChannelInputStream extends InputStream {
+
+		private final FileChannel channel;
+
+		private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+		/**
+		 * The position in the file of the end of the buffer
+		 */
+		private long position;
+
+		public ChannelInputStream(final FileChannel channel, final long position) {
+			this.channel = channel;
+			this.position = position;
+			this.buffer.limit(0);
+		}
+
+		private boolean ensureBuffer() throws IOException {
+			if (this.buffer.hasRemaining()) {
+				return true;
+			}
+
+			this.buffer.clear();
+			final int rc = this.channel.read(this.buffer, this.position);
+			this.buffer.flip();
+			if (rc <= 0) {
+				return false;
+			}
+
+			this.position += rc;
+			return true;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (!ensureBuffer()) {
+				return -1;
+			}
+			return this.buffer.get() & 0xFF;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+
+			if (!this.buffer.hasRemaining() && len >= this.buffer.capacity()) {
+				// large reads go straight to the target array
+				final int rc = this.channel.read(ByteBuffer.wrap(b, off, len), this.position);
+				if (rc > 0) {
+					this.position += rc;
+				}
+				return rc;
+			}
+
+			if (!ensureBuffer()) {
+				return -1;
+			}
+
+			final int amount = Math.min(len, this.buffer.remaining());
+			this.buffer.get(b, off, amount);
+			return amount;
+		}
+
+		@Override
+		public long skip(final long n) throws IOException {
+			if (n <= 0) {
+				return 0;
+			}
+
+			final long buffered = Math.min(n, this.buffer.remaining());
+			this.buffer.position(this.buffer.position() + (int) buffered);
+
+			final long amount = Math.min(n - buffered, Math.max(0, this.channel.size() - this.position));
+			this.position += amount;
+			return buffered + amount;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return (int) Math.min(Integer.MAX_VALUE,
+					this.buffer.remaining() + Math.max(0, this.channel.size() - this.position));
+		}
+
+		@Override
+		public void close() throws IOException {
+			this.channel.close();
+		}
+	}
+
+}
@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+/**
+ * The header meta information of a single file
+ * <p>
+ * This is a view on one row of a {@link FileTable}.
+ * </p>
+ */
+public final class MetaInformation {
+
+	private final FileTable table;
+
+	private final int index;
+
+	public MetaInformation(final FileTable table, final int index) {
+		this.table = table;
+		this.index = index;
+	}
+
+	/**
+	 * Get the index of the file in the header
+	 */
+	public int getIndex() {
+		return this.index;
+	}
+
+	public String getGroup() {
+		return this.table.getGroup(this.index);
+	}
+
+	public String getUser() {
+		return this.table.getUser(this.index);
+	}
+
+	/**
+	 * @see FileTable#getMode(int)
+	 */
+	public int getMode() {
+		return this.table.getMode(this.index);
+	}
+
+	public String getLinkTo() {
+		return this.table.getLinkTo(this.index);
+	}
+
+	/**
+	 * @see FileTable#getMtime(int)
+	 */
+	public long getMtime() {
+		return this.table.getMtime(this.index);
+	}
+}
@@ -23,10 +23,14 @@ import org.eclipse.swt.SWT;
 import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Text;
+import org.eclipse.ui.forms.events.ExpansionAdapter;
+import org.eclipse.ui.forms.events.ExpansionEvent;
 import org.eclipse.ui.forms.widgets.FormToolkit;
 import org.eclipse.ui.forms.widgets.ScrolledForm;
+import org.eclipse.ui.forms.widgets.Section;
 
 public class OverviewPage {
 	private final ScrolledForm form;
@@ -41,6 +45,8 @@ public class OverviewPage {
 
 	private final Composite body;
 
+	private final Composite statistics;
+
 	public OverviewPage(final Composite parent) {
 		this.toolkit = new FormToolkit(parent.getDisplay());
 		parent.addDisposeListener(evt -> this.toolkit.dispose());
@@ -61,17 +67,35 @@ public class OverviewPage {
 		this.version = createField("Lead Version");
 		this.sigVersion = createField("Signature Version");
 
+		final Section section = this.toolkit.createSection(this.body, Section.TITLE_BAR | Section.TWISTIE);
+		section.setText("Load statistics");
+		section.setLayoutData(new GridData(GridData.FILL, GridData.BEGINNING, true, false, 2, 1));
+		section.addExpansionListener(new ExpansionAdapter() {
+			@Override
+			public void expansionStateChanged(final ExpansionEvent e) {
+				OverviewPage.this.form.reflow(true);
+			}
+		});
+
+		this.statistics = this.toolkit.createComposite(section);
+		this.statistics.setLayout(new GridLayout(2, false));
+		section.setClient(this.statistics);
+
 		this.toolkit.paintBordersFor(this.form.getBody());
 	}
 
 	private Text createField(final String string) {
+		return createField(this.body, string);
+	}
+
+	private Text createField(final Composite parent, final String string) {
 		Label label;
-		label = this.toolkit.createLabel(this.body, string, SWT.NONE);
+		label = this.toolkit.createLabel(parent, string, SWT.NONE);
 
 		label.setLayoutData(new GridData(GridData.FILL, GridData.CENTER, false, false));
 		label.setText(string);
 
-		final Text text = this.toolkit.createText(this.body, null, SWT.READ_ONLY | SWT.SINGLE);
+		final Text text = this.toolkit.createText(parent, null, SWT.READ_ONLY | SWT.SINGLE);
 
 		text.setLayoutData(new GridData(GridData.FILL, GridData.BEGINNING, true, false));
 
@@ -90,6 +114,27 @@ public class OverviewPage {
 		this.sigVersion.setText(String.format("%d", lead.getSignatureVersion()));
 	}
 
+	/**
+	 * Show the time and memory spent on each phase of loading the RPM file
+	 *
+	 * @param statistics
+	 *            the statistics, may be {@code null}
+	 */
+	public void setStatistics(final LoadStatistics statistics) {
+		for (final Control child : this.statistics.getChildren()) {
+			child.dispose();
+		}
+
+		if (statistics != null) {
+			for (final LoadStatistics.Phase phase : statistics.getPhases()) {
+				createField(this.statistics, phase.getName()).setText(phase.toString());
+			}
+		}
+
+		this.toolkit.paintBordersFor(this.statistics);
+		this.form.reflow(true);
+	}
+
 	private <T, E extends Enum<?>> String makeEnumFormat(final Function<T, Optional<E>> from,
 			final Supplier<T> supplier, final String format) {
 		return makeEnum(from, supplier, (v) -> String.format(format, v));
@@ -0,0 +1,266 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.tukaani.xz.SeekableInputStream;
+import org.tukaani.xz.SeekableXZInputStream;
+
+/**
+ * Decompress an xz stream consisting of multiple blocks in parallel
+ * <p>
+ * Multi-threaded xz encoders split the data into blocks which are compressed
+ * independently. Using the index at the end of the stream, each thread
+ * decodes whole blocks, while the blocks are handed out in their original
+ * order. The number of blocks decoded ahead is limited by the number of
+ * threads.
+ * </p>
+ */
+public class ParallelXZInputStream extends InputStream {
+
+	private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+	/**
+	 * Open an independent stream of the compressed data
+	 */
+	@FunctionalInterface
+	public interface Source {
+		public SeekableInputStream open() throws IOException;
+	}
+
+	private final Source source;
+
+	private final IProgressMonitor monitor;
+
+	private final int blockCount;
+
+	private final long[] compressedSizes;
+
+	private final Queue<SeekableXZInputStream> decoders = new ConcurrentLinkedQueue<>();
+
+	private final ExecutorService executor;
+
+	private final Queue<Future<byte[]>> pending = new ArrayDeque<>();
+
+	private int nextBlock;
+
+	private int handedOut;
+
+	private byte[] current;
+
+	private int position;
+
+	private long consumed;
+
+	private long reported;
+
+	/**
+	 * Create a new stream
+	 *
+	 * @param source
+	 *            the source of the compressed data, opened once for every
+	 *            thread
+	 * @param decoder
+	 *            a decoder of the source, providing the block index
+	 * @param threads
+	 *            the number of threads to use
+	 * @param monitor
+	 *            the monitor to report the consumed compressed data to, in
+	 *            kilobytes, may be {@code null}
+	 */
+	public ParallelXZInputStream(final Source source, final SeekableXZInputStream decoder, final int threads,
+			final IProgressMonitor monitor) {
+		this.source = source;
+		this.monitor = monitor;
+		this.blockCount = decoder.getBlockCount();
+
+		this.compressedSizes = new long[this.blockCount];
+		for (int i = 0; i < this.blockCount; i++) {
+			this.compressedSizes[i] = decoder.getBlockCompSize(i);
+		}
+
+		this.decoders.add(decoder);
+
+		this.executor = Executors.newFixedThreadPool(threads, r -> {
+			final Thread thread = new Thread(r, "RPM xz decoder " + THREAD_COUNTER.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		for (int i = 0; i < threads * 2; i++) {
+			submit();
+		}
+	}
+
+	/**
+	 * Get the number of threads worth using for a stream
+	 *
+	 * @param decoder
+	 *            the decoder of the stream
+	 * @return the number of threads, less than two if the stream should be
+	 *         decoded sequentially
+	 */
+	public static int getThreads(final SeekableXZInputStream decoder) {
+		final int processors = Runtime.getRuntime().availableProcessors();
+		final int blocks = decoder.getBlockCount();
+		if (processors < 2 || blocks < 2) {
+			return 1;
+		}
+
+		// each thread holds two decoded blocks, use no more than a quarter of the heap
+		final long largest = Math.max(1, decoder.getLargestBlockSize());
+		if (largest > Integer.MAX_VALUE - 8) {
+			return 1;
+		}
+		final long budget = Runtime.getRuntime().maxMemory() / 4;
+
+		return (int) Math.min(Math.min(processors, blocks), budget / (2 * largest));
+	}
+
+	private void submit() {
+		if (this.nextBlock >= this.blockCount) {
+			return;
+		}
+		final int block = this.nextBlock++;
+		this.pending.add(this.executor.submit(() -> decode(block)));
+	}
+
+	private byte[] decode(final int block) throws IOException {
+		SeekableXZInputStream decoder = this.decoders.poll();
+		if (decoder == null) {
+			decoder = new SeekableXZInputStream(this.source.open());
+		}
+
+		try {
+			decoder.seekToBlock(block);
+			final byte[] result = new byte[(int) decoder.getBlockSize(block)];
+			int off = 0;
+			while (off < result.length) {
+				final int rc = decoder.read(result, off, result.length - off);
+				if (rc < 0) {
+					throw new EOFException(String.format("Unexpected end of xz block %s", block));
+				}
+				off += rc;
+			}
+			this.decoders.add(decoder);
+			return result;
+		} catch (final IOException | RuntimeException e) {
+			decoder.close();
+			throw e;
+		}
+	}
+
+	private boolean fill() throws IOException {
+		while (this.current == null || this.position >= this.current.length) {
+			final Future<byte[]> next = this.pending.poll();
+			if (next == null) {
+				return false;
+			}
+
+			try {
+				this.current = next.get();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while decoding", e);
+			} catch (final ExecutionException e) {
+				if (e.getCause() instanceof IOException) {
+					throw new IOException(e.getCause().getMessage(), e.getCause());
+				}
+				throw new IOException("Failed to decode xz block", e.getCause());
+			}
+			this.position = 0;
+
+			progress(this.handedOut++);
+			submit();
+		}
+		return true;
+	}
+
+	private void progress(final int block) {
+		if (this.monitor == null) {
+			return;
+		}
+		if (this.monitor.isCanceled()) {
+			throw new OperationCanceledException();
+		}
+
+		this.consumed += this.compressedSizes[block];
+		final int worked = (int) ((this.consumed >> 10) - (this.reported >> 10));
+		if (worked > 0) {
+			this.monitor.worked(worked);
+		}
+		this.reported = this.consumed;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!fill()) {
+			return -1;
+		}
+		return this.current[this.position++] & 0xFF;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (!fill()) {
+			return -1;
+		}
+		final int result = Math.min(len, this.current.length - this.position);
+		System.arraycopy(this.current, this.position, b, off, result);
+		this.position += result;
+		return result;
+	}
+
+	@Override
+	public long skip(final long n) throws IOException {
+		if (n <= 0 || !fill()) {
+			return 0;
+		}
+		final int result = (int) Math.min(n, this.current.length - this.position);
+		this.position += result;
+		return result;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return this.current != null ? this.current.length - this.position : 0;
+	}
+
+	@Override
+	public void close() throws IOException {
+		for (final Future<byte[]> future : this.pending) {
+			future.cancel(true);
+		}
+		this.pending.clear();
+		this.executor.shutdownNow();
+
+		SeekableXZInputStream decoder;
+		while ((decoder = this.decoders.poll()) != null) {
+			decoder.close();
+		}
+	}
+}
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.lzma.LZMACompressorInputStream;
+import org.eclipse.packagedrone.utils.rpm.RpmTag;
+import org.eclipse.packagedrone.utils.rpm.parse.InputHeader;
+import org.tukaani.xz.XZInputStream;
+
+/**
+ * The compression of an RPM payload
+ * <p>
+ * Both sides of a decompressor get buffered. The CPIO reader consumes the
+ * payload in pieces of a few bytes, which would otherwise each go through the
+ * decompressor, and most decompressors read their input in small pieces as
+ * well.
+ * </p>
+ */
+public enum PayloadCodec {
+	GZIP("gzip") {
+		@Override
+		protected InputStream decode(final InputStream in) throws IOException {
+			return new GZIPInputStream(in, BUFFER_SIZE);
+		}
+	},
+	BZIP2("bzip2") {
+		@Override
+		protected InputStream decode(final InputStream in) throws IOException {
+			return new BZip2CompressorInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+		}
+	},
+	LZMA("lzma") {
+		@Override
+		protected InputStream decode(final InputStream in) throws IOException {
+			return new LZMACompressorInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+		}
+	},
+	XZ("xz") {
+		@Override
+		protected InputStream decode(final InputStream in) throws IOException {
+			return new XZInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+		}
+	},
+	ZSTD("zstd") {
+		@Override
+		protected InputStream decode(final InputStream in) throws IOException {
+			return new ZstdInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+		}
+	};
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final String name;
+
+	private PayloadCodec(final String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Get the name of the codec, as used in the RPM header
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * Get the codec of a payload
+	 *
+	 * @param header
+	 *            the main header, declaring the payload compressor
+	 * @return the codec, gzip if the header does not declare one
+	 * @throws IOException
+	 *             if the compression is not supported
+	 */
+	public static PayloadCodec fromHeader(final InputHeader<RpmTag> header) throws IOException {
+		final Object coding = header.getTag(RpmTag.PAYLOAD_CODING);
+		if (coding == null) {
+			return GZIP;
+		}
+
+		for (final PayloadCodec codec : values()) {
+			if (codec.name.equals(coding.toString())) {
+				return codec;
+			}
+		}
+
+		throw new IOException(String.format("Unsupported payload compression: %s", coding));
+	}
+
+	/**
+	 * Set up the decompression
+	 *
+	 * @param in
+	 *            the compressed data
+	 * @return the decompressed data, buffered
+	 * @throws IOException
+	 *             if the data cannot be decompressed
+	 */
+	public InputStream open(final InputStream in) throws IOException {
+		return new BufferedInputStream(decode(in), BUFFER_SIZE);
+	}
+
+	protected abstract InputStream decode(InputStream in) throws IOException;
+}
@@ -0,0 +1,474 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.compress.archivers.cpio.CpioArchiveEntry;
+import org.apache.commons.compress.archivers.cpio.CpioArchiveInputStream;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+/**
+ * Extract a selection of payload files in a single pass over the payload
+ * <p>
+ * Each selected path is extracted into the target directory, relative to
+ * its parent directory. Selected directories are extracted with their full
+ * content. File modes, modification timestamps and symbolic link targets are
+ * taken from the header, falling back to the CPIO entry. Hard links are
+ * re-created as hard links, if the file system supports this.
+ * </p>
+ * <p>
+ * File content is transferred from the CPIO stream to a file channel of the
+ * target file. A single channel reads from the CPIO stream for the whole
+ * extraction, so there is no buffer allocated for each file. Modes which
+ * cannot be represented by the target file system are ignored.
+ * </p>
+ * <p>
+ * Directories get their mode and timestamp at the end, after their content
+ * was written. Until then, they are writable by the owner, so that the
+ * content of read-only directories can be extracted, also into the result of
+ * an earlier extraction.
+ * </p>
+ * <p>
+ * Symbolic links are created as they are, but nothing gets written below or
+ * through a symbolic link, so that a payload cannot use its own links to
+ * write outside of the target directory.
+ * </p>
+ */
+public class PayloadExtractor {
+
+	/**
+	 * The interval of updating the throughput, in nanoseconds
+	 */
+	private static final long REPORT_INTERVAL = TimeUnit.MILLISECONDS.toNanos(500);
+
+	private static final PosixFilePermission[] PERMISSIONS = { PosixFilePermission.OTHERS_EXECUTE,
+			PosixFilePermission.OTHERS_WRITE, PosixFilePermission.OTHERS_READ, PosixFilePermission.GROUP_EXECUTE,
+			PosixFilePermission.GROUP_WRITE, PosixFilePermission.GROUP_READ, PosixFilePermission.OWNER_EXECUTE,
+			PosixFilePermission.OWNER_WRITE, PosixFilePermission.OWNER_READ };
+
+	/**
+	 * The outcome of an extraction
+	 */
+	public static class Result {
+
+		private int files;
+
+		private long bytes;
+
+		private final List<String> failures = new ArrayList<>();
+
+		/**
+		 * Get the number of extracted entries, including directories and
+		 * links
+		 */
+		public int getFiles() {
+			return this.files;
+		}
+
+		/**
+		 * Get the number of extracted bytes
+		 */
+		public long getBytes() {
+			return this.bytes;
+		}
+
+		/**
+		 * Get the entries which could not be extracted, with the reason
+		 */
+		public List<String> getFailures() {
+			return this.failures;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s files, %s bytes, %s failures", this.files, this.bytes, this.failures.size());
+		}
+	}
+
+	private final FileTable table;
+
+	private final Path target;
+
+	/**
+	 * The target directory, with all symbolic links resolved
+	 */
+	private final Path realTarget;
+
+	private final IProgressMonitor monitor;
+
+	/**
+	 * The selected paths, mapped to the start of the path relative to the
+	 * target directory
+	 */
+	private final Map<String, Integer> selection;
+
+	private final boolean filesOnly;
+
+	private final Result result = new Result();
+
+	/**
+	 * Hard linked files, by inode, waiting for the entry carrying the content
+	 */
+	private final Map<Long, List<Path>> hardLinks = new HashMap<>();
+
+	/**
+	 * Directories get their timestamp set at the end, after their content
+	 * was written
+	 */
+	private final Map<Path, Long> directoryTimes = new HashMap<>();
+
+	/**
+	 * Directories get their mode set at the end, after their content was
+	 * written
+	 */
+	private final Map<Path, Integer> directoryModes = new HashMap<>();
+
+	/**
+	 * The content of the current entry of the CPIO stream
+	 */
+	private ReadableByteChannel content;
+
+	private final long start = System.nanoTime();
+
+	private long lastReport;
+
+	private PayloadExtractor(final FileTable table, final Map<String, Integer> selection, final boolean filesOnly,
+			final Path target, final IProgressMonitor monitor) throws IOException {
+		this.table = table;
+		this.selection = selection;
+		this.filesOnly = filesOnly;
+		this.target = target.toAbsolutePath().normalize();
+		this.realTarget = this.target.toRealPath();
+		this.monitor = monitor;
+	}
+
+	/**
+	 * Extract the selected nodes
+	 *
+	 * @param information
+	 *            the information of the RPM file
+	 * @param nodes
+	 *            the selected nodes of the file tree
+	 * @param payload
+	 *            the raw payload, gets closed
+	 * @param target
+	 *            the target directory, gets created if necessary
+	 * @param monitor
+	 *            the monitor for reporting the throughput and checking for
+	 *            cancellation
+	 * @return the result
+	 * @throws IOException
+	 *             if reading the payload or creating the target directory
+	 *             fails. Failing to write a single file is reported in the
+	 *             result.
+	 */
+	public static Result extract(final RpmInformation information, final List<? extends FileTree.Node> nodes,
+			final InputStream payload, final Path target, final IProgressMonitor monitor) throws IOException {
+
+		final Map<String, Integer> selection = new HashMap<>(nodes.size() * 4 / 3 + 1);
+		boolean filesOnly = true;
+		for (final FileTree.Node node : nodes) {
+			final String parent = node.getParent() != null ? node.getParent().getFullName() : "";
+			selection.put(node.getFullName(), parent.length() + 1);
+			filesOnly &= !(node instanceof FileTree.Directory);
+		}
+
+		if (!Files.isDirectory(target)) {
+			// a link to a directory is fine, which createDirectories would reject
+			Files.createDirectories(target);
+		}
+
+		final PayloadExtractor extractor = new PayloadExtractor(information.getFileTable(), selection, filesOnly,
+				target, monitor);
+
+		try (CpioArchiveInputStream cpio = Payloads.openCpio(information.getHeader(), payload)) {
+			extractor.run(cpio);
+		}
+
+		return extractor.result;
+	}
+
+	private void run(final CpioArchiveInputStream cpio) throws IOException {
+		// not closed, this would close the CPIO stream
+		this.content = Channels.newChannel(cpio);
+
+		int remaining = this.selection.size();
+
+		CpioArchiveEntry entry;
+		while ((entry = cpio.getNextCPIOEntry()) != null) {
+			if (this.monitor.isCanceled()) {
+				throw new OperationCanceledException();
+			}
+
+			final String path = Payloads.toPath(entry.getName());
+			final Path file = resolve(path);
+
+			try {
+				if (file != null) {
+					remaining--;
+					extract(cpio, entry, path, file);
+					this.result.files++;
+				} else if (entry.getNumberOfLinks() > 1 && entry.getSize() > 0 && !this.hardLinks.isEmpty()) {
+					// selected hard links may get their content from an entry which is not selected
+					final List<Path> links = this.hardLinks.remove(entry.getInode());
+					if (links != null) {
+						final Path first = links.remove(0);
+						writeContent(first, (int) entry.getMode(), entry.getTime());
+						createLinks(links, first);
+					}
+				}
+			} catch (final IOException | UnsupportedOperationException e) {
+				this.result.failures.add(String.format("%s: %s", path, e.getMessage()));
+			}
+
+			report(false);
+
+			if (this.filesOnly && remaining <= 0 && this.hardLinks.isEmpty()) {
+				// found all selected files, skip the rest of the payload
+				break;
+			}
+		}
+
+		for (final List<Path> links : this.hardLinks.values()) {
+			for (final Path link : links) {
+				this.result.failures.add(String.format("%s: Content of hard link is missing", link));
+			}
+		}
+
+		for (final Map.Entry<Path, Long> dir : this.directoryTimes.entrySet()) {
+			try {
+				setTime(dir.getKey(), dir.getValue());
+				setMode(dir.getKey(), this.directoryModes.get(dir.getKey()));
+			} catch (final IOException e) {
+				this.result.failures.add(String.format("%s: %s", dir.getKey(), e.getMessage()));
+			}
+		}
+
+		report(true);
+	}
+
+	/**
+	 * Get the target file of a payload path
+	 *
+	 * @return the target file, or {@code null} if the path is not selected
+	 */
+	private Path resolve(final String path) {
+		String current = path;
+		while (!current.isEmpty()) {
+			final Integer base = this.selection.get(current);
+			if (base != null) {
+				if (base > path.length()) {
+					return null;
+				}
+				final Path result = this.target.resolve(path.substring(base)).normalize();
+				// don't allow entries to escape the target directory
+				return result.startsWith(this.target) && !result.equals(this.target) ? result : null;
+			}
+			current = current.substring(0, current.lastIndexOf('/'));
+		}
+		return null;
+	}
+
+	private void extract(final CpioArchiveInputStream cpio, final CpioArchiveEntry entry, final String path,
+			final Path file) throws IOException {
+
+		final int index = this.table.indexOf(path);
+
+		final int mode = index >= 0 && this.table.getMode(index) >= 0 ? this.table.getMode(index)
+				: (int) entry.getMode();
+		final long mtime = index >= 0 && this.table.getMtime(index) >= 0 ? this.table.getMtime(index)
+				: entry.getTime();
+
+		checkParent(file);
+		if (!Files.isDirectory(file.getParent())) {
+			Files.createDirectories(file.getParent());
+		}
+		checkParent(file);
+
+		switch (mode & 0xF000) {
+		case 0x4000:
+			if (!Files.isDirectory(file, LinkOption.NOFOLLOW_LINKS)) {
+				Files.createDirectory(file);
+			}
+			// keep it writable until its content is extracted
+			setMode(file, mode | 0700);
+			this.directoryModes.put(file, mode);
+			this.directoryTimes.put(file, mtime);
+			return;
+
+		case 0xA000:
+			final String linkTo = index >= 0 && this.table.getLinkTo(index) != null
+					&& !this.table.getLinkTo(index).isEmpty() ? this.table.getLinkTo(index) : readLinkTo(cpio, entry);
+			Files.deleteIfExists(file);
+			Files.createSymbolicLink(file, Paths.get(linkTo));
+			return;
+
+		case 0x8000:
+			if (entry.getNumberOfLinks() > 1 && entry.getSize() == 0
+					&& (index < 0 || this.table.getSize(index) != 0)) {
+				// content follows with the last link
+				this.hardLinks.computeIfAbsent(entry.getInode(), k -> new ArrayList<>()).add(file);
+				return;
+			}
+
+			writeContent(file, mode, mtime);
+
+			if (entry.getNumberOfLinks() > 1) {
+				final List<Path> links = this.hardLinks.remove(entry.getInode());
+				if (links != null) {
+					createLinks(links, file);
+				}
+			}
+			return;
+
+		default:
+			throw new IOException(String.format("Unsupported file type: %06o", mode));
+		}
+	}
+
+	/**
+	 * Write the content of the current CPIO entry to a file
+	 */
+	private void writeContent(final Path file, final int mode, final long mtime) throws IOException {
+		checkParent(file);
+		Files.deleteIfExists(file);
+
+		try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE,
+				LinkOption.NOFOLLOW_LINKS)) {
+			long position = 0;
+			long rc;
+			while ((rc = out.transferFrom(this.content, position, Long.MAX_VALUE)) > 0) {
+				position += rc;
+			}
+			this.result.bytes += position;
+		}
+
+		setMode(file, mode);
+		setTime(file, mtime);
+	}
+
+	/**
+	 * Check that the parent of a target file is located inside the target
+	 * directory, without following any symbolic link
+	 * <p>
+	 * Links created from the payload may point anywhere, writing below them
+	 * would escape the target directory.
+	 * </p>
+	 *
+	 * @throws IOException
+	 *             if the parent is a symbolic link, or located below one
+	 */
+	private void checkParent(final Path file) throws IOException {
+		final Path parent = file.getParent();
+
+		// only check below the target, which itself may be a symbolic link
+		Path current = this.target;
+		for (final Path name : parent.equals(this.target) ? Collections.<Path> emptyList()
+				: this.target.relativize(parent)) {
+			current = current.resolve(name);
+			if (Files.isSymbolicLink(current)) {
+				throw new IOException(String.format("Refusing to write below the symbolic link %s", current));
+			}
+		}
+
+		if (Files.exists(parent, LinkOption.NOFOLLOW_LINKS) && !parent.toRealPath().startsWith(this.realTarget)) {
+			throw new IOException(String.format("Refusing to write outside of %s", this.target));
+		}
+	}
+
+	/**
+	 * Read the target of a symbolic link from the content of the entry
+	 */
+	private static String readLinkTo(final InputStream in, final CpioArchiveEntry entry) throws IOException {
+		final byte[] data = new byte[(int) entry.getSize()];
+		int len = 0;
+		while (len < data.length) {
+			final int rc = in.read(data, len, data.length - len);
+			if (rc < 0) {
+				break;
+			}
+			len += rc;
+		}
+		return new String(data, 0, len, "UTF-8");
+	}
+
+	private void createLinks(final List<Path> links, final Path existing) throws IOException {
+		for (final Path link : links) {
+			checkParent(link);
+			Files.deleteIfExists(link);
+			try {
+				Files.createLink(link, existing);
+			} catch (final UnsupportedOperationException | IOException e) {
+				// no hard links on this file system
+				Files.copy(existing, link, StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+			}
+		}
+	}
+
+	private static void setMode(final Path file, final int mode) throws IOException {
+		final Set<PosixFilePermission> permissions = EnumSet.noneOf(PosixFilePermission.class);
+		for (int i = 0; i < PERMISSIONS.length; i++) {
+			if ((mode & 1 << i) != 0) {
+				permissions.add(PERMISSIONS[i]);
+			}
+		}
+
+		final PosixFileAttributeView view = Files.getFileAttributeView(file, PosixFileAttributeView.class,
+				LinkOption.NOFOLLOW_LINKS);
+		if (view != null) {
+			view.setPermissions(permissions);
+		}
+		// otherwise not a POSIX file system
+	}
+
+	private static void setTime(final Path file, final long mtime) throws IOException {
+		if (mtime >= 0) {
+			Files.getFileAttributeView(file, BasicFileAttributeView.class,
+					LinkOption.NOFOLLOW_LINKS).setTimes(FileTime.from(mtime, TimeUnit.SECONDS), null, null);
+		}
+	}
+
+	private void report(final boolean force) {
+		final long now = System.nanoTime();
+		if (!force && now - this.lastReport < REPORT_INTERVAL) {
+			return;
+		}
+		this.lastReport = now;
+
+		final double seconds = Math.max(1, now - this.start) / 1e9;
+		this.monitor.subTask(String.format("%,d files, %,.1f MiB (%,.1f MiB/s)", this.result.files,
+				this.result.bytes / 1048576.0, this.result.bytes / 1048576.0 / seconds));
+	}
+}
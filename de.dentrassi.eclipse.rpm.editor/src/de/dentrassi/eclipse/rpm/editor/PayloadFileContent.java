@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Random access to the content of a single payload file
+ * <p>
+ * The content is read in pages of {@value #PAGE_SIZE} bytes, of which the
+ * most recently used ones are kept. The decompressed stream of the previous
+ * read is kept open, so reading forward only needs to decompress the data in
+ * between. Going back requires opening the entry again, which is cheap for
+ * seekable payloads, but requires decompressing from the start otherwise.
+ * </p>
+ */
+public class PayloadFileContent implements AutoCloseable {
+
+	public static final int PAGE_SIZE = 64 * 1024;
+
+	private static final int MAX_PAGES = 64;
+
+	private final RpmSource source;
+
+	private final RpmInformation information;
+
+	private final PayloadIndex index;
+
+	private final int entry;
+
+	private final long size;
+
+	private final boolean seekable;
+
+	private final Map<Long, byte[]> pages = new LinkedHashMap<Long, byte[]>(MAX_PAGES, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<Long, byte[]> eldest) {
+			return size() > MAX_PAGES;
+		}
+	};
+
+	private InputStream stream;
+
+	private long streamPosition;
+
+	private boolean closed;
+
+	public PayloadFileContent(final RpmSource source, final RpmInformation information, final PayloadIndex index,
+			final int entry) {
+		this.source = source;
+		this.information = information;
+		this.index = index;
+		this.entry = entry;
+		this.size = index.getSize(entry);
+		this.seekable = Payloads.isSeekable(source, information);
+	}
+
+	public long getSize() {
+		return this.size;
+	}
+
+	/**
+	 * Open a new stream on the full content
+	 * <p>
+	 * The stream is independent of this instance and must be closed by the
+	 * caller. Files fitting into a single page are served from that page.
+	 * </p>
+	 */
+	public InputStream open() throws IOException {
+		if (this.size <= PAGE_SIZE) {
+			return new ByteArrayInputStream(getPage(0));
+		}
+		return Payloads.openEntry(this.source, this.information, this.index, this.entry);
+	}
+
+	/**
+	 * Get a page of the content
+	 *
+	 * @param page
+	 *            the number of the page
+	 * @return the data of the page, which is only shorter than
+	 *         {@link #PAGE_SIZE} for the last page. The data must not be
+	 *         modified.
+	 * @throws IOException
+	 *             if reading fails
+	 */
+	public synchronized byte[] getPage(final long page) throws IOException {
+		if (this.closed) {
+			// the viewer may read rows in the background while being closed
+			throw new IOException("Payload file is closed");
+		}
+
+		final byte[] cached = this.pages.get(page);
+		if (cached != null) {
+			return cached;
+		}
+
+		final long position = page * PAGE_SIZE;
+		if (position >= this.size) {
+			return new byte[0];
+		}
+
+		final byte[] data = new byte[(int) Math.min(PAGE_SIZE, this.size - position)];
+		readFully(position, data);
+		this.pages.put(page, data);
+		return data;
+	}
+
+	private void readFully(final long position, final byte[] data) throws IOException {
+		if (this.stream == null || position < this.streamPosition
+				|| this.seekable && position != this.streamPosition) {
+			closeStream();
+			this.stream = Payloads.openEntry(this.source, this.information, this.index, this.entry, position);
+			this.streamPosition = position;
+		}
+
+		while (this.streamPosition < position) {
+			final long skipped = this.stream.skip(position - this.streamPosition);
+			if (skipped <= 0) {
+				if (this.stream.read() < 0) {
+					throw new IOException("Unexpected end of payload file");
+				}
+				this.streamPosition++;
+			} else {
+				this.streamPosition += skipped;
+			}
+		}
+
+		int len = 0;
+		while (len < data.length) {
+			final int rc = this.stream.read(data, len, data.length - len);
+			if (rc < 0) {
+				throw new IOException("Unexpected end of payload file");
+			}
+			len += rc;
+		}
+		this.streamPosition += len;
+	}
+
+	private void closeStream() throws IOException {
+		if (this.stream != null) {
+			this.stream.close();
+			this.stream = null;
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		this.closed = true;
+		closeStream();
+		this.pages.clear();
+	}
+}
@@ -0,0 +1,415 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.io.IOException;
+import java.text.NumberFormat;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.dialogs.Dialog;
+import org.eclipse.jface.dialogs.IDialogConstants;
+import org.eclipse.jface.dialogs.IDialogSettings;
+import org.eclipse.jface.resource.JFaceResources;
+import org.eclipse.jface.window.IShellProvider;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.swt.widgets.TableItem;
+
+import de.dentrassi.eclipse.rpm.editor.FileTree.File;
+
+/**
+ * A read-only viewer for a single payload file
+ * <p>
+ * The file is shown in a virtual table, so that only the visible rows get
+ * created. The rows are read on demand, see {@link PayloadFileRows}. Text
+ * files can be switched to a hex view, binary files are always shown as hex.
+ * </p>
+ * <p>
+ * Reading a row may require decompressing large parts of the payload, so rows
+ * are read by a job. Until a row arrives, its item shows a placeholder, and
+ * gets cleared afterwards, so that the table asks for it again.
+ * </p>
+ */
+public class PayloadFileDialog extends Dialog {
+
+	private static final String PLACEHOLDER = "…";
+
+	/**
+	 * The maximum number of requested rows, older requests most likely
+	 * scrolled out of view already
+	 */
+	private static final int MAX_REQUESTS = 256;
+
+	private static final int MAX_ROWS = 4096;
+
+	private final RpmSource source;
+
+	private final RpmInformation information;
+
+	private final File file;
+
+	private final NumberFormat numberFormat = NumberFormat.getIntegerInstance();
+
+	private PayloadFileJob job;
+
+	private Display display;
+
+	private Label label;
+
+	private Button hexButton;
+
+	private Table table;
+
+	private TableColumn column;
+
+	private int charWidth;
+
+	private int maxChars;
+
+	private PayloadFileContent content;
+
+	private PayloadFileRows.Text text;
+
+	private PayloadFileRows rows;
+
+	private boolean complete;
+
+	private final Map<Integer, String> loadedRows = new LinkedHashMap<Integer, String>(16, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<Integer, String> eldest) {
+			return size() > MAX_ROWS;
+		}
+	};
+
+	private final RowJob rowJob = new RowJob();
+
+	public PayloadFileDialog(final IShellProvider parentShell, final RpmSource source,
+			final RpmInformation information, final File file) {
+		super(parentShell);
+		this.source = source;
+		this.information = information;
+		this.file = file;
+
+		setShellStyle(getShellStyle() & ~SWT.APPLICATION_MODAL | SWT.MODELESS);
+		setBlockOnOpen(false);
+	}
+
+	@Override
+	protected IDialogSettings getDialogBoundsSettings() {
+		IDialogSettings settings = Activator.getDefault().getDialogSettings().getSection("payloadFileDialog");
+		if (settings == null) {
+			settings = Activator.getDefault().getDialogSettings().addNewSection("payloadFileDialog");
+		}
+		return settings;
+	}
+
+	@Override
+	protected void createButtonsForButtonBar(final Composite parent) {
+		createButton(parent, IDialogConstants.CLOSE_ID, IDialogConstants.CLOSE_LABEL, true);
+	}
+
+	@Override
+	protected void buttonPressed(final int buttonId) {
+		if (buttonId == IDialogConstants.CLOSE_ID) {
+			close();
+		} else {
+			super.buttonPressed(buttonId);
+		}
+	}
+
+	@Override
+	protected Control createDialogArea(final Composite parent) {
+		parent.getShell().setText(this.file.getFullName());
+		this.display = parent.getDisplay();
+		final Composite wrapper = (Composite) super.createDialogArea(parent);
+
+		final Composite header = new Composite(wrapper, SWT.NONE);
+		header.setLayout(new GridLayout(2, false));
+		header.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+
+		this.label = new Label(header, SWT.NONE);
+		this.label.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+		this.label.setText("Loading…");
+
+		this.hexButton = new Button(header, SWT.CHECK);
+		this.hexButton.setText("Hex");
+		this.hexButton.setEnabled(false);
+		this.hexButton.addSelectionListener(new SelectionAdapter() {
+
+			@Override
+			public void widgetSelected(final SelectionEvent e) {
+				showRows();
+			}
+		});
+
+		this.table = new Table(wrapper,
+				SWT.VIRTUAL | SWT.BORDER | SWT.MULTI | SWT.FULL_SELECTION | SWT.V_SCROLL | SWT.H_SCROLL);
+		this.table.setFont(JFaceResources.getTextFont());
+		this.column = new TableColumn(this.table, SWT.NONE);
+		this.table.addListener(SWT.SetData, this::setData);
+
+		final GC gc = new GC(this.table);
+		try {
+			// the text font is monospaced, so all characters have this width
+			this.charWidth = gc.stringExtent("0").x; //$NON-NLS-1$
+		} finally {
+			gc.dispose();
+		}
+
+		final GridData gd = new GridData(SWT.FILL, SWT.FILL, true, true);
+		gd.widthHint = this.charWidth * 100;
+		gd.heightHint = this.table.getItemHeight() * 30;
+		this.table.setLayoutData(gd);
+
+		load(this.display);
+
+		return wrapper;
+	}
+
+	@Override
+	protected boolean isResizable() {
+		return true;
+	}
+
+	private void load(final Display display) {
+		this.job = new PayloadFileJob(this.source, this.information, this.file.getFullName()) {
+
+			@Override
+			protected void opened(final PayloadFileContent content, final PayloadFileRows.Text text) {
+				display.asyncExec(() -> {
+					if (PayloadFileDialog.this.table.isDisposed()) {
+						closeContent(content);
+					} else {
+						setContent(content, text);
+					}
+				});
+			}
+
+			@Override
+			protected void rowsFound(final boolean complete) {
+				display.asyncExec(() -> {
+					if (!PayloadFileDialog.this.table.isDisposed()) {
+						PayloadFileDialog.this.complete = complete;
+						updateRowCount();
+					}
+				});
+			}
+
+			@Override
+			protected void failed(final Exception e) {
+				display.asyncExec(() -> {
+					if (!PayloadFileDialog.this.label.isDisposed()) {
+						PayloadFileDialog.this.label.setText(String.format("Failed to open file: %s", e.getMessage()));
+					}
+				});
+			}
+		};
+		this.job.schedule();
+	}
+
+	private void setContent(final PayloadFileContent content, final PayloadFileRows.Text text) {
+		this.content = content;
+		this.text = text;
+
+		this.hexButton.setEnabled(text != null);
+		this.hexButton.setSelection(text == null);
+
+		showRows();
+	}
+
+	private void showRows() {
+		this.rows = this.hexButton.getSelection() ? new PayloadFileRows.Hex(this.content) : this.text;
+
+		this.maxChars = 0;
+		this.column.setWidth(this.charWidth * 80);
+		this.loadedRows.clear();
+		this.rowJob.clear();
+		this.table.clearAll();
+		this.table.setItemCount(this.rows.getRowCount());
+		this.table.setTopIndex(0);
+
+		updateLabel();
+	}
+
+	private void updateRowCount() {
+		if (this.rows == this.text && this.text != null) {
+			this.table.setItemCount(this.text.getRowCount());
+		}
+		updateLabel();
+	}
+
+	private void updateLabel() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%s bytes", this.numberFormat.format(this.content.getSize())));
+		if (this.text == null) {
+			sb.append(", binary");
+		} else {
+			sb.append(String.format(", %s, %s lines", this.text.getCharset().name(),
+					this.numberFormat.format(this.text.getRowCount())));
+			if (!this.complete) {
+				sb.append(" so far");
+			}
+		}
+		this.label.setText(sb.toString());
+	}
+
+	private void setData(final Event event) {
+		final TableItem item = (TableItem) event.item;
+		final int index = this.table.indexOf(item);
+
+		final String value = this.loadedRows.get(index);
+		if (value == null) {
+			item.setText(PLACEHOLDER);
+			this.rowJob.request(this.rows, index);
+			return;
+		}
+		item.setText(value);
+
+		// the single column grows with the longest row seen so far
+		if (value.length() > this.maxChars) {
+			this.maxChars = value.length();
+			this.column.setWidth(Math.max(this.column.getWidth(), (this.maxChars + 2) * this.charWidth));
+		}
+	}
+
+	private void rowLoaded(final PayloadFileRows rows, final int index, final String value) {
+		if (this.table.isDisposed() || rows != this.rows) {
+			return;
+		}
+		this.loadedRows.put(index, value);
+		if (index < this.table.getItemCount()) {
+			// makes the table ask for the row again
+			this.table.clear(index);
+		}
+	}
+
+	@Override
+	public boolean close() {
+		if (this.job != null) {
+			this.job.cancel();
+			this.job = null;
+		}
+		this.rowJob.clear();
+		this.rowJob.cancel();
+		closeContent(this.content);
+		this.content = null;
+		return super.close();
+	}
+
+	private static void closeContent(final PayloadFileContent content) {
+		if (content == null) {
+			return;
+		}
+		try {
+			content.close();
+		} catch (final IOException e) {
+			Activator.getDefault().getLog()
+					.log(new Status(IStatus.WARNING, Activator.PLUGIN_ID, "Failed to close payload file", e));
+		}
+	}
+
+	/**
+	 * Read the requested rows, most recent request first
+	 */
+	private class RowJob extends Job {
+
+		private final Deque<Integer> requests = new ArrayDeque<>();
+
+		private PayloadFileRows rows;
+
+		public RowJob() {
+			super("Reading payload file");
+			setSystem(true);
+		}
+
+		public synchronized void request(final PayloadFileRows rows, final int index) {
+			if (rows != this.rows) {
+				this.requests.clear();
+				this.rows = rows;
+			}
+			if (this.requests.contains(index)) {
+				return;
+			}
+			this.requests.push(index);
+			if (this.requests.size() > MAX_REQUESTS) {
+				this.requests.removeLast();
+			}
+			schedule();
+		}
+
+		public synchronized void clear() {
+			this.requests.clear();
+			this.rows = null;
+		}
+
+		@Override
+		public boolean belongsTo(final Object family) {
+			return family == PayloadFileDialog.this.source;
+		}
+
+		@Override
+		protected IStatus run(final IProgressMonitor monitor) {
+			final Display display = PayloadFileDialog.this.display;
+
+			while (!monitor.isCanceled()) {
+				final PayloadFileRows rows;
+				final int index;
+				synchronized (this) {
+					if (this.requests.isEmpty()) {
+						break;
+					}
+					rows = this.rows;
+					index = this.requests.pop();
+				}
+
+				String value;
+				try {
+					value = rows.getRow(index);
+				} catch (final IOException e) {
+					if (monitor.isCanceled()) {
+						// closed while reading
+						break;
+					}
+					Activator.getDefault().getLog()
+							.log(new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Failed to read payload file", e));
+					value = "";
+				}
+
+				final String row = value;
+				display.asyncExec(() -> rowLoaded(rows, index, row));
+			}
+
+			return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+		}
+	}
+}
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * Open a payload file for viewing, in the background
+ * <p>
+ * The content is handed over to {@link #opened} as soon as the first page is
+ * available. For text files the job then goes on finding the rows, reporting
+ * them using {@link #rowsFound(boolean)}. All methods are called from the
+ * job's thread.
+ * </p>
+ */
+public abstract class PayloadFileJob extends Job {
+
+	private final RpmSource source;
+
+	private final RpmInformation information;
+
+	private final String path;
+
+	/**
+	 * Create a new job
+	 *
+	 * @param source
+	 *            the source of the RPM data
+	 * @param information
+	 *            the information of the RPM file
+	 * @param path
+	 *            the absolute path of the file in the payload
+	 */
+	public PayloadFileJob(final RpmSource source, final RpmInformation information, final String path) {
+		super(String.format("Opening %s", path));
+		this.source = source;
+		this.information = information;
+		this.path = path;
+	}
+
+	/**
+	 * Called when the file was opened
+	 *
+	 * @param content
+	 *            the content, which is owned by the callee from now on
+	 * @param text
+	 *            the text rows, or {@code null} if the file seems to be
+	 *            binary
+	 */
+	protected abstract void opened(PayloadFileContent content, PayloadFileRows.Text text);
+
+	/**
+	 * Called when more text rows were found
+	 *
+	 * @param complete
+	 *            whether all rows were found
+	 */
+	protected abstract void rowsFound(boolean complete);
+
+	protected abstract void failed(Exception e);
+
+	/**
+	 * Jobs belong to the family of their source, so that they can be canceled
+	 * when the source gets closed
+	 */
+	@Override
+	public boolean belongsTo(final Object family) {
+		return family == this.source;
+	}
+
+	@Override
+	protected IStatus run(final IProgressMonitor monitor) {
+		monitor.beginTask(getName(), IProgressMonitor.UNKNOWN);
+
+		try {
+			final PayloadIndex index = PayloadIndex.obtain(this.source, this.information, monitor);
+
+			final int entry = index.indexOf(this.path);
+			if (entry < 0) {
+				throw new IOException(String.format("%s is not part of the payload", this.path));
+			}
+
+			final PayloadFileContent content = new PayloadFileContent(this.source, this.information, index, entry);
+			final PayloadFileRows.Text text;
+			try {
+				final byte[] page = content.getPage(0);
+				final byte[] head = Arrays.copyOf(page, Math.min(page.length, PayloadFileRows.DETECTION_SIZE));
+				final Charset charset = PayloadFileRows.detectCharset(head, content.getSize() <= head.length);
+				text = charset != null ? new PayloadFileRows.Text(content, charset) : null;
+			} catch (final IOException | RuntimeException e) {
+				content.close();
+				throw e;
+			}
+
+			opened(content, text);
+
+			if (text != null) {
+				monitor.subTask("Finding lines");
+				text.scan(monitor, () -> rowsFound(false));
+				rowsFound(true);
+			}
+
+			return Status.OK_STATUS;
+		} catch (final OperationCanceledException e) {
+			return Status.CANCEL_STATUS;
+		} catch (final Exception e) {
+			if (monitor.isCanceled()) {
+				return Status.CANCEL_STATUS;
+			}
+			failed(e);
+			return new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Failed to open file", e);
+		} finally {
+			monitor.done();
+		}
+	}
+
+}
@@ -0,0 +1,365 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+/**
+ * The rows of a payload file, as shown by the {@link PayloadFileDialog}
+ * <p>
+ * Rows are created on demand from the {@link PayloadFileContent}, so that
+ * the file never needs to be held in memory as a whole.
+ * </p>
+ */
+public abstract class PayloadFileRows {
+
+	/**
+	 * The number of bytes used for detecting the encoding
+	 */
+	public static final int DETECTION_SIZE = 8 * 1024;
+
+	protected final PayloadFileContent content;
+
+	protected PayloadFileRows(final PayloadFileContent content) {
+		this.content = content;
+	}
+
+	/**
+	 * Get the number of rows known so far
+	 */
+	public abstract int getRowCount();
+
+	/**
+	 * Get the text of a row
+	 *
+	 * @param row
+	 *            the row, must be less than {@link #getRowCount()}
+	 */
+	public abstract String getRow(int row) throws IOException;
+
+	/**
+	 * Detect the encoding of a text file
+	 * <p>
+	 * A byte order mark is used if present. Otherwise data containing
+	 * {@code NUL} bytes is considered binary. Text which is valid UTF-8 is
+	 * decoded as UTF-8, everything else as ISO-8859-1.
+	 * </p>
+	 *
+	 * @param head
+	 *            the first bytes of the file, up to {@link #DETECTION_SIZE}
+	 * @param complete
+	 *            whether the head contains the complete file
+	 * @return the encoding, or {@code null} if the data seems to be binary
+	 */
+	public static Charset detectCharset(final byte[] head, final boolean complete) {
+		if (head.length >= 3 && (head[0] & 0xFF) == 0xEF && (head[1] & 0xFF) == 0xBB && (head[2] & 0xFF) == 0xBF) {
+			return StandardCharsets.UTF_8;
+		}
+		if (head.length >= 2 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xFE) {
+			return StandardCharsets.UTF_16LE;
+		}
+		if (head.length >= 2 && (head[0] & 0xFF) == 0xFE && (head[1] & 0xFF) == 0xFF) {
+			return StandardCharsets.UTF_16BE;
+		}
+
+		for (final byte b : head) {
+			if (b == 0) {
+				return null;
+			}
+		}
+
+		// a multi byte sequence may be cut at the end of the head
+		final int length = complete ? head.length : Math.max(0, head.length - 3);
+
+		final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPORT)
+				.onUnmappableCharacter(CodingErrorAction.REPORT);
+		try {
+			decoder.decode(ByteBuffer.wrap(head, 0, length));
+			return StandardCharsets.UTF_8;
+		} catch (final CharacterCodingException e) {
+			return StandardCharsets.ISO_8859_1;
+		}
+	}
+
+	/**
+	 * Rows of 16 bytes, shown as hex dump
+	 */
+	public static class Hex extends PayloadFileRows {
+
+		private static final int BYTES_PER_ROW = 16;
+
+		private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+		public Hex(final PayloadFileContent content) {
+			super(content);
+		}
+
+		@Override
+		public int getRowCount() {
+			return (int) Math.min(Integer.MAX_VALUE, (this.content.getSize() + BYTES_PER_ROW - 1) / BYTES_PER_ROW);
+		}
+
+		@Override
+		public String getRow(final int row) throws IOException {
+			final long offset = (long) row * BYTES_PER_ROW;
+			final byte[] page = this.content.getPage(offset / PayloadFileContent.PAGE_SIZE);
+			final int start = (int) (offset % PayloadFileContent.PAGE_SIZE);
+			final int len = Math.min(BYTES_PER_ROW, page.length - start);
+
+			final StringBuilder sb = new StringBuilder(80);
+			sb.append(String.format("%010x  ", offset));
+			for (int i = 0; i < BYTES_PER_ROW; i++) {
+				if (i < len) {
+					sb.append(HEX[page[start + i] >> 4 & 0xF]).append(HEX[page[start + i] & 0xF]).append(' ');
+				} else {
+					sb.append("   ");
+				}
+				if (i == 7) {
+					sb.append(' ');
+				}
+			}
+			sb.append(" |");
+			for (int i = 0; i < len; i++) {
+				final int c = page[start + i] & 0xFF;
+				sb.append(c >= 0x20 && c < 0x7F ? (char) c : '.');
+			}
+			sb.append('|');
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * Rows of text
+	 * <p>
+	 * Each line is a row. Lines longer than {@value #MAX_ROW_BYTES} bytes are
+	 * split into multiple rows, so that a single row can always be read
+	 * quickly. The rows are found by scanning the file once, in the
+	 * background, see {@link #scan(IProgressMonitor, Runnable)}. Only the
+	 * start of every {@value #CHECKPOINT_INTERVAL}th row is recorded. Reading
+	 * a row starts at the closest recorded row before it.
+	 * </p>
+	 */
+	public static class Text extends PayloadFileRows {
+
+		private static final int MAX_ROW_BYTES = 4 * 1024;
+
+		private static final int CHECKPOINT_INTERVAL = 1024;
+
+		private static final int TAB_SIZE = 8;
+
+		private final Charset charset;
+
+		/**
+		 * The width of a code unit, in bytes
+		 */
+		private final int unit;
+
+		private final boolean bigEndian;
+
+		private long[] checkpoints = new long[16];
+
+		private int rowCount;
+
+		public Text(final PayloadFileContent content, final Charset charset) {
+			super(content);
+			this.charset = charset;
+			this.unit = charset.equals(StandardCharsets.UTF_16LE) || charset.equals(StandardCharsets.UTF_16BE) ? 2
+					: 1;
+			this.bigEndian = charset.equals(StandardCharsets.UTF_16BE);
+		}
+
+		public Charset getCharset() {
+			return this.charset;
+		}
+
+		@Override
+		public synchronized int getRowCount() {
+			return this.rowCount;
+		}
+
+		private boolean isNewline(final int b0, final int b1) {
+			if (this.unit == 1) {
+				return b0 == '\n';
+			}
+			return this.bigEndian ? b0 == 0 && b1 == '\n' : b0 == '\n' && b1 == 0;
+		}
+
+		/**
+		 * Scan the file for rows
+		 *
+		 * @param monitor
+		 *            the monitor to check for cancellation
+		 * @param update
+		 *            called from time to time, when new rows were found. It
+		 *            is not called for the final row count, which is
+		 *            available once this method returns.
+		 */
+		public void scan(final IProgressMonitor monitor, final Runnable update) throws IOException {
+			final long size = this.content.getSize();
+			final byte[] buffer = new byte[PayloadFileContent.PAGE_SIZE];
+
+			long position = 0;
+			long rowStart = 0;
+			int rows = 0;
+			long lastUpdate = System.currentTimeMillis();
+
+			try (InputStream in = this.content.open()) {
+				// bytes of an incomplete unit, kept at the start of the buffer
+				int carry = 0;
+				int rc;
+				while ((rc = in.read(buffer, carry, buffer.length - carry)) >= 0) {
+					if (monitor.isCanceled()) {
+						throw new OperationCanceledException();
+					}
+
+					final int len = carry + rc;
+					int i = 0;
+					for (; i + this.unit <= len; i += this.unit) {
+						position += this.unit;
+						final int b0 = buffer[i] & 0xFF;
+						final int b1 = this.unit > 1 ? buffer[i + 1] & 0xFF : 0;
+						if (isNewline(b0, b1) || position - rowStart >= MAX_ROW_BYTES) {
+							rowStart = position;
+							rows++;
+							if (rows % CHECKPOINT_INTERVAL == 0) {
+								addCheckpoint(rows / CHECKPOINT_INTERVAL, rowStart);
+							}
+						}
+					}
+					carry = len - i;
+					if (carry > 0) {
+						System.arraycopy(buffer, i, buffer, 0, carry);
+					}
+
+					final long now = System.currentTimeMillis();
+					if (now - lastUpdate > 250) {
+						lastUpdate = now;
+						publish(rows);
+						update.run();
+					}
+				}
+			}
+
+			publish(rowStart < size ? rows + 1 : rows);
+		}
+
+		private synchronized void addCheckpoint(final int index, final long offset) {
+			if (index >= this.checkpoints.length) {
+				this.checkpoints = Arrays.copyOf(this.checkpoints, this.checkpoints.length * 2);
+			}
+			this.checkpoints[index] = offset;
+		}
+
+		private synchronized void publish(final int rows) {
+			this.rowCount = rows;
+		}
+
+		private synchronized long getCheckpoint(final int index) {
+			return this.checkpoints[index];
+		}
+
+		@Override
+		public String getRow(final int row) throws IOException {
+			final long size = this.content.getSize();
+
+			long position = getCheckpoint(row / CHECKPOINT_INTERVAL);
+			long rowStart = position;
+			int skip = row % CHECKPOINT_INTERVAL;
+
+			final Cursor cursor = new Cursor();
+
+			// skip the rows between the checkpoint and the requested row
+			while (skip > 0 && position + this.unit <= size) {
+				position += this.unit;
+				if (isRowEnd(cursor, position, rowStart)) {
+					rowStart = position;
+					skip--;
+				}
+			}
+
+			// find the end of the row
+			while (position + this.unit <= size) {
+				position += this.unit;
+				if (isRowEnd(cursor, position, rowStart)) {
+					break;
+				}
+			}
+			if (position + this.unit > size) {
+				// includes a trailing odd byte
+				position = size;
+			}
+
+			final byte[] data = new byte[(int) (position - rowStart)];
+			for (int i = 0; i < data.length; i++) {
+				data[i] = (byte) cursor.get(rowStart + i);
+			}
+
+			return toText(new String(data, this.charset), row == 0);
+		}
+
+		/**
+		 * Check if the unit before a position ends a row
+		 */
+		private boolean isRowEnd(final Cursor cursor, final long position, final long rowStart) throws IOException {
+			final long start = position - this.unit;
+			final int b0 = cursor.get(start);
+			final int b1 = this.unit > 1 ? cursor.get(start + 1) : 0;
+			return isNewline(b0, b1) || position - rowStart >= MAX_ROW_BYTES;
+		}
+
+		private static String toText(final String line, final boolean first) {
+			final StringBuilder sb = new StringBuilder(line.length());
+			final int start = first && line.startsWith("\uFEFF") ? 1 : 0;
+			for (int i = start; i < line.length(); i++) {
+				final char c = line.charAt(i);
+				if (c == '\t') {
+					do {
+						sb.append(' ');
+					} while (sb.length() % TAB_SIZE != 0);
+				} else if (c != '\n' && c != '\r') {
+					sb.append(c);
+				}
+			}
+			return sb.toString();
+		}
+
+		/**
+		 * Access to single bytes, keeping the current page
+		 */
+		private class Cursor {
+
+			private long pageNumber = -1;
+
+			private byte[] page;
+
+			public int get(final long position) throws IOException {
+				final long number = position / PayloadFileContent.PAGE_SIZE;
+				if (number != this.pageNumber) {
+					this.page = Text.this.content.getPage(number);
+					this.pageNumber = number;
+				}
+				return this.page[(int) (position % PayloadFileContent.PAGE_SIZE)] & 0xFF;
+			}
+		}
+	}
+}
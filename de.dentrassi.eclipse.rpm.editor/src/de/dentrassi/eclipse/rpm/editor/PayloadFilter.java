@@ -0,0 +1,363 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import de.dentrassi.eclipse.rpm.editor.FileTree.Directory;
+import de.dentrassi.eclipse.rpm.editor.FileTree.File;
+import de.dentrassi.eclipse.rpm.editor.FileTree.Node;
+
+/**
+ * A filter for the payload tree
+ * <p>
+ * The filter text consists of terms separated by whitespace, all of which
+ * must match a node:
+ * </p>
+ * <ul>
+ * <li>{@code text} – the name contains the text, ignoring case</li>
+ * <li>{@code *.so} – the name matches the glob pattern</li>
+ * <li>{@code /regex/} – the name contains a match of the regular expression
+ * </li>
+ * <li>{@code user:}, {@code group:}, {@code mode:} – the owner, group or the
+ * octal permissions, like {@code 4755}, match the glob pattern or
+ * {@code /regex/}</li>
+ * <li>{@code size:} – the size compares to a value, like {@code size:>1M} or
+ * {@code size:<=100k}</li>
+ * <li>{@code type:} – the type is {@code f} (file), {@code d} (directory) or
+ * {@code l} (symbolic link)</li>
+ * </ul>
+ */
+public final class PayloadFilter {
+
+	private static final Pattern SIZE = Pattern.compile("(<=|>=|<|>|=)?(\\d+)([kKmMgG]?)");
+
+	private final String text;
+
+	/**
+	 * Plain name terms, in lower case
+	 */
+	private final List<String> substrings = new ArrayList<>();
+
+	/**
+	 * Name terms using a glob pattern or a regular expression
+	 */
+	private final List<Pattern> patterns = new ArrayList<>();
+
+	private final List<Matcher> matchers = new ArrayList<>();
+
+	/**
+	 * Text every matching name must contain, in lower case
+	 */
+	private final List<String> required = new ArrayList<>();
+
+	private final List<Predicate<Node>> attributes = new ArrayList<>();
+
+	private PayloadFilter(final String text) {
+		this.text = text;
+	}
+
+	/**
+	 * Parse a filter text
+	 *
+	 * @param text
+	 *            the filter text
+	 * @return the filter, or {@code null} if the text contains no terms
+	 * @throws IllegalArgumentException
+	 *             if the text contains an invalid term
+	 */
+	public static PayloadFilter parse(final String text) {
+		final PayloadFilter filter = new PayloadFilter(text.trim());
+
+		for (final String term : filter.text.split("\\s+")) {
+			if (!term.isEmpty()) {
+				filter.add(term);
+			}
+		}
+
+		return filter.hasNameTerms() || !filter.attributes.isEmpty() ? filter : null;
+	}
+
+	private void add(final String term) {
+		final int idx = term.indexOf(':');
+		if (idx > 0) {
+			final String value = term.substring(idx + 1);
+			switch (term.substring(0, idx).toLowerCase(Locale.ROOT)) {
+			case "user":
+				addMeta(toPattern(value), MetaInformation::getUser);
+				return;
+			case "group":
+				addMeta(toPattern(value), MetaInformation::getGroup);
+				return;
+			case "mode":
+				addMode(toPattern(value));
+				return;
+			case "size":
+				this.attributes.add(size(value));
+				return;
+			case "type":
+				this.attributes.add(type(value));
+				return;
+			default:
+				// part of the name
+				break;
+			}
+		}
+
+		if (isRegex(term)) {
+			addPattern(toPattern(term));
+		} else if (term.indexOf('*') >= 0 || term.indexOf('?') >= 0) {
+			addPattern(toPattern(term));
+			for (final String literal : term.split("[*?]+")) {
+				if (!literal.isEmpty()) {
+					this.required.add(literal.toLowerCase(Locale.ROOT));
+				}
+			}
+		} else {
+			final String substring = term.toLowerCase(Locale.ROOT);
+			this.substrings.add(substring);
+			this.required.add(substring);
+		}
+	}
+
+	private void addPattern(final Pattern pattern) {
+		this.patterns.add(pattern);
+		this.matchers.add(pattern.matcher(""));
+	}
+
+	/**
+	 * Add a term for a meta information string
+	 * <p>
+	 * The strings are shared by the {@link FileTable}, and there are only a
+	 * few distinct ones. So the result is remembered for each instance.
+	 * </p>
+	 */
+	private void addMeta(final Pattern pattern, final Function<MetaInformation, String> getter) {
+		final Matcher matcher = pattern.matcher("");
+		final Map<String, Boolean> results = new IdentityHashMap<>();
+		this.attributes.add(node -> {
+			final MetaInformation meta = node.getMeta();
+			final String value = meta != null ? getter.apply(meta) : null;
+			return value != null && results.computeIfAbsent(value, v -> matcher.reset(v).find());
+		});
+	}
+
+	private void addMode(final Pattern pattern) {
+		final Matcher matcher = pattern.matcher("");
+		final Map<Integer, Boolean> results = new HashMap<>();
+		this.attributes.add(node -> {
+			final MetaInformation meta = node.getMeta();
+			final int mode = meta != null ? meta.getMode() : -1;
+			return mode >= 0
+					&& results.computeIfAbsent(mode & 07777, m -> matcher.reset(String.format("%04o", m)).find());
+		});
+	}
+
+	private static boolean isRegex(final String term) {
+		return term.length() > 2 && term.startsWith("/") && term.endsWith("/");
+	}
+
+	/**
+	 * Create a pattern from a glob pattern or a {@code /regex/}
+	 * <p>
+	 * Glob patterns have to match the full value, so they get anchored.
+	 * Regular expressions only need to match a part of it.
+	 * </p>
+	 */
+	private static Pattern toPattern(final String value) {
+		if (isRegex(value)) {
+			return Pattern.compile(value.substring(1, value.length() - 1));
+		}
+
+		final StringBuilder sb = new StringBuilder("^");
+		int start = 0;
+		for (int i = 0; i < value.length(); i++) {
+			final char c = value.charAt(i);
+			if (c == '*' || c == '?') {
+				if (i > start) {
+					sb.append(Pattern.quote(value.substring(start, i)));
+				}
+				sb.append(c == '*' ? ".*" : ".");
+				start = i + 1;
+			}
+		}
+		if (start < value.length()) {
+			sb.append(Pattern.quote(value.substring(start)));
+		}
+		sb.append('$');
+		return Pattern.compile(sb.toString(), Pattern.DOTALL);
+	}
+
+	private static Predicate<Node> size(final String value) {
+		final Matcher m = SIZE.matcher(value);
+		if (!m.matches()) {
+			throw new IllegalArgumentException(String.format("Invalid size: %s", value));
+		}
+
+		long size = Long.parseLong(m.group(2));
+		switch (m.group(3).toLowerCase(Locale.ROOT)) {
+		case "k":
+			size <<= 10;
+			break;
+		case "m":
+			size <<= 20;
+			break;
+		case "g":
+			size <<= 30;
+			break;
+		default:
+			break;
+		}
+
+		final long limit = size;
+		final String op = m.group(1) != null ? m.group(1) : "=";
+		switch (op) {
+		case "<":
+			return node -> node.getSize() < limit;
+		case "<=":
+			return node -> node.getSize() <= limit;
+		case ">":
+			return node -> node.getSize() > limit;
+		case ">=":
+			return node -> node.getSize() >= limit;
+		default:
+			return node -> node.getSize() == limit;
+		}
+	}
+
+	private static Predicate<Node> type(final String value) {
+		switch (value) {
+		case "f":
+			return node -> getType(node) == 0x8000;
+		case "d":
+			return node -> getType(node) == 0x4000;
+		case "l":
+			return node -> getType(node) == 0xA000;
+		default:
+			throw new IllegalArgumentException(String.format("Invalid type: %s, expected f, d or l", value));
+		}
+	}
+
+	private static int getType(final Node node) {
+		final MetaInformation meta = node.getMeta();
+		if (meta != null && meta.getMode() >= 0) {
+			return meta.getMode() & 0xF000;
+		}
+		if (node instanceof Directory) {
+			return 0x4000;
+		}
+		return node instanceof File ? 0x8000 : 0;
+	}
+
+	public String getText() {
+		return this.text;
+	}
+
+	/**
+	 * Get the text every matching name must contain
+	 * <p>
+	 * This consists of the plain name terms and the literal parts of glob
+	 * patterns.
+	 * </p>
+	 *
+	 * @return the text parts, in lower case
+	 */
+	public List<String> getRequiredSubstrings() {
+		return Collections.unmodifiableList(this.required);
+	}
+
+	public boolean hasNameTerms() {
+		return !this.substrings.isEmpty() || !this.patterns.isEmpty();
+	}
+
+	public boolean hasAttributeTerms() {
+		return !this.attributes.isEmpty();
+	}
+
+	/**
+	 * Check the name terms
+	 * <p>
+	 * Filters are not thread safe, as the matchers get re-used.
+	 * </p>
+	 *
+	 * @param name
+	 *            the name
+	 * @param lowerName
+	 *            the name in lower case
+	 */
+	public boolean matchesName(final String name, final String lowerName) {
+		for (final String substring : this.substrings) {
+			if (!lowerName.contains(substring)) {
+				return false;
+			}
+		}
+		for (final Matcher matcher : this.matchers) {
+			if (!matcher.reset(name).find()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Check the terms, other than the name terms
+	 */
+	public boolean matchesAttributes(final Node node) {
+		for (final Predicate<Node> attribute : this.attributes) {
+			if (!attribute.test(node)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Check if the name terms of this filter only match names, which are
+	 * matched by another filter as well
+	 * <p>
+	 * This is the case when typing ahead, e.g. {@code lib} followed by
+	 * {@code libf}. The names matching the previous filter can then be used
+	 * as the candidates of this filter.
+	 * </p>
+	 */
+	public boolean refines(final PayloadFilter other) {
+		if (!other.hasNameTerms()) {
+			return false;
+		}
+
+		for (final String substring : other.substrings) {
+			if (this.substrings.stream().noneMatch(s -> s.contains(substring))) {
+				return false;
+			}
+		}
+		for (final Pattern pattern : other.patterns) {
+			if (this.patterns.stream().noneMatch(p -> p.pattern().equals(pattern.pattern()))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return this.text;
+	}
+}
@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.compress.archivers.cpio.CpioArchiveEntry;
+import org.apache.commons.compress.archivers.cpio.CpioArchiveInputStream;
+import org.apache.commons.compress.utils.CountingInputStream;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+/**
+ * The location of the payload entries in the decompressed payload stream
+ * <p>
+ * For each CPIO entry, the index stores the offset of its content in the
+ * decompressed stream and the size of its content. This allows to read the
+ * content of a single entry, without parsing the CPIO stream up to this
+ * entry. If the payload is compressed with xz, using more than one block,
+ * the decompression can start at the block containing the entry, see
+ * {@link Payloads}.
+ * </p>
+ * <p>
+ * Hard linked files only carry their content with the last link. All links
+ * point to this content.
+ * </p>
+ *
+ * @see Payloads#openEntry(RpmSource, RpmInformation, PayloadIndex, int)
+ */
+public final class PayloadIndex {
+
+	/**
+	 * Collects entries while walking the CPIO stream
+	 */
+	public static class Builder {
+
+		private final CountingInputStream counter;
+
+		private final List<String> paths = new ArrayList<>();
+
+		private long[] offsets = new long[16];
+
+		private long[] sizes = new long[16];
+
+		/**
+		 * Hard links, waiting for the entry carrying the content
+		 */
+		private final Map<Long, List<Integer>> hardLinks = new HashMap<>();
+
+		/**
+		 * Create a new builder
+		 *
+		 * @param counter
+		 *            the decompressed payload stream the CPIO stream reads
+		 *            from, used for getting the offsets of the entries
+		 */
+		public Builder(final CountingInputStream counter) {
+			this.counter = counter;
+		}
+
+		/**
+		 * Add the current entry
+		 * <p>
+		 * This must be called right after the entry was read from the CPIO
+		 * stream, before reading its content.
+		 * </p>
+		 */
+		public void add(final CpioArchiveEntry entry) {
+			final int index = this.paths.size();
+
+			if (index == this.offsets.length) {
+				this.offsets = Arrays.copyOf(this.offsets, index * 2);
+				this.sizes = Arrays.copyOf(this.sizes, index * 2);
+			}
+
+			this.paths.add(Payloads.toPath(entry.getName()));
+			this.offsets[index] = this.counter.getBytesRead();
+			this.sizes[index] = entry.getSize();
+
+			if (entry.getNumberOfLinks() > 1 && entry.isRegularFile()) {
+				if (entry.getSize() == 0) {
+					this.hardLinks.computeIfAbsent(entry.getInode(), k -> new ArrayList<>()).add(index);
+				} else {
+					final List<Integer> links = this.hardLinks.remove(entry.getInode());
+					if (links != null) {
+						for (final int link : links) {
+							this.offsets[link] = this.offsets[index];
+							this.sizes[link] = this.sizes[index];
+						}
+					}
+				}
+			}
+		}
+
+		public PayloadIndex build() {
+			final int count = this.paths.size();
+			return new PayloadIndex(this.paths.toArray(new String[count]), Arrays.copyOf(this.offsets, count),
+					Arrays.copyOf(this.sizes, count));
+		}
+	}
+
+	private final String[] paths;
+
+	private final long[] offsets;
+
+	private final long[] sizes;
+
+	private Map<String, Integer> pathIndex;
+
+	private PayloadIndex(final String[] paths, final long[] offsets, final long[] sizes) {
+		this.paths = paths;
+		this.offsets = offsets;
+		this.sizes = sizes;
+	}
+
+	/**
+	 * Build the index by walking the full payload
+	 *
+	 * @param information
+	 *            the information of the RPM file
+	 * @param payload
+	 *            the raw payload, gets closed
+	 * @param monitor
+	 *            the monitor to check for cancellation
+	 * @return the new index
+	 * @throws IOException
+	 *             if reading the payload fails
+	 */
+	public static PayloadIndex build(final RpmInformation information, final InputStream payload,
+			final IProgressMonitor monitor) throws IOException {
+		final CountingInputStream counter = new CountingInputStream(
+				Payloads.openStream(information.getHeader(), payload));
+		final Builder builder = new Builder(counter);
+
+		try (CpioArchiveInputStream cpio = new CpioArchiveInputStream(counter)) {
+			CpioArchiveEntry entry;
+			while ((entry = cpio.getNextCPIOEntry()) != null) {
+				if (monitor.isCanceled()) {
+					throw new OperationCanceledException();
+				}
+				builder.add(entry);
+			}
+		}
+
+		return builder.build();
+	}
+
+	/**
+	 * Get the payload index of an RPM file, building it if necessary
+	 * <p>
+	 * A newly built index is kept with the information, for later use.
+	 * </p>
+	 *
+	 * @param source
+	 *            the source of the RPM data
+	 * @param information
+	 *            the information of the RPM file
+	 * @param monitor
+	 *            the monitor to report the progress of reading the payload
+	 *            to, in kilobytes
+	 * @return the payload index
+	 * @throws IOException
+	 *             if reading the payload fails
+	 */
+	public static PayloadIndex obtain(final RpmSource source, final RpmInformation information,
+			final IProgressMonitor monitor) throws IOException {
+		final PayloadIndex existing = information.getPayloadIndex();
+		if (existing != null) {
+			return existing;
+		}
+
+		monitor.subTask("Reading payload");
+
+		final PayloadIndex index = build(information,
+				new ProgressInputStream(source.open(information.getPayloadOffset()), monitor), monitor);
+		information.setPayloadIndex(index);
+		return index;
+	}
+
+	public int getCount() {
+		return this.paths.length;
+	}
+
+	/**
+	 * Get the absolute path of an entry
+	 */
+	public String getPath(final int index) {
+		return this.paths[index];
+	}
+
+	/**
+	 * Get the offset of the content of an entry in the decompressed payload
+	 */
+	public long getOffset(final int index) {
+		return this.offsets[index];
+	}
+
+	/**
+	 * Get the size of the content of an entry
+	 */
+	public long getSize(final int index) {
+		return this.sizes[index];
+	}
+
+	/**
+	 * Find an entry by its path
+	 *
+	 * @param path
+	 *            the absolute path, as used by {@link FileTree.Node#getFullName()}
+	 * @return the index of the entry, or {@code -1} if there is none
+	 */
+	public synchronized int indexOf(final String path) {
+		if (this.pathIndex == null) {
+			this.pathIndex = new HashMap<>(this.paths.length * 4 / 3 + 1);
+			for (int i = 0; i < this.paths.length; i++) {
+				this.pathIndex.put(this.paths[i], i);
+			}
+		}
+
+		final Integer result = this.pathIndex.get(path);
+		return result != null ? result : -1;
+	}
+}
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+/**
+ * The result of verifying the payload against the file digests of the header
+ */
+public class PayloadVerification {
+
+	public enum State {
+		/**
+		 * The digest of the file content matches the header
+		 */
+		OK,
+		/**
+		 * The digest of the file content does not match the header
+		 */
+		MISMATCH,
+		/**
+		 * The header lists the file, but it is missing in the payload
+		 */
+		MISSING;
+	}
+
+	private static final State[] STATES = State.values();
+
+	private final byte[] states;
+
+	private int ok;
+
+	private int mismatches;
+
+	private int missing;
+
+	PayloadVerification(final int count) {
+		// 0 marks files which were not verified
+		this.states = new byte[count];
+	}
+
+	synchronized void set(final int index, final State state) {
+		this.states[index] = (byte) (state.ordinal() + 1);
+	}
+
+	synchronized void complete() {
+		for (final byte state : this.states) {
+			if (state == State.OK.ordinal() + 1) {
+				this.ok++;
+			} else if (state == State.MISMATCH.ordinal() + 1) {
+				this.mismatches++;
+			} else if (state == State.MISSING.ordinal() + 1) {
+				this.missing++;
+			}
+		}
+	}
+
+	synchronized boolean isSet(final int index) {
+		return this.states[index] != 0;
+	}
+
+	/**
+	 * Get the state of a file
+	 *
+	 * @param index
+	 *            the index of the file in the header
+	 * @return the state, or {@code null} if the file was not verified, e.g.
+	 *         because it is not a regular file
+	 */
+	public synchronized State getState(final int index) {
+		if (index < 0 || index >= this.states.length) {
+			return null;
+		}
+		final int state = this.states[index];
+		return state != 0 ? STATES[state - 1] : null;
+	}
+
+	public synchronized int getOk() {
+		return this.ok;
+	}
+
+	public synchronized int getMismatches() {
+		return this.mismatches;
+	}
+
+	public synchronized int getMissing() {
+		return this.missing;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("%s OK, %s mismatched, %s missing", this.ok, this.mismatches, this.missing);
+	}
+}
@@ -0,0 +1,419 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.compress.archivers.cpio.CpioArchiveEntry;
+import org.apache.commons.compress.archivers.cpio.CpioArchiveInputStream;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.packagedrone.utils.rpm.RpmTag;
+import org.eclipse.packagedrone.utils.rpm.parse.InputHeader;
+
+import de.dentrassi.eclipse.rpm.editor.PayloadVerification.State;
+
+/**
+ * Verify the content of the payload against the file digests of the header
+ * <p>
+ * The payload is decompressed and read by the calling thread, in a single
+ * streaming pass. The content of each file is handed over, in chunks, to a
+ * pool of hashing threads. Chunks of the same file are hashed in order, while
+ * different files are hashed in parallel. The number of chunks in flight is
+ * bounded by a fixed pool of buffers, so reading blocks if hashing can't keep
+ * up.
+ * </p>
+ * <p>
+ * Most payloads consist of many small files. Handing over each of them on its
+ * own would cost more than hashing it, so small files are packed into a
+ * shared chunk, which is then hashed as a single task.
+ * </p>
+ */
+public class PayloadVerifier {
+
+	private static final int CHUNK_SIZE = 256 * 1024;
+
+	private static final int BUFFERS_PER_THREAD = 8;
+
+	private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+	private static class Chunk {
+
+		private final byte[] data;
+
+		private int length;
+
+		private boolean last;
+
+		/**
+		 * The complete files packed into this chunk, empty for chunks of a
+		 * single large file
+		 */
+		private final List<Segment> segments = new ArrayList<>();
+
+		public Chunk(final byte[] data) {
+			this.data = data;
+		}
+
+		private void reset() {
+			this.length = 0;
+			this.last = false;
+			this.segments.clear();
+		}
+	}
+
+	private static class Segment {
+
+		private final List<Integer> indexes;
+
+		private final int offset;
+
+		private final int length;
+
+		public Segment(final List<Integer> indexes, final int offset, final int length) {
+			this.indexes = indexes;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+
+	/**
+	 * The digest of a single file, fed by the reading thread and processed by
+	 * the hashing threads
+	 */
+	private class FileDigest implements Runnable {
+
+		private final MessageDigest digest;
+
+		private final List<Integer> indexes;
+
+		private final Queue<Chunk> chunks = new ArrayDeque<>();
+
+		private boolean scheduled;
+
+		public FileDigest(final MessageDigest digest, final List<Integer> indexes) {
+			this.digest = digest;
+			this.indexes = indexes;
+		}
+
+		public void submit(final Chunk chunk) {
+			synchronized (this) {
+				this.chunks.add(chunk);
+				if (this.scheduled) {
+					return;
+				}
+				this.scheduled = true;
+			}
+			PayloadVerifier.this.executor.execute(this);
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				final Chunk chunk;
+				synchronized (this) {
+					chunk = this.chunks.poll();
+					if (chunk == null) {
+						this.scheduled = false;
+						return;
+					}
+				}
+
+				this.digest.update(chunk.data, 0, chunk.length);
+				if (chunk.last) {
+					complete(this.indexes, this.digest.digest());
+				}
+
+				release(chunk);
+			}
+		}
+	}
+
+	private final FileTable table;
+
+	private final PayloadVerification result;
+
+	private final MessageDigest prototype;
+
+	private final ExecutorService executor;
+
+	private final BlockingQueue<Chunk> buffers;
+
+	private final ThreadLocal<MessageDigest> digests;
+
+	/**
+	 * The chunk small files are currently packed into, may be {@code null}
+	 */
+	private Chunk batch;
+
+	private PayloadVerifier(final FileTable table, final int threads) throws IOException {
+		this.table = table;
+		this.result = new PayloadVerification(table.getCount());
+
+		final String algorithm = Headers.getDigestAlgorithm(table.getDigestAlgorithm());
+		if (algorithm == null) {
+			throw new IOException(String.format("Unsupported digest algorithm: %s", table.getDigestAlgorithm()));
+		}
+		try {
+			this.prototype = MessageDigest.getInstance(algorithm);
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+		this.digests = ThreadLocal.withInitial(this::cloneDigest);
+
+		final ThreadFactory threadFactory = r -> {
+			final Thread thread = new Thread(r, "RPM payload verifier " + THREAD_COUNTER.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+		this.executor = Executors.newFixedThreadPool(threads, threadFactory);
+
+		final int numberOfBuffers = threads * BUFFERS_PER_THREAD;
+		this.buffers = new ArrayBlockingQueue<>(numberOfBuffers);
+		for (int i = 0; i < numberOfBuffers; i++) {
+			this.buffers.add(new Chunk(new byte[CHUNK_SIZE]));
+		}
+	}
+
+	/**
+	 * Verify the payload
+	 *
+	 * @param table
+	 *            the file table of the header, which must contain digests
+	 * @param header
+	 *            the main header, used for the payload format
+	 * @param payload
+	 *            the raw payload stream, gets closed
+	 * @param monitor
+	 *            the monitor to check for cancellation. Progress has to be
+	 *            reported by the payload stream.
+	 * @return the verification result
+	 * @throws IOException
+	 *             if reading the payload fails, or the header has no
+	 *             supported file digests
+	 * @throws OperationCanceledException
+	 *             if the monitor got canceled
+	 */
+	public static PayloadVerification verify(final FileTable table, final InputHeader<RpmTag> header,
+			final InputStream payload, final IProgressMonitor monitor) throws IOException {
+		if (table.getCount() > 0 && table.getDigest(0) == null) {
+			throw new IOException("The header does not contain file digests");
+		}
+
+		final int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+		final PayloadVerifier verifier = new PayloadVerifier(table, threads);
+
+		try (CpioArchiveInputStream cpio = Payloads.openCpio(header, payload)) {
+			verifier.run(cpio, monitor);
+			verifier.flush();
+			verifier.executor.shutdown();
+			while (!verifier.executor.awaitTermination(100, TimeUnit.MILLISECONDS)) {
+				if (monitor.isCanceled()) {
+					throw new OperationCanceledException();
+				}
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OperationCanceledException();
+		} finally {
+			verifier.executor.shutdownNow();
+		}
+
+		verifier.finish();
+		return verifier.result;
+	}
+
+	private void run(final CpioArchiveInputStream cpio, final IProgressMonitor monitor)
+			throws IOException, InterruptedException {
+
+		// hard linked files, waiting for the entry carrying the content
+		final Map<Long, List<Integer>> hardLinks = new HashMap<>();
+
+		CpioArchiveEntry entry;
+		while ((entry = cpio.getNextCPIOEntry()) != null) {
+			if (monitor.isCanceled()) {
+				throw new OperationCanceledException();
+			}
+			if (!entry.isRegularFile()) {
+				continue;
+			}
+
+			final int index = this.table.indexOf(Payloads.toPath(entry.getName()));
+			if (index < 0 || isEmpty(this.table.getDigest(index))) {
+				continue;
+			}
+
+			final long inode = entry.getInode();
+
+			if (entry.getSize() == 0 && entry.getNumberOfLinks() > 1 && this.table.getSize(index) != 0) {
+				// content follows with the last link
+				hardLinks.computeIfAbsent(inode, k -> new ArrayList<>()).add(index);
+				continue;
+			}
+
+			final List<Integer> indexes = new ArrayList<>(1);
+			indexes.add(index);
+			if (entry.getNumberOfLinks() > 1) {
+				final List<Integer> links = hardLinks.remove(inode);
+				if (links != null) {
+					indexes.addAll(links);
+				}
+			}
+
+			if (entry.getSize() >= 0 && entry.getSize() <= CHUNK_SIZE) {
+				pack(cpio, (int) entry.getSize(), indexes);
+			} else {
+				feed(cpio, new FileDigest(cloneDigest(), indexes));
+			}
+		}
+	}
+
+	/**
+	 * Pack the content of a small entry into the current batch
+	 */
+	private void pack(final InputStream in, final int size, final List<Integer> indexes)
+			throws IOException, InterruptedException {
+		if (this.batch != null && this.batch.length + size > this.batch.data.length) {
+			flush();
+		}
+		if (this.batch == null) {
+			this.batch = this.buffers.take();
+		}
+
+		final Chunk chunk = this.batch;
+		final int offset = chunk.length;
+		int len = 0;
+		while (len < size) {
+			final int rc = in.read(chunk.data, offset + len, size - len);
+			if (rc < 0) {
+				break;
+			}
+			len += rc;
+		}
+
+		chunk.length += len;
+		chunk.segments.add(new Segment(indexes, offset, len));
+	}
+
+	/**
+	 * Hand over the current batch, if any
+	 */
+	private void flush() {
+		final Chunk chunk = this.batch;
+		if (chunk == null) {
+			return;
+		}
+		this.batch = null;
+
+		this.executor.execute(() -> {
+			final MessageDigest digest = this.digests.get();
+			for (final Segment segment : chunk.segments) {
+				digest.update(chunk.data, segment.offset, segment.length);
+				complete(segment.indexes, digest.digest());
+			}
+			release(chunk);
+		});
+	}
+
+	private void release(final Chunk chunk) {
+		chunk.reset();
+		this.buffers.add(chunk);
+	}
+
+	/**
+	 * Hand over the content of the current entry in chunks
+	 */
+	private void feed(final InputStream in, final FileDigest digest) throws IOException, InterruptedException {
+		Chunk chunk = this.buffers.take();
+
+		while (true) {
+			final int rc = in.read(chunk.data, chunk.length, chunk.data.length - chunk.length);
+			if (rc < 0) {
+				chunk.last = true;
+				digest.submit(chunk);
+				return;
+			}
+
+			chunk.length += rc;
+			if (chunk.length == chunk.data.length) {
+				digest.submit(chunk);
+				chunk = this.buffers.take();
+			}
+		}
+	}
+
+	private void complete(final List<Integer> indexes, final byte[] digest) {
+		final String actual = HeaderValues.toHex(digest);
+		for (final int index : indexes) {
+			final boolean ok = actual.equalsIgnoreCase(this.table.getDigest(index));
+			this.result.set(index, ok ? State.OK : State.MISMATCH);
+		}
+	}
+
+	/**
+	 * Mark all regular files, which had no content in the payload, as missing
+	 */
+	private void finish() {
+		for (int i = 0; i < this.table.getCount(); i++) {
+			if (this.result.isSet(i) || isEmpty(this.table.getDigest(i))) {
+				continue;
+			}
+			if ((this.table.getFlags(i) & Headers.RPMFILE_GHOST) != 0) {
+				continue;
+			}
+			final int mode = this.table.getMode(i);
+			if (mode >= 0 && (mode & 0xF000) != 0x8000) {
+				continue;
+			}
+			this.result.set(i, State.MISSING);
+		}
+		this.result.complete();
+	}
+
+	/**
+	 * Create a new digest instance
+	 * <p>
+	 * Cloning is a lot cheaper than looking up the provider again.
+	 * </p>
+	 */
+	private MessageDigest cloneDigest() {
+		try {
+			return (MessageDigest) this.prototype.clone();
+		} catch (final CloneNotSupportedException e) {
+			try {
+				return MessageDigest.getInstance(this.prototype.getAlgorithm());
+			} catch (final NoSuchAlgorithmException e1) {
+				// the prototype was created for the same algorithm
+				throw new IllegalStateException(e1);
+			}
+		}
+	}
+
+	private static boolean isEmpty(final String digest) {
+		return digest == null || digest.isEmpty();
+	}
+}
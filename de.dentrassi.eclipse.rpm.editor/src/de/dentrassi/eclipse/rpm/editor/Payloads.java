@@ -0,0 +1,391 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.compress.archivers.cpio.CpioArchiveInputStream;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.packagedrone.utils.rpm.RpmTag;
+import org.eclipse.packagedrone.utils.rpm.parse.InputHeader;
+import org.tukaani.xz.SeekableInputStream;
+import org.tukaani.xz.SeekableXZInputStream;
+
+/**
+ * Access the payload of an RPM file, independent of the headers
+ * <p>
+ * Single entries can be read using a {@link PayloadIndex}. If the payload is
+ * compressed with xz, and the size of the source is known, the decompressor
+ * seeks to the xz block containing the entry, using the block index at the
+ * end of the xz stream. This only helps if the stream consists of more than
+ * one block, as created by multi-threaded xz. A single block xz stream, the
+ * default of xz and rpmbuild, still gets decompressed from its start. For all
+ * other compressions, the payload gets decompressed from the start up to the
+ * entry, as the JDK decompressors cannot be restarted in the middle of a
+ * stream.
+ * </p>
+ * <p>
+ * The decompression itself is done by the {@link PayloadCodec} declared in
+ * the main header.
+ * </p>
+ */
+public final class Payloads {
+
+	private static final int READ_AHEAD_SIZE = 1024 * 1024;
+
+	private static final int READ_AHEAD_CHUNKS = 4;
+
+	private Payloads() {
+	}
+
+	/**
+	 * Set up the decompression of the payload
+	 *
+	 * @param header
+	 *            the main header, declaring format and compression of the
+	 *            payload
+	 * @param in
+	 *            the raw payload data, starting at the payload offset
+	 * @return the decompressed payload
+	 * @throws IOException
+	 *             if the payload format or compression is not supported
+	 */
+	public static InputStream openStream(final InputHeader<RpmTag> header, final InputStream in)
+			throws IOException {
+		checkFormat(header);
+		return PayloadCodec.fromHeader(header).open(in);
+	}
+
+	/**
+	 * Open the decompressed payload for reading it from start to end
+	 * <p>
+	 * If the machine has more than one processor, additional threads take
+	 * over part of the work: xz payloads consisting of multiple blocks get
+	 * decoded in parallel, all other payloads are read ahead while
+	 * decompressing.
+	 * </p>
+	 *
+	 * @param source
+	 *            the source of the RPM data
+	 * @param header
+	 *            the main header, declaring format and compression of the
+	 *            payload
+	 * @param payloadOffset
+	 *            the offset of the payload in the RPM data
+	 * @param monitor
+	 *            the monitor to report the consumed compressed data to, in
+	 *            kilobytes, and to check for cancellation
+	 * @return the decompressed payload
+	 * @throws IOException
+	 *             if the payload format or compression is not supported
+	 */
+	public static InputStream openPayload(final RpmSource source, final InputHeader<RpmTag> header,
+			final long payloadOffset, final IProgressMonitor monitor) throws IOException {
+		checkFormat(header);
+		final PayloadCodec codec = PayloadCodec.fromHeader(header);
+
+		if (Runtime.getRuntime().availableProcessors() < 2) {
+			return codec.open(new ProgressInputStream(source.open(payloadOffset), monitor));
+		}
+
+		if (codec == PayloadCodec.XZ && source.getSize() > payloadOffset) {
+			final ParallelXZInputStream.Source region = () -> new SourceInputStream(source, payloadOffset,
+					source.getSize() - payloadOffset);
+			final SeekableXZInputStream decoder = new SeekableXZInputStream(region.open());
+			final int threads = ParallelXZInputStream.getThreads(decoder);
+			if (threads > 1) {
+				return new ParallelXZInputStream(region, decoder, threads, monitor);
+			}
+			decoder.close();
+		}
+
+		final InputStream in = new ReadAheadInputStream(source.open(payloadOffset), READ_AHEAD_SIZE,
+				READ_AHEAD_CHUNKS);
+		try {
+			return codec.open(new ProgressInputStream(in, monitor));
+		} catch (final IOException e) {
+			in.close();
+			throw e;
+		}
+	}
+
+	private static void checkFormat(final InputHeader<RpmTag> header) throws IOException {
+		final Object format = header.getTag(RpmTag.PAYLOAD_FORMAT);
+		if (format != null && !"cpio".equals(format)) {
+			throw new IOException(String.format("Unsupported payload format: %s", format));
+		}
+	}
+
+	/**
+	 * Open the payload as CPIO archive
+	 *
+	 * @see #openStream(InputHeader, InputStream)
+	 */
+	public static CpioArchiveInputStream openCpio(final InputHeader<RpmTag> header, final InputStream in)
+			throws IOException {
+		return new CpioArchiveInputStream(openStream(header, in));
+	}
+
+	/**
+	 * Open the content of a single payload entry
+	 *
+	 * @param source
+	 *            the source of the RPM data
+	 * @param information
+	 *            the information of the RPM file
+	 * @param index
+	 *            the payload index
+	 * @param entry
+	 *            the index of the entry in the payload index
+	 * @return the content of the entry, must be closed by the caller
+	 * @throws IOException
+	 *             if opening the payload fails
+	 */
+	public static InputStream openEntry(final RpmSource source, final RpmInformation information,
+			final PayloadIndex index, final int entry) throws IOException {
+		return openEntry(source, information, index, entry, 0);
+	}
+
+	/**
+	 * Open the content of a single payload entry at a position
+	 *
+	 * @param position
+	 *            the position in the content of the entry
+	 * @see #openEntry(RpmSource, RpmInformation, PayloadIndex, int)
+	 */
+	public static InputStream openEntry(final RpmSource source, final RpmInformation information,
+			final PayloadIndex index, final int entry, final long position) throws IOException {
+		final long start = Math.min(position, index.getSize(entry));
+		final InputStream in = openAt(source, information, index.getOffset(entry) + start);
+		return new LimitedInputStream(in, index.getSize(entry) - start);
+	}
+
+	/**
+	 * Check if the payload supports seeking
+	 * <p>
+	 * If it does, opening a stream at an arbitrary position only needs to
+	 * decompress the xz block containing this position. Otherwise the payload
+	 * needs to be decompressed up to this position. With a single block, this
+	 * is the same.
+	 * </p>
+	 */
+	public static boolean isSeekable(final RpmSource source, final RpmInformation information) {
+		try {
+			return PayloadCodec.fromHeader(information.getHeader()) == PayloadCodec.XZ
+					&& source.getSize() > information.getPayloadOffset();
+		} catch (final IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Open the decompressed payload at a position
+	 */
+	private static InputStream openAt(final RpmSource source, final RpmInformation information,
+			final long position) throws IOException {
+		final long payloadOffset = information.getPayloadOffset();
+
+		if (isSeekable(source, information)) {
+			final SeekableXZInputStream in = new SeekableXZInputStream(
+					new SourceInputStream(source, payloadOffset, source.getSize() - payloadOffset));
+			try {
+				in.seek(position);
+			} catch (final IOException e) {
+				in.close();
+				throw e;
+			}
+			return in;
+		}
+
+		final InputStream in = openStream(information.getHeader(), source.open(payloadOffset));
+		try {
+			skipFully(in, position);
+		} catch (final IOException e) {
+			in.close();
+			throw e;
+		}
+		return in;
+	}
+
+	private static void skipFully(final InputStream in, final long amount) throws IOException {
+		// decompressors skip by reading into small buffers, use a large one instead
+		final byte[] buffer = new byte[64 * 1024];
+		long remaining = amount;
+		while (remaining > 0) {
+			final int rc = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+			if (rc < 0) {
+				throw new EOFException(String.format("Position %s is outside of the payload", amount));
+			}
+			remaining -= rc;
+		}
+	}
+
+	/**
+	 * Convert the name of a CPIO entry to an absolute path
+	 */
+	public static String toPath(final String name) {
+		if (name.startsWith("./")) {
+			return name.substring(1);
+		} else if (name.startsWith("/")) {
+			return name;
+		} else {
+			return "/" + name;
+		}
+	}
+
+	/**
+	 * A region of an RPM source, with random access
+	 * <p>
+	 * Seeking re-opens the source at the new position, which is cheap for
+	 * sources supporting random access, like the {@link LocalRpmFile}.
+	 * </p>
+	 */
+	private static class SourceInputStream extends SeekableInputStream {
+
+		private final RpmSource source;
+
+		private final long offset;
+
+		private final long length;
+
+		private long position;
+
+		private InputStream in;
+
+		public SourceInputStream(final RpmSource source, final long offset, final long length) {
+			this.source = source;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		private InputStream stream() throws IOException {
+			if (this.in == null) {
+				this.in = this.source.open(this.offset + this.position);
+			}
+			return this.in;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (this.position >= this.length) {
+				return -1;
+			}
+			final int result = stream().read();
+			if (result >= 0) {
+				this.position++;
+			}
+			return result;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (this.position >= this.length) {
+				return -1;
+			}
+			final int rc = stream().read(b, off, (int) Math.min(len, this.length - this.position));
+			if (rc > 0) {
+				this.position += rc;
+			}
+			return rc;
+		}
+
+		@Override
+		public long length() {
+			return this.length;
+		}
+
+		@Override
+		public long position() {
+			return this.position;
+		}
+
+		@Override
+		public void seek(final long pos) throws IOException {
+			if (pos == this.position) {
+				return;
+			}
+			close();
+			this.position = pos;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (this.in != null) {
+				this.in.close();
+				this.in = null;
+			}
+		}
+	}
+
+	/**
+	 * A stream limited to a number of bytes, not closing the underlying
+	 * stream before it gets closed itself
+	 */
+	private static class LimitedInputStream extends FilterInputStream {
+
+		private long remaining;
+
+		public LimitedInputStream(final InputStream in, final long length) {
+			super(in);
+			this.remaining = length;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (this.remaining <= 0) {
+				return -1;
+			}
+			final int result = super.read();
+			if (result >= 0) {
+				this.remaining--;
+			}
+			return result;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (this.remaining <= 0) {
+				return -1;
+			}
+			final int rc = super.read(b, off, (int) Math.min(len, this.remaining));
+			if (rc > 0) {
+				this.remaining -= rc;
+			}
+			return rc;
+		}
+
+		@Override
+		public long skip(final long n) throws IOException {
+			final long skipped = super.skip(Math.min(n, this.remaining));
+			this.remaining -= skipped;
+			return skipped;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return (int) Math.min(super.available(), this.remaining);
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+/**
+ * An input stream reporting the number of consumed bytes, in kilobytes, to a
+ * progress monitor
+ * <p>
+ * Reading from the stream fails with an {@link OperationCanceledException}
+ * once the monitor got canceled.
+ * </p>
+ */
+public class ProgressInputStream extends FilterInputStream {
+
+	private final IProgressMonitor monitor;
+
+	private long count;
+
+	private long reported;
+
+	public ProgressInputStream(final InputStream in, final IProgressMonitor monitor) {
+		super(in);
+		this.monitor = monitor;
+	}
+
+	/**
+	 * Get the number of bytes consumed so far
+	 *
+	 * @return the number of bytes consumed
+	 */
+	public long getCount() {
+		return this.count;
+	}
+
+	@Override
+	public int read() throws IOException {
+		checkCanceled();
+		final int result = super.read();
+		if (result >= 0) {
+			consumed(1);
+		}
+		return result;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		checkCanceled();
+		final int result = super.read(b, off, len);
+		if (result > 0) {
+			consumed(result);
+		}
+		return result;
+	}
+
+	@Override
+	public long skip(final long n) throws IOException {
+		checkCanceled();
+		final long result = super.skip(n);
+		if (result > 0) {
+			consumed(result);
+		}
+		return result;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	@Override
+	public synchronized void mark(final int readlimit) {
+	}
+
+	@Override
+	public synchronized void reset() throws IOException {
+		throw new IOException("mark/reset not supported");
+	}
+
+	private void checkCanceled() {
+		if (this.monitor.isCanceled()) {
+			throw new OperationCanceledException();
+		}
+	}
+
+	private void consumed(final long amount) {
+		this.count += amount;
+
+		final long kb = this.count >> 10;
+		if (kb > this.reported) {
+			this.monitor.worked((int) (kb - this.reported));
+			this.reported = kb;
+		}
+	}
+
+}
@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An input stream, reading ahead from another stream in a separate thread
+ * <p>
+ * The data gets passed on in large chunks, so that reading the source, like
+ * reading a local file or reading from the workspace,
+ * overlaps with processing the data, like decompressing it. The source gets
+ * closed by the reading thread, once it is done.
+ * </p>
+ */
+public class ReadAheadInputStream extends InputStream {
+
+	private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+	private static class Chunk {
+		private final byte[] data;
+
+		private int length;
+
+		private Exception error;
+
+		public Chunk(final byte[] data) {
+			this.data = data;
+		}
+	}
+
+	private final BlockingQueue<Chunk> free;
+
+	private final BlockingQueue<Chunk> filled;
+
+	private final Thread thread;
+
+	private Chunk current;
+
+	private int position;
+
+	private boolean eof;
+
+	/**
+	 * Start reading ahead
+	 *
+	 * @param in
+	 *            the source to read from
+	 * @param chunkSize
+	 *            the size of a chunk
+	 * @param chunks
+	 *            the number of chunks, at least two
+	 */
+	public ReadAheadInputStream(final InputStream in, final int chunkSize, final int chunks) {
+		this.free = new ArrayBlockingQueue<>(chunks);
+		this.filled = new ArrayBlockingQueue<>(chunks);
+		for (int i = 0; i < chunks; i++) {
+			this.free.add(new Chunk(new byte[chunkSize]));
+		}
+
+		this.thread = new Thread(() -> run(in), "RPM read-ahead " + THREAD_COUNTER.incrementAndGet());
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	private void run(final InputStream in) {
+		try (InputStream source = in) {
+			while (true) {
+				final Chunk chunk = this.free.take();
+				chunk.length = 0;
+				chunk.error = null;
+
+				try {
+					int rc = 0;
+					while (chunk.length < chunk.data.length
+							&& (rc = source.read(chunk.data, chunk.length, chunk.data.length - chunk.length)) >= 0) {
+						chunk.length += rc;
+					}
+					if (rc < 0 && chunk.length == 0) {
+						chunk.length = -1;
+					}
+				} catch (final IOException | RuntimeException e) {
+					chunk.error = e;
+				}
+
+				this.filled.put(chunk);
+				if (chunk.length < 0 || chunk.error != null) {
+					return;
+				}
+			}
+		} catch (final InterruptedException e) {
+			// closed by the consumer
+		} catch (final IOException e) {
+			// failed to close the source, nobody is interested
+		}
+	}
+
+	private boolean fill() throws IOException {
+		if (this.current != null && this.position < this.current.length) {
+			return true;
+		}
+		if (this.eof) {
+			return false;
+		}
+
+		if (this.current != null) {
+			this.free.add(this.current);
+			this.current = null;
+		}
+
+		final Chunk chunk;
+		try {
+			chunk = this.filled.take();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while reading ahead", e);
+		}
+
+		if (chunk.error instanceof IOException) {
+			this.eof = true;
+			throw new IOException(chunk.error.getMessage(), chunk.error);
+		} else if (chunk.error != null) {
+			this.eof = true;
+			throw (RuntimeException) chunk.error;
+		} else if (chunk.length < 0) {
+			this.eof = true;
+			return false;
+		}
+
+		this.current = chunk;
+		this.position = 0;
+		return true;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!fill()) {
+			return -1;
+		}
+		return this.current.data[this.position++] & 0xFF;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (!fill()) {
+			return -1;
+		}
+		final int result = Math.min(len, this.current.length - this.position);
+		System.arraycopy(this.current.data, this.position, b, off, result);
+		this.position += result;
+		return result;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return this.current != null ? this.current.length - this.position : 0;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.eof = true;
+		this.thread.interrupt();
+	}
+}
@@ -0,0 +1,309 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.tukaani.xz.XZInputStream;
+
+/**
+ * Read the metadata of a YUM/DNF repository
+ * <p>
+ * The XML files are streamed, so that memory usage does not grow with the
+ * size of the metadata, apart from the packages which are reported.
+ * </p>
+ */
+public final class Repodata {
+
+	private static final String REPO_NS = "http://linux.duke.edu/metadata/repo";
+
+	private static final String COMMON_NS = "http://linux.duke.edu/metadata/common";
+
+	private static final String FILELISTS_NS = "http://linux.duke.edu/metadata/filelists";
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final Path root;
+
+	private final Map<String, String> locations;
+
+	private Repodata(final Path root, final Map<String, String> locations) {
+		this.root = root;
+		this.locations = locations;
+	}
+
+	/**
+	 * Find the root of a repository
+	 *
+	 * @param directory
+	 *            the directory to check, may be the repository root or the
+	 *            {@code repodata} directory itself
+	 * @return the repository root, or {@code null} if the directory is not
+	 *         part of a repository
+	 */
+	public static Path findRoot(final Path directory) {
+		if (Files.isRegularFile(directory.resolve("repodata").resolve("repomd.xml"))) {
+			return directory;
+		}
+		if (directory.getFileName() != null && "repodata".equals(directory.getFileName().toString())
+				&& Files.isRegularFile(directory.resolve("repomd.xml")) && directory.getParent() != null) {
+			return directory.getParent();
+		}
+		return null;
+	}
+
+	/**
+	 * Read the index of the repository, {@code repodata/repomd.xml}
+	 *
+	 * @param root
+	 *            the root of the repository
+	 */
+	public static Repodata open(final Path root) throws IOException {
+		final Map<String, String> locations = new HashMap<>();
+
+		try (InputStream in = new BufferedInputStream(
+				Files.newInputStream(root.resolve("repodata").resolve("repomd.xml")))) {
+			final XMLStreamReader reader = createReader(in);
+			try {
+				String type = null;
+				while (reader.hasNext()) {
+					final int event = reader.next();
+					if (event == XMLStreamConstants.START_ELEMENT && REPO_NS.equals(reader.getNamespaceURI())) {
+						switch (reader.getLocalName()) {
+						case "data":
+							type = reader.getAttributeValue(null, "type");
+							break;
+						case "location":
+							if (type != null) {
+								locations.put(type, reader.getAttributeValue(null, "href"));
+							}
+							break;
+						}
+					} else if (event == XMLStreamConstants.END_ELEMENT && "data".equals(reader.getLocalName())) {
+						type = null;
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (final XMLStreamException e) {
+			throw new IOException("Failed to parse repomd.xml", e);
+		}
+
+		if (!locations.containsKey("primary")) {
+			throw new IOException("Repository has no primary metadata");
+		}
+
+		return new Repodata(root, locations);
+	}
+
+	public Path getRoot() {
+		return this.root;
+	}
+
+	public boolean hasFileLists() {
+		return this.locations.containsKey("filelists");
+	}
+
+	/**
+	 * Read the packages from the primary metadata
+	 * <p>
+	 * The number of files is not known from the primary metadata, see
+	 * {@link #readFileLists(Map, IProgressMonitor)}.
+	 * </p>
+	 *
+	 * @param consumer
+	 *            receiving each package as soon as it is parsed
+	 */
+	public void readPrimary(final Consumer<RepositoryPackage> consumer, final IProgressMonitor monitor)
+			throws IOException {
+		try (InputStream in = openData("primary")) {
+			final XMLStreamReader reader = createReader(in);
+			try {
+				parsePrimary(reader, consumer, monitor);
+			} finally {
+				reader.close();
+			}
+		} catch (final XMLStreamException e) {
+			throw new IOException("Failed to parse primary metadata", e);
+		}
+	}
+
+	private void parsePrimary(final XMLStreamReader reader, final Consumer<RepositoryPackage> consumer,
+			final IProgressMonitor monitor) throws XMLStreamException {
+		String name = null;
+		int epoch = 0;
+		String version = null;
+		String release = null;
+		String arch = null;
+		long size = -1;
+		String href = null;
+		String pkgId = null;
+
+		while (reader.hasNext()) {
+			final int event = reader.next();
+
+			if (event == XMLStreamConstants.END_ELEMENT && COMMON_NS.equals(reader.getNamespaceURI())
+					&& "package".equals(reader.getLocalName())) {
+				if (monitor.isCanceled()) {
+					throw new OperationCanceledException();
+				}
+				if (name != null && href != null) {
+					consumer.accept(new RepositoryPackage(name, epoch, version, release, arch, size,
+							this.root.resolve(href), pkgId, -1));
+				}
+				continue;
+			}
+
+			if (event != XMLStreamConstants.START_ELEMENT || !COMMON_NS.equals(reader.getNamespaceURI())) {
+				continue;
+			}
+
+			switch (reader.getLocalName()) {
+			case "package":
+				name = version = release = arch = href = pkgId = null;
+				epoch = 0;
+				size = -1;
+				break;
+			case "name":
+				name = reader.getElementText();
+				break;
+			case "arch":
+				arch = reader.getElementText();
+				break;
+			case "version":
+				epoch = parseInt(reader.getAttributeValue(null, "epoch"));
+				version = reader.getAttributeValue(null, "ver");
+				release = reader.getAttributeValue(null, "rel");
+				break;
+			case "checksum":
+				pkgId = reader.getElementText();
+				break;
+			case "size":
+				size = parseLong(reader.getAttributeValue(null, "package"));
+				break;
+			case "location":
+				href = reader.getAttributeValue(null, "href");
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Count the files of each package, using the file lists metadata
+	 *
+	 * @param packages
+	 *            the packages, by package id
+	 */
+	public void readFileLists(final Map<String, RepositoryPackage> packages, final IProgressMonitor monitor)
+			throws IOException {
+		try (InputStream in = openData("filelists")) {
+			final XMLStreamReader reader = createReader(in);
+			try {
+				RepositoryPackage current = null;
+				int files = 0;
+
+				while (reader.hasNext()) {
+					final int event = reader.next();
+					if (event == XMLStreamConstants.START_ELEMENT && FILELISTS_NS.equals(reader.getNamespaceURI())) {
+						switch (reader.getLocalName()) {
+						case "package":
+							current = packages.get(reader.getAttributeValue(null, "pkgid"));
+							files = 0;
+							break;
+						case "file":
+							files++;
+							break;
+						}
+					} else if (event == XMLStreamConstants.END_ELEMENT
+							&& FILELISTS_NS.equals(reader.getNamespaceURI())
+							&& "package".equals(reader.getLocalName())) {
+						if (monitor.isCanceled()) {
+							throw new OperationCanceledException();
+						}
+						if (current != null) {
+							current.setFiles(files);
+						}
+						current = null;
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (final XMLStreamException e) {
+			throw new IOException("Failed to parse file lists", e);
+		}
+	}
+
+	private InputStream openData(final String type) throws IOException {
+		final String href = this.locations.get(type);
+		if (href == null) {
+			throw new IOException(String.format("Repository has no '%s' metadata", type));
+		}
+
+		final InputStream in = new BufferedInputStream(Files.newInputStream(this.root.resolve(href)), BUFFER_SIZE);
+		try {
+			if (href.endsWith(".gz")) {
+				return new BufferedInputStream(new GZIPInputStream(in, BUFFER_SIZE), BUFFER_SIZE);
+			} else if (href.endsWith(".xz")) {
+				return new BufferedInputStream(new XZInputStream(in), BUFFER_SIZE);
+			} else if (href.endsWith(".bz2")) {
+				return new BufferedInputStream(new BZip2CompressorInputStream(in), BUFFER_SIZE);
+			} else if (href.endsWith(".xml")) {
+				return in;
+			}
+			throw new IOException(String.format("Unsupported compression of metadata: %s", href));
+		} catch (final IOException e) {
+			in.close();
+			throw e;
+		}
+	}
+
+	private static XMLStreamReader createReader(final InputStream in) throws XMLStreamException {
+		final XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		return factory.createXMLStreamReader(in);
+	}
+
+	private static int parseInt(final String value) {
+		try {
+			return value != null ? Integer.parseInt(value) : 0;
+		} catch (final NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	private static long parseLong(final String value) {
+		try {
+			return value != null ? Long.parseLong(value) : -1;
+		} catch (final NumberFormatException e) {
+			return -1;
+		}
+	}
+}
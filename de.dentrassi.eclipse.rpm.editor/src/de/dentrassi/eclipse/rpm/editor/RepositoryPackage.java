@@ -0,0 +1,261 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.nio.file.Path;
+
+/**
+ * A package found in a repository or a directory of RPM files
+ */
+public final class RepositoryPackage {
+
+	private final String name;
+
+	private final int epoch;
+
+	private final String version;
+
+	private final String release;
+
+	private final String arch;
+
+	private final long size;
+
+	private final Path location;
+
+	private final String pkgId;
+
+	private volatile int files;
+
+	/**
+	 * Create a new package
+	 *
+	 * @param epoch
+	 *            the epoch, {@code 0} if the package has none
+	 * @param pkgId
+	 *            the checksum identifying the package in the repository
+	 *            metadata, may be {@code null}
+	 * @param files
+	 *            the number of files, {@code -1} if it is not known (yet)
+	 */
+	public RepositoryPackage(final String name, final int epoch, final String version, final String release,
+			final String arch, final long size, final Path location, final String pkgId, final int files) {
+		this.name = name;
+		this.epoch = epoch;
+		this.version = version;
+		this.release = release;
+		this.arch = arch;
+		this.size = size;
+		this.location = location;
+		this.pkgId = pkgId;
+		this.files = files;
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	public int getEpoch() {
+		return this.epoch;
+	}
+
+	public String getVersion() {
+		return this.version;
+	}
+
+	public String getRelease() {
+		return this.release;
+	}
+
+	/**
+	 * Get the full version, in the form {@code [epoch:]version-release}
+	 */
+	public String getEvr() {
+		final StringBuilder sb = new StringBuilder();
+		if (this.epoch > 0) {
+			sb.append(this.epoch).append(':');
+		}
+		sb.append(this.version);
+		if (this.release != null && !this.release.isEmpty()) {
+			sb.append('-').append(this.release);
+		}
+		return sb.toString();
+	}
+
+	public String getArch() {
+		return this.arch;
+	}
+
+	/**
+	 * Get the size of the RPM file
+	 */
+	public long getSize() {
+		return this.size;
+	}
+
+	/**
+	 * Get the location of the RPM file
+	 */
+	public Path getLocation() {
+		return this.location;
+	}
+
+	public String getPkgId() {
+		return this.pkgId;
+	}
+
+	/**
+	 * Get the number of files
+	 *
+	 * @return the number of files, or {@code -1} if it is not known (yet)
+	 */
+	public int getFiles() {
+		return this.files;
+	}
+
+	void setFiles(final int files) {
+		this.files = files;
+	}
+
+	/**
+	 * Compare the full versions of two packages, the way RPM does
+	 */
+	public static int compareEvr(final RepositoryPackage p1, final RepositoryPackage p2) {
+		int rc = Integer.compare(p1.epoch, p2.epoch);
+		if (rc != 0) {
+			return rc;
+		}
+		rc = compareVersions(p1.version, p2.version);
+		if (rc != 0) {
+			return rc;
+		}
+		return compareVersions(p1.release, p2.release);
+	}
+
+	/**
+	 * Compare two version strings, the way {@code rpmvercmp} does
+	 * <p>
+	 * Both strings are split into segments of digits and letters. Numeric
+	 * segments compare by value and are newer than alphabetic ones. A tilde
+	 * sorts before anything else, even the end of the string.
+	 * </p>
+	 */
+	public static int compareVersions(final String v1, final String v2) {
+		final String a = v1 != null ? v1 : "";
+		final String b = v2 != null ? v2 : "";
+
+		if (a.equals(b)) {
+			return 0;
+		}
+
+		int i = 0;
+		int j = 0;
+
+		while (i < a.length() || j < b.length()) {
+			while (i < a.length() && !isSegment(a.charAt(i)) && a.charAt(i) != '~') {
+				i++;
+			}
+			while (j < b.length() && !isSegment(b.charAt(j)) && b.charAt(j) != '~') {
+				j++;
+			}
+
+			final boolean tildeA = i < a.length() && a.charAt(i) == '~';
+			final boolean tildeB = j < b.length() && b.charAt(j) == '~';
+			if (tildeA || tildeB) {
+				if (!tildeA) {
+					return 1;
+				}
+				if (!tildeB) {
+					return -1;
+				}
+				i++;
+				j++;
+				continue;
+			}
+
+			if (i >= a.length() || j >= b.length()) {
+				break;
+			}
+
+			final boolean numeric = isDigit(a.charAt(i));
+			final int startA = i;
+			final int startB = j;
+
+			if (numeric) {
+				while (i < a.length() && isDigit(a.charAt(i))) {
+					i++;
+				}
+				while (j < b.length() && isDigit(b.charAt(j))) {
+					j++;
+				}
+			} else {
+				while (i < a.length() && isLetter(a.charAt(i))) {
+					i++;
+				}
+				while (j < b.length() && isLetter(b.charAt(j))) {
+					j++;
+				}
+			}
+
+			if (startB == j) {
+				// segments of different type, numeric is newer
+				return numeric ? 1 : -1;
+			}
+
+			int rc;
+			if (numeric) {
+				final String sa = stripZeros(a.substring(startA, i));
+				final String sb = stripZeros(b.substring(startB, j));
+				rc = Integer.compare(sa.length(), sb.length());
+				if (rc == 0) {
+					rc = sa.compareTo(sb);
+				}
+			} else {
+				rc = a.substring(startA, i).compareTo(b.substring(startB, j));
+			}
+			if (rc != 0) {
+				return rc < 0 ? -1 : 1;
+			}
+		}
+
+		final boolean restA = i < a.length();
+		final boolean restB = j < b.length();
+		if (restA == restB) {
+			return 0;
+		}
+		return restA ? 1 : -1;
+	}
+
+	private static boolean isDigit(final char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static boolean isLetter(final char c) {
+		return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
+	}
+
+	private static boolean isSegment(final char c) {
+		return isDigit(c) || isLetter(c);
+	}
+
+	private static String stripZeros(final String s) {
+		int i = 0;
+		while (i < s.length() - 1 && s.charAt(i) == '0') {
+			i++;
+		}
+		return s.substring(i);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s-%s.%s", this.name, getEvr(), this.arch);
+	}
+}
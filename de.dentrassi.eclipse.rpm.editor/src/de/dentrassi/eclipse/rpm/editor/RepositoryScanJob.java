@@ -0,0 +1,244 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.packagedrone.utils.rpm.RpmLead;
+import org.eclipse.packagedrone.utils.rpm.RpmTag;
+import org.eclipse.packagedrone.utils.rpm.parse.InputHeader;
+
+/**
+ * Scan a directory for RPM packages
+ * <p>
+ * If the directory is a repository, the packages are read from the repository
+ * metadata. Otherwise all RPM files below the directory are read, only up to
+ * the end of the main header, in parallel on a bounded pool of threads.
+ * </p>
+ * <p>
+ * Packages are handed over to {@link #found(List)} in batches, while the
+ * scan is still running. All methods are called from the job's thread.
+ * </p>
+ */
+public abstract class RepositoryScanJob extends Job {
+
+	private static final long BATCH_INTERVAL = TimeUnit.MILLISECONDS.toNanos(250);
+
+	private static final int PARALLELISM = Math.max(2, Math.min(Runtime.getRuntime().availableProcessors(), 8));
+
+	private static final int BUFFER_SIZE = 16 * 1024;
+
+	private static final int MAX_LOGGED_FAILURES = 10;
+
+	private final Path directory;
+
+	private final Queue<RepositoryPackage> queue = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger failures = new AtomicInteger();
+
+	private long lastBatch;
+
+	public RepositoryScanJob(final Path directory) {
+		super(String.format("Scanning %s", directory));
+		this.directory = directory;
+	}
+
+	/**
+	 * Called for each batch of new packages
+	 */
+	protected abstract void found(List<RepositoryPackage> packages);
+
+	/**
+	 * Called when information of already reported packages was updated
+	 */
+	protected abstract void updated();
+
+	/**
+	 * Called when the scan is complete
+	 *
+	 * @param failures
+	 *            the number of files which could not be read
+	 */
+	protected abstract void completed(int failures);
+
+	protected abstract void failed(Exception e);
+
+	@Override
+	protected IStatus run(final IProgressMonitor monitor) {
+		monitor.beginTask(getName(), IProgressMonitor.UNKNOWN);
+
+		try {
+			final Path root = Repodata.findRoot(this.directory);
+			if (root != null) {
+				scanRepository(root, monitor);
+			} else {
+				scanDirectory(monitor);
+			}
+			publish();
+			completed(this.failures.get());
+			return Status.OK_STATUS;
+		} catch (final OperationCanceledException e) {
+			return Status.CANCEL_STATUS;
+		} catch (final Exception e) {
+			if (monitor.isCanceled()) {
+				return Status.CANCEL_STATUS;
+			}
+			failed(e);
+			return new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Failed to scan repository", e);
+		} finally {
+			monitor.done();
+		}
+	}
+
+	private void scanRepository(final Path root, final IProgressMonitor monitor) throws IOException {
+		final Repodata repodata = Repodata.open(root);
+
+		monitor.subTask("Reading primary metadata");
+
+		final Map<String, RepositoryPackage> packages = new HashMap<>();
+		repodata.readPrimary(p -> {
+			if (p.getPkgId() != null) {
+				packages.put(p.getPkgId(), p);
+			}
+			this.queue.add(p);
+			publishIfDue();
+		}, monitor);
+
+		publish();
+
+		if (repodata.hasFileLists()) {
+			monitor.subTask("Reading file lists");
+			repodata.readFileLists(packages, monitor);
+			updated();
+		}
+	}
+
+	private void scanDirectory(final IProgressMonitor monitor) throws IOException {
+		final ForkJoinPool pool = new ForkJoinPool(PARALLELISM);
+		try {
+			final AtomicInteger total = new AtomicInteger();
+
+			Files.walkFileTree(this.directory, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+					if (monitor.isCanceled()) {
+						return FileVisitResult.TERMINATE;
+					}
+					if (attrs.isRegularFile() && file.getFileName().toString().endsWith(".rpm")) {
+						total.incrementAndGet();
+						pool.execute(() -> read(file));
+					}
+					publishIfDue();
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(final Path file, final IOException exc) {
+					return FileVisitResult.CONTINUE;
+				}
+			});
+
+			monitor.subTask(String.format("Reading %,d packages", total.get()));
+
+			while (!pool.awaitQuiescence(BATCH_INTERVAL, TimeUnit.NANOSECONDS)) {
+				if (monitor.isCanceled()) {
+					throw new OperationCanceledException();
+				}
+				publish();
+			}
+
+			if (monitor.isCanceled()) {
+				throw new OperationCanceledException();
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private void read(final Path file) {
+		try {
+			this.queue.add(readPackage(file));
+		} catch (final Exception e) {
+			if (this.failures.incrementAndGet() <= MAX_LOGGED_FAILURES) {
+				Activator.getDefault().getLog().log(new Status(IStatus.WARNING, Activator.PLUGIN_ID,
+						String.format("Failed to read RPM file: %s", file), e));
+			}
+		}
+	}
+
+	/**
+	 * Read a package from an RPM file, only up to the end of the main header
+	 */
+	public static RepositoryPackage readPackage(final Path file) throws IOException {
+		try (RpmHeaderInputStream in = new RpmHeaderInputStream(
+				new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+			final RpmLead lead = in.getLead();
+			final InputHeader<RpmTag> header = in.getPayloadHeader();
+
+			final String arch = lead.getType() == 1 ? "src" : getString(header, RpmTag.ARCH);
+			final Integer epoch = getFirst(header, RpmTag.EPOCH, Integer[].class);
+			final String[] basenames = Headers.getArray(header, RpmTag.BASENAMES.getValue(), String[].class)
+					.orElse(null);
+
+			return new RepositoryPackage(getString(header, RpmTag.NAME), epoch != null ? epoch : 0,
+					getString(header, RpmTag.VERSION), getString(header, RpmTag.RELEASE), arch, Files.size(file),
+					file, null, basenames != null ? basenames.length : 0);
+		}
+	}
+
+	private static String getString(final InputHeader<RpmTag> header, final RpmTag tag) {
+		return getFirst(header, tag, String[].class);
+	}
+
+	private static <T> T getFirst(final InputHeader<RpmTag> header, final RpmTag tag, final Class<T[]> clazz) {
+		return Headers.get(Headers.getArray(header, tag.getValue(), clazz), 0);
+	}
+
+	private void publishIfDue() {
+		if (System.nanoTime() - this.lastBatch >= BATCH_INTERVAL) {
+			publish();
+		}
+	}
+
+	private void publish() {
+		this.lastBatch = System.nanoTime();
+
+		final List<RepositoryPackage> batch = new ArrayList<>();
+		RepositoryPackage p;
+		while ((p = this.queue.poll()) != null) {
+			batch.add(p);
+		}
+
+		if (!batch.isEmpty()) {
+			found(batch);
+		}
+	}
+}
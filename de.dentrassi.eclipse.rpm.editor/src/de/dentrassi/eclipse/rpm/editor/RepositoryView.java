@@ -0,0 +1,360 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.jface.action.Action;
+import org.eclipse.jface.action.IToolBarManager;
+import org.eclipse.jface.layout.TableColumnLayout;
+import org.eclipse.jface.viewers.CellLabelProvider;
+import org.eclipse.jface.viewers.ColumnWeightData;
+import org.eclipse.jface.viewers.ILazyContentProvider;
+import org.eclipse.jface.viewers.IStructuredSelection;
+import org.eclipse.jface.viewers.TableViewer;
+import org.eclipse.jface.viewers.TableViewerColumn;
+import org.eclipse.jface.viewers.Viewer;
+import org.eclipse.jface.viewers.ViewerCell;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.DirectoryDialog;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.ui.IMemento;
+import org.eclipse.ui.IViewSite;
+import org.eclipse.ui.PartInitException;
+import org.eclipse.ui.ide.IDE;
+import org.eclipse.ui.part.ViewPart;
+
+/**
+ * Browse the packages of a repository, or a directory of RPM files
+ * <p>
+ * Packages show up in the table while the directory is still being scanned.
+ * The table is virtual and sorted by the view itself, so that it stays
+ * responsive with tens of thousands of packages.
+ * </p>
+ */
+public class RepositoryView extends ViewPart {
+
+	public static final String ID = "de.dentrassi.eclipse.rpm.editor.repository";
+
+	private static final String MEMENTO_DIRECTORY = "directory";
+
+	private final NumberFormat sizeFormat = NumberFormat.getIntegerInstance();
+
+	private Display display;
+
+	private Label status;
+
+	private TableViewer viewer;
+
+	private final List<RepositoryPackage> packages = new ArrayList<>();
+
+	private Comparator<RepositoryPackage> comparator;
+
+	private Path directory;
+
+	private RepositoryScanJob job;
+
+	private String failure;
+
+	private Action refreshAction;
+
+	@Override
+	public void init(final IViewSite site, final IMemento memento) throws PartInitException {
+		super.init(site, memento);
+		if (memento != null && memento.getString(MEMENTO_DIRECTORY) != null) {
+			this.directory = Paths.get(memento.getString(MEMENTO_DIRECTORY));
+		}
+	}
+
+	@Override
+	public void saveState(final IMemento memento) {
+		super.saveState(memento);
+		if (this.directory != null) {
+			memento.putString(MEMENTO_DIRECTORY, this.directory.toString());
+		}
+	}
+
+	@Override
+	public void createPartControl(final Composite parent) {
+		this.display = parent.getDisplay();
+
+		final Composite wrapper = new Composite(parent, SWT.NO_BACKGROUND);
+		final GridLayout wrapperLayout = new GridLayout(1, false);
+		wrapperLayout.marginWidth = 0;
+		wrapperLayout.marginHeight = 0;
+		wrapper.setLayout(wrapperLayout);
+
+		this.status = new Label(wrapper, SWT.NONE);
+		this.status.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+
+		final Composite tableWrapper = new Composite(wrapper, SWT.NO_BACKGROUND);
+		tableWrapper.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true));
+
+		this.viewer = new TableViewer(tableWrapper,
+				SWT.MULTI | SWT.H_SCROLL | SWT.V_SCROLL | SWT.FULL_SELECTION | SWT.VIRTUAL);
+
+		final TableColumnLayout layout = new TableColumnLayout();
+
+		final Comparator<RepositoryPackage> byName = Comparator.comparing(RepositoryPackage::getName,
+				Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER));
+
+		createColumn(layout, "Name", 3, RepositoryPackage::getName, byName);
+		createColumn(layout, "Version", 2, RepositoryPackage::getEvr, RepositoryPackage::compareEvr);
+		createColumn(layout, "Arch", 1, RepositoryPackage::getArch,
+				Comparator.comparing(RepositoryPackage::getArch, Comparator.nullsFirst(Comparator.naturalOrder())));
+		createColumn(layout, "Size", 1, p -> this.sizeFormat.format(p.getSize()),
+				Comparator.comparingLong(RepositoryPackage::getSize));
+		createColumn(layout, "Files", 1, p -> p.getFiles() < 0 ? "" : this.sizeFormat.format(p.getFiles()),
+				Comparator.comparingInt(RepositoryPackage::getFiles));
+		createColumn(layout, "Location", 4, this::makeLocation,
+				Comparator.comparing(RepositoryPackage::getLocation));
+
+		tableWrapper.setLayout(layout);
+		this.viewer.getTable().setHeaderVisible(true);
+		this.viewer.getTable().setLinesVisible(true);
+
+		this.viewer.setUseHashlookup(true);
+		this.viewer.setContentProvider(new ILazyContentProvider() {
+
+			@Override
+			public void updateElement(final int index) {
+				if (index < RepositoryView.this.packages.size()) {
+					RepositoryView.this.viewer.replace(RepositoryView.this.packages.get(index), index);
+				}
+			}
+
+			@Override
+			public void inputChanged(final Viewer viewer, final Object oldInput, final Object newInput) {
+			}
+
+			@Override
+			public void dispose() {
+			}
+		});
+		this.viewer.setInput(this.packages);
+
+		this.viewer.addDoubleClickListener(evt -> open((IStructuredSelection) evt.getSelection()));
+
+		final Action openAction = new Action("Open Directory…") {
+			@Override
+			public void run() {
+				selectDirectory();
+			}
+		};
+		openAction.setToolTipText("Open a repository or a directory containing RPM files");
+
+		this.refreshAction = new Action("Refresh") {
+			@Override
+			public void run() {
+				scan();
+			}
+		};
+		this.refreshAction.setToolTipText("Scan the directory again");
+
+		final IToolBarManager toolBar = getViewSite().getActionBars().getToolBarManager();
+		toolBar.add(openAction);
+		toolBar.add(this.refreshAction);
+
+		scan();
+	}
+
+	private void createColumn(final TableColumnLayout layout, final String label, final int weight,
+			final Function<RepositoryPackage, String> text, final Comparator<RepositoryPackage> comparator) {
+		final TableViewerColumn col = new TableViewerColumn(this.viewer, SWT.NONE);
+		col.getColumn().setText(label);
+		col.setLabelProvider(new CellLabelProvider() {
+
+			@Override
+			public void update(final ViewerCell cell) {
+				final Object ele = cell.getElement();
+				if (ele instanceof RepositoryPackage) {
+					final String value = text.apply((RepositoryPackage) ele);
+					cell.setText(value != null ? value : "");
+				}
+			}
+		});
+		col.getColumn().addListener(SWT.Selection, evt -> sortBy(col.getColumn(), comparator));
+		layout.setColumnData(col.getColumn(), new ColumnWeightData(weight));
+	}
+
+	private String makeLocation(final RepositoryPackage p) {
+		if (this.directory != null && p.getLocation().startsWith(this.directory)) {
+			return this.directory.relativize(p.getLocation()).toString();
+		}
+		return p.getLocation().toString();
+	}
+
+	private void sortBy(final TableColumn column, final Comparator<RepositoryPackage> comparator) {
+		final Table table = this.viewer.getTable();
+
+		int direction = SWT.UP;
+		if (table.getSortColumn() == column && table.getSortDirection() == SWT.UP) {
+			direction = SWT.DOWN;
+		}
+
+		table.setSortColumn(column);
+		table.setSortDirection(direction);
+		this.comparator = direction == SWT.UP ? comparator : comparator.reversed();
+
+		sort();
+		this.viewer.refresh();
+	}
+
+	private void sort() {
+		if (this.comparator != null) {
+			this.packages.sort(this.comparator);
+		}
+	}
+
+	private void selectDirectory() {
+		final DirectoryDialog dlg = new DirectoryDialog(getSite().getShell());
+		dlg.setText("Open Directory");
+		dlg.setMessage("Select a repository or a directory containing RPM files");
+		if (this.directory != null) {
+			dlg.setFilterPath(this.directory.toString());
+		}
+
+		final String result = dlg.open();
+		if (result == null) {
+			return;
+		}
+
+		this.directory = Paths.get(result);
+		scan();
+	}
+
+	private void scan() {
+		if (this.job != null) {
+			this.job.cancel();
+			this.job = null;
+		}
+
+		this.packages.clear();
+		this.failure = null;
+		this.viewer.setItemCount(0);
+		this.viewer.refresh();
+
+		this.refreshAction.setEnabled(this.directory != null);
+
+		if (this.directory == null) {
+			setContentDescription("");
+			this.status.setText("Open a repository or a directory containing RPM files");
+			return;
+		}
+
+		setContentDescription(this.directory.toString());
+
+		final RepositoryScanJob job = new RepositoryScanJob(this.directory) {
+
+			@Override
+			protected void found(final List<RepositoryPackage> packages) {
+				update(this, () -> RepositoryView.this.packages.addAll(packages), true);
+			}
+
+			@Override
+			protected void updated() {
+				update(this, null, true);
+			}
+
+			@Override
+			protected void completed(final int failures) {
+				update(this, () -> {
+					if (failures > 0) {
+						RepositoryView.this.failure = String.format("%,d files could not be read", failures);
+					}
+				}, false);
+			}
+
+			@Override
+			protected void failed(final Exception e) {
+				update(this, () -> RepositoryView.this.failure = e.getMessage() != null ? e.getMessage()
+						: e.getClass().getSimpleName(), false);
+			}
+		};
+		this.job = job;
+		updateStatus(true);
+		job.schedule();
+	}
+
+	private void update(final RepositoryScanJob job, final Runnable change, final boolean scanning) {
+		this.display.asyncExec(() -> {
+			if (this.job != job || this.viewer.getTable().isDisposed()) {
+				return;
+			}
+			if (change != null) {
+				change.run();
+			}
+			if (!scanning) {
+				this.job = null;
+			}
+			sort();
+			this.viewer.setItemCount(this.packages.size());
+			this.viewer.refresh();
+			updateStatus(scanning);
+		});
+	}
+
+	private void updateStatus(final boolean scanning) {
+		final StringBuilder sb = new StringBuilder(String.format("%,d packages", this.packages.size()));
+		if (scanning) {
+			sb.append(", scanning…");
+		}
+		if (this.failure != null) {
+			sb.append(" – ").append(this.failure);
+		}
+		this.status.setText(sb.toString());
+	}
+
+	private void open(final IStructuredSelection selection) {
+		for (final Object ele : selection.toList()) {
+			if (!(ele instanceof RepositoryPackage)) {
+				continue;
+			}
+			final Path location = ((RepositoryPackage) ele).getLocation();
+			try {
+				IDE.openEditorOnFileStore(getSite().getPage(),
+						EFS.getLocalFileSystem().getStore(location.toUri()));
+			} catch (final PartInitException e) {
+				Activator.getDefault().getLog()
+						.log(new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Failed to open RPM file", e));
+			}
+		}
+	}
+
+	@Override
+	public void setFocus() {
+		this.viewer.getControl().setFocus();
+	}
+
+	@Override
+	public void dispose() {
+		if (this.job != null) {
+			this.job.cancel();
+			this.job = null;
+		}
+		super.dispose();
+	}
+}
@@ -0,0 +1,290 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.eclipse.packagedrone.utils.rpm.parse.InputHeader;
+
+/**
+ * A cache of parsed RPM files, shared by all editors
+ * <p>
+ * Recently used entries are held strongly, up to the configured memory
+ * budget. Entries which get evicted from the strongly held part are still
+ * held by a soft reference, so they can be re-used until the garbage
+ * collector needs the memory.
+ * </p>
+ * <p>
+ * The memory used by an entry is only an estimate, see
+ * {@link #estimateSize(RpmInformation)}.
+ * </p>
+ */
+public class RpmCache {
+
+	/**
+	 * The key of a cache entry
+	 * <p>
+	 * The key consists of the identity of the RPM data, plus its size and
+	 * timestamp. So a changed file will not match a previous entry.
+	 * </p>
+	 */
+	public static final class Key {
+
+		private final Object identity;
+
+		private final long size;
+
+		private final long timestamp;
+
+		/**
+		 * Create a new key
+		 *
+		 * @param identity
+		 *            the identity of the source, must implement
+		 *            {@link Object#equals(Object)} and
+		 *            {@link Object#hashCode()} accordingly
+		 * @param size
+		 *            the size of the data, or {@code -1} if unknown
+		 * @param timestamp
+		 *            the modification timestamp, or {@code -1} if unknown
+		 */
+		public Key(final Object identity, final long size, final long timestamp) {
+			this.identity = Objects.requireNonNull(identity);
+			this.size = size;
+			this.timestamp = timestamp;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(this.identity, this.size, this.timestamp);
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			final Key other = (Key) obj;
+			return this.size == other.size && this.timestamp == other.timestamp
+					&& this.identity.equals(other.identity);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("[%s, size: %s, timestamp: %s]", this.identity, this.size, this.timestamp);
+		}
+	}
+
+	private static class Entry {
+
+		private final RpmInformation information;
+
+		private final long size;
+
+		public Entry(final RpmInformation information, final long size) {
+			this.information = information;
+			this.size = size;
+		}
+	}
+
+	private static class SoftEntry extends SoftReference<RpmInformation> {
+
+		private final Key key;
+
+		public SoftEntry(final Key key, final RpmInformation information,
+				final ReferenceQueue<RpmInformation> queue) {
+			super(information, queue);
+			this.key = key;
+		}
+	}
+
+	private final long budget;
+
+	private long used;
+
+	private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	private final Map<Key, SoftEntry> softEntries = new HashMap<>();
+
+	private final ReferenceQueue<RpmInformation> queue = new ReferenceQueue<>();
+
+	/**
+	 * Create a new cache
+	 *
+	 * @param budget
+	 *            the number of bytes the strongly held entries may use
+	 */
+	public RpmCache(final long budget) {
+		this.budget = budget;
+	}
+
+	/**
+	 * Get a cached entry
+	 *
+	 * @param key
+	 *            the key to look up
+	 * @return the cached information, or {@code null} if there is none
+	 */
+	public synchronized RpmInformation get(final Key key) {
+		purge();
+
+		final Entry entry = this.entries.get(key);
+		if (entry != null) {
+			return entry.information;
+		}
+
+		final SoftEntry softEntry = this.softEntries.get(key);
+		if (softEntry == null) {
+			return null;
+		}
+
+		final RpmInformation result = softEntry.get();
+		if (result != null) {
+			// promote again
+			store(key, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Add an entry to the cache
+	 * <p>
+	 * If there already is an entry for the key, e.g. because a second editor
+	 * loaded the same file concurrently, the existing entry is kept and
+	 * returned. So all editors end up sharing the same instance.
+	 * </p>
+	 * <p>
+	 * If the entry alone exceeds the budget, it will only be held softly.
+	 * </p>
+	 *
+	 * @param key
+	 *            the key of the entry
+	 * @param information
+	 *            the information to cache, must contain the payload files
+	 * @return the cached instance, which should be used instead of the
+	 *         provided one
+	 */
+	public synchronized RpmInformation put(final Key key, final RpmInformation information) {
+		final RpmInformation existing = get(key);
+		if (existing != null) {
+			return existing;
+		}
+
+		store(key, information);
+		return information;
+	}
+
+	private void store(final Key key, final RpmInformation information) {
+		this.softEntries.remove(key);
+
+		final long size = estimateSize(information);
+		if (size > this.budget) {
+			this.softEntries.put(key, new SoftEntry(key, information, this.queue));
+			return;
+		}
+
+		this.entries.put(key, new Entry(information, size));
+		this.used += size;
+
+		// evict least recently used entries
+
+		final Iterator<Map.Entry<Key, Entry>> i = this.entries.entrySet().iterator();
+		while (this.used > this.budget && i.hasNext()) {
+			final Map.Entry<Key, Entry> evicted = i.next();
+			i.remove();
+			this.used -= evicted.getValue().size;
+			this.softEntries.put(evicted.getKey(),
+					new SoftEntry(evicted.getKey(), evicted.getValue().information, this.queue));
+		}
+	}
+
+	/**
+	 * Remove all entries
+	 */
+	public synchronized void clear() {
+		this.entries.clear();
+		this.softEntries.clear();
+		this.used = 0;
+		purge();
+	}
+
+	/**
+	 * Remove soft entries which got cleared by the garbage collector
+	 */
+	private void purge() {
+		Reference<? extends RpmInformation> ref;
+		while ((ref = this.queue.poll()) != null) {
+			final SoftEntry entry = (SoftEntry) ref;
+			this.softEntries.remove(entry.key, entry);
+		}
+	}
+
+	/**
+	 * Estimate the memory used by the parsed information
+	 * <p>
+	 * The parsed header values take roughly four times the space of their
+	 * binary representation, mostly because of boxed values. Each file costs
+	 * its name, the file entry and its node in the file tree.
+	 * </p>
+	 * <p>
+	 * The file tree and its {@link FileTreeIndex} are built lazily, after the
+	 * entry got cached. As the editor builds both right away, they are
+	 * accounted for up front. The index keeps a lower case copy of each name
+	 * and its trigrams.
+	 * </p>
+	 *
+	 * @param information
+	 *            the information to estimate
+	 * @return the estimated size in bytes
+	 */
+	public static long estimateSize(final RpmInformation information) {
+		long result = 0;
+
+		result += estimateSize(information.getHeader());
+		result += estimateSize(information.getSignatureHeader());
+
+		final List<FileEntry> files = information.getFiles();
+		if (files != null) {
+			// directory prefixes are shared between entries
+			final Set<String> directories = Collections.newSetFromMap(new IdentityHashMap<>());
+			for (final FileEntry file : files) {
+				result += 120 + 2L * file.getBasename().length();
+				// the tree node, and the entries of the index
+				result += 64 + 6L * file.getBasename().length();
+				if (directories.add(file.getDirectory())) {
+					result += 40 + 2L * file.getDirectory().length();
+					// the directory node, with its own name in the index
+					result += 64;
+				}
+			}
+		}
+
+		return result;
+	}
+
+	private static long estimateSize(final InputHeader<?> header) {
+		return header != null ? 4L * header.getLength() : 0;
+	}
+}
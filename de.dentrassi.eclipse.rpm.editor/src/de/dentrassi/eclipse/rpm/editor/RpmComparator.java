@@ -0,0 +1,470 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.packagedrone.utils.rpm.RpmSignatureTag;
+import org.eclipse.packagedrone.utils.rpm.RpmTag;
+import org.eclipse.packagedrone.utils.rpm.deps.Dependency;
+import org.eclipse.packagedrone.utils.rpm.parse.HeaderValue;
+import org.eclipse.packagedrone.utils.rpm.parse.InputHeader;
+
+import de.dentrassi.eclipse.rpm.editor.RpmComparison.Section;
+import de.dentrassi.eclipse.rpm.editor.RpmDifference.Kind;
+
+/**
+ * Compare two RPM files
+ * <p>
+ * All parts are compared by a single merge of both sides, sorted by the same
+ * key: the tag of the header entries, the name of the dependencies and the
+ * path of the files. The payload is never read. Files are compared using the
+ * digests of the header, and their attributes.
+ * </p>
+ */
+public final class RpmComparator {
+
+	private static final int MAX_VALUE_LENGTH = 200;
+
+	private static final int DIGEST_LENGTH = 16;
+
+	private static final int CANCEL_CHECK_INTERVAL = 1024;
+
+	/**
+	 * The files of one side, sorted by path
+	 */
+	private static final class Files {
+
+		private final FileTable table;
+
+		private final List<FileEntry> entries;
+
+		private final String[] paths;
+
+		private final int[] order;
+
+		private Files(final RpmInformation information) {
+			final FileTable table = information.getFileTable();
+			if (table.getCount() > 0) {
+				this.table = table;
+				this.entries = null;
+				this.paths = new String[table.getCount()];
+				for (int i = 0; i < this.paths.length; i++) {
+					this.paths[i] = table.getPath(i);
+				}
+			} else {
+				// no file information in the header, use the payload
+				this.table = null;
+				final List<FileEntry> files = information.getFiles();
+				this.entries = files != null ? files : Collections.emptyList();
+				this.paths = new String[this.entries.size()];
+				for (int i = 0; i < this.paths.length; i++) {
+					this.paths[i] = Payloads.toPath(this.entries.get(i).getName());
+				}
+			}
+
+			this.order = sort(this.paths);
+		}
+
+		public int getCount() {
+			return this.paths.length;
+		}
+
+		/**
+		 * Get the path by position in the sorted order
+		 */
+		public String getPath(final int position) {
+			return this.paths[this.order[position]];
+		}
+
+		/**
+		 * Get the index in the file table, or file list, by position in the
+		 * sorted order
+		 */
+		public int getIndex(final int position) {
+			return this.order[position];
+		}
+
+		public long getSize(final int index) {
+			return this.table != null ? this.table.getSize(index) : this.entries.get(index).getSize();
+		}
+
+		public int getMode(final int index) {
+			return this.table != null ? this.table.getMode(index) : -1;
+		}
+
+		public String getUser(final int index) {
+			return this.table != null ? this.table.getUser(index) : null;
+		}
+
+		public String getGroup(final int index) {
+			return this.table != null ? this.table.getGroup(index) : null;
+		}
+
+		public String getLinkTo(final int index) {
+			return this.table != null ? this.table.getLinkTo(index) : null;
+		}
+
+		public String getDigest(final int index) {
+			return this.table != null ? this.table.getDigest(index) : null;
+		}
+
+		public int getDigestAlgorithm() {
+			return this.table != null ? this.table.getDigestAlgorithm() : -1;
+		}
+
+		public String describe(final int index) {
+			final StringBuilder sb = new StringBuilder();
+			sb.append(String.format("%,d bytes", getSize(index)));
+			if (getMode(index) >= 0) {
+				sb.append(String.format(", %06o", getMode(index)));
+			}
+			if (getUser(index) != null || getGroup(index) != null) {
+				sb.append(String.format(", %s:%s", getUser(index), getGroup(index)));
+			}
+			if (!isEmpty(getLinkTo(index))) {
+				sb.append(String.format(", → %s", getLinkTo(index)));
+			}
+			final String digest = getDigest(index);
+			if (!isEmpty(digest)) {
+				sb.append(", ").append(digest, 0, Math.min(digest.length(), DIGEST_LENGTH));
+			}
+			return sb.toString();
+		}
+
+		/**
+		 * Get the sorted order of the paths
+		 * <p>
+		 * The header lists files sorted already, so sorting is skipped if
+		 * possible.
+		 * </p>
+		 */
+		private static int[] sort(final String[] paths) {
+			boolean sorted = true;
+			for (int i = 1; i < paths.length && sorted; i++) {
+				sorted = paths[i - 1].compareTo(paths[i]) <= 0;
+			}
+
+			final int[] order = new int[paths.length];
+			if (sorted) {
+				for (int i = 0; i < order.length; i++) {
+					order[i] = i;
+				}
+				return order;
+			}
+
+			final Integer[] boxed = new Integer[paths.length];
+			for (int i = 0; i < boxed.length; i++) {
+				boxed[i] = i;
+			}
+			Arrays.sort(boxed, Comparator.comparing(i -> paths[i]));
+			for (int i = 0; i < order.length; i++) {
+				order[i] = boxed[i];
+			}
+			return order;
+		}
+	}
+
+	private final RpmComparison result = new RpmComparison();
+
+	private final IProgressMonitor monitor;
+
+	private int steps;
+
+	private RpmComparator(final IProgressMonitor monitor) {
+		this.monitor = monitor;
+	}
+
+	/**
+	 * Compare two RPM files
+	 *
+	 * @param left
+	 *            the left RPM, its payload must be loaded
+	 * @param right
+	 *            the right RPM, its payload must be loaded
+	 * @param monitor
+	 *            the monitor to check for cancellation
+	 * @return the differences
+	 * @throws OperationCanceledException
+	 *             if the monitor got canceled
+	 */
+	public static RpmComparison compare(final RpmInformation left, final RpmInformation right,
+			final IProgressMonitor monitor) {
+		final RpmComparator comparator = new RpmComparator(monitor);
+
+		monitor.subTask("Comparing headers");
+		comparator.compareHeaders(Section.HEADER, left.getHeader(), right.getHeader(), RpmTag::find);
+		comparator.compareHeaders(Section.SIGNATURE_HEADER, left.getSignatureHeader(), right.getSignatureHeader(),
+				RpmSignatureTag::find);
+
+		monitor.subTask("Comparing dependencies");
+		comparator.compareDependencies(RpmDependencies.getDependencies(left),
+				RpmDependencies.getDependencies(right));
+
+		monitor.subTask("Comparing files");
+		comparator.compareFiles(new Files(left), new Files(right));
+
+		return comparator.result;
+	}
+
+	private void checkCanceled() {
+		if (++this.steps % CANCEL_CHECK_INTERVAL == 0 && this.monitor.isCanceled()) {
+			throw new OperationCanceledException();
+		}
+	}
+
+	private void compareHeaders(final Section section, final InputHeader<?> left, final InputHeader<?> right,
+			final Function<Integer, Object> tagNames) {
+		final Map<Integer, HeaderValue> leftTags = left.getRawTags();
+		final Map<Integer, HeaderValue> rightTags = right.getRawTags();
+
+		final int[] leftKeys = sortedKeys(leftTags);
+		final int[] rightKeys = sortedKeys(rightTags);
+
+		int i = 0;
+		int j = 0;
+		while (i < leftKeys.length || j < rightKeys.length) {
+			checkCanceled();
+
+			final int c;
+			if (i >= leftKeys.length) {
+				c = 1;
+			} else if (j >= rightKeys.length) {
+				c = -1;
+			} else {
+				c = Integer.compare(leftKeys[i], rightKeys[j]);
+			}
+
+			if (c < 0) {
+				final Object value = leftTags.get(leftKeys[i]).getValue();
+				this.result.add(section, new RpmDifference(makeTagName(leftKeys[i], tagNames), Kind.REMOVED,
+						HeaderValues.makeString(value, MAX_VALUE_LENGTH), null, null));
+				i++;
+			} else if (c > 0) {
+				final Object value = rightTags.get(rightKeys[j]).getValue();
+				this.result.add(section, new RpmDifference(makeTagName(rightKeys[j], tagNames), Kind.ADDED, null,
+						HeaderValues.makeString(value, MAX_VALUE_LENGTH), null));
+				j++;
+			} else {
+				final Object leftValue = leftTags.get(leftKeys[i]).getValue();
+				final Object rightValue = rightTags.get(rightKeys[j]).getValue();
+				if (Objects.deepEquals(leftValue, rightValue)) {
+					this.result.addUnchanged(section);
+				} else {
+					this.result.add(section,
+							new RpmDifference(makeTagName(leftKeys[i], tagNames), Kind.CHANGED,
+									HeaderValues.makeString(leftValue, MAX_VALUE_LENGTH),
+									HeaderValues.makeString(rightValue, MAX_VALUE_LENGTH), null));
+				}
+				i++;
+				j++;
+			}
+		}
+	}
+
+	private static int[] sortedKeys(final Map<Integer, HeaderValue> tags) {
+		final int[] keys = new int[tags.size()];
+		int i = 0;
+		for (final Integer key : tags.keySet()) {
+			keys[i++] = key;
+		}
+		Arrays.sort(keys);
+		return keys;
+	}
+
+	private static String makeTagName(final int tag, final Function<Integer, Object> tagNames) {
+		final Object name = tagNames.apply(tag);
+		return name != null ? String.format("%s (%d)", name, tag) : Integer.toString(tag);
+	}
+
+	/**
+	 * Compare the dependencies, by category
+	 * <p>
+	 * Dependencies with the same name are grouped. Within a group, equal
+	 * dependencies are unchanged, the rest is paired up as changed. Only
+	 * unpaired dependencies are reported as added or removed.
+	 * </p>
+	 */
+	private void compareDependencies(final Map<String, List<Dependency>> left,
+			final Map<String, List<Dependency>> right) {
+		for (final Map.Entry<String, List<Dependency>> entry : left.entrySet()) {
+			final String category = entry.getKey();
+			final List<String[]> leftDeps = sortDependencies(entry.getValue());
+			final List<String[]> rightDeps = sortDependencies(right.get(category));
+
+			int i = 0;
+			int j = 0;
+			while (i < leftDeps.size() || j < rightDeps.size()) {
+				checkCanceled();
+
+				final String name;
+				if (i >= leftDeps.size()) {
+					name = rightDeps.get(j)[0];
+				} else if (j >= rightDeps.size()) {
+					name = leftDeps.get(i)[0];
+				} else {
+					final String l = leftDeps.get(i)[0];
+					final String r = rightDeps.get(j)[0];
+					name = l.compareTo(r) <= 0 ? l : r;
+				}
+
+				final List<String> leftGroup = new ArrayList<>();
+				while (i < leftDeps.size() && leftDeps.get(i)[0].equals(name)) {
+					leftGroup.add(leftDeps.get(i++)[1]);
+				}
+				final List<String> rightGroup = new ArrayList<>();
+				while (j < rightDeps.size() && rightDeps.get(j)[0].equals(name)) {
+					rightGroup.add(rightDeps.get(j++)[1]);
+				}
+
+				compareDependencyGroup(category + ": " + name, leftGroup, rightGroup);
+			}
+		}
+	}
+
+	private void compareDependencyGroup(final String name, final List<String> left, final List<String> right) {
+		final List<String> removed = new ArrayList<>(left);
+		final List<String> added = new ArrayList<>();
+
+		for (final String dep : right) {
+			if (removed.remove(dep)) {
+				this.result.addUnchanged(Section.DEPENDENCIES);
+			} else {
+				added.add(dep);
+			}
+		}
+
+		final int pairs = Math.min(removed.size(), added.size());
+		for (int k = 0; k < pairs; k++) {
+			this.result.add(Section.DEPENDENCIES,
+					new RpmDifference(name, Kind.CHANGED, removed.get(k), added.get(k), null));
+		}
+		for (int k = pairs; k < removed.size(); k++) {
+			this.result.add(Section.DEPENDENCIES, new RpmDifference(name, Kind.REMOVED, removed.get(k), null, null));
+		}
+		for (int k = pairs; k < added.size(); k++) {
+			this.result.add(Section.DEPENDENCIES, new RpmDifference(name, Kind.ADDED, null, added.get(k), null));
+		}
+	}
+
+	/**
+	 * Convert dependencies to pairs of name and text, sorted by name
+	 */
+	private static List<String[]> sortDependencies(final List<Dependency> dependencies) {
+		if (dependencies == null) {
+			return Collections.emptyList();
+		}
+
+		final List<String[]> result = new ArrayList<>(dependencies.size());
+		for (final Dependency dep : dependencies) {
+			final String op = RpmDependencies.makeOperator(dep.getFlags());
+			final String text = op.isEmpty() ? dep.getName()
+					: String.format("%s %s %s", dep.getName(), op, dep.getVersion());
+			result.add(new String[] { dep.getName(), text });
+		}
+		result.sort(Comparator.comparing((final String[] dep) -> dep[0]));
+		return result;
+	}
+
+	private void compareFiles(final Files left, final Files right) {
+		final boolean digests = left.getDigestAlgorithm() >= 0
+				&& left.getDigestAlgorithm() == right.getDigestAlgorithm();
+
+		int i = 0;
+		int j = 0;
+		while (i < left.getCount() || j < right.getCount()) {
+			checkCanceled();
+
+			final int c;
+			if (i >= left.getCount()) {
+				c = 1;
+			} else if (j >= right.getCount()) {
+				c = -1;
+			} else {
+				c = left.getPath(i).compareTo(right.getPath(j));
+			}
+
+			if (c < 0) {
+				this.result.add(Section.PAYLOAD, new RpmDifference(left.getPath(i), Kind.REMOVED,
+						left.describe(left.getIndex(i)), null, null));
+				i++;
+			} else if (c > 0) {
+				this.result.add(Section.PAYLOAD, new RpmDifference(right.getPath(j), Kind.ADDED, null,
+						right.describe(right.getIndex(j)), null));
+				j++;
+			} else {
+				compareFile(left.getPath(i), left, left.getIndex(i), right, right.getIndex(j), digests);
+				i++;
+				j++;
+			}
+		}
+	}
+
+	private void compareFile(final String path, final Files left, final int l, final Files right, final int r,
+			final boolean digests) {
+		final List<String> changes = new ArrayList<>(2);
+
+		if (left.getMode(l) != right.getMode(r)) {
+			changes.add("mode");
+		}
+		if (!Objects.equals(left.getUser(l), right.getUser(r))) {
+			changes.add("user");
+		}
+		if (!Objects.equals(left.getGroup(l), right.getGroup(r))) {
+			changes.add("group");
+		}
+		if (!Objects.equals(emptyToNull(left.getLinkTo(l)), emptyToNull(right.getLinkTo(r)))) {
+			changes.add("link");
+		}
+
+		boolean verified = true;
+		final String leftDigest = left.getDigest(l);
+		final String rightDigest = right.getDigest(r);
+		if (digests && !isEmpty(leftDigest) && !isEmpty(rightDigest)) {
+			if (!leftDigest.equalsIgnoreCase(rightDigest)) {
+				changes.add("content");
+			}
+		} else if (left.getSize(l) != right.getSize(r)) {
+			changes.add("size");
+		} else {
+			// directories and other special files have no digest, as well
+			verified = isEmpty(leftDigest) && isEmpty(rightDigest) && left.getMode(l) >= 0
+					&& (left.getMode(l) & 0xF000) != 0x8000;
+		}
+
+		if (changes.isEmpty()) {
+			this.result.addUnchanged(Section.PAYLOAD);
+			if (!verified) {
+				this.result.addUnverified();
+			}
+		} else {
+			this.result.add(Section.PAYLOAD, new RpmDifference(path, Kind.CHANGED, left.describe(l),
+					right.describe(r), String.join(", ", changes)));
+		}
+	}
+
+	private static boolean isEmpty(final String value) {
+		return value == null || value.isEmpty();
+	}
+
+	private static String emptyToNull(final String value) {
+		return isEmpty(value) ? null : value;
+	}
+}
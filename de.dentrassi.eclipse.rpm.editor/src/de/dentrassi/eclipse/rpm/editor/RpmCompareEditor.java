@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.ui.IEditorInput;
+import org.eclipse.ui.part.MultiPageEditorPart;
+
+import de.dentrassi.eclipse.rpm.editor.RpmComparison.Section;
+
+/**
+ * Compare two RPM files side by side
+ * <p>
+ * Both files are loaded like in the {@link EditorImpl}, sharing the cache
+ * and the index. The comparison starts as soon as both are loaded.
+ * </p>
+ */
+public class RpmCompareEditor extends MultiPageEditorPart {
+
+	public static final String ID = "de.dentrassi.eclipse.rpm.editor.compare"; //$NON-NLS-1$
+
+	private static final int LEFT = 0;
+
+	private static final int RIGHT = 1;
+
+	private final Map<Section, DifferenceTable> pages = new EnumMap<>(Section.class);
+	private final Map<Section, Integer> pageIndexes = new EnumMap<>(Section.class);
+	private final RpmSource[] sources = new RpmSource[2];
+	private final LoadJob[] loadJobs = new LoadJob[2];
+	private final RpmInformation[] information = new RpmInformation[2];
+	private CompareJob compareJob;
+	private RpmComparison comparison;
+	private String error;
+
+	@Override
+	protected void createPages() {
+		for (final Section section : Section.values()) {
+			final DifferenceTable page = new DifferenceTable(getContainer());
+			final int idx = addPage(page.getContainer());
+			setPageText(idx, section.getLabel());
+			this.pages.put(section, page);
+			this.pageIndexes.put(section, idx);
+		}
+
+		if (this.comparison != null) {
+			setComparison(this.comparison);
+		} else if (this.error != null) {
+			setError(this.error);
+		}
+	}
+
+	@Override
+	public void doSave(final IProgressMonitor monitor) {
+	}
+
+	@Override
+	public void doSaveAs() {
+	}
+
+	@Override
+	public boolean isSaveAsAllowed() {
+		return false;
+	}
+
+	@Override
+	protected void setInput(final IEditorInput input) {
+		super.setInput(input);
+		setPartName(input.getName());
+
+		close();
+
+		if (input instanceof RpmCompareEditorInput) {
+			load(LEFT, ((RpmCompareEditorInput) input).getLeft());
+			load(RIGHT, ((RpmCompareEditorInput) input).getRight());
+		}
+	}
+
+	@Override
+	public void dispose() {
+		close();
+		super.dispose();
+	}
+
+	private void close() {
+		if (this.compareJob != null) {
+			this.compareJob.cancel();
+			this.compareJob = null;
+		}
+
+		for (int i = 0; i < this.sources.length; i++) {
+			if (this.loadJobs[i] != null) {
+				this.loadJobs[i].cancel();
+				this.loadJobs[i] = null;
+			}
+			if (this.sources[i] != null) {
+				try {
+					this.sources[i].close();
+				} catch (final IOException e) {
+					Activator.getDefault().getLog()
+							.log(new Status(IStatus.WARNING, Activator.PLUGIN_ID, "Failed to close RPM file", e));
+				}
+				this.sources[i] = null;
+			}
+			this.information[i] = null;
+		}
+
+		this.comparison = null;
+		this.error = null;
+	}
+
+	private void load(final int side, final IFile file) {
+		final Display display = getSite().getShell().getDisplay();
+
+		final RpmSource source;
+		final RpmCache.Key key;
+		try {
+			if (file.getLocation() != null) {
+				source = new LocalRpmFile(file.getLocation().toFile().toPath());
+			} else {
+				source = new StorageRpmSource(file);
+			}
+			this.sources[side] = source;
+			key = source.getCacheKey();
+		} catch (final IOException e) {
+			failed(e);
+			return;
+		}
+
+		final RpmCache cache = Activator.getDefault().getCache();
+		if (key != null) {
+			final RpmInformation cached = cache.get(key);
+			if (cached != null) {
+				loaded(side, cached);
+				return;
+			}
+		}
+
+		this.loadJobs[side] = new LoadJob(file.getName(), source) {
+
+			@Override
+			protected void headerLoaded(final RpmInformation information) {
+			}
+
+			@Override
+			protected void payloadLoaded(final RpmInformation information) {
+				final RpmInformation shared = key != null ? cache.put(key, information) : information;
+				display.asyncExec(() -> {
+					if (RpmCompareEditor.this.loadJobs[side] == this) {
+						RpmCompareEditor.this.loadJobs[side] = null;
+						loaded(side, shared);
+					}
+				});
+			}
+
+			@Override
+			protected void failed(final Exception e) {
+				display.asyncExec(() -> {
+					if (RpmCompareEditor.this.loadJobs[side] == this) {
+						RpmCompareEditor.this.failed(e);
+					}
+				});
+			}
+		};
+		this.loadJobs[side].schedule();
+	}
+
+	private void loaded(final int side, final RpmInformation information) {
+		this.information[side] = information;
+		if (this.information[LEFT] == null || this.information[RIGHT] == null) {
+			return;
+		}
+
+		final Display display = getSite().getShell().getDisplay();
+
+		this.compareJob = new CompareJob(this.information[LEFT], this.information[RIGHT]) {
+
+			@Override
+			protected void compared(final RpmComparison comparison) {
+				display.asyncExec(() -> {
+					if (RpmCompareEditor.this.compareJob == this) {
+						setComparison(comparison);
+					}
+				});
+			}
+
+			@Override
+			protected void failed(final Exception e) {
+				display.asyncExec(() -> {
+					if (RpmCompareEditor.this.compareJob == this) {
+						RpmCompareEditor.this.failed(e);
+					}
+				});
+			}
+		};
+		this.compareJob.schedule();
+	}
+
+	private void setComparison(final RpmComparison comparison) {
+		this.comparison = comparison;
+
+		for (final Map.Entry<Section, DifferenceTable> entry : this.pages.entrySet()) {
+			final Section section = entry.getKey();
+			entry.getValue().setComparison(comparison, section);
+
+			final int differences = comparison.getDifferences(section).size();
+			setPageText(this.pageIndexes.get(section),
+					differences > 0 ? String.format("%s (%,d)", section.getLabel(), differences) : section.getLabel());
+		}
+	}
+
+	private void failed(final Exception e) {
+		Activator.getDefault().getLog()
+				.log(new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Failed to compare RPM files", e));
+		setError(String.format("Failed to compare: %s", e.getMessage()));
+	}
+
+	private void setError(final String error) {
+		this.error = error;
+		for (final DifferenceTable page : this.pages.values()) {
+			page.setError(error);
+		}
+	}
+}
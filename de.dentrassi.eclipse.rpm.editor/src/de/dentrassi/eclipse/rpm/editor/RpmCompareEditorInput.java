@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.ui.IEditorInput;
+import org.eclipse.ui.IPersistableElement;
+
+/**
+ * The input of the {@link RpmCompareEditor}, a pair of RPM files
+ */
+public class RpmCompareEditorInput implements IEditorInput {
+
+	private final IFile left;
+
+	private final IFile right;
+
+	public RpmCompareEditorInput(final IFile left, final IFile right) {
+		this.left = left;
+		this.right = right;
+	}
+
+	public IFile getLeft() {
+		return this.left;
+	}
+
+	public IFile getRight() {
+		return this.right;
+	}
+
+	@Override
+	public boolean exists() {
+		return this.left.exists() && this.right.exists();
+	}
+
+	@Override
+	public ImageDescriptor getImageDescriptor() {
+		return Activator.getImageDescriptor("icons/rpm.gif"); //$NON-NLS-1$
+	}
+
+	@Override
+	public String getName() {
+		return String.format("%s ↔ %s", this.left.getName(), this.right.getName());
+	}
+
+	@Override
+	public IPersistableElement getPersistable() {
+		return null;
+	}
+
+	@Override
+	public String getToolTipText() {
+		return String.format("Compare %s with %s", this.left.getFullPath(), this.right.getFullPath());
+	}
+
+	@Override
+	public <T> T getAdapter(final Class<T> adapter) {
+		return null;
+	}
+
+	@Override
+	public int hashCode() {
+		return this.left.hashCode() * 31 + this.right.hashCode();
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (!(obj instanceof RpmCompareEditorInput)) {
+			return false;
+		}
+		final RpmCompareEditorInput other = (RpmCompareEditorInput) obj;
+		return this.left.equals(other.left) && this.right.equals(other.right);
+	}
+}
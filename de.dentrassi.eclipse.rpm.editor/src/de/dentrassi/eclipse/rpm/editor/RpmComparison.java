@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The result of comparing two RPM files
+ * <p>
+ * Only the differences are kept, items which are equal are only counted.
+ * </p>
+ */
+public final class RpmComparison {
+
+	public enum Section {
+		HEADER("Header"),
+		SIGNATURE_HEADER("Signature Header"),
+		DEPENDENCIES("Dependencies"),
+		PAYLOAD("Payload");
+
+		private final String label;
+
+		private Section(final String label) {
+			this.label = label;
+		}
+
+		public String getLabel() {
+			return this.label;
+		}
+	}
+
+	private final Map<Section, List<RpmDifference>> differences = new EnumMap<>(Section.class);
+
+	private final Map<Section, Integer> unchanged = new EnumMap<>(Section.class);
+
+	private int unverified;
+
+	RpmComparison() {
+		for (final Section section : Section.values()) {
+			this.differences.put(section, new ArrayList<>());
+			this.unchanged.put(section, 0);
+		}
+	}
+
+	void add(final Section section, final RpmDifference difference) {
+		this.differences.get(section).add(difference);
+	}
+
+	void addUnchanged(final Section section) {
+		this.unchanged.merge(section, 1, Integer::sum);
+	}
+
+	void addUnverified() {
+		this.unverified++;
+	}
+
+	public List<RpmDifference> getDifferences(final Section section) {
+		return Collections.unmodifiableList(this.differences.get(section));
+	}
+
+	/**
+	 * Get the number of items which are equal
+	 */
+	public int getUnchanged(final Section section) {
+		return this.unchanged.get(section);
+	}
+
+	/**
+	 * Get the number of files considered unchanged, without comparing their
+	 * digests
+	 * <p>
+	 * This happens if one of the headers has no file digests, or they use
+	 * different algorithms. Only the file attributes and sizes could be
+	 * compared then.
+	 * </p>
+	 */
+	public int getUnverified() {
+		return this.unverified;
+	}
+
+	/**
+	 * Count the differences of a kind
+	 */
+	public int count(final Section section, final RpmDifference.Kind kind) {
+		int result = 0;
+		for (final RpmDifference difference : this.differences.get(section)) {
+			if (difference.getKind() == kind) {
+				result++;
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.packagedrone.utils.rpm.deps.Dependencies;
+import org.eclipse.packagedrone.utils.rpm.deps.Dependency;
+import org.eclipse.packagedrone.utils.rpm.deps.RpmDependencyFlags;
+
+/**
+ * Helpers for the dependencies of an RPM
+ */
+public final class RpmDependencies {
+
+	private RpmDependencies() {
+	}
+
+	/**
+	 * Make the comparison operator of a dependency, like {@code >=}
+	 */
+	public static String makeOperator(final EnumSet<RpmDependencyFlags> flags) {
+		final StringBuilder sb = new StringBuilder();
+
+		for (final RpmDependencyFlags flag : flags) {
+			switch (flag) {
+			case LESS:
+				sb.append("<");
+				break;
+			case EQUAL:
+				sb.append("=");
+				break;
+			case GREATER:
+				sb.append(">");
+				break;
+			default:
+				break;
+			}
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Get the dependencies of an RPM, by category
+	 */
+	public static Map<String, List<Dependency>> getDependencies(final RpmInformation ri) {
+		final Map<String, List<Dependency>> entries = new LinkedHashMap<>();
+		entries.put("Requirements", Dependencies.getRequirements(ri.getHeader()));
+		entries.put("Provides", Dependencies.getProvides(ri.getHeader()));
+		entries.put("Conflicts", Dependencies.getConflicts(ri.getHeader()));
+		entries.put("Obsoletes", Dependencies.getObsoletes(ri.getHeader()));
+		return entries;
+	}
+}
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+/**
+ * A single difference between two RPM files
+ */
+public final class RpmDifference {
+
+	public enum Kind {
+		/**
+		 * Only present in the right RPM
+		 */
+		ADDED,
+		/**
+		 * Only present in the left RPM
+		 */
+		REMOVED,
+		/**
+		 * Present in both, but different
+		 */
+		CHANGED;
+	}
+
+	private final String name;
+
+	private final Kind kind;
+
+	private final String left;
+
+	private final String right;
+
+	private final String detail;
+
+	/**
+	 * Create a new difference
+	 *
+	 * @param name
+	 *            the name of the differing item, e.g. a path
+	 * @param kind
+	 *            the kind of difference
+	 * @param left
+	 *            the left value, {@code null} if added
+	 * @param right
+	 *            the right value, {@code null} if removed
+	 * @param detail
+	 *            what changed, may be {@code null}
+	 */
+	public RpmDifference(final String name, final Kind kind, final String left, final String right,
+			final String detail) {
+		this.name = name;
+		this.kind = kind;
+		this.left = left;
+		this.right = right;
+		this.detail = detail;
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	public Kind getKind() {
+		return this.kind;
+	}
+
+	public String getLeft() {
+		return this.left;
+	}
+
+	public String getRight() {
+		return this.right;
+	}
+
+	public String getDetail() {
+		return this.detail;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s %s: %s -> %s", this.kind, this.name, this.left, this.right);
+	}
+}
@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.eclipse.packagedrone.utils.rpm.RpmLead;
+import org.eclipse.packagedrone.utils.rpm.RpmSignatureTag;
+import org.eclipse.packagedrone.utils.rpm.RpmTag;
+import org.eclipse.packagedrone.utils.rpm.parse.InputHeader;
+import org.eclipse.packagedrone.utils.rpm.parse.RpmInputStream;
+
+/**
+ * An RPM input stream which only reads the lead and the two headers
+ * <p>
+ * Other than the {@link RpmInputStream} this stream never sets up the
+ * decompression of the payload. So reading the headers does not depend on the
+ * payload compressor and stops right at the start of the payload. The payload
+ * itself cannot be read from this stream.
+ * </p>
+ */
+public class RpmHeaderInputStream extends RpmInputStream {
+
+	private RpmLead lead;
+
+	private InputHeader<RpmSignatureTag> signatureHeader;
+
+	private InputHeader<RpmTag> payloadHeader;
+
+	public RpmHeaderInputStream(final InputStream in) {
+		super(in);
+	}
+
+	@Override
+	protected void ensureInit() throws IOException {
+		if (this.lead == null) {
+			this.lead = readLead();
+		}
+		if (this.signatureHeader == null) {
+			this.signatureHeader = readHeader(true);
+		}
+		if (this.payloadHeader == null) {
+			this.payloadHeader = readHeader(false);
+		}
+	}
+
+	@Override
+	public RpmLead getLead() throws IOException {
+		ensureInit();
+		return this.lead;
+	}
+
+	@Override
+	public InputHeader<RpmSignatureTag> getSignatureHeader() throws IOException {
+		ensureInit();
+		return this.signatureHeader;
+	}
+
+	@Override
+	public InputHeader<RpmTag> getPayloadHeader() throws IOException {
+		ensureInit();
+		return this.payloadHeader;
+	}
+
+	/**
+	 * Get the offset of the payload in the RPM file
+	 *
+	 * @return the offset of the first byte after the main header
+	 * @throws IOException
+	 *             if reading the headers fails
+	 */
+	public long getPayloadOffset() throws IOException {
+		ensureInit();
+		return this.payloadHeader.getStart() + this.payloadHeader.getLength();
+	}
+
+	@Override
+	public int read() throws IOException {
+		throw new IOException("Reading the payload is not supported");
+	}
+
+	@Override
+	public int read(final byte[] b) throws IOException {
+		throw new IOException("Reading the payload is not supported");
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		throw new IOException("Reading the payload is not supported");
+	}
+
+	@Override
+	public long skip(final long n) throws IOException {
+		throw new IOException("Reading the payload is not supported");
+	}
+
+	@Override
+	public int available() throws IOException {
+		return 0;
+	}
+}
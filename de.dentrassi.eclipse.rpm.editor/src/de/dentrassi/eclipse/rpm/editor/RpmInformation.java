@@ -21,16 +21,38 @@ public class RpmInformation {
 	private final RpmLead lead;
 	private final InputHeader<RpmTag> header;
 	private final InputHeader<RpmSignatureTag> signatureHeader;
+	private final long payloadOffset;
+	private final FileTable fileTable;
 	private final List<FileEntry> files;
+	private FileTree.Directory fileTree;
+	private FileTreeIndex fileTreeIndex;
+	private PayloadIndex payloadIndex;
+	private SignatureVerification signatureVerification;
 
 	public RpmInformation(final RpmLead lead, final InputHeader<RpmTag> header,
-			final InputHeader<RpmSignatureTag> sigHeader, final List<FileEntry> files) {
+			final InputHeader<RpmSignatureTag> sigHeader, final long payloadOffset, final FileTable fileTable,
+			final List<FileEntry> files) {
 		this.lead = lead;
 		this.header = header;
 		this.signatureHeader = sigHeader;
+		this.payloadOffset = payloadOffset;
+		this.fileTable = fileTable;
 		this.files = files;
 	}
 
+	/**
+	 * Create a new instance, with the files of the payload in a tree only
+	 *
+	 * @param fileTree
+	 *            the root of the finished tree of payload files
+	 */
+	public RpmInformation(final RpmLead lead, final InputHeader<RpmTag> header,
+			final InputHeader<RpmSignatureTag> sigHeader, final long payloadOffset, final FileTable fileTable,
+			final FileTree.Directory fileTree) {
+		this(lead, header, sigHeader, payloadOffset, fileTable, (List<FileEntry>) null);
+		this.fileTree = fileTree;
+	}
+
 	public RpmLead getLead() {
 		return this.lead;
 	}
@@ -43,7 +65,113 @@ public class RpmInformation {
 		return this.signatureHeader;
 	}
 
-	public List<FileEntry> getFiles() {
+	/**
+	 * Get the offset of the payload in the RPM file
+	 */
+	public long getPayloadOffset() {
+		return this.payloadOffset;
+	}
+
+	/**
+	 * Get the file information of the main header
+	 */
+	public FileTable getFileTable() {
+		return this.fileTable;
+	}
+
+	/**
+	 * Get the files of the payload
+	 * <p>
+	 * If the files were only loaded into the tree, a new list is collected
+	 * from the tree on each call.
+	 * </p>
+	 *
+	 * @return the list of files, or {@code null} if the payload was not
+	 *         loaded (yet)
+	 */
+	public synchronized List<FileEntry> getFiles() {
+		if (this.files == null && this.fileTree != null) {
+			return FileTree.entries(this.fileTree);
+		}
 		return this.files;
 	}
+
+	/**
+	 * Check if the files of the payload are loaded
+	 */
+	public synchronized boolean hasFiles() {
+		return this.files != null || this.fileTree != null;
+	}
+
+	/**
+	 * Get the tree of payload files
+	 * <p>
+	 * The tree gets built on first access and is shared by all users of this
+	 * instance.
+	 * </p>
+	 *
+	 * @return the root of the tree, or {@code null} if the payload was not
+	 *         loaded (yet)
+	 */
+	public synchronized FileTree.Directory getFileTree() {
+		if (this.fileTree == null && this.files != null) {
+			this.fileTree = FileTree.build(this.files, this.fileTable);
+		}
+		return this.fileTree;
+	}
+
+	/**
+	 * Set the tree of payload files, if it was built while loading the
+	 * payload
+	 *
+	 * @param fileTree
+	 *            the root of the finished tree, built from the files of this
+	 *            instance
+	 */
+	public synchronized void setFileTree(final FileTree.Directory fileTree) {
+		this.fileTree = fileTree;
+	}
+
+	/**
+	 * Get the index for filtering the tree of payload files
+	 * <p>
+	 * The index gets built on first access, together with the tree.
+	 * </p>
+	 *
+	 * @return the index, or {@code null} if the payload was not loaded (yet)
+	 */
+	public synchronized FileTreeIndex getFileTreeIndex() {
+		if (this.fileTreeIndex == null && getFileTree() != null) {
+			this.fileTreeIndex = FileTreeIndex.build(this.fileTree);
+		}
+		return this.fileTreeIndex;
+	}
+
+	/**
+	 * Get the location of the payload entries
+	 *
+	 * @return the index, or {@code null} if the payload was not walked yet
+	 */
+	public synchronized PayloadIndex getPayloadIndex() {
+		return this.payloadIndex;
+	}
+
+	public synchronized void setPayloadIndex(final PayloadIndex payloadIndex) {
+		this.payloadIndex = payloadIndex;
+	}
+
+	/**
+	 * Get the result of checking the signature header
+	 *
+	 * @return the result, or {@code null} if the signature header was not
+	 *         checked (yet)
+	 * @see SignatureVerifier
+	 */
+	public synchronized SignatureVerification getSignatureVerification() {
+		return this.signatureVerification;
+	}
+
+	public synchronized void setSignatureVerification(final SignatureVerification signatureVerification) {
+		this.signatureVerification = signatureVerification;
+	}
 }
@@ -0,0 +1,217 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import org.apache.commons.compress.archivers.cpio.CpioArchiveEntry;
+import org.apache.commons.compress.archivers.cpio.CpioArchiveInputStream;
+import org.apache.commons.compress.utils.CountingInputStream;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.packagedrone.utils.rpm.RpmTag;
+import org.eclipse.packagedrone.utils.rpm.parse.InputHeader;
+
+/**
+ * Load the information of an RPM file
+ * <p>
+ * This is the UI independent part of the {@link LoadJob}, which can also be
+ * used by headless applications.
+ * </p>
+ * <p>
+ * If possible, the file list is built from the header. Only if the header
+ * lacks this information, the payload gets decompressed. In this case the
+ * location of the payload entries is recorded as well, see
+ * {@link RpmInformation#getPayloadIndex()}.
+ * </p>
+ * <p>
+ * While the payload is read, the files are added to a {@link FileTree} in
+ * batches, which may also be published. There is no separate list of all
+ * files. Names share their directory prefixes and the modification times are
+ * kept as primitive values, so the memory for each file stays small, even
+ * for payloads of millions of files.
+ * </p>
+ */
+public class RpmLoader {
+
+	/**
+	 * Publish a batch after this number of files
+	 */
+	private static final int BATCH_SIZE = 5_000;
+
+	/**
+	 * Publish a batch after this time, in nanoseconds
+	 */
+	private static final long BATCH_INTERVAL = 100_000_000L;
+
+	private final RpmSource source;
+
+	private final LoadStatistics statistics;
+
+	/**
+	 * Create a new loader
+	 *
+	 * @param source
+	 *            the source of the RPM data
+	 * @param statistics
+	 *            the statistics to record the phases of loading to, may be
+	 *            {@code null}
+	 */
+	public RpmLoader(final RpmSource source, final LoadStatistics statistics) {
+		this.source = source;
+		this.statistics = statistics != null ? statistics : new LoadStatistics();
+	}
+
+	/**
+	 * Load the lead and the headers only
+	 *
+	 * @return the information, with the list of files only if it could be
+	 *         built from the header
+	 */
+	public RpmInformation loadHeader(final IProgressMonitor monitor) throws IOException {
+		final RpmInformation information = readHeader(monitor);
+		final Optional<List<FileEntry>> headerFiles = information.getFileTable().getPayloadFiles();
+		if (!headerFiles.isPresent()) {
+			return information;
+		}
+		return withFiles(information, headerFiles.get());
+	}
+
+	/**
+	 * Load the headers and the list of files
+	 *
+	 * @param headerLoaded
+	 *            called as soon as the lead and the headers are read, may be
+	 *            {@code null}
+	 * @return the information, including the list of files
+	 */
+	public RpmInformation load(final Consumer<RpmInformation> headerLoaded, final IProgressMonitor monitor)
+			throws IOException {
+		return load(headerLoaded, null, monitor);
+	}
+
+	/**
+	 * Load the headers and the list of files, publishing files while reading
+	 * the payload
+	 *
+	 * @param filesLoaded
+	 *            called with the growing tree of files, after each batch of
+	 *            files read from the payload, may be {@code null}. If the
+	 *            files are known from the header, this is not called. The
+	 *            tree becomes the file tree of the result.
+	 * @see #load(Consumer, IProgressMonitor)
+	 */
+	public RpmInformation load(final Consumer<RpmInformation> headerLoaded, final Consumer<FileTree> filesLoaded,
+			final IProgressMonitor monitor) throws IOException {
+		return this.statistics.call("load", () -> doLoad(headerLoaded, filesLoaded, monitor)); //$NON-NLS-1$
+	}
+
+	private RpmInformation doLoad(final Consumer<RpmInformation> headerLoaded, final Consumer<FileTree> filesLoaded,
+			final IProgressMonitor monitor) throws IOException {
+		final RpmInformation header = readHeader(monitor);
+		if (headerLoaded != null) {
+			headerLoaded.accept(header);
+		}
+
+		final Optional<List<FileEntry>> headerFiles = header.getFileTable().getPayloadFiles();
+		if (headerFiles.isPresent()) {
+			// no need to decompress the payload
+			return withFiles(header, headerFiles.get());
+		}
+
+		monitor.subTask("Reading payload");
+
+		final FileTree tree = new FileTree(header.getFileTable());
+		final PayloadIndex payloadIndex = this.statistics.call("readPayload", //$NON-NLS-1$
+				() -> readPayload(header, tree, filesLoaded, monitor));
+
+		final RpmInformation result = new RpmInformation(header.getLead(), header.getHeader(),
+				header.getSignatureHeader(), header.getPayloadOffset(), header.getFileTable(), tree.finish());
+		result.setPayloadIndex(payloadIndex);
+		return result;
+	}
+
+	private RpmInformation readHeader(final IProgressMonitor monitor) throws IOException {
+		monitor.subTask("Reading header");
+
+		final RpmHeaderInputStream in = this.statistics.call("readHeader", () -> readHeaders(monitor)); //$NON-NLS-1$
+		final InputHeader<RpmTag> header = in.getPayloadHeader();
+		final FileTable fileTable = this.statistics.call("FileTable.fromHeader", //$NON-NLS-1$
+				() -> FileTable.fromHeader(header));
+
+		return new RpmInformation(in.getLead(), header, in.getSignatureHeader(), in.getPayloadOffset(), fileTable,
+				(List<FileEntry>) null);
+	}
+
+	/**
+	 * Read the lead and the headers
+	 *
+	 * @return the closed stream, providing the lead and the headers
+	 */
+	private RpmHeaderInputStream readHeaders(final IProgressMonitor monitor) throws IOException {
+		try (RpmHeaderInputStream in = new RpmHeaderInputStream(open(0, monitor))) {
+			in.getPayloadHeader();
+			return in;
+		}
+	}
+
+	/**
+	 * Read the payload, adding its files to the tree
+	 *
+	 * @return the location of the payload entries
+	 */
+	private PayloadIndex readPayload(final RpmInformation header, final FileTree tree,
+			final Consumer<FileTree> filesLoaded, final IProgressMonitor monitor) throws IOException {
+		final List<FileEntry> batch = new ArrayList<>();
+		final FileEntry.Prefixes prefixes = new FileEntry.Prefixes();
+		long lastBatch = System.nanoTime();
+
+		try (CountingInputStream payload = new CountingInputStream(
+				Payloads.openPayload(this.source, header.getHeader(), header.getPayloadOffset(), monitor));
+				CpioArchiveInputStream cpio = new CpioArchiveInputStream(payload)) {
+			final PayloadIndex.Builder builder = new PayloadIndex.Builder(payload);
+
+			CpioArchiveEntry entry;
+			while ((entry = cpio.getNextCPIOEntry()) != null) {
+				builder.add(entry);
+				// the CPIO time is in seconds, avoid going through a Date
+				batch.add(prefixes.create(entry.getName(), entry.getSize(), entry.getTime(), -1));
+
+				if (batch.size() >= BATCH_SIZE
+						|| filesLoaded != null && System.nanoTime() - lastBatch >= BATCH_INTERVAL) {
+					// hand the batch over to the tree, and drop it
+					tree.add(batch);
+					batch.clear();
+					lastBatch = System.nanoTime();
+					if (filesLoaded != null) {
+						filesLoaded.accept(tree);
+					}
+				}
+			}
+
+			tree.add(batch);
+			return builder.build();
+		}
+	}
+
+	private static RpmInformation withFiles(final RpmInformation header, final List<FileEntry> files) {
+		return new RpmInformation(header.getLead(), header.getHeader(), header.getSignatureHeader(),
+				header.getPayloadOffset(), header.getFileTable(), files);
+	}
+
+	private InputStream open(final long offset, final IProgressMonitor monitor) throws IOException {
+		return new ProgressInputStream(this.source.open(offset), monitor);
+	}
+}
@@ -0,0 +1,438 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.eclipse.packagedrone.utils.rpm.RpmSignatureTag;
+import org.eclipse.packagedrone.utils.rpm.RpmTag;
+import org.eclipse.packagedrone.utils.rpm.deps.Dependency;
+import org.eclipse.packagedrone.utils.rpm.deps.RpmDependencyFlags;
+import org.eclipse.packagedrone.utils.rpm.parse.HeaderValue;
+import org.eclipse.packagedrone.utils.rpm.parse.InputHeader;
+
+/**
+ * Write the information of an RPM file as machine readable report
+ * <p>
+ * JSON reports contain one object per RPM file, on a single line. So they
+ * can be written, and read, one RPM at a time. CSV reports have one record
+ * per header tag, dependency or file, with the columns {@code rpm},
+ * {@code section}, {@code name}, {@code value} and {@code detail}.
+ * </p>
+ */
+public final class RpmReport {
+
+	public enum Format {
+		JSON, CSV;
+	}
+
+	public enum Section {
+		HEADER, SIGNATURE, DEPENDENCIES, FILES;
+	}
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private RpmReport() {
+	}
+
+	/**
+	 * Write the start of a report, before the first RPM file
+	 */
+	public static void writeStart(final Format format, final Appendable out) throws IOException {
+		if (format == Format.CSV) {
+			out.append("rpm,section,name,value,detail\n");
+		}
+	}
+
+	/**
+	 * Write the report of one RPM file
+	 *
+	 * @param name
+	 *            the name of the RPM file
+	 * @param information
+	 *            the information of the RPM file, the list of files is only
+	 *            required for {@link Section#FILES}
+	 * @param sections
+	 *            the sections to write
+	 */
+	public static void write(final Format format, final String name, final RpmInformation information,
+			final EnumSet<Section> sections, final Appendable out) throws IOException {
+		if (format == Format.JSON) {
+			new JsonReport(name, out).write(information, sections);
+		} else {
+			new CsvReport(name, out).write(information, sections);
+		}
+	}
+
+	/**
+	 * Write the failure to read an RPM file
+	 */
+	public static void writeError(final Format format, final String name, final Exception error,
+			final Appendable out) throws IOException {
+		final String message = error.getMessage() != null ? error.getMessage() : error.getClass().getName();
+		if (format == Format.JSON) {
+			out.append("{\"file\":");
+			JsonReport.string(name, out);
+			out.append(",\"error\":");
+			JsonReport.string(message, out);
+			out.append("}\n");
+		} else {
+			CsvReport.record(out, name, "error", "", message, "");
+		}
+	}
+
+	private static String makeTagName(final int tag, final Function<Integer, Object> tagNames) {
+		final Object name = tagNames.apply(tag);
+		return name != null ? name.toString() : Integer.toString(tag);
+	}
+
+	private static String makeVersion(final Dependency dep) {
+		final String op = RpmDependencies.makeOperator(dep.getFlags());
+		if (dep.getVersion() == null || dep.getVersion().isEmpty()) {
+			return op;
+		}
+		return op.isEmpty() ? dep.getVersion() : op + " " + dep.getVersion();
+	}
+
+	private static String makeFlags(final EnumSet<RpmDependencyFlags> flags) {
+		final StringBuilder sb = new StringBuilder();
+		for (final RpmDependencyFlags flag : flags) {
+			if (sb.length() > 0) {
+				sb.append(' ');
+			}
+			sb.append(flag.name());
+		}
+		return sb.toString();
+	}
+
+	private static int getMetaIndex(final RpmInformation information, final FileEntry file) {
+		if (file.getIndex() >= 0) {
+			return file.getIndex();
+		}
+		if (!information.getFileTable().isAvailable()) {
+			return -1;
+		}
+		return information.getFileTable().indexOf(Payloads.toPath(file.getName()));
+	}
+
+	private static class JsonReport {
+
+		private final String name;
+
+		private final Appendable out;
+
+		public JsonReport(final String name, final Appendable out) {
+			this.name = name;
+			this.out = out;
+		}
+
+		public void write(final RpmInformation information, final EnumSet<Section> sections) throws IOException {
+			final InputHeader<RpmTag> header = information.getHeader();
+
+			this.out.append("{\"file\":");
+			string(this.name, this.out);
+			field("name", header.getTag(RpmTag.NAME));
+			field("version", header.getTag(RpmTag.VERSION));
+			field("release", header.getTag(RpmTag.RELEASE));
+			field("arch", header.getTag(RpmTag.ARCH));
+
+			if (sections.contains(Section.HEADER)) {
+				this.out.append(",\"header\":");
+				header(header, RpmTag::find);
+			}
+			if (sections.contains(Section.SIGNATURE)) {
+				this.out.append(",\"signature\":");
+				header(information.getSignatureHeader(), RpmSignatureTag::find);
+			}
+			if (sections.contains(Section.DEPENDENCIES)) {
+				this.out.append(",\"dependencies\":");
+				dependencies(information);
+			}
+			if (sections.contains(Section.FILES) && information.hasFiles()) {
+				this.out.append(",\"files\":");
+				files(information);
+			}
+
+			this.out.append("}\n");
+		}
+
+		private void field(final String key, final Object value) throws IOException {
+			if (value == null) {
+				return;
+			}
+			this.out.append(',');
+			string(key, this.out);
+			this.out.append(':');
+			value(value);
+		}
+
+		private void header(final InputHeader<?> header, final Function<Integer, Object> tagNames)
+				throws IOException {
+			this.out.append('{');
+			boolean first = true;
+			for (final Map.Entry<Integer, HeaderValue> entry : header.getRawTags().entrySet()) {
+				if (!first) {
+					this.out.append(',');
+				}
+				first = false;
+				string(makeTagName(entry.getKey(), tagNames), this.out);
+				this.out.append(':');
+				value(entry.getValue().getValue());
+			}
+			this.out.append('}');
+		}
+
+		private void dependencies(final RpmInformation information) throws IOException {
+			this.out.append('{');
+			boolean first = true;
+			for (final Map.Entry<String, List<Dependency>> entry : RpmDependencies.getDependencies(information)
+					.entrySet()) {
+				if (!first) {
+					this.out.append(',');
+				}
+				first = false;
+				string(entry.getKey().toLowerCase(Locale.ROOT), this.out);
+				this.out.append(":[");
+				boolean firstDep = true;
+				for (final Dependency dep : entry.getValue()) {
+					if (!firstDep) {
+						this.out.append(',');
+					}
+					firstDep = false;
+					this.out.append("{\"name\":");
+					string(dep.getName(), this.out);
+					final String op = RpmDependencies.makeOperator(dep.getFlags());
+					if (!op.isEmpty()) {
+						field("operator", op);
+					}
+					if (dep.getVersion() != null && !dep.getVersion().isEmpty()) {
+						field("version", dep.getVersion());
+					}
+					field("flags", makeFlags(dep.getFlags()));
+					this.out.append('}');
+				}
+				this.out.append(']');
+			}
+			this.out.append('}');
+		}
+
+		private void files(final RpmInformation information) throws IOException {
+			final FileTable table = information.getFileTable();
+
+			this.out.append('[');
+			boolean first = true;
+			for (final FileEntry file : information.getFiles()) {
+				if (!first) {
+					this.out.append(',');
+				}
+				first = false;
+				this.out.append("{\"path\":");
+				string(Payloads.toPath(file.getName()), this.out);
+				field("size", file.getSize());
+
+				final int index = getMetaIndex(information, file);
+				if (index >= 0) {
+					if (table.getMode(index) >= 0) {
+						field("mode", String.format("%04o", table.getMode(index) & 07777));
+					}
+					field("user", table.getUser(index));
+					field("group", table.getGroup(index));
+					if (table.getMtime(index) >= 0) {
+						field("mtime", table.getMtime(index));
+					}
+					final String linkTo = table.getLinkTo(index);
+					if (linkTo != null && !linkTo.isEmpty()) {
+						field("link", linkTo);
+					}
+					final String digest = table.getDigest(index);
+					if (digest != null && !digest.isEmpty()) {
+						field("digest", digest);
+					}
+				}
+				this.out.append('}');
+			}
+			this.out.append(']');
+		}
+
+		private void value(final Object value) throws IOException {
+			if (value instanceof Number) {
+				this.out.append(value.toString());
+			} else if (value instanceof byte[]) {
+				final byte[] data = (byte[]) value;
+				this.out.append('"');
+				for (final byte b : data) {
+					this.out.append(HEX[b >> 4 & 0xF]);
+					this.out.append(HEX[b & 0xF]);
+				}
+				this.out.append('"');
+			} else if (HeaderValues.getElements(value) != null) {
+				final Object[] values = HeaderValues.getElements(value);
+				this.out.append('[');
+				for (int i = 0; i < values.length; i++) {
+					if (i > 0) {
+						this.out.append(',');
+					}
+					value(values[i]);
+				}
+				this.out.append(']');
+			} else if (value == null) {
+				this.out.append("null");
+			} else {
+				string(value.toString(), this.out);
+			}
+		}
+
+		static void string(final String value, final Appendable out) throws IOException {
+			out.append('"');
+			for (int i = 0; i < value.length(); i++) {
+				final char c = value.charAt(i);
+				switch (c) {
+				case '"':
+					out.append("\\\"");
+					break;
+				case '\\':
+					out.append("\\\\");
+					break;
+				case '\n':
+					out.append("\\n");
+					break;
+				case '\r':
+					out.append("\\r");
+					break;
+				case '\t':
+					out.append("\\t");
+					break;
+				default:
+					if (c < 0x20) {
+						out.append(String.format("\\u%04x", (int) c));
+					} else {
+						out.append(c);
+					}
+					break;
+				}
+			}
+			out.append('"');
+		}
+	}
+
+	private static class CsvReport {
+
+		private final String name;
+
+		private final Appendable out;
+
+		public CsvReport(final String name, final Appendable out) {
+			this.name = name;
+			this.out = out;
+		}
+
+		public void write(final RpmInformation information, final EnumSet<Section> sections) throws IOException {
+			if (sections.contains(Section.HEADER)) {
+				header("header", information.getHeader(), RpmTag::find);
+			}
+			if (sections.contains(Section.SIGNATURE)) {
+				header("signature", information.getSignatureHeader(), RpmSignatureTag::find);
+			}
+			if (sections.contains(Section.DEPENDENCIES)) {
+				for (final Map.Entry<String, List<Dependency>> entry : RpmDependencies.getDependencies(information)
+						.entrySet()) {
+					final String section = entry.getKey().toLowerCase(Locale.ROOT);
+					for (final Dependency dep : entry.getValue()) {
+						record(this.out, this.name, section, dep.getName(), makeVersion(dep),
+								makeFlags(dep.getFlags()));
+					}
+				}
+			}
+			if (sections.contains(Section.FILES) && information.hasFiles()) {
+				files(information);
+			}
+		}
+
+		private void header(final String section, final InputHeader<?> header,
+				final Function<Integer, Object> tagNames) throws IOException {
+			final StringBuilder value = new StringBuilder();
+			for (final Map.Entry<Integer, HeaderValue> entry : header.getRawTags().entrySet()) {
+				value.setLength(0);
+				final Object v = entry.getValue().getValue();
+				if (v != null) {
+					HeaderValues.format(v, value);
+				}
+				record(this.out, this.name, section, makeTagName(entry.getKey(), tagNames), value,
+						entry.getKey().toString());
+			}
+		}
+
+		private void files(final RpmInformation information) throws IOException {
+			final FileTable table = information.getFileTable();
+			final StringBuilder detail = new StringBuilder();
+
+			for (final FileEntry file : information.getFiles()) {
+				detail.setLength(0);
+
+				final int index = getMetaIndex(information, file);
+				if (index >= 0) {
+					if (table.getMode(index) >= 0) {
+						detail.append(String.format("%04o", table.getMode(index) & 07777));
+					}
+					if (table.getUser(index) != null) {
+						detail.append(detail.length() > 0 ? " " : "").append(table.getUser(index)).append(':')
+								.append(table.getGroup(index));
+					}
+					final String linkTo = table.getLinkTo(index);
+					if (linkTo != null && !linkTo.isEmpty()) {
+						detail.append(" -> ").append(linkTo);
+					}
+				}
+
+				record(this.out, this.name, "file", Payloads.toPath(file.getName()), Long.toString(file.getSize()),
+						detail);
+			}
+		}
+
+		static void record(final Appendable out, final CharSequence... values) throws IOException {
+			for (int i = 0; i < values.length; i++) {
+				if (i > 0) {
+					out.append(',');
+				}
+				escape(values[i], out);
+			}
+			out.append('\n');
+		}
+
+		private static void escape(final CharSequence value, final Appendable out) throws IOException {
+			boolean quote = false;
+			for (int i = 0; i < value.length() && !quote; i++) {
+				final char c = value.charAt(i);
+				quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+			}
+
+			if (!quote) {
+				out.append(value);
+				return;
+			}
+
+			out.append('"');
+			for (int i = 0; i < value.length(); i++) {
+				final char c = value.charAt(i);
+				if (c == '"') {
+					out.append('"');
+				}
+				out.append(c);
+			}
+			out.append('"');
+		}
+	}
+}
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A source of RPM data which can be opened multiple times
+ */
+public interface RpmSource extends AutoCloseable {
+
+	/**
+	 * A consumer of buffers, see {@link RpmSource#read(long, long, BufferConsumer)}
+	 */
+	@FunctionalInterface
+	public interface BufferConsumer {
+		public void accept(ByteBuffer buffer) throws IOException;
+	}
+
+	/**
+	 * Open a new stream to the RPM data
+	 *
+	 * @param offset
+	 *            the offset in the RPM file to start reading at
+	 * @return a new input stream, positioned at the requested offset, which
+	 *         must be closed by the caller
+	 * @throws IOException
+	 *             if opening the stream fails
+	 */
+	public InputStream open(long offset) throws IOException;
+
+	/**
+	 * Read a region of the RPM data as a sequence of buffers
+	 * <p>
+	 * The buffers are only valid while the consumer gets called and must
+	 * not be kept. The default implementation reads from a stream, sources
+	 * which have direct access to their data should hand out buffers backed
+	 * by it, without copying.
+	 * </p>
+	 *
+	 * @param offset
+	 *            the offset in the RPM file to start reading at
+	 * @param length
+	 *            the number of bytes to read, or {@code -1} to read until
+	 *            the end of the data
+	 * @param consumer
+	 *            the consumer of the buffers
+	 * @throws IOException
+	 *             if reading fails, or the consumer fails
+	 */
+	public default void read(final long offset, final long length, final BufferConsumer consumer)
+			throws IOException {
+		final byte[] data = new byte[64 * 1024];
+		try (InputStream in = open(offset)) {
+			long remaining = length < 0 ? Long.MAX_VALUE : length;
+			while (remaining > 0) {
+				final int rc = in.read(data, 0, (int) Math.min(data.length, remaining));
+				if (rc < 0) {
+					return;
+				}
+				consumer.accept(ByteBuffer.wrap(data, 0, rc));
+				remaining -= rc;
+			}
+		}
+	}
+
+	/**
+	 * Get the size of the RPM data
+	 *
+	 * @return the size in bytes, or {@code -1} if the size is unknown
+	 */
+	public long getSize();
+
+	/**
+	 * Get the key for caching the parsed RPM data
+	 *
+	 * @return the key, or {@code null} if the data cannot be cached
+	 * @throws IOException
+	 *             if gathering the required information fails
+	 */
+	public RpmCache.Key getCacheKey() throws IOException;
+
+	@Override
+	public void close() throws IOException;
+}
@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * Verify the signature header of an RPM file in the background
+ *
+ * @see SignatureVerifier
+ */
+public abstract class SignatureJob extends Job {
+
+	private final RpmSource source;
+
+	private final RpmInformation information;
+
+	public SignatureJob(final String name, final RpmSource source, final RpmInformation information) {
+		super(String.format("Checking signature header of %s", name));
+		this.source = source;
+		this.information = information;
+		setPriority(DECORATE);
+	}
+
+	protected abstract void verified(SignatureVerification verification);
+
+	@Override
+	protected IStatus run(final IProgressMonitor monitor) {
+		final long size = this.source.getSize() - this.information.getHeader().getStart();
+		monitor.beginTask(getName(), size > 0 ? (int) (size >> 10) : IProgressMonitor.UNKNOWN);
+
+		try {
+			verified(SignatureVerifier.verify(this.source, this.information, monitor));
+			return Status.OK_STATUS;
+		} catch (final OperationCanceledException e) {
+			return Status.CANCEL_STATUS;
+		} catch (final Exception e) {
+			if (monitor.isCanceled()) {
+				return Status.CANCEL_STATUS;
+			}
+			return new Status(IStatus.WARNING, Activator.PLUGIN_ID, "Failed to check signature header", e);
+		} finally {
+			monitor.done();
+		}
+	}
+
+}
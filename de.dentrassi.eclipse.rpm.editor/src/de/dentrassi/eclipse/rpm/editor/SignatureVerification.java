@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The result of verifying the digests and sizes of the signature header
+ */
+public class SignatureVerification {
+
+	/**
+	 * The result of checking a single signature tag
+	 */
+	public static class Result {
+
+		private final boolean valid;
+
+		private final String actual;
+
+		Result(final boolean valid, final String actual) {
+			this.valid = valid;
+			this.actual = actual;
+		}
+
+		/**
+		 * Check if the value of the tag matches the data
+		 */
+		public boolean isValid() {
+			return this.valid;
+		}
+
+		/**
+		 * Get the value computed from the data
+		 *
+		 * @return the actual value, formatted like the tag value
+		 */
+		public String getActual() {
+			return this.actual;
+		}
+
+		@Override
+		public String toString() {
+			return this.valid ? "OK" : String.format("Mismatch (actual: %s)", this.actual);
+		}
+	}
+
+	private final Map<Integer, Result> results = new TreeMap<>();
+
+	SignatureVerification() {
+	}
+
+	void set(final int tag, final boolean valid, final String actual) {
+		this.results.put(tag, new Result(valid, actual));
+	}
+
+	/**
+	 * Get the result for a signature tag
+	 *
+	 * @param tag
+	 *            the tag of the signature header
+	 * @return the result, or {@code null} if the tag was not checked
+	 */
+	public Result getResult(final int tag) {
+		return this.results.get(tag);
+	}
+
+	/**
+	 * Get all results
+	 *
+	 * @return an unmodifiable map of tags to results
+	 */
+	public Map<Integer, Result> getResults() {
+		return Collections.unmodifiableMap(this.results);
+	}
+
+	/**
+	 * Check if all checked tags match the data
+	 */
+	public boolean isValid() {
+		return this.results.values().stream().allMatch(Result::isValid);
+	}
+
+	@Override
+	public String toString() {
+		return this.results.toString();
+	}
+}
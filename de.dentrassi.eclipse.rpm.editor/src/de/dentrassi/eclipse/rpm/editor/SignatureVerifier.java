@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Optional;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.packagedrone.utils.rpm.RpmSignatureTag;
+import org.eclipse.packagedrone.utils.rpm.parse.HeaderValue;
+import org.eclipse.packagedrone.utils.rpm.parse.InputHeader;
+
+/**
+ * Verify the digests and sizes of the signature header
+ * <p>
+ * The header digests ({@link Headers#SIG_SHA1}, {@link Headers#SIG_SHA256})
+ * cover the main header, the {@link Headers#SIG_MD5} digest covers the main
+ * header and the payload. All digests are computed in a single pass over the
+ * original data, using {@link RpmSource#read(long, long, RpmSource.BufferConsumer)}.
+ * The payload is only read if it is covered by one of the tags.
+ * </p>
+ */
+public class SignatureVerifier {
+
+	private final MessageDigest sha1;
+
+	private final MessageDigest sha256;
+
+	private final MessageDigest md5;
+
+	private final long headerEnd;
+
+	private final IProgressMonitor monitor;
+
+	private long position;
+
+	private SignatureVerifier(final InputHeader<RpmSignatureTag> signatureHeader, final long headerStart,
+			final long headerEnd, final IProgressMonitor monitor) throws IOException {
+		this.sha1 = signatureHeader.getRawTags().containsKey(Headers.SIG_SHA1) ? createDigest("SHA-1") : null;
+		this.sha256 = signatureHeader.getRawTags().containsKey(Headers.SIG_SHA256) ? createDigest("SHA-256")
+				: null;
+		this.md5 = signatureHeader.getRawTags().containsKey(Headers.SIG_MD5) ? createDigest("MD5") : null;
+		this.position = headerStart;
+		this.headerEnd = headerEnd;
+		this.monitor = monitor;
+	}
+
+	/**
+	 * Verify the signature header
+	 *
+	 * @param source
+	 *            the source of the RPM data
+	 * @param information
+	 *            the information of the RPM file, read from the source
+	 * @param monitor
+	 *            the monitor to report progress to, in kilobytes of the data
+	 *            following the signature header
+	 * @return the verification result
+	 * @throws IOException
+	 *             if reading the data fails
+	 * @throws OperationCanceledException
+	 *             if the monitor got canceled
+	 */
+	public static SignatureVerification verify(final RpmSource source, final RpmInformation information,
+			final IProgressMonitor monitor) throws IOException {
+
+		final InputHeader<RpmSignatureTag> signatureHeader = information.getSignatureHeader();
+		final long headerStart = information.getHeader().getStart();
+		final long headerEnd = information.getPayloadOffset();
+
+		final SignatureVerifier verifier = new SignatureVerifier(signatureHeader, headerStart, headerEnd, monitor);
+
+		final Optional<Long> expectedSize = getSize(signatureHeader);
+
+		// the size can only be checked without reading, if it is known
+		final boolean readPayload = verifier.md5 != null || expectedSize.isPresent() && source.getSize() < 0;
+
+		source.read(headerStart, readPayload ? -1 : headerEnd - headerStart, verifier::update);
+
+		final SignatureVerification result = new SignatureVerification();
+
+		if (verifier.sha1 != null) {
+			verifier.check(result, Headers.SIG_SHA1, verifier.sha1, signatureHeader);
+		}
+		if (verifier.sha256 != null) {
+			verifier.check(result, Headers.SIG_SHA256, verifier.sha256, signatureHeader);
+		}
+		if (verifier.md5 != null) {
+			verifier.check(result, Headers.SIG_MD5, verifier.md5, signatureHeader);
+		}
+
+		if (expectedSize.isPresent()) {
+			final long actualSize = readPayload ? verifier.position - headerStart : source.getSize() - headerStart;
+			final int tag = signatureHeader.getRawTags().containsKey(Headers.SIG_LONGSIZE) ? Headers.SIG_LONGSIZE
+					: Headers.SIG_SIZE;
+			result.set(tag, actualSize == expectedSize.get(), Long.toString(actualSize));
+		}
+
+		return result;
+	}
+
+	private void update(final ByteBuffer buffer) {
+		if (this.monitor.isCanceled()) {
+			throw new OperationCanceledException();
+		}
+
+		final int length = buffer.remaining();
+
+		if (this.position < this.headerEnd) {
+			final int headerLength = (int) Math.min(length, this.headerEnd - this.position);
+			final ByteBuffer header = buffer.duplicate();
+			header.limit(header.position() + headerLength);
+			update(this.sha1, header);
+			update(this.sha256, header);
+		}
+
+		if (this.md5 != null) {
+			this.md5.update(buffer);
+		}
+
+		final long start = this.position;
+		this.position += length;
+		this.monitor.worked((int) ((this.position >> 10) - (start >> 10)));
+	}
+
+	/**
+	 * Update a digest, without consuming the buffer
+	 */
+	private static void update(final MessageDigest digest, final ByteBuffer buffer) {
+		if (digest != null) {
+			buffer.mark();
+			digest.update(buffer);
+			buffer.reset();
+		}
+	}
+
+	private void check(final SignatureVerification result, final int tag, final MessageDigest digest,
+			final InputHeader<RpmSignatureTag> signatureHeader) {
+		final byte[] actual = digest.digest();
+		final Object expected = signatureHeader.getRawTags().get(tag).getValue();
+
+		if (expected instanceof byte[]) {
+			result.set(tag, MessageDigest.isEqual(actual, (byte[]) expected),
+					HeaderValues.makeString(actual, actual.length * 2));
+		} else {
+			final String hex = HeaderValues.toHex(actual);
+			result.set(tag, hex.equalsIgnoreCase(String.valueOf(expected)), hex);
+		}
+	}
+
+	private static Optional<Long> getSize(final InputHeader<RpmSignatureTag> signatureHeader) {
+		final HeaderValue longSize = signatureHeader.getRawTags().get(Headers.SIG_LONGSIZE);
+		if (longSize != null) {
+			return toLong(longSize.getValue());
+		}
+
+		final HeaderValue size = signatureHeader.getRawTags().get(Headers.SIG_SIZE);
+		if (size != null) {
+			// stored as signed 32 bit value
+			return toLong(size.getValue()).map(v -> v & 0xFFFFFFFFL);
+		}
+
+		return Optional.empty();
+	}
+
+	private static Optional<Long> toLong(final Object value) {
+		final Object[] values = HeaderValues.getElements(value);
+		final Object v = values != null && values.length > 0 ? values[0] : value;
+		if (v instanceof Number) {
+			return Optional.of(((Number) v).longValue());
+		}
+		return Optional.empty();
+	}
+
+	private static MessageDigest createDigest(final String algorithm) throws IOException {
+		try {
+			return MessageDigest.getInstance(algorithm);
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+	}
+}
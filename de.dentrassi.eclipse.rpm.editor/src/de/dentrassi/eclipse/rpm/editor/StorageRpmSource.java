@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IStorage;
+import org.eclipse.core.runtime.CoreException;
+
+/**
+ * An RPM source backed by an {@link IStorage}
+ * <p>
+ * Storages can only be read from the start, so opening a stream at an offset
+ * needs to skip over the data before it.
+ * </p>
+ */
+public class StorageRpmSource implements RpmSource {
+
+	private final IStorage storage;
+
+	public StorageRpmSource(final IStorage storage) {
+		this.storage = storage;
+	}
+
+	public IStorage getStorage() {
+		return this.storage;
+	}
+
+	@Override
+	public InputStream open(final long offset) throws IOException {
+		final InputStream in;
+		try {
+			in = new BufferedInputStream(this.storage.getContents());
+		} catch (final CoreException e) {
+			throw new IOException(e);
+		}
+
+		try {
+			long remaining = offset;
+			while (remaining > 0) {
+				final long skipped = in.skip(remaining);
+				if (skipped <= 0) {
+					if (in.read() < 0) {
+						throw new EOFException(String.format("Offset %s is outside of the data", offset));
+					}
+					remaining--;
+				} else {
+					remaining -= skipped;
+				}
+			}
+		} catch (final IOException e) {
+			in.close();
+			throw e;
+		}
+
+		return in;
+	}
+
+	@Override
+	public long getSize() {
+		return -1;
+	}
+
+	/**
+	 * Workspace files are identified by their path and modification stamp.
+	 * Other storages can only be identified by the instance itself.
+	 */
+	@Override
+	public RpmCache.Key getCacheKey() {
+		if (this.storage instanceof IFile) {
+			final IFile file = (IFile) this.storage;
+			return new RpmCache.Key(file.getFullPath(), -1, file.getModificationStamp());
+		}
+		return new RpmCache.Key(this.storage, -1, -1);
+	}
+
+	@Override
+	public void close() {
+	}
+}
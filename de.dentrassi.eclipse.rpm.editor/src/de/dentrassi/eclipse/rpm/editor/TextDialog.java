@@ -10,6 +10,10 @@
  *******************************************************************************/
 package de.dentrassi.eclipse.rpm.editor;
 
+import java.io.IOException;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
 import org.eclipse.jface.dialogs.Dialog;
 import org.eclipse.jface.dialogs.IDialogConstants;
 import org.eclipse.jface.dialogs.IDialogSettings;
@@ -21,15 +25,79 @@ import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.Text;
 
 public class TextDialog extends Dialog {
+
+	/**
+	 * The content of the dialog, written on demand
+	 */
+	@FunctionalInterface
+	public interface Content {
+		public void writeTo(Appendable out) throws IOException;
+	}
+
+	/**
+	 * Appends to the text control in chunks, so that the content never needs
+	 * to be held as a whole
+	 */
+	private static class TextAppender implements Appendable {
+
+		private static final int CHUNK_SIZE = 64 * 1024;
+
+		private final Text text;
+
+		private final StringBuilder buffer = new StringBuilder(CHUNK_SIZE);
+
+		public TextAppender(final Text text) {
+			this.text = text;
+		}
+
+		@Override
+		public Appendable append(final CharSequence csq) {
+			return append(csq, 0, csq.length());
+		}
+
+		@Override
+		public Appendable append(final CharSequence csq, final int start, final int end) {
+			int i = start;
+			while (i < end) {
+				final int len = Math.min(end - i, CHUNK_SIZE - this.buffer.length());
+				this.buffer.append(csq, i, i + len);
+				i += len;
+				if (this.buffer.length() >= CHUNK_SIZE) {
+					flush();
+				}
+			}
+			return this;
+		}
+
+		@Override
+		public Appendable append(final char c) {
+			this.buffer.append(c);
+			if (this.buffer.length() >= CHUNK_SIZE) {
+				flush();
+			}
+			return this;
+		}
+
+		public void flush() {
+			if (this.buffer.length() > 0) {
+				this.text.append(this.buffer.toString());
+				this.buffer.setLength(0);
+			}
+		}
+	}
+
 	private final String title;
 
-	private final String value;
+	private final Content content;
 
 	protected TextDialog(final IShellProvider parentShell, final String title, final String value) {
+		this(parentShell, title, out -> out.append(value));
+	}
+
+	protected TextDialog(final IShellProvider parentShell, final String title, final Content content) {
 		super(parentShell);
 		this.title = title;
-		this.value = value;
-
+		this.content = content;
 	}
 
 	@Override
@@ -51,9 +119,17 @@ public class TextDialog extends Dialog {
 		parent.getShell().setText(this.title);
 		final Composite wrapper = (Composite) super.createDialogArea(parent);
 
-		final Text text = new Text(wrapper, SWT.MULTI | SWT.BORDER | SWT.READ_ONLY);
+		final Text text = new Text(wrapper, SWT.MULTI | SWT.BORDER | SWT.READ_ONLY | SWT.WRAP | SWT.V_SCROLL);
 		text.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true));
-		text.setText(this.value);
+
+		final TextAppender appender = new TextAppender(text);
+		try {
+			this.content.writeTo(appender);
+			appender.flush();
+		} catch (final IOException e) {
+			Activator.getDefault().getLog()
+					.log(new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Failed to show value", e));
+		}
 
 		return wrapper;
 	}
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import org.eclipse.osgi.service.debug.DebugOptions;
+import org.eclipse.osgi.service.debug.DebugOptionsListener;
+import org.eclipse.osgi.service.debug.DebugTrace;
+
+/**
+ * The tracing options of the plugin, see the {@code .options} file
+ * <p>
+ * The options are updated by the debug options service, registered in
+ * {@link Activator#start(org.osgi.framework.BundleContext)}. Without the
+ * service, like in headless applications, tracing is disabled.
+ * </p>
+ */
+public final class Tracing implements DebugOptionsListener {
+
+	public static final String OPTION_DEBUG = "/debug"; //$NON-NLS-1$
+
+	public static final String OPTION_TIMING = "/debug/timing"; //$NON-NLS-1$
+
+	private static volatile boolean timing;
+
+	private static volatile DebugTrace trace;
+
+	@Override
+	public void optionsChanged(final DebugOptions options) {
+		final boolean debug = options.getBooleanOption(Activator.PLUGIN_ID + OPTION_DEBUG, false);
+		trace = options.newDebugTrace(Activator.PLUGIN_ID);
+		timing = debug && options.getBooleanOption(Activator.PLUGIN_ID + OPTION_TIMING, false);
+	}
+
+	/**
+	 * Trace the measurement of a load phase
+	 *
+	 * @param allocated
+	 *            the allocated bytes, or {@code -1} if unknown
+	 * @see LoadStatistics
+	 */
+	public static void traceTiming(final String phase, final long nanos, final long allocated) {
+		final DebugTrace trace = Tracing.trace;
+		if (!timing || trace == null) {
+			return;
+		}
+		trace.trace(OPTION_TIMING,
+				String.format("%s: %,d µs, %,d bytes allocated", phase, nanos / 1_000, allocated)); //$NON-NLS-1$
+	}
+}
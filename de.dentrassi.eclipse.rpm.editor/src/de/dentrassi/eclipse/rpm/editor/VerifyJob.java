@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * Verify the payload of an RPM file in the background
+ *
+ * @see PayloadVerifier
+ */
+public abstract class VerifyJob extends Job {
+
+	private final RpmSource source;
+
+	private final RpmInformation information;
+
+	public VerifyJob(final String name, final RpmSource source, final RpmInformation information) {
+		super(String.format("Verifying %s", name));
+		this.source = source;
+		this.information = information;
+	}
+
+	protected abstract void verified(PayloadVerification verification);
+
+	protected abstract void failed(Exception e);
+
+	@Override
+	protected IStatus run(final IProgressMonitor monitor) {
+		final long size = this.source.getSize() - this.information.getPayloadOffset();
+		monitor.beginTask(getName(), size > 0 ? (int) (size >> 10) : IProgressMonitor.UNKNOWN);
+
+		try {
+			final PayloadVerification result = PayloadVerifier.verify(this.information.getFileTable(),
+					this.information.getHeader(),
+					new ProgressInputStream(this.source.open(this.information.getPayloadOffset()), monitor), monitor);
+			verified(result);
+			return Status.OK_STATUS;
+		} catch (final OperationCanceledException e) {
+			return Status.CANCEL_STATUS;
+		} catch (final Exception e) {
+			if (monitor.isCanceled()) {
+				return Status.CANCEL_STATUS;
+			}
+			failed(e);
+			return new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Failed to verify RPM payload", e);
+		} finally {
+			monitor.done();
+		}
+	}
+
+}
@@ -0,0 +1,1269 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBH SYSTEMS GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBH SYSTEMS GmbH - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.eclipse.rpm.editor;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Decompress data in the Zstandard format, as specified by RFC 8878
+ * <p>
+ * The decoder is plain Java, so it works on every platform without a native
+ * library. It supports concatenated and skippable frames and verifies the
+ * content checksum, if present. Dictionaries are not supported, as RPM does
+ * not use them.
+ * </p>
+ */
+public class ZstdInputStream extends InputStream {
+
+	private static final int MAGIC = 0xFD2FB528;
+
+	private static final int SKIPPABLE_MAGIC = 0x184D2A50;
+
+	private static final int BLOCK_MAX = 128 * 1024;
+
+	/**
+	 * The largest window accepted, the default limit of the reference decoder
+	 */
+	private static final long WINDOW_MAX = 1L << 27;
+
+	/**
+	 * Space around a compressed block, so that bit streams can always be
+	 * loaded eight bytes at a time
+	 */
+	private static final int SLACK = 8;
+
+	private static final int HUFFMAN_MAX_BITS = 11;
+
+	private static final int[] LL_BASE = { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 18, 20, 22, 24,
+			28, 32, 40, 48, 64, 128, 256, 512, 1024, 2048, 4096, 8192, 16384, 32768, 65536 };
+
+	private static final int[] LL_BITS = { 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 3, 3, 4,
+			6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16 };
+
+	private static final int[] ML_BASE = { 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22,
+			23, 24, 25, 26, 27, 28, 29, 30, 31, 32, 33, 34, 35, 37, 39, 41, 43, 47, 51, 59, 67, 83, 99, 131, 259, 515,
+			1027, 2051, 4099, 8195, 16387, 32771, 65539 };
+
+	private static final int[] ML_BITS = { 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+			0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 3, 3, 4, 4, 5, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16 };
+
+	private static final FseTable LL_DEFAULT = FseTable.predefined(6, 4, 3, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 1, 1, 1,
+			2, 2, 2, 2, 2, 2, 2, 2, 2, 3, 2, 1, 1, 1, 1, 1, -1, -1, -1, -1);
+
+	private static final FseTable ML_DEFAULT = FseTable.predefined(6, 1, 4, 3, 2, 2, 2, 2, 2, 2, 1, 1, 1, 1, 1, 1, 1,
+			1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, -1, -1, -1, -1,
+			-1, -1, -1);
+
+	private static final FseTable OF_DEFAULT = FseTable.predefined(5, 1, 1, 1, 1, 1, 1, 2, 2, 2, 1, 1, 1, 1, 1, 1, 1,
+			1, 1, 1, 1, 1, 1, 1, 1, -1, -1, -1, -1, -1);
+
+	private final InputStream in;
+
+	private final byte[] block = new byte[SLACK + BLOCK_MAX + SLACK];
+
+	private final byte[] literals = new byte[BLOCK_MAX];
+
+	private final int[] huffmanTable = new int[1 << HUFFMAN_MAX_BITS];
+
+	private int huffmanBits;
+
+	private final int[] weights = new int[256];
+
+	private final short[] counts = new short[256];
+
+	private final FseTable weightTable = new FseTable(6);
+
+	private final FseTable llTable = new FseTable(9);
+
+	private final FseTable ofTable = new FseTable(8);
+
+	private final FseTable mlTable = new FseTable(9);
+
+	private FseTable ll;
+
+	private FseTable of;
+
+	private FseTable ml;
+
+	private final int[] repeats = new int[3];
+
+	private final BitReader bits = new BitReader();
+
+	private final XXHash64 checksum = new XXHash64();
+
+	private boolean checked;
+
+	private byte[] window = new byte[0];
+
+	private long windowSize;
+
+	private int blockMax;
+
+	private long contentSize;
+
+	private long frameOutput;
+
+	private boolean inFrame;
+
+	private boolean eof;
+
+	private int readPos;
+
+	private int writePos;
+
+	public ZstdInputStream(final InputStream in) {
+		this.in = in;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!fill()) {
+			return -1;
+		}
+		return this.window[this.readPos++] & 0xFF;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (!fill()) {
+			return -1;
+		}
+		final int result = Math.min(len, this.writePos - this.readPos);
+		System.arraycopy(this.window, this.readPos, b, off, result);
+		this.readPos += result;
+		return result;
+	}
+
+	@Override
+	public long skip(final long n) throws IOException {
+		if (n <= 0 || !fill()) {
+			return 0;
+		}
+		final int result = (int) Math.min(n, this.writePos - this.readPos);
+		this.readPos += result;
+		return result;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return this.writePos - this.readPos;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.in.close();
+	}
+
+	private boolean fill() throws IOException {
+		while (this.readPos == this.writePos) {
+			if (this.eof) {
+				return false;
+			}
+			if (this.inFrame) {
+				decodeBlock();
+			} else if (!startFrame()) {
+				this.eof = true;
+			}
+		}
+		return true;
+	}
+
+	private boolean startFrame() throws IOException {
+		final int first = this.in.read();
+		if (first < 0) {
+			return false;
+		}
+
+		final int magic = first | (int) readLittleEndian(3) << 8;
+		if ((magic & 0xFFFFFFF0) == SKIPPABLE_MAGIC) {
+			skipInput(readLittleEndian(4));
+			return true;
+		}
+		if (magic != MAGIC) {
+			throw new IOException("Invalid zstd frame");
+		}
+
+		final int descriptor = readByte();
+		final boolean singleSegment = (descriptor & 0x20) != 0;
+		if ((descriptor & 0x08) != 0) {
+			throw new IOException("Invalid zstd frame header");
+		}
+		this.checked = (descriptor & 0x04) != 0;
+
+		long windowSize = 0;
+		if (!singleSegment) {
+			final int windowDescriptor = readByte();
+			final long base = 1L << 10 + (windowDescriptor >>> 3);
+			windowSize = base + (base >>> 3) * (windowDescriptor & 7);
+		}
+
+		final int dictionaryFlag = descriptor & 3;
+		if (dictionaryFlag != 0 && readLittleEndian(dictionaryFlag == 3 ? 4 : dictionaryFlag) != 0) {
+			throw new IOException("zstd dictionaries are not supported");
+		}
+
+		switch (descriptor >>> 6) {
+		case 0:
+			this.contentSize = singleSegment ? readByte() : -1;
+			break;
+		case 1:
+			this.contentSize = readLittleEndian(2) + 256;
+			break;
+		case 2:
+			this.contentSize = readLittleEndian(4);
+			break;
+		default:
+			this.contentSize = readLittleEndian(8);
+			break;
+		}
+
+		if (singleSegment) {
+			windowSize = this.contentSize;
+		}
+		if (windowSize < 0 || windowSize > WINDOW_MAX) {
+			throw new IOException(String.format("zstd window size %s exceeds the supported maximum of %s",
+					windowSize, WINDOW_MAX));
+		}
+
+		this.windowSize = windowSize;
+		this.blockMax = (int) Math.min(windowSize, BLOCK_MAX);
+
+		// a window which fits twice, so that sliding it copies each byte only once
+		final int capacity = (int) (singleSegment ? windowSize : 2 * windowSize + this.blockMax);
+		if (this.window.length < capacity) {
+			this.window = null;
+			this.window = new byte[capacity];
+		}
+
+		this.readPos = this.writePos = 0;
+		this.frameOutput = 0;
+		this.repeats[0] = 1;
+		this.repeats[1] = 4;
+		this.repeats[2] = 8;
+		this.huffmanBits = 0;
+		this.ll = this.of = this.ml = null;
+		this.checksum.reset();
+		this.inFrame = true;
+
+		return true;
+	}
+
+	private void endFrame() throws IOException {
+		if (this.contentSize >= 0 && this.contentSize != this.frameOutput) {
+			throw new IOException(String.format("zstd frame size mismatch - expected: %s, actual: %s",
+					this.contentSize, this.frameOutput));
+		}
+		if (this.checked && (int) readLittleEndian(4) != (int) this.checksum.digest()) {
+			throw new IOException("zstd content checksum mismatch");
+		}
+		this.inFrame = false;
+	}
+
+	private void decodeBlock() throws IOException {
+		final int header = (int) readLittleEndian(3);
+		final int size = header >>> 3;
+
+		if (this.window.length - this.writePos < this.blockMax) {
+			// slide the window, everything before has been consumed
+			final int keep = (int) Math.min(this.writePos, this.windowSize);
+			if (keep < this.writePos) {
+				System.arraycopy(this.window, this.writePos - keep, this.window, 0, keep);
+				this.readPos = this.writePos = keep;
+			}
+		}
+
+		final int start = this.writePos;
+
+		switch (header >>> 1 & 3) {
+		case 0:
+			checkOutput(size);
+			readFully(this.window, this.writePos, size);
+			this.writePos += size;
+			break;
+		case 1:
+			checkOutput(size);
+			Arrays.fill(this.window, this.writePos, this.writePos + size, (byte) readByte());
+			this.writePos += size;
+			break;
+		case 2:
+			if (size > this.blockMax) {
+				throw corrupted();
+			}
+			readFully(this.block, SLACK, size);
+			decodeCompressed(SLACK, SLACK + size);
+			break;
+		default:
+			throw corrupted();
+		}
+
+		this.frameOutput += this.writePos - start;
+		if (this.checked) {
+			this.checksum.update(this.window, start, this.writePos - start);
+		}
+
+		if ((header & 1) != 0) {
+			endFrame();
+		}
+	}
+
+	private void checkOutput(final int size) throws IOException {
+		if (size > this.blockMax || this.writePos + size > this.window.length) {
+			throw corrupted();
+		}
+	}
+
+	private void decodeCompressed(int pos, final int end) throws IOException {
+		final byte[] b = this.block;
+
+		final int first = b[pos] & 0xFF;
+		final int type = first & 3;
+		final int format = first >>> 2 & 3;
+
+		final int regenerated;
+		int compressed = 0;
+		int streams = 1;
+
+		if (type < 2) {
+			switch (format) {
+			case 1:
+				regenerated = first >>> 4 | (b[pos + 1] & 0xFF) << 4;
+				pos += 2;
+				break;
+			case 3:
+				regenerated = first >>> 4 | (b[pos + 1] & 0xFF) << 4 | (b[pos + 2] & 0xFF) << 12;
+				pos += 3;
+				break;
+			default:
+				regenerated = first >>> 3;
+				pos += 1;
+				break;
+			}
+		} else {
+			if (format != 0) {
+				streams = 4;
+			}
+			switch (format) {
+			case 2: {
+				final int value = readInt(b, pos);
+				regenerated = value >>> 4 & 0x3FFF;
+				compressed = value >>> 18;
+				pos += 4;
+				break;
+			}
+			case 3: {
+				final long value = readInt(b, pos) & 0xFFFFFFFFL | (long) (b[pos + 4] & 0xFF) << 32;
+				regenerated = (int) (value >>> 4) & 0x3FFFF;
+				compressed = (int) (value >>> 22) & 0x3FFFF;
+				pos += 5;
+				break;
+			}
+			default: {
+				final int value = readInt(b, pos) & 0xFFFFFF;
+				regenerated = value >>> 4 & 0x3FF;
+				compressed = value >>> 14;
+				pos += 3;
+				break;
+			}
+			}
+		}
+
+		if (pos > end || regenerated > this.blockMax) {
+			throw corrupted();
+		}
+
+		final byte[] literals;
+		int literal;
+
+		switch (type) {
+		case 0:
+			if (pos + regenerated > end) {
+				throw corrupted();
+			}
+			literals = b;
+			literal = pos;
+			pos += regenerated;
+			break;
+		case 1:
+			if (pos >= end) {
+				throw corrupted();
+			}
+			literals = this.literals;
+			literal = 0;
+			Arrays.fill(literals, 0, regenerated, b[pos++]);
+			break;
+		default:
+			if (pos + compressed > end) {
+				throw corrupted();
+			}
+			final int streamsEnd = pos + compressed;
+			if (type == 2) {
+				pos = readHuffmanTable(pos, streamsEnd);
+			} else if (this.huffmanBits == 0) {
+				throw corrupted();
+			}
+			decodeLiterals(pos, streamsEnd, streams, regenerated);
+			literals = this.literals;
+			literal = 0;
+			pos = streamsEnd;
+			break;
+		}
+
+		final int literalsEnd = literal + regenerated;
+
+		// sequences
+
+		if (pos >= end) {
+			throw corrupted();
+		}
+
+		int count = b[pos++] & 0xFF;
+		if (count >= 128) {
+			if (count == 255) {
+				count = (b[pos] & 0xFF | (b[pos + 1] & 0xFF) << 8) + 0x7F00;
+				pos += 2;
+			} else {
+				count = (count - 128 << 8) + (b[pos++] & 0xFF);
+			}
+		}
+
+		final byte[] window = this.window;
+		final int limit = Math.min(window.length, this.writePos + this.blockMax);
+		int out = this.writePos;
+
+		if (count > 0) {
+			if (pos >= end) {
+				throw corrupted();
+			}
+			final int modes = b[pos++] & 0xFF;
+			if ((modes & 3) != 0) {
+				throw corrupted();
+			}
+			pos = selectTable(Kind.LITERAL_LENGTH, modes >>> 6, pos, end);
+			pos = selectTable(Kind.OFFSET, modes >>> 4 & 3, pos, end);
+			pos = selectTable(Kind.MATCH_LENGTH, modes >>> 2 & 3, pos, end);
+			if (pos >= end) {
+				throw corrupted();
+			}
+
+			final FseTable ll = this.ll;
+			final FseTable of = this.of;
+			final FseTable ml = this.ml;
+			final int[] repeats = this.repeats;
+			final BitReader bits = this.bits;
+
+			bits.init(b, pos, end);
+			int llState = bits.read(ll.log);
+			int ofState = bits.read(of.log);
+			int mlState = bits.read(ml.log);
+			bits.reload();
+
+			for (int i = 0; i < count; i++) {
+				final int ofCode = of.symbol[ofState];
+				final int mlCode = ml.symbol[mlState];
+				final int llCode = ll.symbol[llState];
+				if (ofCode > 31) {
+					throw corrupted();
+				}
+
+				// the lengths take up to 32 bits, the state updates up to 26 bits
+				final long offsetValue = (1L << ofCode) + bits.read(ofCode);
+				bits.ensure(32);
+				final int matchLength = ML_BASE[mlCode] + bits.read(ML_BITS[mlCode]);
+				final int literalLength = LL_BASE[llCode] + bits.read(LL_BITS[llCode]);
+				bits.ensure(26);
+
+				final int offset;
+				if (offsetValue > 3) {
+					offset = (int) Math.min(offsetValue - 3, Integer.MAX_VALUE);
+					repeats[2] = repeats[1];
+					repeats[1] = repeats[0];
+					repeats[0] = offset;
+				} else {
+					final int index = (int) offsetValue + (literalLength == 0 ? 1 : 0);
+					switch (index) {
+					case 1:
+						offset = repeats[0];
+						break;
+					case 2:
+						offset = repeats[1];
+						repeats[1] = repeats[0];
+						repeats[0] = offset;
+						break;
+					case 3:
+						offset = repeats[2];
+						repeats[2] = repeats[1];
+						repeats[1] = repeats[0];
+						repeats[0] = offset;
+						break;
+					default:
+						offset = repeats[0] - 1;
+						repeats[2] = repeats[1];
+						repeats[1] = repeats[0];
+						repeats[0] = offset;
+						break;
+					}
+				}
+
+				if (i + 1 < count) {
+					llState = ll.base[llState] + bits.read(ll.bits[llState]);
+					mlState = ml.base[mlState] + bits.read(ml.bits[mlState]);
+					ofState = of.base[ofState] + bits.read(of.bits[ofState]);
+					bits.ensure(31);
+				}
+
+				// execute the sequence
+
+				if (literalLength > literalsEnd - literal || matchLength > limit - out - literalLength) {
+					throw corrupted();
+				}
+
+				System.arraycopy(literals, literal, window, out, literalLength);
+				literal += literalLength;
+				out += literalLength;
+
+				if (offset <= 0 || offset > out) {
+					throw corrupted();
+				}
+				final int from = out - offset;
+				if (offset >= matchLength) {
+					System.arraycopy(window, from, window, out, matchLength);
+				} else if (offset == 1) {
+					Arrays.fill(window, out, out + matchLength, window[from]);
+				} else {
+					for (int j = 0; j < matchLength; j++) {
+						window[out + j] = window[from + j];
+					}
+				}
+				out += matchLength;
+			}
+
+			if (!bits.isFinished()) {
+				throw corrupted();
+			}
+		} else if (pos != end) {
+			throw corrupted();
+		}
+
+		final int remaining = literalsEnd - literal;
+		if (remaining > limit - out) {
+			throw corrupted();
+		}
+		System.arraycopy(literals, literal, window, out, remaining);
+		this.writePos = out + remaining;
+	}
+
+	private enum Kind {
+		LITERAL_LENGTH, OFFSET, MATCH_LENGTH
+	}
+
+	/**
+	 * Select the decoding table of a block, according to its compression
+	 * mode
+	 *
+	 * @return the position after the table description
+	 */
+	private int selectTable(final Kind kind, final int mode, int pos, final int end) throws IOException {
+		final FseTable table;
+		final FseTable predefined;
+		final int maxSymbol;
+		final int maxLog;
+
+		switch (kind) {
+		case LITERAL_LENGTH:
+			table = this.llTable;
+			predefined = LL_DEFAULT;
+			maxSymbol = 35;
+			maxLog = 9;
+			break;
+		case OFFSET:
+			table = this.ofTable;
+			predefined = OF_DEFAULT;
+			maxSymbol = 31;
+			maxLog = 8;
+			break;
+		default:
+			table = this.mlTable;
+			predefined = ML_DEFAULT;
+			maxSymbol = 52;
+			maxLog = 9;
+			break;
+		}
+
+		final FseTable selected;
+
+		switch (mode) {
+		case 0:
+			selected = predefined;
+			break;
+		case 1:
+			if (pos >= end || (this.block[pos] & 0xFF) > maxSymbol) {
+				throw corrupted();
+			}
+			table.rle(this.block[pos++]);
+			selected = table;
+			break;
+		case 2:
+			pos = readFseTable(table, pos, end, maxSymbol, maxLog);
+			selected = table;
+			break;
+		default:
+			switch (kind) {
+			case LITERAL_LENGTH:
+				selected = this.ll;
+				break;
+			case OFFSET:
+				selected = this.of;
+				break;
+			default:
+				selected = this.ml;
+				break;
+			}
+			if (selected == null) {
+				throw corrupted();
+			}
+			break;
+		}
+
+		switch (kind) {
+		case LITERAL_LENGTH:
+			this.ll = selected;
+			break;
+		case OFFSET:
+			this.of = selected;
+			break;
+		default:
+			this.ml = selected;
+			break;
+		}
+
+		return pos;
+	}
+
+	/**
+	 * Read the description of an FSE table, a forward bit stream of
+	 * normalized symbol counts
+	 *
+	 * @return the position after the description
+	 */
+	private int readFseTable(final FseTable table, final int start, final int end, final int maxSymbol,
+			final int maxLog) throws IOException {
+		final byte[] b = this.block;
+		final short[] counts = this.counts;
+		final int available = (end - start) * 8;
+
+		int bit = 0;
+		final int log = (b[start] & 0xF) + 5;
+		bit += 4;
+		if (log > maxLog) {
+			throw corrupted();
+		}
+
+		int remaining = (1 << log) + 1;
+		int threshold = 1 << log;
+		int width = log + 1;
+		int symbol = 0;
+
+		while (remaining > 1) {
+			if (symbol > maxSymbol || bit > available) {
+				throw corrupted();
+			}
+
+			final int max = 2 * threshold - 1 - remaining;
+			final int value = readInt(b, start + (bit >>> 3)) >>> (bit & 7);
+			int count;
+			if ((value & threshold - 1) < max) {
+				count = value & threshold - 1;
+				bit += width - 1;
+			} else {
+				count = value & 2 * threshold - 1;
+				if (count >= threshold) {
+					count -= max;
+				}
+				bit += width;
+			}
+			count--;
+
+			remaining -= count < 0 ? -count : count;
+			counts[symbol++] = (short) count;
+
+			if (count == 0) {
+				int repeat;
+				do {
+					if (bit > available) {
+						throw corrupted();
+					}
+					repeat = readInt(b, start + (bit >>> 3)) >>> (bit & 7) & 3;
+					bit += 2;
+					for (int i = 0; i < repeat && symbol <= maxSymbol; i++) {
+						counts[symbol++] = 0;
+					}
+				} while (repeat == 3);
+			}
+
+			while (remaining < threshold) {
+				width--;
+				threshold >>>= 1;
+			}
+		}
+
+		if (remaining != 1 || bit > available) {
+			throw corrupted();
+		}
+
+		table.build(counts, symbol, log);
+
+		return start + (bit + 7 >>> 3);
+	}
+
+	/**
+	 * Read the Huffman tree description of the literals
+	 *
+	 * @return the position after the description
+	 */
+	private int readHuffmanTable(int pos, final int end) throws IOException {
+		final byte[] b = this.block;
+		final int[] weights = this.weights;
+
+		if (pos >= end) {
+			throw corrupted();
+		}
+		final int header = b[pos++] & 0xFF;
+
+		int count;
+		if (header < 128) {
+			// FSE compressed weights, decoded using two interleaved states
+			if (pos + header > end) {
+				throw corrupted();
+			}
+			final int streamStart = readFseTable(this.weightTable, pos, pos + header, 255, 6);
+			if (streamStart >= pos + header) {
+				throw corrupted();
+			}
+
+			final FseTable table = this.weightTable;
+			final BitReader bits = this.bits;
+			bits.init(b, streamStart, pos + header);
+
+			int state1 = bits.read(table.log);
+			int state2 = bits.read(table.log);
+			count = 0;
+			while (true) {
+				if (count > 253) {
+					throw corrupted();
+				}
+				weights[count++] = table.symbol[state1];
+				state1 = table.base[state1] + bits.read(table.bits[state1]);
+				bits.reload();
+				if (bits.isOverflow()) {
+					weights[count++] = table.symbol[state2];
+					break;
+				}
+				weights[count++] = table.symbol[state2];
+				state2 = table.base[state2] + bits.read(table.bits[state2]);
+				bits.reload();
+				if (bits.isOverflow()) {
+					weights[count++] = table.symbol[state1];
+					break;
+				}
+			}
+			pos += header;
+		} else {
+			count = header - 127;
+			if (pos + (count + 1) / 2 > end) {
+				throw corrupted();
+			}
+			for (int i = 0; i < count; i++) {
+				final int value = b[pos + i / 2] & 0xFF;
+				weights[i] = (i & 1) == 0 ? value >>> 4 : value & 0xF;
+			}
+			pos += (count + 1) / 2;
+		}
+
+		// the weight of the last symbol is implied by the others
+
+		int total = 0;
+		for (int i = 0; i < count; i++) {
+			if (weights[i] > HUFFMAN_MAX_BITS) {
+				throw corrupted();
+			}
+			if (weights[i] > 0) {
+				total += 1 << weights[i] - 1;
+			}
+		}
+		if (total == 0) {
+			throw corrupted();
+		}
+
+		final int maxBits = 32 - Integer.numberOfLeadingZeros(total);
+		final int left = (1 << maxBits) - total;
+		if (maxBits > HUFFMAN_MAX_BITS || (left & left - 1) != 0) {
+			throw corrupted();
+		}
+		weights[count++] = 32 - Integer.numberOfLeadingZeros(left);
+
+		// codes of lower weights come first, in order of their symbols
+
+		final int[] start = new int[HUFFMAN_MAX_BITS + 2];
+		for (int i = 0; i < count; i++) {
+			if (weights[i] > 0) {
+				start[weights[i] + 1] += 1 << weights[i] - 1;
+			}
+		}
+		for (int w = 2; w < start.length; w++) {
+			start[w] += start[w - 1];
+		}
+
+		final int[] table = this.huffmanTable;
+		for (int i = 0; i < count; i++) {
+			final int w = weights[i];
+			if (w > 0) {
+				final int from = start[w];
+				final int to = from + (1 << w - 1);
+				Arrays.fill(table, from, to, i << 8 | maxBits + 1 - w);
+				start[w] = to;
+			}
+		}
+
+		this.huffmanBits = maxBits;
+
+		return pos;
+	}
+
+	private void decodeLiterals(final int start, final int end, final int streams, final int regenerated)
+			throws IOException {
+		if (streams == 1) {
+			decodeHuffman(start, end, 0, regenerated);
+			return;
+		}
+
+		if (end - start < 10) {
+			throw corrupted();
+		}
+
+		final byte[] b = this.block;
+		final int size1 = b[start] & 0xFF | (b[start + 1] & 0xFF) << 8;
+		final int size2 = b[start + 2] & 0xFF | (b[start + 3] & 0xFF) << 8;
+		final int size3 = b[start + 4] & 0xFF | (b[start + 5] & 0xFF) << 8;
+
+		final int segment = (regenerated + 3) / 4;
+		final int stream1 = start + 6;
+		final int stream2 = stream1 + size1;
+		final int stream3 = stream2 + size2;
+		final int stream4 = stream3 + size3;
+
+		if (stream4 >= end || 3 * segment > regenerated) {
+			throw corrupted();
+		}
+
+		decodeHuffman(stream1, stream2, 0, segment);
+		decodeHuffman(stream2, stream3, segment, segment);
+		decodeHuffman(stream3, stream4, 2 * segment, segment);
+		decodeHuffman(stream4, end, 3 * segment, regenerated - 3 * segment);
+	}
+
+	/**
+	 * Decode a single Huffman stream
+	 * <p>
+	 * This is the hot loop for most payloads, so the bit reader is inlined.
+	 * The longest code has 11 bits, so that four symbols can be decoded with
+	 * every load.
+	 * </p>
+	 */
+	private void decodeHuffman(final int start, final int end, final int offset, final int count)
+			throws IOException {
+		if (end <= start) {
+			throw corrupted();
+		}
+
+		final byte[] b = this.block;
+		final byte[] out = this.literals;
+		final int[] table = this.huffmanTable;
+		final int shift = 64 - this.huffmanBits;
+
+		final int last = b[end - 1] & 0xFF;
+		if (last == 0) {
+			throw corrupted();
+		}
+
+		int ptr = end - 8;
+		long container = readLong(b, ptr);
+		int consumed = Integer.numberOfLeadingZeros(last) - 23;
+
+		int i = offset;
+		final int stop = offset + count;
+		final int fast = stop - 4;
+
+		while (i <= fast) {
+			if (ptr > start) {
+				final int bytes = Math.min(consumed >>> 3, ptr - start);
+				ptr -= bytes;
+				consumed -= bytes << 3;
+				container = readLong(b, ptr);
+			}
+			if (consumed > 64 - 4 * HUFFMAN_MAX_BITS) {
+				break;
+			}
+
+			int e = table[(int) (container << consumed >>> shift)];
+			out[i] = (byte) (e >>> 8);
+			consumed += e & 0xFF;
+			e = table[(int) (container << consumed >>> shift)];
+			out[i + 1] = (byte) (e >>> 8);
+			consumed += e & 0xFF;
+			e = table[(int) (container << consumed >>> shift)];
+			out[i + 2] = (byte) (e >>> 8);
+			consumed += e & 0xFF;
+			e = table[(int) (container << consumed >>> shift)];
+			out[i + 3] = (byte) (e >>> 8);
+			consumed += e & 0xFF;
+			i += 4;
+		}
+
+		while (i < stop) {
+			if (ptr > start) {
+				final int bytes = Math.min(consumed >>> 3, ptr - start);
+				ptr -= bytes;
+				consumed -= bytes << 3;
+				container = readLong(b, ptr);
+			}
+			if (consumed >= 64) {
+				throw corrupted();
+			}
+			final int e = table[(int) (container << consumed >>> shift)];
+			out[i++] = (byte) (e >>> 8);
+			consumed += e & 0xFF;
+		}
+
+		if ((ptr - start) * 8 + 64 - consumed != 0) {
+			throw corrupted();
+		}
+	}
+
+	private int readByte() throws IOException {
+		final int result = this.in.read();
+		if (result < 0) {
+			throw new EOFException("Unexpected end of zstd data");
+		}
+		return result;
+	}
+
+	private long readLittleEndian(final int bytes) throws IOException {
+		long result = 0;
+		for (int i = 0; i < bytes; i++) {
+			result |= (long) readByte() << 8 * i;
+		}
+		return result;
+	}
+
+	private void readFully(final byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			final int rc = this.in.read(b, off, len);
+			if (rc < 0) {
+				throw new EOFException("Unexpected end of zstd data");
+			}
+			off += rc;
+			len -= rc;
+		}
+	}
+
+	private void skipInput(long amount) throws IOException {
+		while (amount > 0) {
+			final long skipped = this.in.skip(amount);
+			if (skipped <= 0) {
+				readByte();
+				amount--;
+			} else {
+				amount -= skipped;
+			}
+		}
+	}
+
+	private static int readInt(final byte[] b, final int i) {
+		return b[i] & 0xFF | (b[i + 1] & 0xFF) << 8 | (b[i + 2] & 0xFF) << 16 | (b[i + 3] & 0xFF) << 24;
+	}
+
+	private static long readLong(final byte[] b, final int i) {
+		return readInt(b, i) & 0xFFFFFFFFL | (long) readInt(b, i + 4) << 32;
+	}
+
+	private static IOException corrupted() {
+		return new IOException("Corrupted zstd data");
+	}
+
+	/**
+	 * A decoding table for finite state entropy
+	 */
+	private static class FseTable {
+
+		private int log;
+
+		private final int[] symbol;
+
+		private final int[] bits;
+
+		private final int[] base;
+
+		public FseTable(final int maxLog) {
+			this.symbol = new int[1 << maxLog];
+			this.bits = new int[1 << maxLog];
+			this.base = new int[1 << maxLog];
+		}
+
+		public static FseTable predefined(final int log, final int... counts) {
+			final short[] values = new short[counts.length];
+			for (int i = 0; i < counts.length; i++) {
+				values[i] = (short) counts[i];
+			}
+			final FseTable result = new FseTable(log);
+			try {
+				result.build(values, values.length, log);
+			} catch (final IOException e) {
+				throw new IllegalStateException(e);
+			}
+			return result;
+		}
+
+		public void rle(final byte symbol) {
+			this.log = 0;
+			this.symbol[0] = symbol & 0xFF;
+			this.bits[0] = 0;
+			this.base[0] = 0;
+		}
+
+		public void build(final short[] counts, final int symbols, final int log) throws IOException {
+			final int size = 1 << log;
+			final int[] next = new int[symbols];
+
+			int high = size - 1;
+			for (int s = 0; s < symbols; s++) {
+				if (counts[s] == -1) {
+					this.symbol[high--] = s;
+					next[s] = 1;
+				} else {
+					next[s] = counts[s];
+				}
+			}
+
+			final int step = (size >>> 1) + (size >>> 3) + 3;
+			final int mask = size - 1;
+			int pos = 0;
+			for (int s = 0; s < symbols; s++) {
+				for (int i = 0; i < counts[s]; i++) {
+					this.symbol[pos] = s;
+					do {
+						pos = pos + step & mask;
+					} while (pos > high);
+				}
+			}
+			if (pos != 0) {
+				throw corrupted();
+			}
+
+			for (int u = 0; u < size; u++) {
+				final int n = next[this.symbol[u]]++;
+				final int bits = log - (31 - Integer.numberOfLeadingZeros(n));
+				this.bits[u] = bits;
+				this.base[u] = (n << bits) - size;
+			}
+
+			this.log = log;
+		}
+	}
+
+	/**
+	 * A bit stream, read backwards from its end
+	 * <p>
+	 * The stream must be located in a buffer with at least eight bytes in
+	 * front of it. Those bytes only get loaded when a stream shorter than
+	 * eight bytes is read, and are never part of a valid result.
+	 * </p>
+	 */
+	private static class BitReader {
+
+		private byte[] b;
+
+		private int start;
+
+		private int ptr;
+
+		private long container;
+
+		private int consumed;
+
+		public void init(final byte[] b, final int start, final int end) throws IOException {
+			final int last = b[end - 1] & 0xFF;
+			if (last == 0) {
+				throw corrupted();
+			}
+			this.b = b;
+			this.start = start;
+			this.ptr = end - 8;
+			this.container = readLong(b, this.ptr);
+			this.consumed = Integer.numberOfLeadingZeros(last) - 23;
+		}
+
+		public int read(final int count) {
+			final int result = (int) (this.container << this.consumed >>> 1 >>> 63 - count);
+			this.consumed += count;
+			return result;
+		}
+
+		public void reload() {
+			if (this.ptr > this.start) {
+				final int bytes = Math.min(this.consumed >>> 3, this.ptr - this.start);
+				this.ptr -= bytes;
+				this.consumed -= bytes << 3;
+				this.container = readLong(this.b, this.ptr);
+			}
+		}
+
+		/**
+		 * Make sure the container holds a number of bits, if the stream
+		 * has them
+		 */
+		public void ensure(final int count) {
+			if (this.consumed > 64 - count) {
+				reload();
+			}
+		}
+
+		private long remaining() {
+			return (long) (this.ptr - this.start) * 8 + 64 - this.consumed;
+		}
+
+		public boolean isOverflow() {
+			return remaining() < 0;
+		}
+
+		public boolean isFinished() {
+			return remaining() == 0;
+		}
+	}
+
+	/**
+	 * The 64 bit xxHash, used for the content checksum
+	 */
+	private static class XXHash64 {
+
+		private static final long P1 = 0x9E3779B185EBCA87L;
+
+		private static final long P2 = 0xC2B2AE3D27D4EB4FL;
+
+		private static final long P3 = 0x165667B19E3779F9L;
+
+		private static final long P4 = 0x85EBCA77C2B2AE63L;
+
+		private static final long P5 = 0x27D4EB2F165667C5L;
+
+		private final byte[] buffer = new byte[32];
+
+		private int buffered;
+
+		private long total;
+
+		private long v1, v2, v3, v4;
+
+		public void reset() {
+			this.v1 = P1 + P2;
+			this.v2 = P2;
+			this.v3 = 0;
+			this.v4 = -P1;
+			this.buffered = 0;
+			this.total = 0;
+		}
+
+		public void update(final byte[] b, int off, int len) {
+			this.total += len;
+
+			if (this.buffered > 0) {
+				final int amount = Math.min(len, 32 - this.buffered);
+				System.arraycopy(b, off, this.buffer, this.buffered, amount);
+				this.buffered += amount;
+				off += amount;
+				len -= amount;
+				if (this.buffered < 32) {
+					return;
+				}
+				stripe(this.buffer, 0);
+				this.buffered = 0;
+			}
+
+			while (len >= 32) {
+				stripe(b, off);
+				off += 32;
+				len -= 32;
+			}
+
+			System.arraycopy(b, off, this.buffer, 0, len);
+			this.buffered = len;
+		}
+
+		private void stripe(final byte[] b, final int off) {
+			this.v1 = round(this.v1, readLong(b, off));
+			this.v2 = round(this.v2, readLong(b, off + 8));
+			this.v3 = round(this.v3, readLong(b, off + 16));
+			this.v4 = round(this.v4, readLong(b, off + 24));
+		}
+
+		public long digest() {
+			long h;
+			if (this.total >= 32) {
+				h = Long.rotateLeft(this.v1, 1) + Long.rotateLeft(this.v2, 7) + Long.rotateLeft(this.v3, 12)
+						+ Long.rotateLeft(this.v4, 18);
+				h = merge(h, this.v1);
+				h = merge(h, this.v2);
+				h = merge(h, this.v3);
+				h = merge(h, this.v4);
+			} else {
+				h = P5;
+			}
+			h += this.total;
+
+			int i = 0;
+			for (; i + 8 <= this.buffered; i += 8) {
+				h ^= round(0, readLong(this.buffer, i));
+				h = Long.rotateLeft(h, 27) * P1 + P4;
+			}
+			if (i + 4 <= this.buffered) {
+				h ^= (readInt(this.buffer, i) & 0xFFFFFFFFL) * P1;
+				h = Long.rotateLeft(h, 23) * P2 + P3;
+				i += 4;
+			}
+			for (; i < this.buffered; i++) {
+				h ^= (this.buffer[i] & 0xFF) * P5;
+				h = Long.rotateLeft(h, 11) * P1;
+			}
+
+			h ^= h >>> 33;
+			h *= P2;
+			h ^= h >>> 29;
+			h *= P3;
+			h ^= h >>> 32;
+			return h;
+		}
+
+		private static long round(long acc, final long input) {
+			acc += input * P2;
+			acc = Long.rotateLeft(acc, 31);
+			return acc * P1;
+		}
+
+		private static long merge(final long acc, final long value) {
+			return (acc ^ round(0, value)) * P1 + P4;
+		}
+	}
+}